@@ -0,0 +1,32 @@
+package fasttext.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected on the command line, which takes the usual JMH options, with
+ * the GC profiler reporting the bytes allocated per operation.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar Lookup -p subwordCacheBytes=0
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class);
+        if (Runtime.version().feature() >= 16) {
+            // Vector API kernels
+            options.jvmArgsAppend("--add-modules", "jdk.incubator.vector");
+        }
+        new Runner(options.build()).run();
+    }
+}
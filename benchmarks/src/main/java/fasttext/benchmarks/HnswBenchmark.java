@@ -0,0 +1,63 @@
+package fasttext.benchmarks;
+
+import fasttext.FastText;
+import fasttext.FastTextModel;
+import fasttext.HnswIndex;
+import fasttext.NearestNeighbors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Approximate top 10 queries over the {@link SyntheticModel#standard() standard} synthetic
+ * model, for several numbers of explored candidates. The index is built on the first run and
+ * saved next to the model, then memory mapped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class HnswBenchmark {
+
+    @Param({"16", "64", "256"})
+    public int ef;
+
+    private HnswIndex index;
+    private String[] words;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final SyntheticModel synthetic = SyntheticModel.standard();
+        final FastTextModel model = FastText.loadModel(synthetic.file().toString());
+        final Path path = HnswIndex.indexPath(synthetic.file().toString());
+        if (!Files.exists(path)) {
+            HnswIndex.build(model, new HnswIndex.Options().efConstruction(100)).save(path);
+        }
+        index = HnswIndex.load(model, path, true);
+        words = synthetic.words();
+    }
+
+    @Benchmark
+    public List<NearestNeighbors.Neighbor> approximateTop10() {
+        next = (next + 1) % words.length;
+        return index.nearest(words[next], 10, ef);
+    }
+}
@@ -0,0 +1,89 @@
+package fasttext.benchmarks;
+
+import fasttext.DenseMatrix;
+import fasttext.Vector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Vector} and {@link DenseMatrix} kernels. Run with {@code -jvmArgsAppend
+ * -Dfasttext.kernels=scalar} to measure the scalar fallback.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KernelBenchmark {
+
+    private static final int ROWS = 4096;
+
+    @Param({"100", "300"})
+    public int dim;
+
+    private Vector x;
+    private Vector y;
+    private DenseMatrix matrix;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(7L);
+        x = randomVector(random);
+        y = randomVector(random);
+        final float[] data = new float[ROWS * dim];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextFloat() * 2 - 1;
+        }
+        matrix = new DenseMatrix(ROWS, dim, data);
+    }
+
+    private Vector randomVector(Random random) {
+        final Vector vector = new Vector(dim);
+        final float[] data = vector.toArray();
+        for (int i = 0; i < dim; i++) {
+            data[i] = random.nextFloat() * 2 - 1;
+        }
+        return vector;
+    }
+
+    private int next() {
+        next = (next + 1) & (ROWS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public float dot() {
+        return x.dot(y);
+    }
+
+    @Benchmark
+    public float norm() {
+        return x.norm();
+    }
+
+    @Benchmark
+    public float dotRow() {
+        return matrix.dotRow(x, next());
+    }
+
+    @Benchmark
+    public Vector addRow() {
+        y.addRow(matrix, next(), 1e-6f);
+        return y;
+    }
+}
@@ -0,0 +1,68 @@
+package fasttext.benchmarks;
+
+import fasttext.FastText;
+import fasttext.FastTextModel;
+import fasttext.LoadOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading of the {@link SyntheticModel#standard() standard} synthetic model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LoadBenchmark {
+
+    /**
+     * stream: one thread reading a stream, threads: 4 threads with positional reads,
+     * mmap: memory mapped matrices, half: half precision matrices.
+     */
+    @Param({"stream", "threads", "mmap", "half"})
+    public String mode;
+
+    private String path;
+    private LoadOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        path = SyntheticModel.standard().file().toString();
+        switch (mode) {
+            case "stream":
+                options = new LoadOptions();
+                break;
+            case "threads":
+                options = new LoadOptions().threads(4);
+                break;
+            case "mmap":
+                options = new LoadOptions().mmap(true);
+                break;
+            case "half":
+                options = new LoadOptions().precision(LoadOptions.Precision.HALF);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+    }
+
+    @Benchmark
+    public FastTextModel loadModel() throws IOException {
+        return FastText.loadModel(path, options);
+    }
+}
@@ -0,0 +1,109 @@
+package fasttext.benchmarks;
+
+import fasttext.FastText;
+import fasttext.FastTextModel;
+import fasttext.LoadOptions;
+import fasttext.WordVectorCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Word vector lookups on the {@link SyntheticModel#standard() standard} synthetic model.
+ * Each operation looks up one word, in or out of the vocabulary, cycling through 4096 words
+ * drawn with Zipf frequencies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LookupBenchmark {
+
+    private static final int WORDS = 4096;
+    private static final int BATCH = 1024;
+
+    @Param({"0", "67108864"})
+    public long subwordCacheBytes;
+
+    private FastTextModel model;
+    private WordVectorCache vectorCache;
+    private String[] words;
+    private String[] oovWords;
+    private List<String> batch;
+    private float[] out;
+    private float[] batchOut;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final SyntheticModel synthetic = SyntheticModel.standard();
+        model = FastText.loadModel(synthetic.file().toString(),
+                new LoadOptions().subwordCacheBytes(subwordCacheBytes));
+        vectorCache = WordVectorCache.maxEntries(model, WORDS);
+        final String[] vocabulary = synthetic.words();
+        final Random random = new Random(1L);
+        words = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            words[i] = vocabulary[zipf(random, vocabulary.length)];
+        }
+        oovWords = synthetic.oovWords(WORDS);
+        batch = Arrays.asList(words).subList(0, BATCH);
+        out = new float[model.getDimension()];
+        batchOut = new float[BATCH * model.getDimension()];
+    }
+
+    /* rank in [0, n) drawn with a probability proportional to 1 / (rank + 1) */
+    private static int zipf(Random random, int n) {
+        return Math.min(n - 1, (int) Math.exp(random.nextDouble() * Math.log(n + 1)) - 1);
+    }
+
+    private int next() {
+        next = (next + 1) & (WORDS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public float[] inVocabulary() {
+        model.getWordVector(words[next()], out);
+        return out;
+    }
+
+    @Benchmark
+    public float[] outOfVocabulary() {
+        model.getWordVector(oovWords[next()], out);
+        return out;
+    }
+
+    @Benchmark
+    public float[] vectorCache() {
+        vectorCache.getWordVector(words[next()], out);
+        return out;
+    }
+
+    /**
+     * {@value #BATCH} words per operation.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public float[] batch() {
+        model.getWordVectors(batch, batchOut);
+        return batchOut;
+    }
+}
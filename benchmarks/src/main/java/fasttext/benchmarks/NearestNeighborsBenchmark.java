@@ -0,0 +1,51 @@
+package fasttext.benchmarks;
+
+import fasttext.FastText;
+import fasttext.FastTextModel;
+import fasttext.NearestNeighbors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exact top 10 queries over the 50000 words of the {@link SyntheticModel#standard() standard}
+ * synthetic model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class NearestNeighborsBenchmark {
+
+    private NearestNeighbors nn;
+    private String[] words;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final SyntheticModel synthetic = SyntheticModel.standard();
+        final FastTextModel model = FastText.loadModel(synthetic.file().toString());
+        nn = model.getNearestNeighbors();
+        words = synthetic.words();
+    }
+
+    @Benchmark
+    public List<NearestNeighbors.Neighbor> exactTop10() {
+        next = (next + 1) % words.length;
+        return nn.nearest(words[next], 10);
+    }
+}
@@ -0,0 +1,76 @@
+package fasttext.benchmarks;
+
+import fasttext.SubwordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing and ngram computation of the synthetic dictionary words, with the parameters of the
+ * pre-trained models (minn 3, maxn 6, 2M buckets).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubwordBenchmark {
+
+    private static final int WORDS = 4096;
+
+    private final SubwordHasher hasher = new SubwordHasher(3, 6, 2000000);
+
+    private String[] words;
+    private byte[][] encoded;
+    private int[] lengths;
+    private byte[] bytes;
+    private int[] ngrams;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final String[] vocabulary = new SyntheticModel(WORDS, 0, 1, 42L).words();
+        words = vocabulary;
+        encoded = new byte[WORDS][];
+        lengths = new int[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            encoded[i] = new byte[SubwordHasher.maxEncodedLength(words[i])];
+            lengths[i] = SubwordHasher.encodeWord(words[i], encoded[i]);
+        }
+        bytes = new byte[64];
+        ngrams = new int[hasher.maxNgrams(64)];
+    }
+
+    private int next() {
+        next = (next + 1) & (WORDS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public int encodeWord() {
+        return SubwordHasher.encodeWord(words[next()], bytes);
+    }
+
+    @Benchmark
+    public long hash() {
+        final int i = next();
+        return SubwordHasher.hash(encoded[i], 0, lengths[i]);
+    }
+
+    @Benchmark
+    public int computeNgrams() {
+        final int i = next();
+        return hasher.computeNgrams(encoded[i], lengths[i], ngrams);
+    }
+}
@@ -0,0 +1,195 @@
+package fasttext.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic synthetic skipgram models in the fastText binary format, so that benchmarks
+ * need no download. Words are random lowercase strings of 2 to 12 letters, which gives
+ * ngram counts close to the ones of natural words.
+ */
+public final class SyntheticModel {
+
+    private static final int MAGIC = 793712314;
+    private static final int VERSION = 12;
+    private static final int MIN_N = 3;
+    private static final int MAX_N = 6;
+
+    private final int nwords;
+    private final int bucket;
+    private final int dim;
+    private final long seed;
+
+    /**
+     * 50000 words, 200000 buckets and 100 dimensions: a 120MB model.
+     */
+    public static SyntheticModel standard() {
+        return new SyntheticModel(50000, 200000, 100, 42L);
+    }
+
+    public SyntheticModel(int nwords, int bucket, int dim, long seed) {
+        this.nwords = nwords;
+        this.bucket = bucket;
+        this.dim = dim;
+        this.seed = seed;
+    }
+
+    /**
+     * The words of the model dictionary, in order.
+     */
+    public String[] words() {
+        final Random random = new Random(seed);
+        final Set<String> words = new LinkedHashSet<>();
+        while (words.size() < nwords) {
+            words.add(randomWord(random));
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * {@code count} words which are not in the dictionary.
+     */
+    public String[] oovWords(int count) {
+        final Random random = new Random(~seed);
+        final String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            // an upper case letter keeps them out of the all lowercase dictionary
+            words[i] = "Q" + randomWord(random);
+        }
+        return words;
+    }
+
+    /**
+     * Returns the model file, written in the temporary directory on first use and shared by
+     * the following runs.
+     */
+    public Path file() throws IOException {
+        final Path file = Paths.get(System.getProperty("java.io.tmpdir"),
+                "fasttext-synthetic-" + nwords + "-" + bucket + "-" + dim + "-" + seed + ".bin");
+        if (!Files.exists(file)) {
+            final Path tmp = Files.createTempFile(file.getParent(), "fasttext-synthetic", ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                write(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return file;
+    }
+
+    /**
+     * Writes the model to {@code out}.
+     */
+    public void write(OutputStream os) throws IOException {
+        final LittleEndianOutput out = new LittleEndianOutput(os);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        // args: dim, ws, epoch, minCount, neg, wordNgrams, loss, model, bucket, minn, maxn, lrUpdateRate, t
+        for (int arg : new int[]{dim, 5, 5, 5, 5, 1, 2, 2, bucket, MIN_N, MAX_N, 100}) {
+            out.writeInt(arg);
+        }
+        out.writeDouble(1e-4);
+
+        // dictionary: size, nwords, nlabels, ntokens, pruneidx_size, then the entries
+        final String[] words = words();
+        out.writeInt(nwords);
+        out.writeInt(nwords);
+        out.writeInt(0);
+        out.writeLong(1000L * nwords);
+        out.writeLong(-1L);
+        for (int i = 0; i < nwords; i++) {
+            out.write(words[i].getBytes(StandardCharsets.UTF_8));
+            out.writeByte(0);
+            // Zipf like counts
+            out.writeLong(1 + 1_000_000L / (i + 1));
+            out.writeByte(0);
+        }
+
+        final Random random = new Random(seed);
+        out.writeByte(0);
+        writeMatrix(out, (long) nwords + bucket, random);
+        out.writeByte(0);
+        writeMatrix(out, nwords, random);
+        out.flush();
+    }
+
+    private void writeMatrix(LittleEndianOutput out, long m, Random random) throws IOException {
+        out.writeLong(m);
+        out.writeLong(dim);
+        for (long i = 0; i < m * dim; i++) {
+            out.writeFloat(random.nextFloat() * 2 - 1);
+        }
+    }
+
+    private static String randomWord(Random random) {
+        final char[] chars = new char[2 + random.nextInt(11)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Buffers little endian values in front of an output stream.
+     */
+    private static final class LittleEndianOutput {
+
+        private final OutputStream out;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        LittleEndianOutput(OutputStream out) {
+            this.out = out;
+        }
+
+        private ByteBuffer reserve(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flushBuffer();
+            }
+            return buffer;
+        }
+
+        void writeByte(int v) throws IOException {
+            reserve(1).put((byte) v);
+        }
+
+        void write(byte[] bytes) throws IOException {
+            flushBuffer();
+            out.write(bytes);
+        }
+
+        void writeInt(int v) throws IOException {
+            reserve(Integer.BYTES).putInt(v);
+        }
+
+        void writeLong(long v) throws IOException {
+            reserve(Long.BYTES).putLong(v);
+        }
+
+        void writeFloat(float v) throws IOException {
+            reserve(Float.BYTES).putFloat(v);
+        }
+
+        void writeDouble(double v) throws IOException {
+            reserve(Double.BYTES).putDouble(v);
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+
+        void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,726 @@
+package fasttext.server;
+
+import com.google.common.base.Preconditions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import fasttext.FastText;
+import fasttext.FastTextModel;
+import fasttext.HnswIndex;
+import fasttext.NearestNeighbors;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.ParseException;
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server of the word vectors, sentence vectors and nearest neighbors of a model,
+ * built on the HTTP server of the JDK:
+ *
+ * <pre>
+ * GET  /word?q=paris&amp;q=london      vectors of words, computed in micro-batches
+ * POST /words                       vectors of the whitespace separated words of the body
+ * GET  /sentence?q=the+first+line   vector of a sentence
+ * POST /sentences                   vectors of the lines of the body
+ * GET  /nn?q=paris&amp;k=10&amp;ef=64      nearest neighbors, from the HNSW index if any
+ * GET  /health                      status, number of words and dimension
+ * </pre>
+ *
+ * <p>Vectors are returned as JSON, {@code {"dim":100,"vectors":[[...],...]}}, or as binary
+ * frames with {@code ?format=binary} or {@code Accept: application/octet-stream}: the number of
+ * rows and the dimension as little-endian int32, followed by the rows as little-endian floats.
+ *
+ * <p>Without an HNSW index, the first {@code /nn} request builds the exact neighbors of the
+ * model; they need its complete vectors, {@code /nn} replies 503 while a progressively loaded
+ * model still reads its ngram matrix.
+ *
+ * <p>On a JDK which has virtual threads, each request runs on its own virtual thread, see
+ * {@link Options#virtualThreads(boolean)}, and on a cached thread pool otherwise. Blocking on a
+ * virtual thread while the word lookups of concurrent requests are coalesced by the
+ * {@link MicroBatcher} then costs no platform thread. The model keeps its scratch buffers and search state per thread, which a new
+ * virtual thread would rebuild on every request: sentence and nearest neighbor requests then
+ * run on a fixed pool of {@link Options#computeThreads(int)} platform threads.
+ */
+public final class EmbeddingServer implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(EmbeddingServer.class);
+
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String BINARY = "application/octet-stream";
+    private static final AtomicInteger SERVERS = new AtomicInteger();
+    /* largest array the JVMs allocate */
+    private static final int MAX_ARRAY = Integer.MAX_VALUE - 8;
+    /* initial capacity of JSON responses, which grow past it */
+    private static final int MAX_JSON_CAPACITY = 64 << 20;
+
+    static {
+        // the JDK server writes headers and body separately, Nagle's algorithm then delays
+        // small responses until the client acknowledges the headers, about 40ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final FastTextModel model;
+    private final HnswIndex index;
+    private final int maxBodyBytes;
+    private final int maxRequestVectors;
+    private final MicroBatcher batcher;
+    private final ExecutorService executor;
+    /* platform threads of the CPU bound endpoints when requests run on virtual threads, or null */
+    private final ExecutorService compute;
+    private final HttpServer server;
+
+    private EmbeddingServer(FastTextModel model, Options options) throws IOException {
+        this.model = model;
+        this.index = options.index;
+        this.maxBodyBytes = options.maxBodyBytes;
+        this.maxRequestVectors = options.maxRequestVectors;
+        this.batcher = new MicroBatcher(model, options.batchThreads, options.maxBatchWords,
+                TimeUnit.MICROSECONDS.toNanos(options.maxBatchDelayMicros));
+        final int id = SERVERS.incrementAndGet();
+        final ExecutorService virtual = options.threadPerTaskExecutor != null ? options.threadPerTaskExecutor
+                : options.virtualThreads ? virtualThreadExecutor() : null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(daemons("fasttext-server-" + id));
+        this.compute = virtual != null
+                ? Executors.newFixedThreadPool(options.computeThreads, daemons("fasttext-compute-" + id))
+                : null;
+        this.server = HttpServer.create(new InetSocketAddress(options.host, options.port), options.backlog);
+        server.createContext("/word", handler("/word", "GET", this::words));
+        server.createContext("/words", handler("/words", "POST", this::words));
+        server.createContext("/sentence", handler("/sentence", "GET", computed(this::sentences)));
+        server.createContext("/sentences", handler("/sentences", "POST", computed(this::sentences)));
+        server.createContext("/nn", handler("/nn", "GET", computed(this::neighbors)));
+        server.createContext("/health", handler("/health", "GET", this::health));
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts serving {@code model}.
+     */
+    public static EmbeddingServer start(FastTextModel model, Options options) throws IOException {
+        Preconditions.checkArgument(options.index == null || options.index.getModel() == model,
+                "The index was not built for this model");
+        final EmbeddingServer server = new EmbeddingServer(model, options);
+        server.server.start();
+        LOG.info("Serving " + model.getDictionary().nwords() + " words on port " + server.getPort());
+        return server;
+    }
+
+    /**
+     * Port the server listens on, useful when started on port 0.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Number of batches of word lookups computed.
+     */
+    public long getBatches() {
+        return batcher.batches();
+    }
+
+    /**
+     * Number of word requests computed in batches.
+     */
+    public long getBatchedRequests() {
+        return batcher.requests();
+    }
+
+    /**
+     * Stops accepting requests, lets the running ones finish for up to a second, then stops.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        batcher.close();
+        executor.shutdownNow();
+        if (compute != null) {
+            compute.shutdownNow();
+        }
+    }
+
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            // JDK 21, looked up so the server still runs on older JDKs
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOG.info("Virtual threads are not available, using a thread pool");
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemons(String prefix) {
+        final AtomicInteger threads = new AtomicInteger();
+        return r -> {
+            final Thread thread = new Thread(r, prefix + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private interface Endpoint {
+        Response handle(Request request) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Runs {@code endpoint} on the compute pool, if any, so that the per-thread state of the
+     * model is reused across requests.
+     */
+    private Endpoint computed(Endpoint endpoint) {
+        if (compute == null) {
+            return endpoint;
+        }
+        return request -> {
+            final Future<Response> response;
+            try {
+                response = compute.submit(() -> endpoint.handle(request));
+            } catch (RejectedExecutionException e) {
+                throw new CancellationException("Server stopping");
+            }
+            try {
+                return response.get();
+            } catch (InterruptedException e) {
+                response.cancel(true);
+                throw e;
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        };
+    }
+
+    /**
+     * Handler of the exact {@code path} with {@code method}, turning errors into status codes.
+     */
+    private HttpHandler handler(String path, String method, Endpoint endpoint) {
+        return exchange -> {
+            try {
+                Response response;
+                try {
+                    if (!exchange.getRequestURI().getPath().equals(path)) {
+                        response = Response.error(404, "Not found");
+                    } else if (!exchange.getRequestMethod().equals(method)) {
+                        exchange.getResponseHeaders().set("Allow", method);
+                        response = Response.error(405, "Use " + method);
+                    } else {
+                        response = endpoint.handle(new Request(exchange, maxBodyBytes));
+                    }
+                } catch (HttpError e) {
+                    response = Response.error(e.status, e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    response = Response.error(400, e.getMessage());
+                } catch (CancellationException e) {
+                    response = Response.error(503, "Server stopping");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    response = Response.error(503, "Server stopping");
+                } catch (RuntimeException e) {
+                    LOG.error("Failed to handle " + exchange.getRequestURI(), e);
+                    response = Response.error(500, "Internal error");
+                }
+                exchange.getResponseHeaders().set("Content-Type", response.contentType);
+                exchange.sendResponseHeaders(response.status, response.body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response.body);
+                }
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private Response words(Request request) throws IOException, InterruptedException {
+        final List<String> words = limit(request.isPost() ? splitWords(request.body()) : request.params("q"));
+        if (words.isEmpty()) {
+            return vectors(request, new float[0], 0);
+        }
+        return vectors(request, batcher.lookup(words), words.size());
+    }
+
+    private Response sentences(Request request) throws IOException {
+        final List<String> sentences = limit(request.isPost() ? splitLines(request.body()) : request.params("q"));
+        final int dim = model.getDimension();
+        final float[] vectors = new float[floats(sentences.size())];
+        final float[] vector = new float[dim];
+        for (int i = 0; i < sentences.size(); i++) {
+            model.getSentenceVector(sentences.get(i), vector);
+            System.arraycopy(vector, 0, vectors, i * dim, dim);
+        }
+        return vectors(request, vectors, sentences.size());
+    }
+
+    private Response neighbors(Request request) {
+        final String word = request.param("q", null);
+        if (word == null) {
+            throw new IllegalArgumentException("Missing q");
+        }
+        final int k = request.intParam("k", 10);
+        final int ef = request.intParam("ef", HnswIndex.DEFAULT_EF);
+        final List<NearestNeighbors.Neighbor> neighbors = index != null
+                ? index.nearest(word, k, Math.max(ef, k))
+                : exact().nearest(word, k);
+        final StringBuilder json = new StringBuilder("{\"q\":");
+        appendString(json, word).append(",\"neighbors\":[");
+        for (int i = 0; i < neighbors.size(); i++) {
+            json.append(i == 0 ? "{\"word\":" : ",{\"word\":");
+            appendString(json, neighbors.get(i).getWord()).append(",\"similarity\":");
+            appendFloat(json, neighbors.get(i).getSimilarity()).append('}');
+        }
+        return Response.json(json.append("]}"));
+    }
+
+    /**
+     * The exact neighbors of the model, built by the first request: they hold a normalized copy
+     * of the word vectors on the heap, which servers without {@code /nn} requests do not need.
+     */
+    private NearestNeighbors exact() {
+        if (!model.isFullyLoaded()) {
+            throw new HttpError(503, "The model is still loading");
+        }
+        return model.getNearestNeighbors();
+    }
+
+    private Response health(Request request) {
+        return Response.json(new StringBuilder("{\"status\":\"ok\",\"words\":")
+                .append(model.getDictionary().nwords()).append(",\"dim\":").append(model.getDimension()).append('}'));
+    }
+
+    /**
+     * {@code rows}, the words or sentences of a request, checked before they are computed.
+     */
+    private List<String> limit(List<String> rows) {
+        if (rows.size() > maxRequestVectors) {
+            throw new HttpError(413, "More than " + maxRequestVectors + " vectors requested: " + rows.size());
+        }
+        return rows;
+    }
+
+    /**
+     * Number of floats of {@code rows} vectors, if their response fits in an array.
+     */
+    private int floats(int rows) {
+        final long floats = (long) rows * model.getDimension();
+        if (2L * Integer.BYTES + floats * Float.BYTES > MAX_ARRAY) {
+            throw new HttpError(413, "Too many vectors requested: " + rows);
+        }
+        return (int) floats;
+    }
+
+    /**
+     * {@code rows} vectors as JSON or as a binary frame, depending on the request.
+     */
+    private Response vectors(Request request, float[] vectors, int rows) {
+        final int dim = model.getDimension();
+        final int floats = floats(rows);
+        if (request.wantsBinary()) {
+            final ByteBuffer frame = ByteBuffer.allocate(2 * Integer.BYTES + floats * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            frame.putInt(rows).putInt(dim);
+            frame.asFloatBuffer().put(vectors, 0, floats);
+            return new Response(200, BINARY, frame.array());
+        }
+        final StringBuilder json = new StringBuilder((int) Math.min(16 + floats * 12L, MAX_JSON_CAPACITY));
+        json.append("{\"dim\":").append(dim).append(",\"vectors\":[");
+        for (int i = 0; i < rows; i++) {
+            json.append(i == 0 ? "[" : ",[");
+            for (int j = 0; j < dim; j++) {
+                if (j > 0) {
+                    json.append(',');
+                }
+                appendFloat(json, vectors[i * dim + j]);
+            }
+            json.append(']');
+        }
+        return Response.json(json.append("]}"));
+    }
+
+    private static StringBuilder appendFloat(StringBuilder json, float v) {
+        // JSON has no NaN nor infinities
+        return Float.isNaN(v) || Float.isInfinite(v) ? json.append("null") : json.append(v);
+    }
+
+    private static StringBuilder appendString(StringBuilder json, String s) {
+        json.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+
+    private static List<String> splitWords(String text) {
+        final List<String> words = new ArrayList<>();
+        for (String word : text.split("\\s+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    private static List<String> splitLines(String text) {
+        if (text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final String[] lines = text.split("\r?\n", -1);
+        final int n = text.endsWith("\n") ? lines.length - 1 : lines.length;
+        final List<String> sentences = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            sentences.add(lines[i]);
+        }
+        return sentences;
+    }
+
+    /**
+     * Parameters and body of an exchange.
+     */
+    private static final class Request {
+        private final HttpExchange exchange;
+        private final int maxBodyBytes;
+        private final Map<String, List<String>> params = new HashMap<>();
+
+        Request(HttpExchange exchange, int maxBodyBytes) throws UnsupportedEncodingException {
+            this.exchange = exchange;
+            this.maxBodyBytes = maxBodyBytes;
+            final String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                for (String pair : query.split("&")) {
+                    if (pair.isEmpty()) {
+                        continue;
+                    }
+                    final int eq = pair.indexOf('=');
+                    final String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), "UTF-8");
+                    final String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+                    params.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+                }
+            }
+        }
+
+        boolean isPost() {
+            return "POST".equals(exchange.getRequestMethod());
+        }
+
+        List<String> params(String name) {
+            return params.getOrDefault(name, Collections.emptyList());
+        }
+
+        String param(String name, String defaultValue) {
+            final List<String> values = params.get(name);
+            return values == null ? defaultValue : values.get(0);
+        }
+
+        int intParam(String name, int defaultValue) {
+            final String value = param(name, null);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                final int n = Integer.parseInt(value);
+                if (n > 0) {
+                    return n;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException(name + " must be a positive integer, got " + value);
+        }
+
+        boolean wantsBinary() {
+            final String format = param("format", null);
+            if (format != null) {
+                if (!format.equals("json") && !format.equals("binary")) {
+                    throw new IllegalArgumentException("Invalid format: " + format);
+                }
+                return format.equals("binary");
+            }
+            final String accept = exchange.getRequestHeaders().getFirst("Accept");
+            return accept != null && accept.contains(BINARY);
+        }
+
+        /**
+         * The body decoded as UTF-8, at most {@code maxBodyBytes} long.
+         */
+        String body() throws IOException {
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            try (InputStream in = exchange.getRequestBody()) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    if (body.size() + n > maxBodyBytes) {
+                        throw new HttpError(413, "Body larger than " + maxBodyBytes + " bytes");
+                    }
+                    body.write(buffer, 0, n);
+                }
+            }
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class Response {
+        final int status;
+        final String contentType;
+        final byte[] body;
+
+        Response(int status, String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        static Response json(CharSequence json) {
+            return new Response(200, JSON, json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Response error(int status, String message) {
+            final StringBuilder json = new StringBuilder("{\"error\":");
+            appendString(json, String.valueOf(message)).append('}');
+            return new Response(status, JSON, json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class HttpError extends RuntimeException {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Options of the server.
+     */
+    public static final class Options {
+        private String host = "localhost";
+        private int port = 8080;
+        private int backlog = 128;
+        private boolean virtualThreads = true;
+        private int computeThreads = Runtime.getRuntime().availableProcessors();
+        private int batchThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        private int maxBatchWords = 1024;
+        private long maxBatchDelayMicros = 0;
+        private int maxBodyBytes = 16 << 20;
+        private int maxRequestVectors = 100000;
+        private HnswIndex index;
+        /* stands for the virtual thread executor in tests, on JDKs without virtual threads */
+        private ExecutorService threadPerTaskExecutor;
+
+        /**
+         * Address to bind, {@code localhost} by default.
+         */
+        public Options host(String host) {
+            this.host = Preconditions.checkNotNull(host);
+            return this;
+        }
+
+        /**
+         * Port to listen on, 8080 by default, 0 for any free port.
+         */
+        public Options port(int port) {
+            Preconditions.checkArgument(port >= 0 && port < 65536, "Invalid port %s", port);
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Maximum number of pending connections.
+         */
+        public Options backlog(int backlog) {
+            Preconditions.checkArgument(backlog > 0, "backlog must be > 0, got %s", backlog);
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * Whether to run each request on a virtual thread when the JDK has them, true by default,
+         * or on a cached thread pool.
+         */
+        public Options virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * Number of platform threads computing sentence and nearest neighbor requests when
+         * requests run on virtual threads, the number of cores by default.
+         */
+        public Options computeThreads(int computeThreads) {
+            Preconditions.checkArgument(computeThreads > 0, "computeThreads must be > 0, got %s", computeThreads);
+            this.computeThreads = computeThreads;
+            return this;
+        }
+
+        /**
+         * Number of threads computing batches of word lookups, half the cores by default.
+         */
+        public Options batchThreads(int batchThreads) {
+            Preconditions.checkArgument(batchThreads > 0, "batchThreads must be > 0, got %s", batchThreads);
+            this.batchThreads = batchThreads;
+            return this;
+        }
+
+        /**
+         * Number of words at which a batch stops waiting for more requests, 1024 by default.
+         */
+        public Options maxBatchWords(int maxBatchWords) {
+            Preconditions.checkArgument(maxBatchWords > 0, "maxBatchWords must be > 0, got %s", maxBatchWords);
+            this.maxBatchWords = maxBatchWords;
+            return this;
+        }
+
+        /**
+         * Time a batch waits for more requests, 0 by default: batches then only hold the
+         * requests queued while the previous batch was computed.
+         */
+        public Options maxBatchDelayMicros(long maxBatchDelayMicros) {
+            Preconditions.checkArgument(maxBatchDelayMicros >= 0, "maxBatchDelayMicros must be >= 0, got %s",
+                    maxBatchDelayMicros);
+            this.maxBatchDelayMicros = maxBatchDelayMicros;
+            return this;
+        }
+
+        /**
+         * Maximum size of a request body, 16MB by default.
+         */
+        public Options maxBodyBytes(int maxBodyBytes) {
+            Preconditions.checkArgument(maxBodyBytes > 0, "maxBodyBytes must be > 0, got %s", maxBodyBytes);
+            this.maxBodyBytes = maxBodyBytes;
+            return this;
+        }
+
+        /**
+         * Maximum number of words or sentences of a request, 100000 by default.
+         */
+        public Options maxRequestVectors(int maxRequestVectors) {
+            Preconditions.checkArgument(maxRequestVectors > 0, "maxRequestVectors must be > 0, got %s",
+                    maxRequestVectors);
+            this.maxRequestVectors = maxRequestVectors;
+            return this;
+        }
+
+        /**
+         * HNSW index of the model to search the nearest neighbors in, exact search otherwise.
+         */
+        public Options index(HnswIndex index) {
+            this.index = index;
+            return this;
+        }
+
+        /**
+         * Runs the requests on {@code executor} as if it started a virtual thread per request.
+         */
+        Options threadPerTaskExecutor(ExecutorService executor) {
+            this.threadPerTaskExecutor = executor;
+            return this;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Logger root = Logger.getRootLogger();
+        if (!root.getAllAppenders().hasMoreElements()) {
+            root.addAppender(new ConsoleAppender(new PatternLayout("%d %-5p %c{1} - %m%n"), ConsoleAppender.SYSTEM_ERR));
+            root.setLevel(Level.INFO);
+        }
+        final org.apache.commons.cli.Options cli = new org.apache.commons.cli.Options();
+        cli.addOption(Option.builder().longOpt("host").hasArg().argName("host")
+                .desc("address to bind, localhost by default").build());
+        cli.addOption(Option.builder("p").longOpt("port").hasArg().argName("port")
+                .desc("port to listen on, 8080 by default").build());
+        cli.addOption(Option.builder().longOpt("mmap").desc("memory map the model instead of loading it").build());
+        cli.addOption(Option.builder().longOpt("index").hasArg().argName("file")
+                .desc("HNSW index of the model for nearest neighbors").build());
+        cli.addOption(Option.builder().longOpt("max-vectors").hasArg().argName("n")
+                .desc("maximum number of words or sentences of a request").build());
+        cli.addOption(Option.builder().longOpt("platform-threads")
+                .desc("run requests on a thread pool instead of virtual threads").build());
+        cli.addOption(Option.builder().longOpt("batch-words").hasArg().argName("n")
+                .desc("maximum number of words of a batch").build());
+        cli.addOption(Option.builder().longOpt("batch-delay").hasArg().argName("micros")
+                .desc("time a batch waits for more requests").build());
+        final CommandLine line;
+        try {
+            line = new DefaultParser().parse(cli, args);
+            if (line.getArgList().size() != 1) {
+                throw new ParseException("Expected the model file");
+            }
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp("fasttext4j-server <model> [options]", cli);
+            System.exit(1);
+            return;
+        }
+        final String modelFile = line.getArgList().get(0);
+        final FastTextModel model = line.hasOption("mmap") ? FastText.mmapModel(modelFile) : FastText.loadModel(modelFile);
+        final Options options = new Options()
+                .host(line.getOptionValue("host", "localhost"))
+                .port(Integer.parseInt(line.getOptionValue("port", "8080")))
+                .virtualThreads(!line.hasOption("platform-threads"));
+        if (line.hasOption("index")) {
+            options.index(HnswIndex.load(model, Paths.get(line.getOptionValue("index")), true));
+        }
+        if (line.hasOption("max-vectors")) {
+            options.maxRequestVectors(Integer.parseInt(line.getOptionValue("max-vectors")));
+        }
+        if (line.hasOption("batch-words")) {
+            options.maxBatchWords(Integer.parseInt(line.getOptionValue("batch-words")));
+        }
+        if (line.hasOption("batch-delay")) {
+            options.maxBatchDelayMicros(Long.parseLong(line.getOptionValue("batch-delay")));
+        }
+        final EmbeddingServer server = start(model, options);
+        final CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            stopped.countDown();
+        }));
+        stopped.await();
+    }
+}
@@ -0,0 +1,202 @@
+package fasttext.server;
+
+import fasttext.FastTextModel;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces the word lookups of concurrent requests into batches computed with
+ * {@link FastTextModel#getWordVectors(List, float[])}, which reads the rows of a batch once
+ * each and in order.
+ *
+ * <p>Batching threads take the first waiting request, then add the requests queued behind it,
+ * waiting at most {@code maxDelayNanos} for more, until the batch holds {@code maxBatchWords}
+ * words. Under low load a request is computed alone and immediately; under high load the
+ * queue fills while a batch is computed and the next batches grow.
+ */
+final class MicroBatcher implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(MicroBatcher.class);
+    /* largest array the JVMs allocate, bounds the floats of a batch */
+    private static final int MAX_FLOATS = Integer.MAX_VALUE - 8;
+
+    private final FastTextModel model;
+    private final int maxBatchWords;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread[] threads;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private volatile boolean closed;
+
+    MicroBatcher(FastTextModel model, int threads, int maxBatchWords, long maxDelayNanos) {
+        this.model = model;
+        this.maxBatchWords = maxBatchWords;
+        this.maxDelayNanos = maxDelayNanos;
+        this.threads = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            this.threads[i] = new Thread(this::run, "fasttext-batcher-" + i);
+            this.threads[i].setDaemon(true);
+            this.threads[i].start();
+        }
+    }
+
+    /**
+     * Returns the vectors of {@code words}, row major, once the batch holding them is computed.
+     *
+     * @throws IllegalArgumentException if the vectors do not fit in an array
+     */
+    float[] lookup(List<String> words) throws InterruptedException {
+        if (closed) {
+            throw new CancellationException("Batcher closed");
+        }
+        if ((long) words.size() * model.getDimension() > MAX_FLOATS) {
+            throw new IllegalArgumentException("Too many words: " + words.size());
+        }
+        final Request request = new Request(words);
+        queue.add(request);
+        if (closed && queue.remove(request)) {
+            // closed after the first check, the request may have missed the final drain
+            throw new CancellationException("Batcher closed");
+        }
+        try {
+            return request.result.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Number of batches computed.
+     */
+    long batches() {
+        return batches.sum();
+    }
+
+    /**
+     * Number of requests computed in batches.
+     */
+    long requests() {
+        return requests.sum();
+    }
+
+    private void run() {
+        final List<Request> batch = new ArrayList<>();
+        final List<String> words = new ArrayList<>();
+        float[] out = new float[0];
+        final int dim = model.getDimension();
+        // taken from the queue but too large for the previous batch
+        Request carried = null;
+        while (!closed) {
+            try {
+                final Request first = carried != null ? carried : queue.poll(100, TimeUnit.MILLISECONDS);
+                carried = null;
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                int size = first.words.size();
+                final long deadline = System.nanoTime() + maxDelayNanos;
+                while (size < maxBatchWords) {
+                    final long wait = deadline - System.nanoTime();
+                    final Request next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (((long) size + next.words.size()) * dim > MAX_FLOATS) {
+                        carried = next;
+                        break;
+                    }
+                    batch.add(next);
+                    size += next.words.size();
+                }
+                for (Request request : batch) {
+                    words.addAll(request.words);
+                }
+                if (out.length < size * dim) {
+                    out = new float[size * dim];
+                }
+                model.getWordVectors(words, out);
+                // counted before the callers resume, which may read the counters
+                batches.increment();
+                requests.add(batch.size());
+                int offset = 0;
+                for (Request request : batch) {
+                    final int length = request.words.size() * dim;
+                    request.result.complete(Arrays.copyOfRange(out, offset, offset + length));
+                    offset += length;
+                }
+            } catch (InterruptedException e) {
+                fail(batch, new CancellationException("Batcher closed"));
+                if (carried != null) {
+                    fail(Collections.singletonList(carried), new CancellationException("Batcher closed"));
+                }
+                return;
+            } catch (Throwable e) {
+                // errors included: the thread goes on, its callers must not wait forever
+                LOG.error("Failed to compute a batch of " + words.size() + " words", e);
+                fail(batch, e);
+                out = new float[0];
+            } finally {
+                batch.clear();
+                words.clear();
+            }
+        }
+        if (carried != null) {
+            fail(Collections.singletonList(carried), new CancellationException("Batcher closed"));
+        }
+    }
+
+    private static void fail(List<Request> batch, Throwable e) {
+        for (Request request : batch) {
+            request.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Stops the batching threads and fails the waiting requests.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        final List<Request> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        fail(pending, new CancellationException("Batcher closed"));
+    }
+
+    private static final class Request {
+        final List<String> words;
+        final CompletableFuture<float[]> result = new CompletableFuture<>();
+
+        Request(List<String> words) {
+            this.words = words;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package fasttext.server;
+
+import fasttext.FastText;
+import fasttext.FastTextModel;
+import fasttext.LatencyHistogram;
+import fasttext.TestModels;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Concurrent clients requesting word vectors as binary frames: checks every reply, that
+ * lookups were coalesced, and reports the throughput and latency percentiles.
+ */
+public class EmbeddingServerLoadTest extends TestCase {
+
+    private static final int DIM = 16;
+    private static final int NWORDS = 5000;
+    private static final int CLIENTS = 8;
+    private static final int REQUESTS = 250;
+    private static final int WORDS_PER_REQUEST = 4;
+
+    public void testConcurrentClients() throws Exception {
+        final File modelFile = TestModels.writeModel(File.createTempFile("fasttext", ".bin"), NWORDS, DIM, 12L);
+        final FastTextModel model = FastText.loadModel(modelFile.getPath());
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try (EmbeddingServer server = EmbeddingServer.start(model, new EmbeddingServer.Options()
+                .port(0).batchThreads(1).maxBatchDelayMicros(200))) {
+            final String base = "http://localhost:" + server.getPort() + "/word?format=binary";
+            final List<Future<?>> results = new ArrayList<>();
+            final long start = System.nanoTime();
+            for (int c = 0; c < CLIENTS; c++) {
+                final Random random = new Random(c);
+                results.add(clients.submit(() -> {
+                    for (int r = 0; r < REQUESTS; r++) {
+                        final String[] words = new String[WORDS_PER_REQUEST];
+                        final StringBuilder url = new StringBuilder(base);
+                        for (int i = 0; i < words.length; i++) {
+                            words[i] = random.nextInt(10) == 0 ? "oov" + r : "w" + random.nextInt(NWORDS);
+                            url.append("&q=").append(words[i]);
+                        }
+                        final long sent = System.nanoTime();
+                        final ByteBuffer frame = ByteBuffer.wrap(get(url.toString())).order(ByteOrder.LITTLE_ENDIAN);
+                        latencies.record(System.nanoTime() - sent);
+                        assertEquals(words.length, frame.getInt());
+                        assertEquals(DIM, frame.getInt());
+                        for (String word : words) {
+                            final float[] expected = model.getWordVector(word).toArray();
+                            for (int j = 0; j < DIM; j++) {
+                                assertEquals(word, expected[j], frame.getFloat(), 1e-6f);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            final long elapsed = System.nanoTime() - start;
+            final long requests = (long) CLIENTS * REQUESTS;
+            assertEquals(requests, server.getBatchedRequests());
+            // 8 clients and a 200us delay: batches hold several requests
+            assertTrue(server.getBatches() + " batches", server.getBatches() < requests);
+            System.out.printf(Locale.ROOT, "%d requests of %d words from %d clients: %.0f requests/s, "
+                            + "p50 %.0fus, p99 %.0fus, %.1f requests per batch%n",
+                    requests, WORDS_PER_REQUEST, CLIENTS, requests * 1e9 / elapsed,
+                    latencies.percentile(0.5) / 1e3, latencies.percentile(0.99) / 1e3,
+                    (double) requests / server.getBatches());
+        } finally {
+            clients.shutdownNow();
+            modelFile.delete();
+        }
+    }
+
+    private static byte[] get(String url) throws Exception {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        assertEquals(200, connection.getResponseCode());
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            final byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, n);
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,273 @@
+package fasttext.server;
+
+import fasttext.FastText;
+import fasttext.FastTextListener;
+import fasttext.FastTextModel;
+import fasttext.HnswIndex;
+import fasttext.LoadOptions;
+import fasttext.NearestNeighbors;
+import fasttext.ProgressiveLoad;
+import fasttext.TestModels;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class EmbeddingServerTest extends TestCase {
+
+    private static final int DIM = 8;
+    private static final Pattern NUMBER = Pattern.compile("-?[0-9][0-9.eE+-]*");
+
+    private File modelFile;
+    private FastTextModel model;
+    private EmbeddingServer server;
+
+    @Override
+    protected void setUp() throws Exception {
+        modelFile = TestModels.writeModel(File.createTempFile("fasttext", ".bin"), 200, DIM, 11L);
+        model = FastText.loadModel(modelFile.getPath());
+        server = EmbeddingServer.start(model, new EmbeddingServer.Options().port(0).batchThreads(2));
+    }
+
+    @Override
+    protected void tearDown() {
+        server.close();
+        modelFile.delete();
+    }
+
+    public void testWordVectors() throws Exception {
+        final String[] words = {"w1", "w42", "unknown", "w1"};
+        final float[] json = numbers(get("/word?q=w1&q=w42&q=unknown&q=w1").body, 1);
+        final float[] binary = frame(get("/word?q=w1&q=w42&q=unknown&q=w1&format=binary").bytes, words.length);
+        final float[] posted = numbers(post("/words", "w1 w42\nunknown\tw1\n", null).body, 1);
+        for (int i = 0; i < words.length; i++) {
+            final float[] expected = model.getWordVector(words[i]).toArray();
+            for (int j = 0; j < DIM; j++) {
+                // batches add the rows in another order than single lookups
+                assertEquals(expected[j], json[i * DIM + j], 1e-6f);
+                assertEquals(expected[j], binary[i * DIM + j], 1e-6f);
+                assertEquals(expected[j], posted[i * DIM + j], 1e-6f);
+            }
+        }
+        assertEquals("{\"dim\":8,\"vectors\":[]}", get("/word").body);
+        assertTrue(server.getBatches() > 0);
+    }
+
+    public void testSentenceVectors() throws Exception {
+        final String[] sentences = {"w1 w2 w3", "", "w4 unknown"};
+        final Reply reply = post("/sentences", String.join("\n", sentences) + "\n", "application/octet-stream");
+        final float[] vectors = frame(reply.bytes, sentences.length);
+        for (int i = 0; i < sentences.length; i++) {
+            final float[] expected = model.getSentenceVector(sentences[i]).toArray();
+            for (int j = 0; j < DIM; j++) {
+                assertEquals(expected[j], vectors[i * DIM + j], 0.0f);
+            }
+        }
+        final float[] single = numbers(get("/sentence?q=" + URLEncoder.encode("w1 w2 w3", "UTF-8")).body, 1);
+        final float[] expected = model.getSentenceVector("w1 w2 w3").toArray();
+        for (int j = 0; j < DIM; j++) {
+            assertEquals(expected[j], single[j], 0.0f);
+        }
+    }
+
+    public void testNearestNeighbors() throws Exception {
+        // built by the first request
+        final long bytes = model.ramBytesUsed();
+        final String body = get("/nn?q=w3&k=4").body;
+        assertTrue(model.ramBytesUsed() > bytes);
+        final List<NearestNeighbors.Neighbor> expected = model.getNearestNeighbors().nearest("w3", 4);
+        assertTrue(body, body.startsWith("{\"q\":\"w3\",\"neighbors\":[{\"word\":\"" + expected.get(0).getWord()));
+        for (NearestNeighbors.Neighbor neighbor : expected) {
+            assertTrue(body, body.contains("\"word\":\"" + neighbor.getWord() + "\""));
+        }
+
+        server.close();
+        final HnswIndex index = HnswIndex.build(model);
+        server = EmbeddingServer.start(model, new EmbeddingServer.Options().port(0).index(index));
+        final String approximate = get("/nn?q=w3&k=4&ef=200").body;
+        for (NearestNeighbors.Neighbor neighbor : index.nearest("w3", 4, 200)) {
+            assertTrue(approximate, approximate.contains("\"word\":\"" + neighbor.getWord() + "\""));
+        }
+    }
+
+    public void testNearestNeighborsOfLoadingModel() throws Exception {
+        server.close();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ProgressiveLoad load = FastText.loadModelAsync(modelFile.getPath(), new LoadOptions(), task ->
+                new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    task.run();
+                }).start());
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        // runs on the loading thread, before the ngram matrix is read
+        load.wordMatrix().thenAccept(degraded -> {
+            try {
+                server = EmbeddingServer.start(degraded, new EmbeddingServer.Options().port(0));
+                assertEquals(503, get("/nn?q=w3&k=4").status);
+                assertEquals(200, get("/word?q=w3").status);
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        start.countDown();
+        load.ngramMatrix().get();
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+        assertEquals(200, get("/nn?q=w3&k=4").status);
+    }
+
+    public void testThreadPerTaskRequestsComputeOnPlatformPool() throws Exception {
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+        final FastTextModel observed = FastText.loadModel(modelFile.getPath(), new LoadOptions()
+                .listener(new FastTextListener() {
+                    @Override
+                    public void onLookup(int words, int oov, int ngrams, long nanos) {
+                        threads.add(Thread.currentThread().getName());
+                    }
+                }));
+        server.close();
+        server = EmbeddingServer.start(observed, new EmbeddingServer.Options().port(0).computeThreads(1)
+                .threadPerTaskExecutor(Executors.newCachedThreadPool()));
+        for (int i = 0; i < 3; i++) {
+            final String body = get("/nn?q=w" + i + "&k=3").body;
+            assertTrue(body, body.contains("\"word\":"));
+            assertEquals(1, numbers(get("/sentence?q=w1+w" + i).body, 1).length / DIM);
+        }
+        assertEquals(threads.toString(), Collections.singleton("fasttext-compute-"), prefixes(threads));
+    }
+
+    private static Set<String> prefixes(Set<String> threads) {
+        final Set<String> prefixes = new HashSet<>();
+        for (String thread : threads) {
+            prefixes.add(thread.replaceAll("[0-9]+-[0-9]+$", ""));
+        }
+        return prefixes;
+    }
+
+    public void testErrors() throws Exception {
+        assertEquals(404, get("/wordz").status);
+        assertEquals(404, get("/").status);
+        assertEquals(405, post("/word", "w1", null).status);
+        assertEquals(400, get("/nn").status);
+        assertEquals(400, get("/nn?q=w1&k=zero").status);
+        assertEquals(400, get("/word?q=w1&format=xml").status);
+        final Reply health = get("/health");
+        assertEquals(200, health.status);
+        assertEquals("{\"status\":\"ok\",\"words\":200,\"dim\":8}", health.body);
+
+        server.close();
+        server = EmbeddingServer.start(model, new EmbeddingServer.Options().port(0).maxBodyBytes(16));
+        assertEquals(413, post("/words", "w1 w2 w3 w4 w5 w6 w7 w8 w9", null).status);
+
+        server.close();
+        server = EmbeddingServer.start(model, new EmbeddingServer.Options().port(0).maxRequestVectors(3));
+        assertEquals(200, post("/words", "w1 w2 w3", null).status);
+        assertEquals(413, post("/words", "w1 w2 w3 w4", null).status);
+        assertEquals(413, get("/word?q=w1&q=w2&q=w3&q=w4").status);
+        assertEquals(413, post("/sentences", "w1\nw2\nw3\nw4\n", null).status);
+        // rejected before their lookups
+        assertEquals(1, server.getBatchedRequests());
+    }
+
+    /**
+     * The floats of a JSON body, skipping the first {@code skip} numbers.
+     */
+    private static float[] numbers(String json, int skip) {
+        final Matcher matcher = NUMBER.matcher(json);
+        final float[] values = new float[json.length()];
+        int n = 0;
+        while (matcher.find()) {
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            values[n++] = Float.parseFloat(matcher.group());
+        }
+        final float[] result = new float[n];
+        System.arraycopy(values, 0, result, 0, n);
+        return result;
+    }
+
+    private static float[] frame(byte[] bytes, int rows) {
+        final ByteBuffer frame = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(rows, frame.getInt());
+        assertEquals(DIM, frame.getInt());
+        assertEquals(rows * DIM * Float.BYTES, frame.remaining());
+        final float[] vectors = new float[rows * DIM];
+        frame.asFloatBuffer().get(vectors);
+        return vectors;
+    }
+
+    private Reply get(String path) throws IOException {
+        return send(path, "GET", null, null);
+    }
+
+    private Reply post(String path, String body, String accept) throws IOException {
+        return send(path, "POST", body, accept);
+    }
+
+    private Reply send(String path, String method, String body, String accept) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection)
+                new URL("http://localhost:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (accept != null) {
+            connection.setRequestProperty("Accept", accept);
+        }
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                // the server may reply before reading a body it rejects
+            }
+        }
+        final int status = connection.getResponseCode();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                final byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    bytes.write(buffer, 0, n);
+                }
+            }
+        }
+        return new Reply(status, bytes.toByteArray());
+    }
+
+    private static final class Reply {
+        final int status;
+        final byte[] bytes;
+        final String body;
+
+        Reply(int status, byte[] bytes) {
+            this.status = status;
+            this.bytes = bytes;
+            this.body = new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package fasttext.server;
+
+import fasttext.FastText;
+import fasttext.FastTextModel;
+import fasttext.TestModels;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class MicroBatcherTest extends TestCase {
+
+    private static final int DIM = 8;
+
+    private File modelFile;
+    private FastTextModel model;
+
+    @Override
+    protected void setUp() throws Exception {
+        modelFile = TestModels.writeModel(File.createTempFile("fasttext", ".bin"), 100, DIM, 12L);
+        model = FastText.loadModel(modelFile.getPath());
+    }
+
+    @Override
+    protected void tearDown() {
+        modelFile.delete();
+    }
+
+    public void testErrorsFailTheBatchOnly() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (MicroBatcher batcher = new MicroBatcher(model, 1, 64, 0)) {
+            final Future<float[]> failed = executor.submit(() -> batcher.lookup(words(3, true)));
+            try {
+                failed.get(30, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause().getCause() instanceof StackOverflowError);
+            }
+            // the batching thread survived
+            final float[] vectors = executor.submit(() -> batcher.lookup(Arrays.asList("w1", "w2")))
+                    .get(30, TimeUnit.SECONDS);
+            assertEquals(2 * DIM, vectors.length);
+            final float[] expected = model.getWordVector("w2").toArray();
+            for (int j = 0; j < DIM; j++) {
+                assertEquals(expected[j], vectors[DIM + j], 1e-6f);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testRejectsLookupsLargerThanAnArray() throws Exception {
+        try (MicroBatcher batcher = new MicroBatcher(model, 1, 64, 0)) {
+            batcher.lookup(words(Integer.MAX_VALUE / DIM + 1, false));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Too many words"));
+        }
+    }
+
+    /**
+     * Words {@code w0, w1...}, failing like a stack overflow when read if {@code broken}.
+     */
+    private static List<String> words(int size, boolean broken) {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (broken) {
+                    throw new StackOverflowError();
+                }
+                return "w" + index;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
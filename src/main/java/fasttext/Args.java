@@ -1,29 +1,85 @@
 package fasttext;
 
-import fasttext.store.InputStreamFastTextInput;
+import fasttext.store.FastTextInput;
 
 import java.io.IOException;
 
+/**
+ * Training arguments saved in the header of a model, in file order.
+ */
 public class Args {
 
   private final int dim;
+  private final int ws;
+  private final int epoch;
+  private final int minCount;
+  private final int neg;
+  private final int wordNgrams;
+  private final LossName loss;
   private final ModelName model;
   private final int bucket;
   private final int minN;
   private int maxN;
+  private final int lrUpdateRate;
+  private final double t;
 
-  private Args(int dim, ModelName model, int bucket, int minN, int maxN) {
+  private Args(int dim, int ws, int epoch, int minCount, int neg, int wordNgrams, LossName loss, ModelName model,
+               int bucket, int minN, int maxN, int lrUpdateRate, double t) {
     this.dim = dim;
+    this.ws = ws;
+    this.epoch = epoch;
+    this.minCount = minCount;
+    this.neg = neg;
+    this.wordNgrams = wordNgrams;
+    this.loss = loss;
     this.model = model;
     this.bucket = bucket;
     this.minN = minN;
     this.maxN = maxN;
+    this.lrUpdateRate = lrUpdateRate;
+    this.t = t;
   }
 
   public int getDimension() {
     return this.dim;
   }
 
+  /**
+   * Size of the context window.
+   */
+  public int getWs() {
+    return this.ws;
+  }
+
+  public int getEpoch() {
+    return this.epoch;
+  }
+
+  /**
+   * Minimal number of occurrences of the dictionary words.
+   */
+  public int getMinCount() {
+    return this.minCount;
+  }
+
+  /**
+   * Number of negatives sampled.
+   */
+  public int getNeg() {
+    return this.neg;
+  }
+
+  /**
+   * Max length of the word ngrams of supervised models.
+   */
+  public int getWordNgrams() {
+    return this.wordNgrams;
+  }
+
+  public LossName getLoss() {
+    return this.loss;
+  }
+
   public ModelName getModel() {
     return this.model;
   }
@@ -44,21 +100,77 @@ public class Args {
     this.maxN = maxN;
   }
 
-  public static Args load(InputStreamFastTextInput is) throws IOException {
+  public int getLrUpdateRate() {
+    return this.lrUpdateRate;
+  }
+
+  /**
+   * Sampling threshold.
+   */
+  public double getT() {
+    return this.t;
+  }
+
+  @Override
+  public String toString() {
+    return "Args(dim=" + dim + ", ws=" + ws + ", epoch=" + epoch + ", minCount=" + minCount + ", neg=" + neg
+        + ", wordNgrams=" + wordNgrams + ", loss=" + loss + ", model=" + model + ", bucket=" + bucket
+        + ", minn=" + minN + ", maxn=" + maxN + ", lrUpdateRate=" + lrUpdateRate + ", t=" + t + ")";
+  }
+
+  public static Args load(FastTextInput is) throws IOException {
     int dim = is.readInt();
-    is.readInt();
-    is.readInt();
-    is.readInt();
-    is.readInt();
-    is.readInt();
-    is.readInt();
+    int ws = is.readInt();
+    int epoch = is.readInt();
+    int minCount = is.readInt();
+    int neg = is.readInt();
+    int wordNgrams = is.readInt();
+    LossName loss = LossName.fromValue(is.readInt());
     ModelName model = ModelName.fromValue(is.readInt());
     int bucket = is.readInt();
     int minN = is.readInt();
     int maxN = is.readInt();
-    is.readInt();
-    is.readDouble();
-    return new Args(dim, model, bucket, minN, maxN);
+    int lrUpdateRate = is.readInt();
+    double t = is.readDouble();
+    if (dim <= 0 || bucket < 0) {
+      throw new IllegalArgumentException("Invalid dimension " + dim + " or bucket number " + bucket);
+    }
+    return new Args(dim, ws, epoch, minCount, neg, wordNgrams, loss, model, bucket, minN, maxN, lrUpdateRate, t);
+  }
+
+  /**
+   * Arguments of word vectors of dimension {@code dim} read from a text file, which have no
+   * ngram buckets. The training arguments are the defaults of native fastText.
+   */
+  static Args ofVectors(int dim) {
+    if (dim <= 0) {
+      throw new IllegalArgumentException("Invalid dimension " + dim);
+    }
+    return new Args(dim, 5, 5, 5, 5, 1, LossName.NS, ModelName.SG, 0, 0, 0, 100, 1e-4);
+  }
+
+  public enum LossName {
+    HS(1),
+    NS(2),
+    SOFTMAX(3),
+    OVA(4);
+
+    private final int value;
+
+    LossName(int value) {
+      this.value = value;
+    }
+
+    public int getValue() {
+      return this.value;
+    }
+
+    public static LossName fromValue(int value) throws IllegalArgumentException {
+      if (value < 1 || value > values().length) {
+        throw new IllegalArgumentException("Unknown loss_name enum value :" + value);
+      }
+      return values()[value - 1];
+    }
   }
 
   public enum ModelName {
@@ -0,0 +1,59 @@
+package fasttext;
+
+/**
+ * Snapshot of the statistics of a lookup cache.
+ */
+public final class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long size;
+    private final long weight;
+
+    CacheStats(long hits, long misses, long evictions, long size, long weight) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.weight = weight;
+    }
+
+    public long hits() {
+        return this.hits;
+    }
+
+    public long misses() {
+        return this.misses;
+    }
+
+    public long evictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Number of cached entries.
+     */
+    public long size() {
+        return this.size;
+    }
+
+    /**
+     * Total weight of the cached entries: their approximate number of bytes for caches bounded
+     * in bytes, their number for caches bounded in entries.
+     */
+    public long weight() {
+        return this.weight;
+    }
+
+    public double hitRate() {
+        final long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats(hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+                + ", size=" + size + ", weight=" + weight + ")";
+    }
+}
@@ -0,0 +1,86 @@
+package fasttext;
+
+import fasttext.store.FastTextInput;
+
+import java.io.IOException;
+
+/**
+ * {@link Matrix} on the heap split in several {@code float[]}, so that it can hold more than
+ * 2^31 floats. A row never crosses two chunks.
+ */
+public class ChunkedMatrix extends Matrix {
+
+    private final float[][] chunks;
+    /* a power of two, so that rows are located with a shift and a mask */
+    private final int rowsPerChunk;
+    private final int chunkShift;
+
+    public ChunkedMatrix(int m, int n) {
+        this(m, n, CHUNK_ELEMENTS);
+    }
+
+    ChunkedMatrix(int m, int n, int chunkFloats) {
+        super(m, n);
+        this.rowsPerChunk = rowsPerChunk(n, chunkFloats);
+        this.chunkShift = Integer.numberOfTrailingZeros(rowsPerChunk);
+        this.chunks = new float[nrChunks(m, rowsPerChunk)][];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = new float[(int) Math.min(rowsPerChunk, m - (long) c * rowsPerChunk) * n];
+        }
+    }
+
+    /**
+     * Array holding row {@code i}, at {@link #offset(int)}.
+     */
+    float[] chunk(int i) {
+        return chunks[i >>> chunkShift];
+    }
+
+    int offset(int i) {
+        return (i & (rowsPerChunk - 1)) * n;
+    }
+
+    /**
+     * Copies {@code row} into row {@code i}.
+     */
+    public void setRow(int i, float[] row) {
+        System.arraycopy(row, 0, chunk(i), offset(i), n);
+    }
+
+    /**
+     * Reads {@code rows} rows of floats from {@code is} into rows {@code firstRow...} of this
+     * matrix. Different row ranges may be read concurrently.
+     */
+    void readRows(FastTextInput is, int firstRow, int rows) throws IOException {
+        int row = firstRow;
+        final int end = firstRow + rows;
+        while (row < end) {
+            // rows up to the end of the chunk of row
+            final int count = Math.min(end - row, rowsPerChunk - (row & (rowsPerChunk - 1)));
+            is.readFloats(chunk(row), offset(row), count * n);
+            row += count;
+        }
+    }
+
+    @Override
+    public float at(int i, int j) {
+        return chunk(i)[offset(i) + j];
+    }
+
+    @Override
+    public float[] atRow(int i) {
+        final float[] r = new float[n];
+        System.arraycopy(chunk(i), offset(i), r, 0, n);
+        return r;
+    }
+
+    @Override
+    public float dotRow(final float[] x, int i) {
+        return Kernels.dot(chunk(i), offset(i), x, 0, n);
+    }
+
+    @Override
+    public void addRowToArray(final float[] x, int off, int i, float a) {
+        Kernels.axpy(a, chunk(i), offset(i), x, off, n);
+    }
+}
@@ -0,0 +1,96 @@
+package fasttext;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link Matrix} backed by an on-heap {@code float[]}.
+ */
+public class DenseMatrix extends Matrix {
+
+    private final float[] data;
+
+    public DenseMatrix(int m, int n, float[] data) {
+        super(m, n);
+        this.data = data;
+    }
+
+    public DenseMatrix(int m, int n) {
+        super(m, n);
+        data = new float[this.m * this.n];
+    }
+
+    public DenseMatrix(DenseMatrix other) {
+        super(other.m, other.n);
+        data = new float[this.m * this.n];
+        for (int i = 0; i < (this.m * this.n); i++) {
+            data[i] = other.data[i];
+        }
+    }
+
+    public void zero() {
+        for (int i = 0; i < (m * n); i++) {
+            data[i] = 0.0f;
+        }
+    }
+
+    @Override
+    public float[] atRow(int i) {
+        float[] r = new float[n];
+        System.arraycopy(data, i * n, r, 0, n);
+        return r;
+    }
+
+    @Override
+    public float at(int i, int j) {
+        return data[i * n + j];
+    }
+
+    @Override
+    public float dotRow(final float[] x, int i) {
+        return Kernels.dot(data, i * n, x, 0, n);
+    }
+
+    @Override
+    public void addRowToArray(final float[] x, int off, int i, float a) {
+        Kernels.axpy(a, data, i * n, x, off, n);
+    }
+
+    public void addRow(final Vector vec, int i, float a) {
+        Preconditions.checkPositionIndex(i, m);
+        Preconditions.checkArgument(vec.size() == n);
+        Kernels.axpy(a, vec.data, 0, data, i * n, n);
+    }
+
+    public void multiplyRow(final Vector nums) {
+        multiplyRow(nums, 0, -1);
+    }
+
+    public void multiplyRow(final Vector nums, int ib, int ie) {
+        if (ie == -1) {
+            ie = m;
+        }
+        Preconditions.checkPositionIndex(ie, nums.size());
+        for (int i = ib; i < ie; i++) {
+            Kernels.scale(nums.at(i - ib), data, i * n, n);
+        }
+    }
+
+    public void divideRow(final Vector denoms) {
+        divideRow(denoms, 0, -1);
+    }
+
+    public void divideRow(final Vector denoms, int ib, int ie) {
+        if (ie == -1) {
+            ie = m;
+        }
+        Preconditions.checkPositionIndex(ie, denoms.size());
+        for (int i = ib; i < ie; i++) {
+            float denom = denoms.at(i - ib);
+            if (denom != 0) {
+                for (int j = 0; j < this.n; j++) {
+                    data[i * n + j] /= denom;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package fasttext;
+
+import com.google.common.base.Preconditions;
+import fasttext.store.FastTextInput;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Vocabulary of a fastText model: words first, then labels.
+ *
+ * <p>Entries are stored back to back as UTF-8 in a single byte arena and found through an
+ * open addressing table of entry ids keyed by their FNV-1a hash, as the native dictionary
+ * does. Lookups compare bytes in place and do not allocate.
+ */
+public class Dictionary {
+
+    private final int nwords;
+    private final int nlabels;
+    private final long ntokens;
+    private final PruneIndex pruneIndex;
+
+    /* UTF-8 bytes of entry i are arena[offsets[i]...offsets[i + 1]] */
+    private final byte[] arena;
+    private final int[] offsets;
+    /* occurrences of each entry in the training corpus */
+    private final long[] counts;
+    /* entry id + 1, 0 for empty slots */
+    private final int[] table;
+    private final int mask;
+
+    private Dictionary(int nwords, int nlabels, long ntokens, PruneIndex pruneIndex,
+                       byte[] arena, int[] offsets, long[] counts) {
+        this.nwords = nwords;
+        this.nlabels = nlabels;
+        this.ntokens = ntokens;
+        this.pruneIndex = pruneIndex;
+        this.arena = arena;
+        this.offsets = offsets;
+        this.counts = counts;
+        final int size = size();
+        final int capacity = Integer.highestOneBit(Math.max(2, size * 2 - 1)) << 1;
+        this.table = new int[capacity];
+        this.mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            final int start = offsets[id];
+            int slot = (int) SubwordHasher.hash(arena, start, offsets[id + 1] - start) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Number of entries, words and labels.
+     */
+    public int size() {
+        return nwords + nlabels;
+    }
+
+    public int nwords() {
+        return this.nwords;
+    }
+
+    public int nlabels() {
+        return this.nlabels;
+    }
+
+    /**
+     * Number of tokens in the training corpus.
+     */
+    public long ntokens() {
+        return this.ntokens;
+    }
+
+    PruneIndex getPruneIndex() {
+        return this.pruneIndex;
+    }
+
+    /**
+     * Returns the id of an entry, or -1 when it is not in the dictionary.
+     */
+    public int getId(CharSequence word) {
+        final Scratch scratch = Scratch.get();
+        final int length = SubwordHasher.encode(word, scratch.bytes(3 * word.length()), 0);
+        return getId(scratch.bytes, 0, length);
+    }
+
+    /**
+     * Returns the id of the entry with the UTF-8 bytes {@code [off, off + len)}, or -1 when it
+     * is not in the dictionary.
+     */
+    public int getId(byte[] word, int off, int len) {
+        int slot = (int) SubwordHasher.hash(word, off, len) & mask;
+        int id;
+        while ((id = table[slot] - 1) >= 0) {
+            final int start = offsets[id];
+            if (offsets[id + 1] - start == len && Arrays.equals(arena, start, start + len, word, off, off + len)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public String getWord(int id) {
+        return new String(arena, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Copies the UTF-8 bytes of entry {@code id} to {@code dst} at {@code off}, returning the
+     * offset after them.
+     */
+    int copyWord(int id, byte[] dst, int off) {
+        final int length = offsets[id + 1] - offsets[id];
+        System.arraycopy(arena, offsets[id], dst, off, length);
+        return off + length;
+    }
+
+    int wordLength(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    public boolean isLabel(int id) {
+        return id >= nwords;
+    }
+
+    /**
+     * Returns how often entry {@code id}, a word or a label, appeared in the training corpus.
+     */
+    public long getCount(int id) {
+        return counts[id];
+    }
+
+    /**
+     * Returns how often label {@code id} appeared in the training corpus.
+     */
+    public long getLabelCount(int id) {
+        Preconditions.checkArgument(isLabel(id), "Not a label: %s", id);
+        return counts[id];
+    }
+
+    /**
+     * Approximate number of bytes used by the dictionary.
+     */
+    public long ramBytesUsed() {
+        return arena.length + 4L * offsets.length + 8L * counts.length + 4L * table.length;
+    }
+
+    /**
+     * Dictionary of the words with the UTF-8 bytes {@code arena[offsets[i]...offsets[i + 1]]},
+     * without labels nor counts.
+     */
+    static Dictionary ofWords(byte[] arena, int[] offsets) {
+        final int nwords = offsets.length - 1;
+        return new Dictionary(nwords, 0, 0, PruneIndex.NONE, arena, offsets, new long[nwords]);
+    }
+
+    public static Dictionary load(FastTextInput is) throws IOException {
+        final int size = is.readInt();
+        final int nwords = is.readInt();
+        final int nlabels = is.readInt();
+        final long ntokens = is.readLong();
+        final long pruneIdxSize = is.readLong();
+        if (nwords < 0 || nlabels < 0 || size != (long) nwords + nlabels) {
+            throw new IllegalArgumentException("Dictionary size " + size + " != " + nwords + " words + "
+                    + nlabels + " labels");
+        }
+
+        byte[] arena = new byte[(int) Math.min(1 << 30, Math.max(16, size * 8L))];
+        final int[] offsets = new int[size + 1];
+        final long[] counts = new long[size];
+        int pos = 0;
+        for (int i = 0; i < size; i++) {
+            offsets[i] = pos;
+            byte b;
+            while ((b = is.readByte()) != 0) {
+                if (pos == arena.length) {
+                    arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8,
+                            arena.length + (long) (arena.length >> 1)));
+                }
+                arena[pos++] = b;
+            }
+            counts[i] = is.readLong();
+            final int type = is.readByteAsInt();
+            if (type != (i < nwords ? 0 : 1)) {
+                throw new IllegalArgumentException("Unexpected type " + type + " for entry " + i);
+            }
+        }
+        offsets[size] = pos;
+        final PruneIndex pruneIndex = PruneIndex.load(is, pruneIdxSize);
+        return new Dictionary(nwords, nlabels, ntokens, pruneIndex, Arrays.copyOf(arena, pos), offsets, counts);
+    }
+}
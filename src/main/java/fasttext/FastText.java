@@ -1,12 +1,17 @@
 package fasttext;
 
+import fasttext.store.ChannelFastTextInput;
+import fasttext.store.FastTextInput;
 import fasttext.store.InputStreamFastTextInput;
+import fasttext.store.MMapFastTextInput;
 import org.apache.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Java FastText implementation.
@@ -20,6 +25,7 @@ public class FastText {
     private static final int FILE_FORMAT_MAGIC_INT = 793712314;
 
     private static final Logger LOG = Logger.getLogger(FastText.class);
+    private static final AtomicInteger LOADS = new AtomicInteger();
 
     private static boolean checkModel(int magic, int version) {
         if (magic != FILE_FORMAT_MAGIC_INT) {
@@ -47,29 +53,121 @@ public class FastText {
         }
     }
 
+    /**
+     * Load fastText model from file path, memory mapping the input matrices instead of
+     * copying them onto the heap. Only the dictionary is read eagerly, matrix rows are
+     * paged in by the OS on first access and shared with every other process mapping
+     * the same file.
+     */
+    public static FastTextModel mmapModel(String filename) throws IOException {
+        return loadModel(filename, new LoadOptions().mmap(true));
+    }
+
+    /**
+     * Load fastText model from file path with the given {@link LoadOptions}.
+     */
+    public static FastTextModel loadModel(String filename, LoadOptions options) throws IOException {
+        return loadModel(filename, options, null);
+    }
+
+    /**
+     * Loads the model of {@code filename} on a new thread, see
+     * {@link #loadModelAsync(String, LoadOptions, Executor)}.
+     */
+    public static ProgressiveLoad loadModelAsync(String filename, LoadOptions options) {
+        return loadModelAsync(filename, options, task -> {
+            final Thread thread = new Thread(task, "fasttext-load-" + LOADS.incrementAndGet());
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * Loads the model of {@code filename} on {@code executor}, completing a future per phase:
+     * the dictionary, the model in degraded mode once the word matrix is read, then the same
+     * model once the ngram matrix is read. Lookups can start on the degraded model, they use
+     * the ngram rows as soon as they are loaded, see {@link FastTextModel#isFullyLoaded()}.
+     */
+    public static ProgressiveLoad loadModelAsync(String filename, LoadOptions options, Executor executor) {
+        final ProgressiveLoad load = new ProgressiveLoad();
+        executor.execute(() -> {
+            try {
+                load.onLoaded(loadModel(filename, options, load));
+            } catch (IOException | RuntimeException | Error e) {
+                LOG.error("Failed to load " + filename, e);
+                load.onFailure(e);
+            }
+        });
+        return load;
+    }
+
+    private static FastTextModel loadModel(String filename, LoadOptions options, ProgressiveLoad progress)
+            throws IOException {
+        final File f = new File(filename);
+        LOG.info("Loading FastText model from: " + filename + " with " + options);
+        if (!f.canRead()) {
+            throw new IllegalArgumentException("Model file cannot be opened for loading");
+        }
+        if (options.isMmap()) {
+            try (final MMapFastTextInput is = MMapFastTextInput.open(f.toPath())) {
+                return loadModel(is, options, progress);
+            }
+        }
+        if (options.getThreads() > 1) {
+            try (final ChannelFastTextInput is = ChannelFastTextInput.open(f.toPath())) {
+                return loadModel(is, options, progress);
+            }
+        }
+        try (final InputStreamFastTextInput is = new InputStreamFastTextInput(Files.newInputStream(f.toPath()))) {
+            return loadModel(is, options, progress);
+        }
+    }
+
     /**
      * Load a fastText model from a fastText binary format, reading from InputStream in.
      */
     public static FastTextModel loadModel(InputStream in) throws IOException {
         try (final InputStreamFastTextInput is = new InputStreamFastTextInput(in)) {
-            final int magic = is.readInt();
-            final int version = is.readInt();
-            if (!checkModel(magic, version)) {
-                throw new IllegalArgumentException("Model file has wrong file format");
-            }
-            LOG.info("Loading model arguments");
-            final Args args = Args.load(is);
-            if (version == 11) {
-                // backward compatibility: old supervised models do not use char ngrams.
-                if (args.getModel() == Args.ModelName.SUP) {
-                    args.setMaxN(0);
-                }
+            return loadModel(is, new LoadOptions(), null);
+        }
+    }
+
+    /**
+     * Reads the magic number, the version and the arguments at the start of a model.
+     */
+    static Args readHeader(FastTextInput is) throws IOException {
+        final int magic = is.readInt();
+        final int version = is.readInt();
+        if (!checkModel(magic, version)) {
+            throw new IllegalArgumentException("Model file has wrong file format");
+        }
+        final Args args = Args.load(is);
+        if (version == 11) {
+            // backward compatibility: old supervised models do not use char ngrams.
+            if (args.getModel() == Args.ModelName.SUP) {
+                args.setMaxN(0);
             }
-            LOG.info("Loading model");
-            final FastTextModel model = FastTextModel.load(args, is);
+        }
+        return args;
+    }
+
+    private static FastTextModel loadModel(FastTextInput is, LoadOptions options, ProgressiveLoad progress)
+            throws IOException {
+        final FastTextListener listener = options.getListener();
+        final long start = System.nanoTime();
+        final long startPointer = is.getFilePointer();
+        final Args args = readHeader(is);
+        if (listener != null) {
+            listener.onLoadPhase(FastTextListener.LoadPhase.HEADER, System.nanoTime() - start,
+                    is.getFilePointer() - startPointer);
+        }
+        final FastTextModel model = FastTextModel.load(args, is, options, progress);
 
-            LOG.info("FastText model loaded");
-            return model;
+        final long nanos = System.nanoTime() - start;
+        LOG.info("FastText model loaded in " + nanos / 1000000 + "ms");
+        if (listener != null) {
+            listener.onModelLoaded(model, nanos, is.getFilePointer() - startPointer);
         }
+        return model;
     }
-}
\ No newline at end of file
+}
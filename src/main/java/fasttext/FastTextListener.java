@@ -0,0 +1,55 @@
+package fasttext;
+
+/**
+ * Receives load and lookup events, for monitoring. Set it with
+ * {@link LoadOptions#listener(FastTextListener)}; without a listener no event is created and
+ * lookups are not timed.
+ *
+ * <p>Methods are called from the loading and looking up threads, so they must be thread safe
+ * and cheap. {@link FastTextMetrics} aggregates the events into counters and histograms.
+ */
+public interface FastTextListener {
+
+    /**
+     * Steps of {@link FastText#loadModel(String, LoadOptions)}.
+     */
+    enum LoadPhase {
+        /**
+         * Magic number, version and model arguments.
+         */
+        HEADER,
+        DICTIONARY,
+        /**
+         * Word rows of the input matrix. The input matrix of quantized models is read at once
+         * and reported as this phase.
+         */
+        WORD_MATRIX,
+        /**
+         * Ngram rows of the input matrix.
+         */
+        NGRAM_MATRIX,
+        /**
+         * Output matrix, only loaded for supervised models.
+         */
+        OUTPUT_MATRIX
+    }
+
+    /**
+     * Called once each load phase completes, with the bytes it read from the model.
+     */
+    default void onLoadPhase(LoadPhase phase, long nanos, long bytes) {
+    }
+
+    /**
+     * Called once a model is loaded, with the total load time and bytes read.
+     */
+    default void onModelLoaded(FastTextModel model, long nanos, long bytes) {
+    }
+
+    /**
+     * Called after a lookup of {@code words} words, {@code oov} of them out of the vocabulary,
+     * which summed {@code ngrams} ngram rows in {@code nanos} nanoseconds.
+     */
+    default void onLookup(int words, int oov, int ngrams, long nanos) {
+    }
+}
@@ -0,0 +1,140 @@
+package fasttext;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * {@link FastTextListener} aggregating events in counters, for export to a monitoring system.
+ *
+ * <pre>
+ * FastTextMetrics metrics = new FastTextMetrics();
+ * FastTextModel model = FastText.loadModel(path, new LoadOptions().listener(metrics));
+ * metrics.getLoadNanos(LoadPhase.WORD_MATRIX);
+ * metrics.getLookupLatency().percentile(0.99);
+ * metrics.getCacheStats().get("subwords").hitRate();
+ * </pre>
+ */
+public class FastTextMetrics implements FastTextListener {
+
+    private final Map<LoadPhase, long[]> loadPhases = Collections.synchronizedMap(new EnumMap<>(LoadPhase.class));
+    private final LatencyHistogram lookupLatency = new LatencyHistogram();
+    private final LongAdder words = new LongAdder();
+    private final LongAdder oov = new LongAdder();
+    private final LongAdder ngrams = new LongAdder();
+    private final Map<String, Supplier<CacheStats>> caches = new ConcurrentHashMap<>();
+
+    @Override
+    public void onLoadPhase(LoadPhase phase, long nanos, long bytes) {
+        loadPhases.put(phase, new long[]{nanos, bytes});
+    }
+
+    /**
+     * Registers the subword cache of the model.
+     */
+    @Override
+    public void onModelLoaded(FastTextModel model, long nanos, long bytes) {
+        if (model.getSubwordCacheStats() != null) {
+            registerCache("subwords", model::getSubwordCacheStats);
+        }
+    }
+
+    @Override
+    public void onLookup(int words, int oov, int ngrams, long nanos) {
+        lookupLatency.record(nanos);
+        this.words.add(words);
+        this.oov.add(oov);
+        this.ngrams.add(ngrams);
+    }
+
+    /**
+     * Reports the statistics of a cache, such as a {@link WordVectorCache}, under {@code name}.
+     */
+    public void registerCache(String name, Supplier<CacheStats> stats) {
+        caches.put(name, stats);
+    }
+
+    /**
+     * Duration of the last load of {@code phase}, or 0.
+     */
+    public long getLoadNanos(LoadPhase phase) {
+        final long[] timing = loadPhases.get(phase);
+        return timing == null ? 0 : timing[0];
+    }
+
+    /**
+     * Bytes read by the last load of {@code phase}, or 0.
+     */
+    public long getLoadBytes(LoadPhase phase) {
+        final long[] timing = loadPhases.get(phase);
+        return timing == null ? 0 : timing[1];
+    }
+
+    /**
+     * Read throughput of the last load of {@code phase}, in bytes per second.
+     */
+    public double getLoadBytesPerSecond(LoadPhase phase) {
+        final long nanos = getLoadNanos(phase);
+        return nanos == 0 ? 0.0 : getLoadBytes(phase) * 1e9 / nanos;
+    }
+
+    /**
+     * Latency of lookups; a batch lookup counts once.
+     */
+    public LatencyHistogram getLookupLatency() {
+        return lookupLatency;
+    }
+
+    public long getWordCount() {
+        return words.sum();
+    }
+
+    public long getOovCount() {
+        return oov.sum();
+    }
+
+    /**
+     * Share of the looked up words which were out of the vocabulary.
+     */
+    public double getOovRatio() {
+        final long n = words.sum();
+        return n == 0 ? 0.0 : (double) oov.sum() / n;
+    }
+
+    /**
+     * Average number of ngram rows summed per looked up word.
+     */
+    public double getNgramsPerWord() {
+        final long n = words.sum();
+        return n == 0 ? 0.0 : (double) ngrams.sum() / n;
+    }
+
+    /**
+     * Current statistics of the registered caches, by name.
+     */
+    public Map<String, CacheStats> getCacheStats() {
+        final Map<String, CacheStats> stats = new LinkedHashMap<>();
+        caches.forEach((name, supplier) -> stats.put(name, supplier.get()));
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("FastTextMetrics(");
+        for (LoadPhase phase : LoadPhase.values()) {
+            builder.append(phase).append('=').append(getLoadNanos(phase) / 1000000).append("ms ")
+                    .append((long) (getLoadBytesPerSecond(phase) / (1 << 20))).append("MB/s, ");
+        }
+        builder.append("lookups=").append(lookupLatency)
+                .append(", words=").append(getWordCount())
+                .append(", oovRatio=").append(getOovRatio())
+                .append(", ngramsPerWord=").append(getNgramsPerWord())
+                .append(", caches=").append(getCacheStats())
+                .append(')');
+        return builder.toString();
+    }
+}
@@ -1,14 +1,21 @@
 package fasttext;
 
-import com.google.common.base.Charsets;
-import com.google.common.primitives.UnsignedLong;
-import fasttext.store.InputStreamFastTextInput;
+import com.google.common.base.Preconditions;
+import fasttext.store.ChannelFastTextInput;
+import fasttext.store.FastTextInput;
+import fasttext.store.MMapFastTextInput;
+import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class FastTextModel {
 
@@ -16,19 +23,95 @@ public class FastTextModel {
     static final String BEGINNING_OF_WORD = "<";
     static final String END_OF_WORD = ">";
 
+    private static final Logger LOG = Logger.getLogger(FastTextModel.class);
+
+    /* largest array the JVMs allocate */
+    static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
     private final Args args;
-    private final Map<String, Entry> words;
+    private final Dictionary dict;
     private final Matrix wordData;
-    private final Matrix ngramData;
+    /* null while a progressive load reads it, see #completeLoad */
+    private volatile Matrix ngramData;
+    private final SubwordHasher subwords;
+    /* ngrams of recently looked up words, null when disabled */
+    private final WordCache<int[]> ngramCache;
+    /* null when disabled */
+    private final FastTextListener listener;
+    /* built on first use */
+    private volatile NearestNeighbors nearestNeighbors;
+    private final SentenceEncoder sentences;
+    private final boolean supervised;
+    /* null for unsupervised models, and while a progressive load reads the output matrix */
+    private volatile Predictor predictor;
 
     protected FastTextModel(final Args args,
-                            final Map<String, Entry> words,
+                            final Dictionary dict,
                             final Matrix wordData,
                             final Matrix ngramData) {
+        this(args, dict, wordData, ngramData, new LoadOptions());
+    }
+
+    FastTextModel(final Args args,
+                  final Dictionary dict,
+                  final Matrix wordData,
+                  final Matrix ngramData,
+                  final LoadOptions options) {
+        this(args, dict, wordData, ngramData, null, options);
+    }
+
+    FastTextModel(final Args args,
+                  final Dictionary dict,
+                  final Matrix wordData,
+                  final Matrix ngramData,
+                  final Matrix outputData,
+                  final LoadOptions options) {
         this.args = args;
+        this.dict = dict;
         this.ngramData = ngramData;
-        this.words = words;
         this.wordData = wordData;
+        this.subwords = new SubwordHasher(args.getMinN(), args.getMaxN(), args.getBucketNumber(),
+                dict.getPruneIndex());
+        final long subwordCacheBytes = options.getSubwordCacheBytes();
+        this.ngramCache = subwordCacheBytes > 0
+                ? new WordCache<>(subwordCacheBytes, WordCache.bytes(ngrams -> ngrams.length * Integer.BYTES), false)
+                : null;
+        this.listener = options.getListener();
+        this.sentences = new SentenceEncoder(this);
+        this.supervised = outputData != null || ngramData == null && args.getModel() == Args.ModelName.SUP;
+        this.predictor = outputData != null ? new Predictor(this, outputData) : null;
+    }
+
+    /**
+     * Whether the ngram matrix is loaded. Until then, the model is in the degraded mode of
+     * {@link FastText#loadModelAsync(String, LoadOptions)}: words are looked up with their word
+     * row only, out of vocabulary words have a zero vector, and sentences are encoded without
+     * subwords nor word ngrams.
+     */
+    public boolean isFullyLoaded() {
+        return ngramData != null;
+    }
+
+    /**
+     * Ends the degraded mode of a progressive load.
+     */
+    void completeLoad(Matrix ngramData, Matrix outputData) {
+        Preconditions.checkState(this.ngramData == null, "Model already loaded");
+        if (outputData != null) {
+            this.predictor = new Predictor(this, outputData);
+        }
+        this.ngramData = ngramData;
+    }
+
+    public Args getArgs() {
+        return this.args;
+    }
+
+    /**
+     * Size of the word vectors.
+     */
+    public int getDimension() {
+        return args.getDimension();
     }
 
     /**
@@ -36,135 +119,567 @@ public class FastTextModel {
      */
     public Vector getWordVector(String word) {
         final Vector vector = new Vector(args.getDimension());
-        vector.zero();
-        final Entry entry = words.get(word);
-        List<Integer> ngrams = null;
-        if (entry != null) {
-            vector.addRow(wordData, entry.index);
-            if (entry.ngrams != null) {
-                ngrams = entry.ngrams;
-            }
+        getWordVector(word, vector.data);
+        return vector;
+    }
+
+    /**
+     * Computes the vector for a word into {@code out}, which must have the size of the model
+     * dimension.
+     */
+    public void getWordVector(CharSequence word, Vector out) {
+        Preconditions.checkArgument(out.size() == args.getDimension());
+        getWordVector(word, out.data);
+    }
+
+    /**
+     * Computes the vector for a word into the first {@link #getDimension()} floats of
+     * {@code out}.
+     *
+     * <p>Nothing is allocated in steady state: the word is encoded in per-thread scratch
+     * buffers and its ngrams come from the subword cache, or are computed in scratch buffers
+     * when the cache is disabled.
+     */
+    public void getWordVector(CharSequence word, float[] out) {
+        Preconditions.checkArgument(out.length >= args.getDimension(), "Output buffer smaller than the dimension");
+        final Scratch scratch = Scratch.get();
+        if (listener == null) {
+            computeWordVector(word, out, scratch);
+            return;
         }
-        if (ngrams == null) {
-            ngrams = getNgrams(word);
+        final long start = System.nanoTime();
+        final int id = computeWordVector(word, out, scratch);
+        listener.onLookup(1, id < 0 ? 1 : 0, scratch.count, System.nanoTime() - start);
+    }
+
+    /**
+     * Computes the vector for a word into {@code out}, leaving its number of ngrams in
+     * {@code scratch.count}, and returns its word id or -1.
+     */
+    int computeWordVector(CharSequence word, float[] out, Scratch scratch) {
+        return computeWordVector(word, out, scratch, true);
+    }
+
+    /**
+     * Computes the vector of dictionary word {@code id} into {@code out} for the passes over the
+     * whole vocabulary, which neither count as lookups nor go through the subword cache.
+     */
+    void computeDictionaryWordVector(int id, float[] out, Scratch scratch) {
+        computeWordVector(dict.getWord(id), out, scratch, false);
+    }
+
+    private int computeWordVector(CharSequence word, float[] out, Scratch scratch, boolean useCache) {
+        final int dim = args.getDimension();
+        Arrays.fill(out, 0, dim, 0.0f);
+        final int id = encodeAndLookup(word, scratch);
+        if (id >= 0) {
+            wordData.addRowToArray(out, id, 1.0f);
         }
-        for (final int it : ngrams) {
-            vector.addRow(ngramData, it);
+        final Matrix ngramMatrix = ngramData;
+        int count = 0;
+        if (ngramMatrix != null) {
+            final int[] ngrams = ngrams(word, scratch, useCache);
+            count = scratch.count;
+            for (int i = 0; i < count; i++) {
+                ngramMatrix.addRowToArray(out, ngrams[i], 1.0f);
+            }
+        } else {
+            scratch.count = 0;
         }
-        if (!ngrams.isEmpty()) {
-            vector.mul(1.0f / ((float) ngrams.size() + 1));
+        // averaged over the word row, if any, and the ngram rows, as native fastText does
+        final int nrRows = count + (id >= 0 ? 1 : 0);
+        if (nrRows > 1) {
+            Kernels.scale(1.0f / nrRows, out, 0, dim);
         }
+        return id;
+    }
+
+    /**
+     * Gets the vector of the first line of {@code text}, see
+     * {@link #getSentenceVector(CharSequence, float[])}.
+     */
+    public Vector getSentenceVector(String text) {
+        final Vector vector = new Vector(args.getDimension());
+        getSentenceVector(text, vector.data);
         return vector;
     }
 
-    public List<Integer> getNgrams(String word) {
-        final Entry entry = words.get(word);
-        if (entry == null || entry.ngrams == null) {
-            final List<Integer> ngrams = new ArrayList<>();
-            if (!word.equals(EOS)) {
-                computeNgrams(BEGINNING_OF_WORD + word + END_OF_WORD, ngrams);
-            }
-            if (entry == null) {
-                // The word is not in the dictionary.
-                return ngrams;
-            } else {
-                entry.ngrams = ngrams;
+    /**
+     * Computes the vector of the first line of {@code text} into the first
+     * {@link #getDimension()} floats of {@code out}, like {@code fasttext print-sentence-vectors}.
+     *
+     * <p>The line is split on whitespace. For supervised models the vector is the average of
+     * the input rows of the words, their subwords, the end of sentence token and the word
+     * ngrams, the hidden vector of {@link #predict}. For other models it is the average of the
+     * L2 normalized vectors of the words, and zeros when there are none.
+     *
+     * <p>The text is tokenized in a single pass into per-thread buffers: nothing is allocated in
+     * steady state, whatever the length of the text.
+     */
+    public void getSentenceVector(CharSequence text, float[] out) {
+        Preconditions.checkArgument(out.length >= args.getDimension(), "Output buffer smaller than the dimension");
+        sentences.encode(text, out);
+    }
+
+    /**
+     * Reads a line of {@code in} and computes its vector into the first {@link #getDimension()}
+     * floats of {@code out}, as {@link #getSentenceVector(CharSequence, float[])} does. Returns
+     * false, without reading anything, when {@code in} is at the end of the stream.
+     *
+     * <p>Lines are streamed, never held in memory. Readers supporting {@link Reader#mark(int)},
+     * like {@link java.io.BufferedReader}, are read by chunks and left after the end of the
+     * line; other readers are read one character at a time.
+     */
+    public boolean getSentenceVector(Reader in, float[] out) throws IOException {
+        Preconditions.checkArgument(out.length >= args.getDimension(), "Output buffer smaller than the dimension");
+        return sentences.encode(in, out) >= 0;
+    }
+
+    /**
+     * Computes the vectors of {@code words} into {@code out}, row major: the vector of
+     * {@code words.get(i)} is written at {@code out[i * getDimension()]}.
+     *
+     * <p>Repeated words are computed once, and the matrix rows needed by the batch are read
+     * once each, in increasing order, which makes large batches much cheaper per word than
+     * {@link #getWordVector(CharSequence, float[])}.
+     */
+    public void getWordVectors(List<? extends CharSequence> words, float[] out) {
+        WordVectorBatch.compute(this, words, out, null, listener);
+    }
+
+    /**
+     * Same as {@link #getWordVectors(List, float[])}, with large batches split in tasks run by
+     * {@code pool}.
+     */
+    public void getWordVectors(List<? extends CharSequence> words, float[] out, ForkJoinPool pool) {
+        WordVectorBatch.compute(this, words, out, Preconditions.checkNotNull(pool), listener);
+    }
+
+    /**
+     * Exact nearest neighbors search over the vocabulary. The normalized vectors of all the
+     * words are computed on the first call, using the common {@link ForkJoinPool}, and kept
+     * on the heap: about {@code nwords * dim * 4} bytes.
+     */
+    public NearestNeighbors getNearestNeighbors() {
+        NearestNeighbors nn = nearestNeighbors;
+        if (nn == null) {
+            // built from the complete word vectors
+            Preconditions.checkState(isFullyLoaded(), "The ngram matrix is not loaded yet");
+            synchronized (this) {
+                nn = nearestNeighbors;
+                if (nn == null) {
+                    nn = new NearestNeighbors(this, ForkJoinPool.commonPool());
+                    nearestNeighbors = nn;
+                }
             }
         }
-        return entry.ngrams;
+        return nn;
     }
 
     /**
-     * String FNV-1a 32 bits Hash
+     * Whether the model was trained for classification, and can {@link #predict} labels.
      */
-    public long hash(final String str) {
-        int h = (int) 2166136261L;      // 0xffffffc5;
-        for (byte strByte : str.getBytes(Charsets.UTF_8)) {
-            h = (h ^ strByte) * 16777619; // FNV-1a
+    public boolean isSupervised() {
+        return supervised;
+    }
+
+    /**
+     * The most probable label of {@code text}, or an empty list when it has no words.
+     */
+    public List<Prediction> predict(CharSequence text) {
+        return predict(text, 1, 0.0f);
+    }
+
+    /**
+     * Predicts at most {@code k} labels of the first line of {@code text} with a probability
+     * of at least {@code threshold}, most probable first.
+     */
+    public List<Prediction> predict(CharSequence text, int k, float threshold) {
+        Preconditions.checkArgument(k >= 0, "k must be >= 0, got %s", k);
+        final int size = Math.min(k, dict.nlabels());
+        final int[] labels = new int[size];
+        final float[] probabilities = new float[size];
+        final int n = predict(text, k, threshold, labels, probabilities);
+        final List<Prediction> predictions = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            predictions.add(new Prediction(dict.getWord(labels[i]), labels[i], probabilities[i]));
         }
-        return h & 0xffffffffL;
+        return predictions;
     }
 
-    protected boolean hasUTFContinuationCode(char c) {
-        return (c & 0xC0) == 0x80;
+    /**
+     * Predicts at most {@code k} labels of the first line of {@code text} with a probability
+     * of at least {@code threshold}, writes their dictionary ids and probabilities into
+     * {@code labels} and {@code probabilities}, most probable first, and returns how many were
+     * written. Label names are given by {@link Dictionary#getWord(int)}.
+     *
+     * <p>Nothing is allocated in steady state: the text is tokenized and scored in per-thread
+     * buffers.
+     */
+    public int predict(CharSequence text, int k, float threshold, int[] labels, float[] probabilities) {
+        Preconditions.checkState(supervised, "Not a supervised model");
+        final Predictor predictor = this.predictor;
+        Preconditions.checkState(predictor != null, "The output matrix is not loaded yet");
+        Preconditions.checkArgument(k >= 0, "k must be >= 0, got %s", k);
+        final int size = Math.min(k, dict.nlabels());
+        Preconditions.checkArgument(labels.length >= size && probabilities.length >= size,
+                "Output buffers smaller than k");
+        return predictor.predict(text, size, threshold, labels, probabilities);
     }
 
-    protected void computeNgrams(String word, List<Integer> ngrams) {
-        for (int i = 0; i < word.length(); i++) {
-            final StringBuilder ngram = new StringBuilder();
-            if (!hasUTFContinuationCode(word.charAt(i))) {
-                for (int j = i, n = 1; j < word.length() && n <= args.getMaxN(); n++) {
-                    do {
-                        ngram.append(word.charAt(j++));
-                    } while (j < word.length() && hasUTFContinuationCode(word.charAt(j)));
-                    if (n >= args.getMinN() && !(n == 1 && (i == 0 || j == word.length()))) {
-                        final UnsignedLong h = UnsignedLong.valueOf(hash(ngram.toString()));
-                        ngrams.add(h.mod(UnsignedLong.valueOf(args.getBucketNumber())).intValue());
-                    }
-                }
-            }
+    public List<Integer> getNgrams(String word) {
+        final Scratch scratch = Scratch.get();
+        encodeAndLookup(word, scratch);
+        final int[] ngrams = ngrams(word, scratch);
+        final int count = scratch.count;
+        final List<Integer> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(ngrams[i]);
         }
+        return result;
     }
 
-    public static FastTextModel load(Args args, InputStreamFastTextInput is) throws IOException {
-        final int size = is.readInt();
-        is.readInt();
-        is.readInt();
-        is.readLong();
-        is.readLong();
+    public Dictionary getDictionary() {
+        return this.dict;
+    }
+
+    Matrix wordMatrix() {
+        return this.wordData;
+    }
 
-        final Map<String, Entry> words = new HashMap<>(size);
-        for (int i = 0; i < size; i++) {
-            final String word = is.readString();
-            // These are not used - just skip over them
-            is.readLong();
-            is.readByteAsInt();
-            words.put(word, new Entry(i));
+    Matrix ngramMatrix() {
+        return this.ngramData;
+    }
+
+    SubwordHasher subwords() {
+        return this.subwords;
+    }
+
+    SentenceEncoder sentences() {
+        return this.sentences;
+    }
+
+    /**
+     * Approximate number of bytes held by the model: its dictionary and matrices, mapped or on
+     * the heap, and the normalized vectors of {@link #getNearestNeighbors()} once built.
+     */
+    public long ramBytesUsed() {
+        long bytes = dict.ramBytesUsed() + wordData.ramBytesUsed();
+        final Matrix ngramMatrix = ngramData;
+        if (ngramMatrix != null) {
+            bytes += ngramMatrix.ramBytesUsed();
+        }
+        final Predictor p = predictor;
+        if (p != null) {
+            bytes += p.output().ramBytesUsed();
+        }
+        final NearestNeighbors nn = nearestNeighbors;
+        if (nn != null) {
+            bytes += nn.ramBytesUsed();
+        }
+        return bytes;
+    }
+
+    /**
+     * Releases the memory mapped matrices of the model right away. The model must not be used
+     * afterwards.
+     */
+    void unmap() {
+        final Matrix ngramMatrix = ngramData;
+        final Predictor p = predictor;
+        wordData.unmap();
+        if (ngramMatrix != null) {
+            ngramMatrix.unmap();
+        }
+        if (p != null) {
+            p.output().unmap();
         }
+    }
 
-        final boolean quant = is.readBoolean();
-        if (quant) {
-            throw new IllegalArgumentException("Cannot load quantised models");
+    /**
+     * Encodes {@code word} with its boundary markers into {@code scratch.bytes} and returns its
+     * word id, or -1 when it is not a dictionary word.
+     */
+    int encodeAndLookup(CharSequence word, Scratch scratch) {
+        final int length = SubwordHasher.encodeWord(word, scratch.bytes(SubwordHasher.maxEncodedLength(word)));
+        scratch.length = length;
+        final int id = dict.getId(scratch.bytes, 1, length - 2);
+        return id < dict.nwords() ? id : -1;
+    }
+
+    /**
+     * Returns an array holding the ngram rows of {@code word} in its first
+     * {@code scratch.count} elements, from the cache when possible. {@code word} must be
+     * encoded in {@code scratch.bytes}.
+     */
+    int[] ngrams(CharSequence word, Scratch scratch) {
+        return ngrams(word, scratch, true);
+    }
+
+    private int[] ngrams(CharSequence word, Scratch scratch, boolean useCache) {
+        if (ngramCache == null || !useCache) {
+            scratch.count = computeNgrams(word, scratch);
+            return scratch.ngrams;
+        }
+        final int length = scratch.length;
+        final int hash = (int) SubwordHasher.hash(scratch.bytes, 0, length);
+        int[] ngrams = ngramCache.get(scratch.bytes, 0, length, hash);
+        if (ngrams == null) {
+            // computeNgrams may grow scratch.ngrams, read it afterwards
+            final int count = computeNgrams(word, scratch);
+            ngrams = Arrays.copyOf(scratch.ngrams, count);
+            ngramCache.put(scratch.bytes, 0, length, hash, ngrams);
+        }
+        scratch.count = ngrams.length;
+        return ngrams;
+    }
+
+    /**
+     * Statistics of the cache of ngram rows, or null when the cache is disabled.
+     */
+    public CacheStats getSubwordCacheStats() {
+        return ngramCache == null ? null : ngramCache.stats();
+    }
+
+    /**
+     * String FNV-1a 32 bits Hash
+     */
+    public long hash(final String str) {
+        return SubwordHasher.hash(str);
+    }
+
+    /**
+     * Computes the ngram rows of {@code word}, already encoded with its boundary markers in
+     * {@code scratch.bytes}, into {@code scratch.ngrams} and returns how many were written.
+     */
+    private int computeNgrams(CharSequence word, Scratch scratch) {
+        if (EOS.contentEquals(word)) {
+            return 0;
         }
+        final int length = scratch.length;
+        return subwords.computeNgrams(scratch.bytes, length, scratch.ngrams(subwords.maxNgrams(length)));
+    }
+
+    public static FastTextModel load(Args args, FastTextInput is) throws IOException {
+        return load(args, is, new LoadOptions());
+    }
 
-        final int m = (int) is.readLong();
-        final int n = (int) is.readLong();
-        final float[] dictionaryData = new float[m * n / 2];
-        for (int i = 0; i < m * n / 2; i++) {
-            dictionaryData[i] = is.readFloat();
+    public static FastTextModel load(Args args, FastTextInput is, LoadOptions options) throws IOException {
+        return load(args, is, options, null);
+    }
+
+    /**
+     * Loads the model, reporting to {@code progress}, if not null, the dictionary and then the
+     * model in degraded mode as soon as the word matrix is read.
+     */
+    static FastTextModel load(Args args, FastTextInput is, LoadOptions options, ProgressiveLoad progress)
+            throws IOException {
+        final FastTextListener listener = options.getListener();
+        long start = System.nanoTime();
+        long startPointer = is.getFilePointer();
+        final Dictionary dict = Dictionary.load(is);
+        final int nwords = dict.nwords();
+        if (listener != null) {
+            listener.onLoadPhase(FastTextListener.LoadPhase.DICTIONARY, System.nanoTime() - start,
+                    is.getFilePointer() - startPointer);
+        }
+        LOG.debug("Loaded dictionary of " + dict.size() + " entries");
+        if (progress != null) {
+            progress.onDictionary(dict);
         }
-        final Matrix wordVectors = new Matrix(m / 2, n, dictionaryData);
 
-        System.out.println("Loaded dictionary vectors");
+        start = System.nanoTime();
+        startPointer = is.getFilePointer();
+        final boolean quant = is.readBoolean();
+        final Matrix wordVectors;
+        final Matrix ngramVectors;
+        FastTextModel degraded = null;
+        if (quant) {
+            // the input matrix holds the word rows followed by the (possibly pruned) ngram rows
+            final QMatrix input = QMatrix.load(is);
+            checkInputMatrix(args, dict, input.m(), input.n());
+            wordVectors = input.rows(0, nwords);
+            ngramVectors = input.rows(nwords, input.m());
+            if (listener != null) {
+                listener.onLoadPhase(FastTextListener.LoadPhase.WORD_MATRIX, System.nanoTime() - start,
+                        is.getFilePointer() - startPointer);
+            }
+            LOG.debug("Loaded quantized vectors");
+        } else {
+            if (dict.getPruneIndex().isPruned()) {
+                throw new IllegalArgumentException("Pruned dictionary with a non quantized input matrix");
+            }
+            final long rows = is.readLong();
+            final long cols = is.readLong();
+            checkInputMatrix(args, dict, rows, cols);
+            final int m = (int) rows;
+            final int n = (int) cols;
+            wordVectors = readMatrix(is, nwords, n, options);
+            if (listener != null) {
+                listener.onLoadPhase(FastTextListener.LoadPhase.WORD_MATRIX, System.nanoTime() - start,
+                        is.getFilePointer() - startPointer);
+            }
+            LOG.debug("Loaded dictionary vectors");
+            if (progress != null) {
+                degraded = new FastTextModel(args, dict, wordVectors, null, null, options);
+                progress.onWordMatrix(degraded);
+            }
+
+            start = System.nanoTime();
+            startPointer = is.getFilePointer();
+            ngramVectors = readMatrix(is, m - nwords, n, options);
+            if (listener != null) {
+                listener.onLoadPhase(FastTextListener.LoadPhase.NGRAM_MATRIX, System.nanoTime() - start,
+                        is.getFilePointer() - startPointer);
+            }
+            LOG.debug("Loaded ngram vectors");
+        }
 
-        final float[] ngramData = new float[m * n / 2];
-        for (int i = 0; i < m * n / 2; i++) {
-            ngramData[i] = is.readFloat();
+        // the output matrix is only used by the predictions of supervised models
+        Matrix outputVectors = null;
+        if (args.getModel() == Args.ModelName.SUP) {
+            start = System.nanoTime();
+            startPointer = is.getFilePointer();
+            final boolean qout = is.readBoolean();
+            if (qout) {
+                outputVectors = QMatrix.load(is);
+                checkOutputMatrix(args, dict, outputVectors.m(), outputVectors.n());
+            } else {
+                final long rows = is.readLong();
+                final long cols = is.readLong();
+                checkOutputMatrix(args, dict, rows, cols);
+                outputVectors = readMatrix(is, (int) rows, (int) cols, options);
+            }
+            if (listener != null) {
+                listener.onLoadPhase(FastTextListener.LoadPhase.OUTPUT_MATRIX, System.nanoTime() - start,
+                        is.getFilePointer() - startPointer);
+            }
+            LOG.debug("Loaded output matrix");
         }
-        System.out.println("Loaded ngram vectors");
 
-        final Matrix ngramVectors = new Matrix(m / 2, n, ngramData);
+        if (degraded != null) {
+            degraded.completeLoad(ngramVectors, outputVectors);
+            return degraded;
+        }
+        return new FastTextModel(args, dict, wordVectors, ngramVectors, outputVectors, options);
+    }
 
-        // Skip unused field
-        is.readBoolean();
+    /**
+     * Checks that an input matrix of {@code m x n} floats holds a row per word and per ngram
+     * bucket (per kept bucket for pruned models), so that a header which does not describe
+     * the matrix fails instead of shifting the ngram rows.
+     */
+    private static void checkInputMatrix(Args args, Dictionary dict, long m, long n) {
+        final PruneIndex pruneIndex = dict.getPruneIndex();
+        final long ngrams = pruneIndex.isPruned() ? pruneIndex.size() : args.getBucketNumber();
+        if (m != dict.nwords() + ngrams || n != args.getDimension()) {
+            throw new IllegalArgumentException("Input matrix " + m + "x" + n + " does not match " + dict.nwords()
+                    + " words and " + ngrams + " ngram buckets of dimension " + args.getDimension());
+        }
+    }
 
-        return new FastTextModel(args, words, wordVectors, ngramVectors);
+    private static void checkOutputMatrix(Args args, Dictionary dict, long m, long n) {
+        if (m != dict.nlabels() || n != args.getDimension()) {
+            throw new IllegalArgumentException("Output matrix " + m + "x" + n + " does not match "
+                    + dict.nlabels() + " labels of dimension " + args.getDimension());
+        }
     }
 
-    public static class Entry {
-        /**
-         * The row index into the word vector matrix.
-         */
-        final int index;
+    /**
+     * Reads a {@code m x n} block of floats. Memory mapped inputs are not copied, the
+     * returned matrix reads its rows from the mapping.
+     */
+    private static Matrix readMatrix(FastTextInput is, int m, int n, LoadOptions options) throws IOException {
+        if (is instanceof MMapFastTextInput) {
+            if (options.getPrecision() != LoadOptions.Precision.FLOAT) {
+                throw new IllegalArgumentException("Memory mapped matrices cannot use " + options.getPrecision());
+            }
+            final MMapFastTextInput mmap = (MMapFastTextInput) is;
+            return new MMapMatrix(m, n, mmap.mapRows(m, n), MMapFastTextInput.rowsPerChunk(n));
+        }
+        final Matrix matrix;
+        final RowReader reader;
+        switch (options.getPrecision()) {
+            case HALF:
+                final HalfMatrix half = new HalfMatrix(m, n);
+                matrix = half;
+                reader = half::readRows;
+                break;
+            case INT8:
+                final Int8Matrix int8 = new Int8Matrix(m, n);
+                matrix = int8;
+                reader = int8::readRows;
+                break;
+            default:
+                if ((long) m * n > MAX_ARRAY_LENGTH) {
+                    // too large for a single array
+                    final ChunkedMatrix chunked = new ChunkedMatrix(m, n);
+                    matrix = chunked;
+                    reader = chunked::readRows;
+                } else {
+                    final float[] data = new float[m * n];
+                    matrix = new DenseMatrix(m, n, data);
+                    reader = (input, firstRow, rows) -> input.readFloats(data, firstRow * n, rows * n);
+                }
+        }
+        if (is instanceof ChannelFastTextInput && options.getThreads() > 1) {
+            readRowsParallel((ChannelFastTextInput) is, reader, m, n, options.getThreads());
+        } else {
+            reader.readRows(is, 0, m);
+        }
+        if (matrix instanceof HalfMatrix) {
+            LOG.info("Stored " + m + " rows as half floats, max relative row error "
+                    + ((HalfMatrix) matrix).maxRowError());
+        } else if (matrix instanceof Int8Matrix) {
+            LOG.info("Stored " + m + " rows as int8, max relative row error "
+                    + ((Int8Matrix) matrix).maxRowError());
+        }
+        return matrix;
+    }
 
-        /**
-         * This is lazily loaded when an entry is accessed.
-         * They are row indices into the ngram matrix.
-         */
-        List<Integer> ngrams;
+    /**
+     * Reads rows of floats from an input into a matrix being loaded.
+     */
+    private interface RowReader {
+        void readRows(FastTextInput is, int firstRow, int rows) throws IOException;
+    }
 
-        public Entry(final int index) {
-            this.index = index;
+    /**
+     * Reads the {@code m x n} floats starting at the current position of {@code is},
+     * splitting the rows in ranges read concurrently by clones of the input.
+     * Leaves {@code is} positioned after the matrix.
+     */
+    private static void readRowsParallel(ChannelFastTextInput is, RowReader reader, int m, int n, int threads)
+            throws IOException {
+        final long start = is.getFilePointer();
+        final int rowsPerTask = (m + threads - 1) / threads;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Void>> tasks = new ArrayList<>(threads);
+            for (int row = 0; row < m; row += rowsPerTask) {
+                final int firstRow = row;
+                final int rows = Math.min(rowsPerTask, m - row);
+                tasks.add(executor.submit(() -> {
+                    final ChannelFastTextInput clone = is.clone();
+                    clone.seek(start + (long) firstRow * n * Float.BYTES);
+                    reader.readRows(clone, firstRow, rows);
+                    return null;
+                }));
+            }
+            for (Future<Void> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading matrix", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to load matrix", e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
+        is.seek(start + (long) m * n * Float.BYTES);
     }
-}
\ No newline at end of file
+}
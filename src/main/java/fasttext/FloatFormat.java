@@ -0,0 +1,251 @@
+package fasttext;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Conversions between floats and their decimal text, on byte arrays and without allocating,
+ * for the text formats of fastText.
+ */
+public final class FloatFormat {
+
+    private static final double[] POWERS_OF_TEN = new double[128];
+    private static final int POWERS_OF_TEN_OFFSET = 64;
+    /* powers of ten exactly representable as floats and doubles */
+    private static final float[] EXACT_FLOAT_POWERS = new float[11];
+    private static final double[] EXACT_DOUBLE_POWERS = new double[23];
+    /* significant digits kept in a long, more fall back to the JDK */
+    private static final int MAX_DIGITS = 18;
+
+    static {
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = Double.parseDouble("1e" + (i - POWERS_OF_TEN_OFFSET));
+        }
+        for (int i = 0; i < EXACT_FLOAT_POWERS.length; i++) {
+            EXACT_FLOAT_POWERS[i] = (float) POWERS_OF_TEN[i + POWERS_OF_TEN_OFFSET];
+        }
+        for (int i = 0; i < EXACT_DOUBLE_POWERS.length; i++) {
+            EXACT_DOUBLE_POWERS[i] = POWERS_OF_TEN[i + POWERS_OF_TEN_OFFSET];
+        }
+    }
+
+    private FloatFormat() {
+    }
+
+    /**
+     * Parses the ASCII decimal {@code b[start, end)}, as {@link Float#parseFloat(String)} does
+     * but without surrounding whitespace, also accepting the {@code nan} and {@code inf} that C
+     * prints. The result is correctly rounded: numbers of up to 18 significant digits and
+     * exponents of at most 22 are computed exactly in float or double arithmetic, the rare
+     * others are handed to the JDK.
+     *
+     * @throws NumberFormatException if the bytes are not a number
+     */
+    public static float parse(byte[] b, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i] == '-';
+            i++;
+        }
+        long significand = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean truncated = false;
+        final int first = i;
+        for (; i < end && isDigit(b[i]); i++) {
+            if (digits < MAX_DIGITS) {
+                significand = significand * 10 + (b[i] - '0');
+                digits += significand != 0 ? 1 : 0;
+            } else {
+                truncated |= b[i] != '0';
+                exponent++;
+            }
+        }
+        int nrDigits = i - first;
+        if (i < end && b[i] == '.') {
+            final int point = ++i;
+            for (; i < end && isDigit(b[i]); i++) {
+                if (digits < MAX_DIGITS) {
+                    significand = significand * 10 + (b[i] - '0');
+                    digits += significand != 0 ? 1 : 0;
+                    exponent--;
+                } else {
+                    truncated |= b[i] != '0';
+                }
+            }
+            nrDigits += i - point;
+        }
+        if (nrDigits == 0) {
+            return parseSpecial(b, start, end, negative, i);
+        }
+        if (i < end && (b[i] == 'e' || b[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (b[i] == '-' || b[i] == '+')) {
+                negativeExponent = b[i] == '-';
+                i++;
+            }
+            if (i == end) {
+                throw invalid(b, start, end);
+            }
+            int e = 0;
+            for (; i < end && isDigit(b[i]); i++) {
+                e = Math.min(100000, e * 10 + (b[i] - '0'));
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        if (i != end) {
+            throw invalid(b, start, end);
+        }
+        if (significand == 0 && !truncated) {
+            return negative ? -0.0f : 0.0f;
+        }
+        if (!truncated) {
+            if (significand < 1 << 24 && exponent >= -10 && exponent <= 10) {
+                // both operands are exact floats, the single operation rounds correctly
+                final float f = exponent >= 0 ? significand * EXACT_FLOAT_POWERS[exponent]
+                        : significand / EXACT_FLOAT_POWERS[-exponent];
+                return negative ? -f : f;
+            }
+            if (significand < 1L << 53 && exponent >= -22 && exponent <= 22) {
+                final double d = exponent >= 0 ? significand * EXACT_DOUBLE_POWERS[exponent]
+                        : significand / EXACT_DOUBLE_POWERS[-exponent];
+                // rounding the correctly rounded double to float is only wrong when the double
+                // falls exactly halfway between two floats
+                if (d >= Float.MIN_NORMAL && d <= Float.MAX_VALUE
+                        && (Double.doubleToRawLongBits(d) & 0x1FFFFFFFL) != 0x10000000L) {
+                    return negative ? -(float) d : (float) d;
+                }
+            }
+        }
+        return Float.parseFloat(new String(b, start, end - start, StandardCharsets.US_ASCII));
+    }
+
+    private static float parseSpecial(byte[] b, int start, int end, boolean negative, int i) {
+        if (matches(b, i, end, "nan")) {
+            return Float.NaN;
+        }
+        if (matches(b, i, end, "inf") || matches(b, i, end, "infinity")) {
+            return negative ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
+        }
+        throw invalid(b, start, end);
+    }
+
+    private static boolean matches(byte[] b, int start, int end, String s) {
+        if (end - start != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if ((b[start + i] | 0x20) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static NumberFormatException invalid(byte[] b, int start, int end) {
+        return new NumberFormatException("Invalid float: "
+                + new String(b, start, Math.min(end - start, 64), StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Writes {@code v} rounded to {@code digits} significant digits, between 1 and 9, as C
+     * prints it with {@code %.<digits>g}: fixed notation for exponents from -4 to
+     * {@code digits - 1}, scientific notation otherwise, without trailing zeros. {@code dst}
+     * must have {@code digits + 16} bytes from {@code off}.
+     *
+     * @return the offset after the last byte written
+     */
+    public static int format(float v, int digits, byte[] dst, int off) {
+        if (Float.isNaN(v)) {
+            return ascii("nan", dst, off);
+        }
+        if ((Float.floatToRawIntBits(v) & 0x80000000) != 0) {
+            dst[off++] = '-';
+        }
+        if (Float.isInfinite(v)) {
+            return ascii("inf", dst, off);
+        }
+        final double a = Math.abs((double) v);
+        if (a == 0.0) {
+            dst[off++] = '0';
+            return off;
+        }
+        int exponent = (int) Math.floor(Math.log10(a));
+        if (a < pow10(exponent)) {
+            exponent--;
+        } else if (a >= pow10(exponent + 1)) {
+            exponent++;
+        }
+        // the significant digits, rounded half to even like C
+        final int shift = digits - 1 - exponent;
+        long significand = (long) Math.rint(shift >= 0 ? a * pow10(shift) : a / pow10(-shift));
+        if (significand >= (long) pow10(digits)) {
+            significand /= 10;
+            exponent++;
+        }
+        int nrDigits = digits;
+        while (nrDigits > 1 && significand % 10 == 0) {
+            significand /= 10;
+            nrDigits--;
+        }
+        if (exponent < -4 || exponent >= digits) {
+            off = writeDigits(significand, nrDigits, 1, dst, off);
+            dst[off++] = 'e';
+            dst[off++] = (byte) (exponent < 0 ? '-' : '+');
+            final int e = Math.abs(exponent);
+            if (e >= 100) {
+                dst[off++] = (byte) ('0' + e / 100);
+            }
+            dst[off++] = (byte) ('0' + e / 10 % 10);
+            dst[off++] = (byte) ('0' + e % 10);
+            return off;
+        }
+        if (exponent < 0) {
+            dst[off++] = '0';
+            dst[off++] = '.';
+            for (int i = -1; i > exponent; i--) {
+                dst[off++] = '0';
+            }
+            return writeDigits(significand, nrDigits, nrDigits, dst, off);
+        }
+        if (nrDigits <= exponent) {
+            // integers with trailing zeros, 12000 for 1.2e4
+            significand *= (long) pow10(exponent + 1 - nrDigits);
+            nrDigits = exponent + 1;
+        }
+        return writeDigits(significand, nrDigits, exponent + 1, dst, off);
+    }
+
+    /**
+     * Writes the {@code n} digits of {@code value}, with a decimal point after the first
+     * {@code integerDigits} ones when they are not all integer digits.
+     */
+    private static int writeDigits(long value, int n, int integerDigits, byte[] dst, int off) {
+        final int point = integerDigits < n ? 1 : 0;
+        for (int i = n - 1; i >= 0; i--) {
+            final int pos = off + i + (point == 1 && i >= integerDigits ? 1 : 0);
+            dst[pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        if (point == 1) {
+            dst[off + integerDigits] = '.';
+        }
+        return off + n + point;
+    }
+
+    private static int ascii(String s, byte[] dst, int off) {
+        for (int i = 0; i < s.length(); i++) {
+            dst[off++] = (byte) s.charAt(i);
+        }
+        return off;
+    }
+
+    private static double pow10(int exponent) {
+        return POWERS_OF_TEN[exponent + POWERS_OF_TEN_OFFSET];
+    }
+}
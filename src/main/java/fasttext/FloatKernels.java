@@ -0,0 +1,28 @@
+package fasttext;
+
+/**
+ * Loops over float arrays used by lookups and similarity searches, see {@link Kernels}.
+ * Arguments are not validated, callers check them once before running a kernel.
+ */
+abstract class FloatKernels {
+
+    /**
+     * Dot product of {@code x[xOff, xOff + n)} and {@code y[yOff, yOff + n)}.
+     */
+    abstract float dot(float[] x, int xOff, float[] y, int yOff, int n);
+
+    /**
+     * {@code y[yOff + j] += a * x[xOff + j]} for {@code j} in {@code [0, n)}.
+     */
+    abstract void axpy(float a, float[] x, int xOff, float[] y, int yOff, int n);
+
+    /**
+     * {@code x[off + j] *= a} for {@code j} in {@code [0, n)}.
+     */
+    abstract void scale(float a, float[] x, int off, int n);
+
+    /**
+     * Short description of the implementation, for logs.
+     */
+    abstract String name();
+}
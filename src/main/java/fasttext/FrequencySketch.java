@@ -0,0 +1,105 @@
+package fasttext;
+
+/**
+ * Count-min sketch of the popularity of hashed keys with 4 bits counters, aged by halving all
+ * counters periodically so that the estimates follow recent traffic. This is the admission
+ * filter of TinyLFU: an entry replaces an eviction victim only when it is more popular.
+ *
+ * <p>Not thread safe, callers synchronize.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private long[] table;
+    private int tableMask;
+    private int sampleSize;
+    private int size;
+
+    FrequencySketch() {
+        ensureCapacity(16);
+    }
+
+    /**
+     * Sizes the sketch for about {@code maximum} keys. Growing the sketch forgets the counts.
+     */
+    void ensureCapacity(int maximum) {
+        final int max = Math.max(16, Math.min(maximum, 1 << 28));
+        if (table != null && table.length >= max) {
+            return;
+        }
+        table = new long[Integer.highestOneBit(max - 1) << 1];
+        tableMask = table.length - 1;
+        sampleSize = 10 * max;
+        size = 0;
+    }
+
+    int capacity() {
+        return table.length;
+    }
+
+    /**
+     * Estimated number of occurrences of {@code hash}, at most 15.
+     */
+    int frequency(int hash) {
+        final int h = spread(hash);
+        final int start = (h & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            final int index = indexOf(h, i);
+            final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an occurrence of {@code hash}.
+     */
+    void increment(int hash) {
+        final int h = spread(hash);
+        final int start = (h & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(h, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        final int offset = counter << 2;
+        final long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /* halves every counter */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
@@ -0,0 +1,192 @@
+package fasttext;
+
+import fasttext.store.FastTextInput;
+
+import java.io.IOException;
+
+/**
+ * {@link Matrix} storing its rows as IEEE 754 half precision floats.
+ *
+ * <p>Uses half the memory of a {@link DenseMatrix}. Values are rounded to nearest even, so
+ * the relative error of each element is at most 2<sup>-11</sup> (values below 2<sup>-14</sup>
+ * lose precision as subnormals). Rows are decoded on the fly through a lookup table, and
+ * split in several arrays so that more than 2<sup>31</sup> elements can be stored.
+ */
+public class HalfMatrix extends Matrix {
+
+    private static final float[] HALF_TO_FLOAT = new float[1 << 16];
+
+    static {
+        for (int i = 0; i < HALF_TO_FLOAT.length; i++) {
+            HALF_TO_FLOAT[i] = halfToFloat((short) i);
+        }
+    }
+
+    private final short[][] chunks;
+    private final int rowsPerChunk;
+    private final int chunkShift;
+    private float maxRowError;
+
+    public HalfMatrix(int m, int n) {
+        this(m, n, CHUNK_ELEMENTS);
+    }
+
+    HalfMatrix(int m, int n, int chunkElements) {
+        super(m, n);
+        this.rowsPerChunk = rowsPerChunk(n, chunkElements);
+        this.chunkShift = Integer.numberOfTrailingZeros(rowsPerChunk);
+        this.chunks = new short[nrChunks(m, rowsPerChunk)][];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = new short[(int) Math.min(rowsPerChunk, m - (long) c * rowsPerChunk) * n];
+        }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return (long) m * n * Short.BYTES;
+    }
+
+    private short[] chunk(int i) {
+        return chunks[i >>> chunkShift];
+    }
+
+    private int offset(int i) {
+        return (i & (rowsPerChunk - 1)) * n;
+    }
+
+    @Override
+    public float at(int i, int j) {
+        return HALF_TO_FLOAT[chunk(i)[offset(i) + j] & 0xFFFF];
+    }
+
+    @Override
+    public float[] atRow(int i) {
+        final short[] data = chunk(i);
+        final int offset = offset(i);
+        final float[] r = new float[n];
+        for (int j = 0; j < n; j++) {
+            r[j] = HALF_TO_FLOAT[data[offset + j] & 0xFFFF];
+        }
+        return r;
+    }
+
+    @Override
+    public float dotRow(final float[] x, int i) {
+        final short[] data = chunk(i);
+        final int offset = offset(i);
+        float d = 0.0f;
+        for (int j = 0; j < n; j++) {
+            d += HALF_TO_FLOAT[data[offset + j] & 0xFFFF] * x[j];
+        }
+        return d;
+    }
+
+    @Override
+    public void addRowToArray(final float[] x, int off, int i, float a) {
+        final short[] data = chunk(i);
+        final int offset = offset(i);
+        for (int j = 0; j < n; j++) {
+            x[off + j] += a * HALF_TO_FLOAT[data[offset + j] & 0xFFFF];
+        }
+    }
+
+    /**
+     * Largest relative L2 error {@code |x - half(x)| / |x|} of a row, as measured when the
+     * rows were read. The cosine similarity of two rows differs from the one of the float
+     * model by at most {@code 2 * asin(maxRowError())}.
+     */
+    public float maxRowError() {
+        return maxRowError;
+    }
+
+    /**
+     * Reads {@code rows} rows of floats from {@code is} into rows {@code firstRow...} of this
+     * matrix. Different row ranges may be read concurrently.
+     */
+    void readRows(FastTextInput is, int firstRow, int rows) throws IOException {
+        final int blockRows = Math.max(1, 8192 / Math.max(1, n));
+        final float[] block = new float[blockRows * n];
+        float maxError = 0.0f;
+        for (int row = 0; row < rows; row += blockRows) {
+            final int count = Math.min(blockRows, rows - row);
+            is.readFloats(block, 0, count * n);
+            for (int r = 0; r < count; r++) {
+                final short[] data = chunk(firstRow + row + r);
+                final int offset = offset(firstRow + row + r) - r * n;
+                double norm = 0.0;
+                double error = 0.0;
+                for (int j = r * n; j < (r + 1) * n; j++) {
+                    final short h = floatToHalf(block[j]);
+                    data[offset + j] = h;
+                    final double e = block[j] - HALF_TO_FLOAT[h & 0xFFFF];
+                    norm += block[j] * block[j];
+                    error += e * e;
+                }
+                if (norm > 0) {
+                    maxError = Math.max(maxError, (float) Math.sqrt(error / norm));
+                }
+            }
+        }
+        synchronized (this) {
+            maxRowError = Math.max(maxRowError, maxError);
+        }
+    }
+
+    /**
+     * Converts a float to half precision, rounding to nearest even.
+     */
+    static short floatToHalf(float f) {
+        final int bits = Float.floatToRawIntBits(f);
+        final int sign = (bits >>> 16) & 0x8000;
+        final int val = bits & 0x7fffffff;
+        if (val >= 0x7f800000) {
+            // infinity or NaN
+            return (short) (sign | 0x7c00 | (val > 0x7f800000 ? 0x200 : 0));
+        }
+        if (val >= 0x47800000) {
+            // too large, rounds to infinity
+            return (short) (sign | 0x7c00);
+        }
+        if (val < 0x38800000) {
+            // subnormal half or zero
+            if (val < 0x33000000) {
+                return (short) sign;
+            }
+            final int exp = val >>> 23;
+            final int mant = (val & 0x7fffff) | 0x800000;
+            final int shift = 126 - exp;
+            int h = mant >>> shift;
+            final int rem = mant & ((1 << shift) - 1);
+            final int halfway = 1 << (shift - 1);
+            if (rem > halfway || (rem == halfway && (h & 1) != 0)) {
+                h++;
+            }
+            return (short) (sign | h);
+        }
+        int h = ((((val >>> 23) - 127 + 15)) << 10) | ((val & 0x7fffff) >>> 13);
+        final int rem = val & 0x1fff;
+        if (rem > 0x1000 || (rem == 0x1000 && (h & 1) != 0)) {
+            // may carry into the exponent, up to infinity
+            h++;
+        }
+        return (short) (sign | h);
+    }
+
+    /**
+     * Converts a half precision float to a float.
+     */
+    static float halfToFloat(short half) {
+        final int bits = half & 0xffff;
+        final int sign = (bits & 0x8000) << 16;
+        final int exp = (bits >>> 10) & 0x1f;
+        final int mant = bits & 0x3ff;
+        if (exp == 0x1f) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mant << 13));
+        }
+        if (exp == 0) {
+            final float value = mant * 0x1p-24f;
+            return sign == 0 ? value : -value;
+        }
+        return Float.intBitsToFloat(sign | ((exp + 112) << 23) | (mant << 13));
+    }
+}
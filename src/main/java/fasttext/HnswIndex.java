@@ -0,0 +1,791 @@
+package fasttext;
+
+import com.google.common.base.Preconditions;
+import fasttext.store.ChannelFastTextOutput;
+import fasttext.store.FastTextInput;
+import fasttext.store.InputStreamFastTextInput;
+import fasttext.store.MMapFastTextInput;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Approximate cosine similarity search over the vocabulary of a model with a Hierarchical
+ * Navigable Small World graph (Malkov and Yashunin, 2016).
+ *
+ * <p>Every word is a node linked to at most {@code M} similar words on each of its layers,
+ * {@code 2 * M} on the bottom layer which holds all the words. A query descends greedily
+ * from the sparse top layer, then explores the bottom layer keeping the {@code ef} best nodes
+ * seen: a larger {@code ef} gives a better recall for a higher latency.
+ *
+ * <p>An index is built with {@link #build(FastTextModel, Options)}, saved next to the model
+ * with {@link #save(Path)}, and loaded back with {@link #load(FastTextModel, Path, boolean)},
+ * either onto the heap or memory mapped.
+ *
+ * @see NearestNeighbors for the exact search
+ */
+public final class HnswIndex {
+
+    private static final Logger LOG = Logger.getLogger(HnswIndex.class);
+
+    static final int HNSW_MAGIC = 0x57534e48;
+    static final int HNSW_VERSION = 1;
+
+    /**
+     * Default number of candidates explored by a query.
+     */
+    public static final int DEFAULT_EF = 64;
+
+    private final FastTextModel model;
+    private final Matrix vectors;
+    private final Graph graph;
+    private final int size;
+    private final int dim;
+    private final int m;
+    private final int entryPoint;
+    private final int maxLevel;
+    private final ThreadLocal<Search> searches;
+
+    private HnswIndex(FastTextModel model, Matrix vectors, Graph graph, int m, int entryPoint, int maxLevel) {
+        this.model = model;
+        this.vectors = vectors;
+        this.graph = graph;
+        this.size = vectors.m;
+        this.dim = vectors.n;
+        this.m = m;
+        this.entryPoint = entryPoint;
+        this.maxLevel = maxLevel;
+        this.searches = ThreadLocal.withInitial(() -> new Search(size, 2 * m));
+    }
+
+    /**
+     * Builds the index of the dictionary words of {@code model} with the default options.
+     */
+    public static HnswIndex build(FastTextModel model) {
+        return build(model, new Options());
+    }
+
+    /**
+     * Builds the index of the dictionary words of {@code model}. The normalized vectors are
+     * shared with {@link FastTextModel#getNearestNeighbors()}.
+     */
+    public static HnswIndex build(FastTextModel model, Options options) {
+        final long start = System.nanoTime();
+        final Matrix vectors = model.getNearestNeighbors().vectors();
+        final Builder builder = new Builder(vectors, options);
+        builder.build();
+        final HnswIndex index = new HnswIndex(model, vectors, builder.toGraph(), options.m,
+                builder.entryPoint, builder.maxLevel);
+        LOG.debug("HNSW index of " + vectors.m + " words built in "
+                + (System.nanoTime() - start) / 1000000 + "ms with " + options.threads + " threads");
+        return index;
+    }
+
+    /**
+     * The index file of {@code modelFile}, with the {@code .bin} or {@code .ftz} extension
+     * replaced by {@code .hnsw}.
+     */
+    public static Path indexPath(String modelFile) {
+        final String base = modelFile.endsWith(".bin") || modelFile.endsWith(".ftz")
+                ? modelFile.substring(0, modelFile.length() - 4)
+                : modelFile;
+        return Paths.get(base + ".hnsw");
+    }
+
+    /**
+     * Number of words searched.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Maximum number of links of a node on the upper layers.
+     */
+    public int getM() {
+        return m;
+    }
+
+    public FastTextModel getModel() {
+        return model;
+    }
+
+    /**
+     * The approximate {@code k} words most similar to {@code word}, which is excluded,
+     * exploring {@link #DEFAULT_EF} candidates.
+     */
+    public List<NearestNeighbors.Neighbor> nearest(CharSequence word, int k) {
+        return nearest(word, k, DEFAULT_EF);
+    }
+
+    /**
+     * The approximate {@code k} words most similar to {@code word}, which is excluded,
+     * exploring {@code max(ef, k)} candidates.
+     */
+    public List<NearestNeighbors.Neighbor> nearest(CharSequence word, int k, int ef) {
+        final float[] query = new float[dim];
+        model.getWordVector(word, query);
+        return nearest(query, k, ef, Collections.singletonList(word));
+    }
+
+    /**
+     * The approximate {@code k} words whose vectors have the highest cosine similarity with
+     * {@code query}, excluding the words of {@code exclude}. At least {@code ef} candidates
+     * are explored.
+     */
+    public List<NearestNeighbors.Neighbor> nearest(float[] query, int k, int ef,
+                                                   Collection<? extends CharSequence> exclude) {
+        Preconditions.checkArgument(query.length >= dim, "Query smaller than the dimension");
+        Preconditions.checkArgument(k >= 0, "k must be >= 0, got %s", k);
+        Preconditions.checkArgument(ef > 0, "ef must be > 0, got %s", ef);
+        float norm = (float) Math.sqrt(Kernels.dot(query, query, dim));
+        if (Math.abs(norm) < 1e-8f) {
+            norm = 1.0f;
+        }
+        final int[] excluded = new int[exclude.size()];
+        int nrExcluded = 0;
+        for (CharSequence word : exclude) {
+            final int id = model.getDictionary().getId(word);
+            if (id >= 0 && id < size) {
+                excluded[nrExcluded++] = id;
+            }
+        }
+        if (k == 0 || size == 0) {
+            return new ArrayList<>();
+        }
+        final int width = (int) Math.min(Math.max((long) ef, (long) k + nrExcluded), size);
+        final TopK top = search(searches.get(), query, width);
+
+        final int[] ids = new int[top.size()];
+        final float[] scores = new float[top.size()];
+        final int n = top.drain(ids, scores);
+        final List<NearestNeighbors.Neighbor> neighbors = new ArrayList<>(Math.min(k, n));
+        for (int i = 0; i < n && neighbors.size() < k; i++) {
+            if (!contains(excluded, nrExcluded, ids[i])) {
+                neighbors.add(new NearestNeighbors.Neighbor(model.getDictionary().getWord(ids[i]), ids[i],
+                        scores[i] / norm));
+            }
+        }
+        return neighbors;
+    }
+
+    private static boolean contains(int[] ids, int size, int id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private TopK search(Search s, float[] query, int ef) {
+        int ep = entryPoint;
+        float score = vectors.dotRow(query, ep);
+        for (int level = maxLevel; level > 0; level--) {
+            ep = greedy(s, graph, vectors, query, ep, score, level);
+            score = vectors.dotRow(query, ep);
+        }
+        return searchLayer(s, graph, vectors, query, ep, score, ef, 0);
+    }
+
+    /**
+     * Follows the links of {@code level} from {@code ep} while they get closer to {@code query}.
+     */
+    private static int greedy(Search s, Graph graph, Matrix vectors, float[] query, int ep, float score, int level) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            final int count = graph.neighbors(ep, level, s.links);
+            for (int i = 0; i < count; i++) {
+                final int id = s.links[i];
+                final float d = vectors.dotRow(query, id);
+                if (d > score) {
+                    score = d;
+                    ep = id;
+                    changed = true;
+                }
+            }
+        }
+        return ep;
+    }
+
+    /**
+     * Best first exploration of {@code level} from {@code ep}, keeping the {@code ef} best nodes.
+     */
+    private static TopK searchLayer(Search s, Graph graph, Matrix vectors, float[] query,
+                                    int ep, float score, int ef, int level) {
+        s.reset();
+        s.visit(ep);
+        final TopK results = new TopK(ef);
+        results.offer(ep, score);
+        s.candidates.push(ep, score);
+        while (s.candidates.size > 0) {
+            if (s.candidates.topScore() < results.threshold()) {
+                break;
+            }
+            final int c = s.candidates.pop();
+            final int count = graph.neighbors(c, level, s.links);
+            for (int i = 0; i < count; i++) {
+                final int id = s.links[i];
+                if (s.visit(id)) {
+                    final float d = vectors.dotRow(query, id);
+                    if (d > results.threshold()) {
+                        s.candidates.push(id, d);
+                        results.offer(id, d);
+                    }
+                }
+            }
+        }
+        s.candidates.size = 0;
+        return results;
+    }
+
+    /**
+     * Writes the graph and the normalized vectors to {@code path}, typically
+     * {@link #indexPath(String)} of the model file.
+     *
+     * <p>The file is little endian: the header (magic, version, number of words, dimension,
+     * M, entry point, max level, number of upper layer links), the offset of the upper layer
+     * links of each node (-1 when the node is only on the bottom layer), the bottom layer
+     * (count then {@code 2 * M} ids per node), the upper layers (count then {@code M} ids per
+     * node and layer) and the vectors.
+     */
+    public void save(Path path) throws IOException {
+        try (ChannelFastTextOutput out = ChannelFastTextOutput.create(path)) {
+            out.writeInt(HNSW_MAGIC);
+            out.writeInt(HNSW_VERSION);
+            out.writeInt(size);
+            out.writeInt(dim);
+            out.writeInt(m);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            out.writeInt(graph.upper.limit());
+            writeInts(out, graph.upperOffsets);
+            writeInts(out, graph.layer0);
+            writeInts(out, graph.upper);
+            final float[] row = new float[dim];
+            for (int i = 0; i < size; i++) {
+                Arrays.fill(row, 0.0f);
+                vectors.addRowToArray(row, i, 1.0f);
+                out.writeFloats(row, 0, dim);
+            }
+        }
+    }
+
+    private static void writeInts(ChannelFastTextOutput out, IntBuffer ints) throws IOException {
+        final int[] block = new int[4096];
+        final IntBuffer src = ints.duplicate();
+        src.clear();
+        while (src.hasRemaining()) {
+            final int step = Math.min(block.length, src.remaining());
+            src.get(block, 0, step);
+            out.writeInts(block, 0, step);
+        }
+    }
+
+    /**
+     * Loads the index of {@code model} saved at {@code path}, copying it onto the heap or
+     * memory mapping it.
+     */
+    public static HnswIndex load(FastTextModel model, Path path, boolean mmap) throws IOException {
+        if (mmap) {
+            try (MMapFastTextInput is = MMapFastTextInput.open(path)) {
+                final Header header = Header.read(is, model);
+                final IntBuffer upperOffsets = is.mapInts(header.size);
+                final IntBuffer layer0 = is.mapInts((long) header.size * (2 * header.m + 1));
+                final IntBuffer upper = is.mapInts(header.upperLinks);
+                final Matrix vectors = new MMapMatrix(header.size, header.dim,
+                        is.mapFloats(header.size, header.dim), MMapFastTextInput.rowsPerChunk(header.dim));
+                return header.index(model, vectors, new Graph(header.m, upperOffsets, layer0, upper));
+            }
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            final FastTextInput is = new InputStreamFastTextInput(in);
+            final Header header = Header.read(is, model);
+            final IntBuffer upperOffsets = readInts(is, header.size);
+            final IntBuffer layer0 = readInts(is, Math.multiplyExact(header.size, 2 * header.m + 1));
+            final IntBuffer upper = readInts(is, header.upperLinks);
+            final ChunkedMatrix vectors = new ChunkedMatrix(header.size, header.dim);
+            final float[] row = new float[header.dim];
+            for (int i = 0; i < header.size; i++) {
+                is.readFloats(row, 0, header.dim);
+                vectors.setRow(i, row);
+            }
+            return header.index(model, vectors, new Graph(header.m, upperOffsets, layer0, upper));
+        }
+    }
+
+    private static IntBuffer readInts(FastTextInput is, int count) throws IOException {
+        final int[] ints = new int[count];
+        is.readInts(ints, 0, count);
+        return IntBuffer.wrap(ints);
+    }
+
+    private static final class Header {
+        int size;
+        int dim;
+        int m;
+        int entryPoint;
+        int maxLevel;
+        int upperLinks;
+
+        static Header read(FastTextInput is, FastTextModel model) throws IOException {
+            if (is.readInt() != HNSW_MAGIC) {
+                throw new IOException("Not a HNSW index file");
+            }
+            final int version = is.readInt();
+            if (version != HNSW_VERSION) {
+                throw new IOException("Unsupported HNSW index version " + version);
+            }
+            final Header header = new Header();
+            header.size = is.readInt();
+            header.dim = is.readInt();
+            header.m = is.readInt();
+            header.entryPoint = is.readInt();
+            header.maxLevel = is.readInt();
+            header.upperLinks = is.readInt();
+            if (header.size != model.getDictionary().nwords() || header.dim != model.getDimension()) {
+                throw new IOException("HNSW index of " + header.size + " words of dimension " + header.dim
+                        + " does not match the model, " + model.getDictionary().nwords() + " words of dimension "
+                        + model.getDimension());
+            }
+            return header;
+        }
+
+        HnswIndex index(FastTextModel model, Matrix vectors, Graph graph) {
+            return new HnswIndex(model, vectors, graph, m, entryPoint, maxLevel);
+        }
+    }
+
+    /**
+     * Links of the nodes, {@code 2 * M + 1} ints per node on the bottom layer and
+     * {@code M + 1} ints per node and upper layer, the first int being the number of links.
+     */
+    private static class Graph {
+        final int m;
+        final IntBuffer upperOffsets;
+        final IntBuffer layer0;
+        final IntBuffer upper;
+
+        Graph(int m, IntBuffer upperOffsets, IntBuffer layer0, IntBuffer upper) {
+            this.m = m;
+            this.upperOffsets = upperOffsets;
+            this.layer0 = layer0;
+            this.upper = upper;
+        }
+
+        /**
+         * Copies the links of {@code node} on {@code level} into {@code out} and returns
+         * their number.
+         */
+        int neighbors(int node, int level, int[] out) {
+            final IntBuffer links;
+            final int offset;
+            if (level == 0) {
+                links = layer0;
+                offset = node * (2 * m + 1);
+            } else {
+                links = upper;
+                offset = upperOffsets.get(node) + (level - 1) * (m + 1);
+            }
+            final int count = links.get(offset);
+            for (int i = 0; i < count; i++) {
+                out[i] = links.get(offset + 1 + i);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Graph being built, its links are read and written under the lock of their node.
+     */
+    private static final class Builder extends Graph {
+        /* number of locks the nodes are striped over */
+        private static final int LOCKS = 1 << 12;
+
+        private final Matrix vectors;
+        private final Options options;
+        private final int[] links0;
+        private final int[][] upperLinks;
+        private final int[] levels;
+        private final Object[] locks;
+        private int entryPoint;
+        private int maxLevel;
+
+        Builder(Matrix vectors, Options options) {
+            super(options.m, null, null, null);
+            this.vectors = vectors;
+            this.options = options;
+            this.links0 = new int[Math.multiplyExact(vectors.m, 2 * options.m + 1)];
+            this.upperLinks = new int[vectors.m][];
+            this.levels = new int[vectors.m];
+            this.locks = new Object[LOCKS];
+            for (int i = 0; i < LOCKS; i++) {
+                locks[i] = new Object();
+            }
+            // exponentially decaying levels, drawn upfront so that builds are reproducible
+            final Random random = new Random(options.seed);
+            final double ml = 1.0 / Math.log(options.m);
+            for (int i = 0; i < vectors.m; i++) {
+                levels[i] = (int) (-Math.log(1.0 - random.nextDouble()) * ml);
+                if (levels[i] > 0) {
+                    upperLinks[i] = new int[levels[i] * (options.m + 1)];
+                }
+            }
+        }
+
+        @Override
+        int neighbors(int node, int level, int[] out) {
+            synchronized (lock(node)) {
+                final int[] links = level == 0 ? links0 : upperLinks[node];
+                final int offset = offset(node, level);
+                final int count = links[offset];
+                System.arraycopy(links, offset + 1, out, 0, count);
+                return count;
+            }
+        }
+
+        private Object lock(int node) {
+            return locks[node & (LOCKS - 1)];
+        }
+
+        private int offset(int node, int level) {
+            return level == 0 ? node * (2 * m + 1) : (level - 1) * (m + 1);
+        }
+
+        void build() {
+            final int size = vectors.m;
+            if (size == 0) {
+                return;
+            }
+            entryPoint = 0;
+            maxLevel = levels[0];
+            final AtomicInteger next = new AtomicInteger(1);
+            final int threads = Math.max(1, Math.min(options.threads, size / 1024));
+            if (threads == 1) {
+                insertAll(next);
+                return;
+            }
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                final List<Future<Void>> tasks = new ArrayList<>(threads);
+                for (int i = 0; i < threads; i++) {
+                    tasks.add(executor.submit(() -> {
+                        insertAll(next);
+                        return null;
+                    }));
+                }
+                for (Future<Void> task : tasks) {
+                    task.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while building the HNSW index", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to build the HNSW index", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        private void insertAll(AtomicInteger next) {
+            final Search s = new Search(vectors.m, 2 * m);
+            s.ids = new int[options.efConstruction];
+            s.scores = new float[options.efConstruction];
+            s.selected = new int[2 * m + 1];
+            s.vector = new float[vectors.n];
+            s.candidate = new float[vectors.n];
+            final float[] vector = new float[vectors.n];
+            for (int node = next.getAndIncrement(); node < vectors.m; node = next.getAndIncrement()) {
+                Arrays.fill(vector, 0.0f);
+                vectors.addRowToArray(vector, node, 1.0f);
+                insert(s, node, vector);
+            }
+        }
+
+        private void insert(Search s, int node, float[] vector) {
+            final int level = levels[node];
+            int ep;
+            int top;
+            synchronized (this) {
+                ep = entryPoint;
+                top = maxLevel;
+            }
+            float score = vectors.dotRow(vector, ep);
+            for (int l = top; l > level; l--) {
+                ep = greedy(s, this, vectors, vector, ep, score, l);
+                score = vectors.dotRow(vector, ep);
+            }
+            for (int l = Math.min(level, top); l >= 0; l--) {
+                final TopK candidates = searchLayer(s, this, vectors, vector, ep, score, options.efConstruction, l);
+                final int n = candidates.drain(s.ids, s.scores);
+                ep = s.ids[0];
+                score = s.scores[0];
+                final int maxLinks = l == 0 ? 2 * m : m;
+                final int count = select(s, s.ids, s.scores, n, m);
+                final int[] selected = Arrays.copyOf(s.selected, count);
+                synchronized (lock(node)) {
+                    final int[] links = l == 0 ? links0 : upperLinks[node];
+                    final int offset = offset(node, l);
+                    links[offset] = count;
+                    System.arraycopy(selected, 0, links, offset + 1, count);
+                }
+                for (int neighbor : selected) {
+                    link(s, neighbor, node, l, maxLinks);
+                }
+            }
+            if (level > top) {
+                synchronized (this) {
+                    if (level > maxLevel) {
+                        maxLevel = level;
+                        entryPoint = node;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds a link from {@code node} to {@code target}, pruning the links of {@code node}
+         * with the heuristic when it has too many.
+         */
+        private void link(Search s, int node, int target, int level, int maxLinks) {
+            synchronized (lock(node)) {
+                final int[] links = level == 0 ? links0 : upperLinks[node];
+                final int offset = offset(node, level);
+                final int count = links[offset];
+                if (count < maxLinks) {
+                    links[offset + 1 + count] = target;
+                    links[offset] = count + 1;
+                    return;
+                }
+                Arrays.fill(s.vector, 0.0f);
+                vectors.addRowToArray(s.vector, node, 1.0f);
+                final TopK candidates = new TopK(count + 1);
+                candidates.offer(target, vectors.dotRow(s.vector, target));
+                for (int i = 0; i < count; i++) {
+                    final int id = links[offset + 1 + i];
+                    candidates.offer(id, vectors.dotRow(s.vector, id));
+                }
+                final int[] ids = new int[count + 1];
+                final float[] scores = new float[count + 1];
+                candidates.drain(ids, scores);
+                final int selected = select(s, ids, scores, count + 1, maxLinks);
+                links[offset] = selected;
+                System.arraycopy(s.selected, 0, links, offset + 1, selected);
+            }
+        }
+
+        /**
+         * Neighbor selection heuristic: goes through the candidates from the closest, keeping
+         * those closer to the node than to any kept candidate, so that links point in diverse
+         * directions. Returns the number of candidates written to {@code s.selected}.
+         */
+        private int select(Search s, int[] ids, float[] scores, int n, int max) {
+            int selected = 0;
+            for (int i = 0; i < n && selected < max; i++) {
+                Arrays.fill(s.candidate, 0.0f);
+                vectors.addRowToArray(s.candidate, ids[i], 1.0f);
+                boolean keep = true;
+                for (int j = 0; j < selected; j++) {
+                    if (vectors.dotRow(s.candidate, s.selected[j]) > scores[i]) {
+                        keep = false;
+                        break;
+                    }
+                }
+                if (keep) {
+                    s.selected[selected++] = ids[i];
+                }
+            }
+            return selected;
+        }
+
+        /**
+         * Flattens the links into the layout of saved indexes.
+         */
+        Graph toGraph() {
+            final int[] offsets = new int[vectors.m];
+            int total = 0;
+            for (int i = 0; i < vectors.m; i++) {
+                if (upperLinks[i] == null) {
+                    offsets[i] = -1;
+                } else {
+                    offsets[i] = total;
+                    total = Math.addExact(total, upperLinks[i].length);
+                }
+            }
+            final int[] upper = new int[total];
+            for (int i = 0; i < vectors.m; i++) {
+                if (upperLinks[i] != null) {
+                    System.arraycopy(upperLinks[i], 0, upper, offsets[i], upperLinks[i].length);
+                }
+            }
+            return new Graph(m, IntBuffer.wrap(offsets), IntBuffer.wrap(links0), IntBuffer.wrap(upper));
+        }
+    }
+
+    /**
+     * Per thread state of a search: visited marks, candidates and buffers.
+     */
+    private static final class Search {
+        final int[] visited;
+        int epoch;
+        final int[] links;
+        final Candidates candidates = new Candidates();
+        /* used by the builder */
+        int[] ids;
+        float[] scores;
+        int[] selected;
+        float[] vector;
+        float[] candidate;
+
+        Search(int size, int maxLinks) {
+            this.visited = new int[size];
+            this.links = new int[maxLinks];
+        }
+
+        void reset() {
+            if (++epoch == 0) {
+                Arrays.fill(visited, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * Marks {@code id} visited, returns false if it already was.
+         */
+        boolean visit(int id) {
+            if (visited[id] == epoch) {
+                return false;
+            }
+            visited[id] = epoch;
+            return true;
+        }
+    }
+
+    /**
+     * Binary max heap of the nodes left to explore.
+     */
+    private static final class Candidates {
+        int[] ids = new int[64];
+        float[] scores = new float[64];
+        int size;
+
+        float topScore() {
+            return scores[0];
+        }
+
+        void push(int id, float score) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                final int parent = (i - 1) >>> 1;
+                if (scores[parent] >= score) {
+                    break;
+                }
+                ids[i] = ids[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        }
+
+        int pop() {
+            final int top = ids[0];
+            size--;
+            final int id = ids[size];
+            final float score = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && scores[child + 1] > scores[child]) {
+                    child++;
+                }
+                if (scores[child] <= score) {
+                    break;
+                }
+                ids[i] = ids[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            ids[i] = id;
+            scores[i] = score;
+            return top;
+        }
+    }
+
+    /**
+     * Options of {@link #build(FastTextModel, Options)}.
+     */
+    public static final class Options {
+        private int m = 16;
+        private int efConstruction = 200;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private long seed = 42L;
+
+        /**
+         * Maximum number of links of a node on the upper layers, twice as many on the bottom
+         * layer. More links improve the recall of high dimensional vectors, for a larger and
+         * slower to build index. Defaults to 16.
+         */
+        public Options m(int m) {
+            Preconditions.checkArgument(m >= 2, "m must be >= 2, got %s", m);
+            this.m = m;
+            return this;
+        }
+
+        /**
+         * Number of candidates explored when inserting a word. Defaults to 200.
+         */
+        public Options efConstruction(int efConstruction) {
+            Preconditions.checkArgument(efConstruction > 0, "efConstruction must be > 0, got %s", efConstruction);
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        /**
+         * Number of threads inserting words concurrently. Defaults to the number of processors.
+         */
+        public Options threads(int threads) {
+            Preconditions.checkArgument(threads >= 1, "threads must be >= 1, got %s", threads);
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Seed of the random levels of the words.
+         */
+        public Options seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Options(m=" + m + ", efConstruction=" + efConstruction + ", threads=" + threads
+                    + ", seed=" + seed + ")";
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package fasttext;
+
+import fasttext.store.FastTextInput;
+
+import java.io.IOException;
+
+/**
+ * {@link Matrix} storing its rows as signed bytes with one float scale per row.
+ *
+ * <p>Uses about a quarter of the memory of a {@link DenseMatrix}. Each row is scaled so that
+ * its largest absolute value maps to 127, the absolute error of an element is at most half
+ * of the row scale, i.e. {@code max|x| / 254}. Rows are decoded on the fly, and split in
+ * several arrays so that more than 2<sup>31</sup> elements can be stored.
+ */
+public class Int8Matrix extends Matrix {
+
+    private final byte[][] chunks;
+    private final int rowsPerChunk;
+    private final int chunkShift;
+    private final float[] scales;
+    private float maxRowError;
+
+    public Int8Matrix(int m, int n) {
+        this(m, n, CHUNK_ELEMENTS);
+    }
+
+    Int8Matrix(int m, int n, int chunkElements) {
+        super(m, n);
+        this.rowsPerChunk = rowsPerChunk(n, chunkElements);
+        this.chunkShift = Integer.numberOfTrailingZeros(rowsPerChunk);
+        this.chunks = new byte[nrChunks(m, rowsPerChunk)][];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = new byte[(int) Math.min(rowsPerChunk, m - (long) c * rowsPerChunk) * n];
+        }
+        this.scales = new float[m];
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return (long) m * n + (long) m * Float.BYTES;
+    }
+
+    private byte[] chunk(int i) {
+        return chunks[i >>> chunkShift];
+    }
+
+    private int offset(int i) {
+        return (i & (rowsPerChunk - 1)) * n;
+    }
+
+    @Override
+    public float at(int i, int j) {
+        return scales[i] * chunk(i)[offset(i) + j];
+    }
+
+    @Override
+    public float[] atRow(int i) {
+        final byte[] data = chunk(i);
+        final int offset = offset(i);
+        final float[] r = new float[n];
+        final float scale = scales[i];
+        for (int j = 0; j < n; j++) {
+            r[j] = scale * data[offset + j];
+        }
+        return r;
+    }
+
+    @Override
+    public float dotRow(final float[] x, int i) {
+        final byte[] data = chunk(i);
+        final int offset = offset(i);
+        float d = 0.0f;
+        for (int j = 0; j < n; j++) {
+            d += data[offset + j] * x[j];
+        }
+        return d * scales[i];
+    }
+
+    @Override
+    public void addRowToArray(final float[] x, int off, int i, float a) {
+        final byte[] data = chunk(i);
+        final int offset = offset(i);
+        final float scale = a * scales[i];
+        for (int j = 0; j < n; j++) {
+            x[off + j] += scale * data[offset + j];
+        }
+    }
+
+    /**
+     * Largest relative L2 error {@code |x - int8(x)| / |x|} of a row, as measured when the
+     * rows were read. The cosine similarity of two rows differs from the one of the float
+     * model by at most {@code 2 * asin(maxRowError())}.
+     */
+    public float maxRowError() {
+        return maxRowError;
+    }
+
+    /**
+     * Reads {@code rows} rows of floats from {@code is} into rows {@code firstRow...} of this
+     * matrix. Different row ranges may be read concurrently.
+     */
+    void readRows(FastTextInput is, int firstRow, int rows) throws IOException {
+        final float[] row = new float[n];
+        float maxError = 0.0f;
+        for (int i = firstRow; i < firstRow + rows; i++) {
+            is.readFloats(row, 0, n);
+            float max = 0.0f;
+            for (int j = 0; j < n; j++) {
+                max = Math.max(max, Math.abs(row[j]));
+            }
+            final float scale = max / 127.0f;
+            scales[i] = scale;
+            if (scale == 0.0f) {
+                continue;
+            }
+            final byte[] data = chunk(i);
+            final int offset = offset(i);
+            double norm = 0.0;
+            double error = 0.0;
+            for (int j = 0; j < n; j++) {
+                final int q = Math.max(-127, Math.min(127, Math.round(row[j] / scale)));
+                data[offset + j] = (byte) q;
+                final double e = row[j] - scale * q;
+                norm += row[j] * row[j];
+                error += e * e;
+            }
+            maxError = Math.max(maxError, (float) Math.sqrt(error / norm));
+        }
+        synchronized (this) {
+            maxRowError = Math.max(maxRowError, maxError);
+        }
+    }
+}
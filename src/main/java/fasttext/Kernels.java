@@ -0,0 +1,61 @@
+package fasttext;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Entry point of the float kernels behind {@link Vector} and the {@link Matrix}
+ * implementations.
+ *
+ * <p>When the build ran on JDK 16 or later it includes kernels written with the incubating
+ * Vector API ({@code jdk.incubator.vector}); they are used when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}. Otherwise, or with
+ * {@code -Dfasttext.kernels=scalar}, plain Java loops are used.
+ */
+final class Kernels {
+
+    private static final Logger LOG = Logger.getLogger(Kernels.class);
+
+    static final String PROPERTY = "fasttext.kernels";
+
+    private static final FloatKernels IMPL = load();
+
+    private Kernels() {
+    }
+
+    private static FloatKernels load() {
+        if (!"scalar".equals(System.getProperty(PROPERTY))) {
+            try {
+                final FloatKernels kernels = (FloatKernels) Class.forName("fasttext.VectorKernels")
+                        .getDeclaredConstructor().newInstance();
+                LOG.debug("Using " + kernels.name() + " kernels");
+                return kernels;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                LOG.debug("Vector API kernels unavailable, using scalar kernels: " + e);
+            }
+        }
+        return new ScalarKernels();
+    }
+
+    /**
+     * Name of the kernels in use.
+     */
+    static String name() {
+        return IMPL.name();
+    }
+
+    static float dot(float[] x, int xOff, float[] y, int yOff, int n) {
+        return IMPL.dot(x, xOff, y, yOff, n);
+    }
+
+    static float dot(float[] x, float[] y, int n) {
+        return IMPL.dot(x, 0, y, 0, n);
+    }
+
+    static void axpy(float a, float[] x, int xOff, float[] y, int yOff, int n) {
+        IMPL.axpy(a, x, xOff, y, yOff, n);
+    }
+
+    static void scale(float a, float[] x, int off, int n) {
+        IMPL.scale(a, x, off, n);
+    }
+}
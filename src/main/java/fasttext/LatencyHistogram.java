@@ -0,0 +1,91 @@
+package fasttext;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of durations in nanoseconds, with buckets growing exponentially: each
+ * power of two is split in {@value #SUB_BUCKETS} buckets, so percentiles are reported within
+ * 25% of the actual value.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0, nanos)));
+        count.increment();
+        sum.add(nanos);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int log = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (log - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (log - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /* largest value of a bucket */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int log = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long sub = bucket % SUB_BUCKETS;
+        final long lower = (1L << log) + (sub << (log - SUB_BUCKET_BITS));
+        return lower + (1L << (log - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double mean() {
+        final long n = count.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Upper bound of the bucket holding the {@code quantile} of the recorded durations, in
+     * nanoseconds, or 0 when nothing was recorded.
+     */
+    public long percentile(double quantile) {
+        if (quantile < 0.0 || quantile > 1.0) {
+            throw new IllegalArgumentException("quantile must be in [0, 1], got " + quantile);
+        }
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        final long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank && seen > 0) {
+                return upperBound(i);
+            }
+        }
+        return 0;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram(count=" + count() + ", mean=" + (long) mean() + "ns, p50=" + percentile(0.5)
+                + "ns, p99=" + percentile(0.99) + "ns, p999=" + percentile(0.999) + "ns)";
+    }
+}
@@ -0,0 +1,115 @@
+package fasttext;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Options controlling how {@link FastText#loadModel(String, LoadOptions)} reads a model file.
+ */
+public class LoadOptions {
+
+    /**
+     * Default budget of the subword cache, 64MB.
+     */
+    public static final long DEFAULT_SUBWORD_CACHE_BYTES = 64L << 20;
+
+    private boolean mmap = false;
+    private int threads = 1;
+    private Precision precision = Precision.FLOAT;
+    private long subwordCacheBytes = DEFAULT_SUBWORD_CACHE_BYTES;
+    private FastTextListener listener;
+
+    /**
+     * Memory map the input matrices instead of copying them onto the heap.
+     */
+    public LoadOptions mmap(boolean mmap) {
+        this.mmap = mmap;
+        return this;
+    }
+
+    /**
+     * Number of threads reading the input matrices. With more than one thread the
+     * row ranges of each matrix are filled concurrently with positional reads.
+     * Ignored for memory mapped models.
+     */
+    public LoadOptions threads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be >= 1, got " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Precision the input matrices are stored with once loaded. Reduced precisions cannot be
+     * memory mapped, and do not apply to quantized models.
+     */
+    public LoadOptions precision(Precision precision) {
+        this.precision = Preconditions.checkNotNull(precision);
+        return this;
+    }
+
+    /**
+     * Approximate number of bytes used to cache the ngram rows of looked up words, both
+     * dictionary and out of vocabulary words. Least recently used words are evicted once
+     * the budget is reached, 0 disables the cache.
+     */
+    public LoadOptions subwordCacheBytes(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("subwordCacheBytes must be >= 0, got " + bytes);
+        }
+        this.subwordCacheBytes = bytes;
+        return this;
+    }
+
+    /**
+     * Receives the load timings of the model, then the lookups made on it.
+     */
+    public LoadOptions listener(FastTextListener listener) {
+        this.listener = Preconditions.checkNotNull(listener);
+        return this;
+    }
+
+    public boolean isMmap() {
+        return this.mmap;
+    }
+
+    public int getThreads() {
+        return this.threads;
+    }
+
+    public Precision getPrecision() {
+        return this.precision;
+    }
+
+    public long getSubwordCacheBytes() {
+        return this.subwordCacheBytes;
+    }
+
+    /**
+     * The listener, or null.
+     */
+    public FastTextListener getListener() {
+        return this.listener;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadOptions(mmap=" + mmap + ", threads=" + threads + ", precision=" + precision
+                + ", subwordCacheBytes=" + subwordCacheBytes + ")";
+    }
+
+    public enum Precision {
+        /**
+         * 32 bits floats, as stored in the model file.
+         */
+        FLOAT,
+        /**
+         * 16 bits half precision floats, see {@link HalfMatrix}.
+         */
+        HALF,
+        /**
+         * 8 bits integers with a float scale per row, see {@link Int8Matrix}.
+         */
+        INT8
+    }
+}
@@ -0,0 +1,100 @@
+package fasttext;
+
+import fasttext.store.MMapFastTextInput;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * {@link Matrix} reading its rows straight from memory mapped {@link FloatBuffer}s.
+ *
+ * <p>Rows are never copied onto the heap: several JVMs mapping the same model file
+ * share its pages through the OS page cache.
+ *
+ * @see fasttext.store.MMapFastTextInput#mapFloats(long, int)
+ */
+public class MMapMatrix extends Matrix {
+
+    private final FloatBuffer[] chunks;
+    private final int rowsPerChunk;
+    /* the mappings the chunks are views of, null when unknown */
+    private final ByteBuffer[] mapped;
+
+    public MMapMatrix(int m, int n, FloatBuffer[] chunks, int rowsPerChunk) {
+        super(m, n);
+        this.chunks = chunks;
+        this.rowsPerChunk = rowsPerChunk;
+        this.mapped = null;
+    }
+
+    /**
+     * Matrix over the buffers returned by {@link MMapFastTextInput#mapRows(long, int)}, which
+     * {@link #unmap()} can release.
+     */
+    public MMapMatrix(int m, int n, ByteBuffer[] mapped, int rowsPerChunk) {
+        super(m, n);
+        this.chunks = new FloatBuffer[mapped.length];
+        for (int i = 0; i < mapped.length; i++) {
+            chunks[i] = mapped[i].asFloatBuffer();
+        }
+        this.rowsPerChunk = rowsPerChunk;
+        this.mapped = mapped;
+    }
+
+    @Override
+    void unmap() {
+        if (mapped == null) {
+            return;
+        }
+        for (ByteBuffer buffer : mapped) {
+            if (!MMapFastTextInput.unmap(buffer)) {
+                // left to the garbage collector
+                return;
+            }
+        }
+    }
+
+    private FloatBuffer chunk(int i) {
+        return chunks[i / rowsPerChunk];
+    }
+
+    private int offset(int i) {
+        return (i % rowsPerChunk) * n;
+    }
+
+    @Override
+    public float at(int i, int j) {
+        return chunk(i).get(offset(i) + j);
+    }
+
+    @Override
+    public float[] atRow(int i) {
+        final FloatBuffer chunk = chunk(i);
+        final int offset = offset(i);
+        final float[] r = new float[n];
+        for (int j = 0; j < n; j++) {
+            r[j] = chunk.get(offset + j);
+        }
+        return r;
+    }
+
+    @Override
+    public float dotRow(final float[] x, int i) {
+        final FloatBuffer chunk = chunk(i);
+        final int offset = offset(i);
+        float d = 0.0f;
+        for (int j = 0; j < n; j++) {
+            d += chunk.get(offset + j) * x[j];
+        }
+        return d;
+    }
+
+    @Override
+    public void addRowToArray(final float[] x, int off, int i, float a) {
+        final FloatBuffer chunk = chunk(i);
+        final int offset = offset(i);
+        for (int j = 0; j < n; j++) {
+            x[off + j] += a * chunk.get(offset + j);
+        }
+    }
+}
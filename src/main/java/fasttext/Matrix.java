@@ -2,106 +2,102 @@ package fasttext;
 
 import com.google.common.base.Preconditions;
 
-public class Matrix {
+/**
+ * Read-only view over a row-major matrix of model weights.
+ *
+ * <p>Implementations decide where the rows live (on-heap arrays, memory-mapped
+ * files, ...), lookups only go through the methods below.
+ */
+public abstract class Matrix {
 
-    private final float[] data;
-    private final int m;
-    private final int n;
+    /* elements of a chunk of the on-heap matrices that split their rows in several arrays */
+    static final int CHUNK_ELEMENTS = 1 << 26;
 
-    public Matrix(int m, int n, float[] data) {
-        this.m = m;
-        this.n = n;
-        this.data = data;
-    }
+    protected final int m;
+    protected final int n;
 
-    public Matrix(int m, int n) {
+    protected Matrix(int m, int n) {
         this.m = m;
         this.n = n;
-        data = new float[this.m * this.n];
     }
 
-    public Matrix(Matrix other) {
-        this.m = other.m;
-        this.n = other.n;
-        data = new float[this.m * this.n];
-        for (int i = 0; i < (this.m * this.n); i++) {
-            data[i] = other.data[i];
-        }
+    /**
+     * Approximate number of bytes held by the matrix, on the heap or mapped.
+     */
+    public long ramBytesUsed() {
+        return (long) m * n * Float.BYTES;
     }
 
-    public void zero() {
-        for (int i = 0; i < (m * n); i++) {
-            data[i] = 0.0f;
-        }
+    /**
+     * Releases the memory mapped by this matrix without waiting for the garbage collector.
+     * Rows must not be read afterwards: the model owning the matrix is no longer used.
+     */
+    void unmap() {
     }
 
-    public float[] atRow(int i) {
-        float[] r = new float[n];
-        System.arraycopy(data, i * n, r, 0, n);
-        return r;
-    }
+    public abstract float at(int i, int j);
+
+    public abstract float[] atRow(int i);
+
+    /**
+     * Dot product of row {@code i} with the first {@code n()} floats of {@code x}.
+     * Unlike {@link #dotRow(Vector, int)} arguments are not validated.
+     */
+    public abstract float dotRow(final float[] x, int i);
 
-    public float at(int i, int j) {
-        return data[i * n + j];
+    /**
+     * Adds row {@code i}, scaled by {@code a}, to the first {@code n()} floats of {@code x}.
+     * Unlike {@link #addRowToVector(Vector, int, float)} arguments are not validated.
+     */
+    public void addRowToArray(final float[] x, int i, float a) {
+        addRowToArray(x, 0, i, a);
     }
 
+    /**
+     * Adds row {@code i}, scaled by {@code a}, to the {@code n()} floats of {@code x} starting
+     * at {@code off}. Arguments are not validated.
+     */
+    public abstract void addRowToArray(final float[] x, int off, int i, float a);
+
     public float dotRow(final Vector vec, int i) {
         Preconditions.checkPositionIndex(i, m);
         Preconditions.checkArgument(vec.size() == n);
-        float d = 0.0f;
-        for (int j = 0; j < n; j++) {
-            d += data[i * n + j] * vec.at(j);
-        }
+        final float d = dotRow(vec.data, i);
         if (Float.isNaN(d)) {
             throw new IllegalStateException("Encountered NaN.");
         }
         return d;
     }
 
-    public void addRow(final Vector vec, int i, float a) {
-        Preconditions.checkPositionIndex(i, m);
-        Preconditions.checkArgument(vec.size() == n);
-        for (int j = 0; j < n; j++) {
-            data[i * n + j] += a * vec.at(j);
-        }
-    }
-
-    public void multiplyRow(final Vector nums) {
-        multiplyRow(nums, 0, -1);
+    /**
+     * Adds row {@code i} of this matrix to {@code x}.
+     */
+    public void addRowToVector(final Vector x, int i) {
+        addRowToVector(x, i, 1.0f);
     }
 
-    public void multiplyRow(final Vector nums, int ib, int ie) {
-        if (ie == -1) {
-            ie = m;
-        }
-        Preconditions.checkPositionIndex(ie, nums.size());
-        for (int i = ib; i < ie; i++) {
-            float num = nums.at(i - ib);
-            if (n != 0) {
-                for (int j = 0; j < this.n; j++) {
-                    data[i * n + j] *= num;
-                }
-            }
-        }
+    /**
+     * Adds row {@code i} of this matrix, scaled by {@code a}, to {@code x}.
+     */
+    public void addRowToVector(final Vector x, int i, float a) {
+        Preconditions.checkPositionIndex(i, m);
+        Preconditions.checkArgument(x.size() == n);
+        addRowToArray(x.data, i, a);
     }
 
-    public void divideRow(final Vector denoms) {
-        divideRow(denoms, 0, -1);
+    /**
+     * Number of rows of {@code n} elements held by a chunk of at most {@code chunkElements}
+     * elements. A power of two, so that rows are located with a shift and a mask.
+     */
+    static int rowsPerChunk(int n, int chunkElements) {
+        return Integer.highestOneBit(Math.max(1, chunkElements / Math.max(1, n)));
     }
 
-    public void divideRow(final Vector denoms, int ib, int ie) {
-        if (ie == -1) {
-            ie = m;
-        }
-        Preconditions.checkPositionIndex(ie, denoms.size());
-        for (int i = ib; i < ie; i++) {
-            float denom = denoms.at(i - ib);
-            if (denom != 0) {
-                for (int j = 0; j < this.n; j++) {
-                    data[i * n + j] /= denom;
-                }
-            }
-        }
+    /**
+     * Number of chunks of {@code rowsPerChunk} rows holding {@code m} rows.
+     */
+    static int nrChunks(int m, int rowsPerChunk) {
+        return (int) (((long) m + rowsPerChunk - 1) / rowsPerChunk);
     }
 
     public int m() {
@@ -0,0 +1,276 @@
+package fasttext;
+
+import com.google.common.base.Preconditions;
+import fasttext.store.InputStreamFastTextInput;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Holder of the current version of a model, which a new model can replace while lookups go on:
+ *
+ * <pre>
+ * ModelHandle handle = ModelHandle.open("cc.en.300.bin", new LoadOptions().mmap(true));
+ * try (ModelHandle.Lease lease = handle.acquire()) {
+ *     lease.model().getWordVector(word, vector);
+ * }
+ * handle.reload("cc.en.300.v2.bin");
+ * </pre>
+ *
+ * <p>{@link #reload(String)} loads the new model on a background thread, checks that it has
+ * the dimension of the current one, then publishes it with a single atomic write. Readers never
+ * wait: {@link #acquire()} increments the reference count of the current version, lookups
+ * started before a swap finish on the old model, and the old model is released when its last
+ * lease is closed. Models loaded by the handle are then unmapped right away, heap models are
+ * left to the garbage collector.
+ */
+public final class ModelHandle implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(ModelHandle.class);
+    private static final AtomicInteger HANDLES = new AtomicInteger();
+
+    private final AtomicReference<Lease> current;
+    private final LoadOptions options;
+    private final ExecutorService loader;
+    private long versions;
+    private boolean closed;
+
+    private ModelHandle(FastTextModel model, boolean owned, LoadOptions options) {
+        this.current = new AtomicReference<>(new Lease(model, 1, owned));
+        this.versions = 1;
+        this.options = options;
+        final int id = HANDLES.incrementAndGet();
+        this.loader = Executors.newSingleThreadExecutor(r -> {
+            final Thread thread = new Thread(r, "fasttext-model-loader-" + id);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the model of {@code filename}, the first version of the handle. Reloads use the
+     * same options.
+     */
+    public static ModelHandle open(String filename, LoadOptions options) throws IOException {
+        return new ModelHandle(FastText.loadModel(filename, options), true, options);
+    }
+
+    /**
+     * Handle of an already loaded model. Models not loaded by the handle are not unmapped when
+     * replaced.
+     */
+    public static ModelHandle of(FastTextModel model) {
+        return new ModelHandle(Preconditions.checkNotNull(model), false, new LoadOptions());
+    }
+
+    /**
+     * Handle of a model loaded for it, unmapped once replaced and released.
+     */
+    static ModelHandle owning(FastTextModel model, LoadOptions options) {
+        return new ModelHandle(Preconditions.checkNotNull(model), true, options);
+    }
+
+    /**
+     * Returns a lease on the current model, which stays usable until the lease is closed even
+     * if another model is published meanwhile. Each lease must be closed once.
+     */
+    public Lease acquire() {
+        while (true) {
+            final Lease lease = current.get();
+            if (lease == null) {
+                throw new IllegalStateException("Model handle closed");
+            }
+            if (lease.retain()) {
+                return lease;
+            }
+            // released by a concurrent swap, which already published the next version
+        }
+    }
+
+    /**
+     * Applies {@code function} to the current model.
+     */
+    public <T> T apply(Function<FastTextModel, T> function) {
+        try (Lease lease = acquire()) {
+            return function.apply(lease.model());
+        }
+    }
+
+    /**
+     * Version of the current model, 1 for the model the handle was created with and incremented
+     * by every swap.
+     */
+    public long getVersion() {
+        final Lease lease = current.get();
+        Preconditions.checkState(lease != null, "Model handle closed");
+        return lease.version;
+    }
+
+    /**
+     * Loads the model of {@code filename} in the background with the options of the handle and
+     * publishes it. See {@link #reload(String, LoadOptions)}.
+     */
+    public CompletableFuture<FastTextModel> reload(String filename) {
+        return reload(filename, options);
+    }
+
+    /**
+     * Loads the model of {@code filename} in the background and publishes it once loaded. The
+     * header is checked before the matrices are read: the returned future fails with an
+     * {@link IllegalArgumentException} if the file is not a model or its dimension is not the
+     * dimension of the current model, which then stays in use. Reloads run one at a time, in
+     * order.
+     */
+    public CompletableFuture<FastTextModel> reload(String filename, LoadOptions options) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    checkHeader(filename);
+                    final FastTextModel model = FastText.loadModel(filename, options);
+                    try {
+                        publish(model, true);
+                    } catch (RuntimeException e) {
+                        model.unmap();
+                        throw e;
+                    }
+                    LOG.info("Published " + filename + " as version " + getVersion());
+                    return model;
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, loader).whenComplete((model, e) -> {
+                if (e != null) {
+                    LOG.warn("Failed to reload " + filename + ", keeping the current model", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("Model handle closed", e);
+        }
+    }
+
+    /**
+     * Publishes {@code model}, which must have the dimension of the current model. The previous
+     * model is released once its leases are closed.
+     */
+    public void swap(FastTextModel model) {
+        publish(Preconditions.checkNotNull(model), false);
+    }
+
+    private void publish(FastTextModel model, boolean owned) {
+        final Lease previous;
+        synchronized (this) {
+            Preconditions.checkState(!closed, "Model handle closed");
+            checkDimension(model.getDimension());
+            previous = current.getAndSet(new Lease(model, ++versions, owned));
+        }
+        previous.close();
+    }
+
+    /**
+     * Reads the header of {@code filename} to fail before loading a model which cannot replace
+     * the current one.
+     */
+    private void checkHeader(String filename) throws IOException {
+        final File f = new File(filename);
+        if (!f.canRead()) {
+            throw new IllegalArgumentException("Model file cannot be opened for loading");
+        }
+        try (InputStreamFastTextInput is = new InputStreamFastTextInput(Files.newInputStream(f.toPath()))) {
+            checkDimension(FastText.readHeader(is).getDimension());
+        }
+    }
+
+    private void checkDimension(int dimension) {
+        final Lease lease = current.get();
+        Preconditions.checkState(lease != null, "Model handle closed");
+        final int expected = lease.model.getDimension();
+        if (dimension != expected) {
+            throw new IllegalArgumentException("Model of dimension " + dimension
+                    + " cannot replace a model of dimension " + expected);
+        }
+    }
+
+    /**
+     * Stops the pending reloads and releases the current model once its leases are closed.
+     */
+    @Override
+    public void close() {
+        final Lease last;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            last = current.getAndSet(null);
+        }
+        loader.shutdownNow();
+        last.close();
+    }
+
+    /**
+     * A reference on a version of the model. The version holds one reference while it is the
+     * current one and one per open lease.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final FastTextModel model;
+        private final long version;
+        private final boolean owned;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Lease(FastTextModel model, long version, boolean owned) {
+            this.model = model;
+            this.version = version;
+            this.owned = owned;
+        }
+
+        public FastTextModel model() {
+            return model;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Adds a reference unless the version was already released.
+         */
+        private boolean retain() {
+            int n;
+            do {
+                n = references.get();
+                if (n == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(n, n + 1));
+            return true;
+        }
+
+        boolean isReleased() {
+            return references.get() == 0;
+        }
+
+        @Override
+        public void close() {
+            final int n = references.decrementAndGet();
+            if (n == 0) {
+                if (owned) {
+                    model.unmap();
+                }
+                LOG.debug("Released model version " + version);
+            } else if (n < 0) {
+                throw new IllegalStateException("Lease of model version " + version + " closed twice");
+            }
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package fasttext;
+
+import com.google.common.base.Preconditions;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Models loaded on first use and evicted, least recently used first, when the bytes they hold
+ * exceed a budget:
+ *
+ * <pre>
+ * ModelRegistry registry = new ModelRegistry(8L &lt;&lt; 30,
+ *         ModelRegistry.directory(Paths.get("/models"), new LoadOptions().mmap(true)));
+ * try (ModelHandle.Lease lease = registry.acquire("cc.de.300")) {
+ *     lease.model().getWordVector(word, vector);
+ * }
+ * </pre>
+ *
+ * <p>Concurrent requests of a model which is not loaded wait for a single load. A model counts
+ * its dictionary and matrices, see {@link FastTextModel#ramBytesUsed()}, against the budget,
+ * and the nearest neighbors it builds afterwards, which the next load accounts.
+ * Once a load goes over the budget the least recently acquired models are evicted: they are
+ * removed from the registry right away and released when their last lease is closed, so
+ * lookups in progress are not affected. A model larger than the budget alone is kept.
+ */
+public final class ModelRegistry implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(ModelRegistry.class);
+    /* the access time of a model is only written when older, not by every lookup */
+    private static final long ACCESS_RESOLUTION_NANOS = 1000000;
+
+    /**
+     * Loads the model of an id.
+     */
+    public interface Loader {
+        FastTextModel load(String id) throws IOException;
+    }
+
+    private final long budgetBytes;
+    private final Loader loader;
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    /* bytes of the loaded entries, guarded by this */
+    private long residentBytes;
+    private volatile boolean closed;
+
+    public ModelRegistry(long budgetBytes, Loader loader) {
+        Preconditions.checkArgument(budgetBytes > 0, "budgetBytes must be > 0, got %s", budgetBytes);
+        this.budgetBytes = budgetBytes;
+        this.loader = Preconditions.checkNotNull(loader);
+    }
+
+    /**
+     * Loader of the models {@code <id>.bin} of {@code directory}.
+     */
+    public static Loader directory(Path directory, LoadOptions options) {
+        return id -> {
+            if (id.isEmpty() || id.contains("/") || id.contains("\\") || id.startsWith(".")) {
+                throw new IllegalArgumentException("Invalid model id: " + id);
+            }
+            return FastText.loadModel(directory.resolve(id + ".bin").toString(), options);
+        };
+    }
+
+    /**
+     * Returns a lease on the model {@code id}, loading it if needed. The lease must be closed
+     * once.
+     */
+    public ModelHandle.Lease acquire(String id) throws IOException {
+        while (true) {
+            final Entry entry = entry(id);
+            final long now = System.nanoTime();
+            if (now - entry.lastAccess > ACCESS_RESOLUTION_NANOS) {
+                entry.lastAccess = now;
+            }
+            try {
+                return entry.handle.acquire();
+            } catch (IllegalStateException e) {
+                // evicted meanwhile, load it again
+                Preconditions.checkState(!closed, "Model registry closed");
+            }
+        }
+    }
+
+    private Entry entry(String id) throws IOException {
+        CompletableFuture<Entry> future = entries.get(id);
+        if (future == null) {
+            final CompletableFuture<Entry> created = new CompletableFuture<>();
+            future = entries.putIfAbsent(id, created);
+            if (future == null) {
+                return load(id, created);
+            }
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for model " + id, e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException("Failed to load model " + id + ": " + cause.getMessage(), cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Loads {@code id} on the calling thread and completes {@code future}, on which concurrent
+     * callers wait.
+     */
+    private Entry load(String id, CompletableFuture<Entry> future) throws IOException {
+        final Entry entry;
+        try {
+            Preconditions.checkState(!closed, "Model registry closed");
+            final long start = System.nanoTime();
+            final FastTextModel model = loader.load(id);
+            entry = new Entry(id, model, ModelHandle.owning(model, new LoadOptions()));
+            LOG.info("Loaded model " + id + " of " + entry.bytes + " bytes in "
+                    + (System.nanoTime() - start) / 1000000 + "ms");
+        } catch (IOException | RuntimeException | Error e) {
+            loadFailures.increment();
+            entries.remove(id, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        loads.increment();
+        entry.lastAccess = System.nanoTime();
+        future.complete(entry);
+        final List<Entry> evicted = admit(entry);
+        for (Entry e : evicted) {
+            e.handle.close();
+        }
+        return entry;
+    }
+
+    /**
+     * Accounts the bytes of {@code entry} and removes the least recently used entries until the
+     * registry fits in the budget, returning them.
+     */
+    private synchronized List<Entry> admit(Entry entry) {
+        if (closed) {
+            entries.remove(entry.id);
+            return Collections.singletonList(entry);
+        }
+        refresh();
+        entry.resident = true;
+        residentBytes += entry.bytes;
+        final List<Entry> evicted = new ArrayList<>();
+        while (residentBytes > budgetBytes) {
+            Entry oldest = null;
+            for (CompletableFuture<Entry> future : entries.values()) {
+                final Entry candidate = future.getNow(null);
+                if (candidate != null && candidate != entry && candidate.resident
+                        && (oldest == null || candidate.lastAccess < oldest.lastAccess)) {
+                    oldest = candidate;
+                }
+            }
+            if (oldest == null) {
+                LOG.warn("Model " + entry.id + " of " + entry.bytes + " bytes exceeds the budget of "
+                        + budgetBytes + " bytes");
+                break;
+            }
+            entries.remove(oldest.id);
+            oldest.resident = false;
+            residentBytes -= oldest.bytes;
+            evictions.increment();
+            evicted.add(oldest);
+            LOG.info("Evicted model " + oldest.id + " of " + oldest.bytes + " bytes");
+        }
+        return evicted;
+    }
+
+    /**
+     * Accounts the bytes the resident models allocated since they were loaded, such as their
+     * nearest neighbors. Called with the lock held.
+     */
+    private void refresh() {
+        for (CompletableFuture<Entry> future : entries.values()) {
+            final Entry entry = future.getNow(null);
+            if (entry != null && entry.resident) {
+                final long bytes = entry.model.ramBytesUsed();
+                residentBytes += bytes - entry.bytes;
+                entry.bytes = bytes;
+            }
+        }
+    }
+
+    /**
+     * Evicts {@code id} if loaded, returning whether it was.
+     */
+    public boolean evict(String id) {
+        final Entry entry;
+        synchronized (this) {
+            final CompletableFuture<Entry> future = entries.get(id);
+            entry = future == null ? null : future.getNow(null);
+            if (entry == null || !entry.resident) {
+                return false;
+            }
+            entries.remove(id);
+            entry.resident = false;
+            residentBytes -= entry.bytes;
+            evictions.increment();
+        }
+        entry.handle.close();
+        return true;
+    }
+
+    /**
+     * Number of models loaded, evicted ones included.
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    public long getLoadFailures() {
+        return loadFailures.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * Bytes of the loaded models. Evicted models still leased are not counted.
+     */
+    public synchronized long getResidentBytes() {
+        refresh();
+        return residentBytes;
+    }
+
+    /**
+     * Bytes of each loaded model, by id.
+     */
+    public synchronized Map<String, Long> getModelBytes() {
+        refresh();
+        final Map<String, Long> bytes = new TreeMap<>();
+        for (CompletableFuture<Entry> future : entries.values()) {
+            final Entry entry = future.getNow(null);
+            if (entry != null && entry.resident) {
+                bytes.put(entry.id, entry.bytes);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Evicts every model. Models are released when their last lease is closed.
+     */
+    @Override
+    public void close() {
+        final List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (CompletableFuture<Entry> future : entries.values()) {
+                final Entry entry = future.getNow(null);
+                if (entry != null && entry.resident) {
+                    entry.resident = false;
+                    evicted.add(entry);
+                }
+            }
+            entries.clear();
+            residentBytes = 0;
+        }
+        for (Entry entry : evicted) {
+            entry.handle.close();
+        }
+    }
+
+    private static final class Entry {
+        final String id;
+        final FastTextModel model;
+        final ModelHandle handle;
+        volatile long lastAccess;
+        /* accounted in the resident bytes, guarded by the registry */
+        long bytes;
+        boolean resident;
+
+        Entry(String id, FastTextModel model, ModelHandle handle) {
+            this.id = id;
+            this.model = model;
+            this.handle = handle;
+            this.bytes = model.ramBytesUsed();
+        }
+    }
+}
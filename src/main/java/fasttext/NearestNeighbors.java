@@ -0,0 +1,239 @@
+package fasttext;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Exact cosine similarity search over the vocabulary of a model, the equivalent of the
+ * fastText {@code nn} command.
+ *
+ * <p>The vectors of all the dictionary words, computed like {@link FastTextModel#getWordVector},
+ * are L2 normalized once into an on-heap matrix. A query scans every row keeping the best
+ * {@code k} in a bounded heap; large vocabularies are split in partitions scanned in parallel
+ * on a {@link ForkJoinPool}. Get an instance with {@link FastTextModel#getNearestNeighbors()}.
+ */
+public final class NearestNeighbors {
+
+    /* rows scanned by a task */
+    static final int PARTITION_SIZE = 1 << 15;
+
+    private final FastTextModel model;
+    private final ForkJoinPool pool;
+    private final int size;
+    private final int dim;
+    private final ChunkedMatrix vectors;
+
+    NearestNeighbors(FastTextModel model, ForkJoinPool pool) {
+        this.model = model;
+        this.pool = pool;
+        this.size = model.getDictionary().nwords();
+        this.dim = model.getDimension();
+        this.vectors = new ChunkedMatrix(size, dim);
+        pool.invoke(new BuildTask(0, size));
+    }
+
+    long ramBytesUsed() {
+        return vectors.ramBytesUsed();
+    }
+
+    /**
+     * Number of words searched.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The {@code k} words most similar to {@code word}, which is excluded.
+     */
+    public List<Neighbor> nearest(CharSequence word, int k) {
+        return nearest(word, k, Collections.<CharSequence>emptyList());
+    }
+
+    /**
+     * The {@code k} words most similar to {@code word}, excluding it and the words of
+     * {@code exclude}.
+     */
+    public List<Neighbor> nearest(CharSequence word, int k, Collection<? extends CharSequence> exclude) {
+        final float[] query = new float[dim];
+        model.getWordVector(word, query);
+        final List<CharSequence> excluded = new ArrayList<>(exclude.size() + 1);
+        excluded.add(word);
+        excluded.addAll(exclude);
+        return nearest(query, k, excluded);
+    }
+
+    /**
+     * The {@code k} words whose vectors have the highest cosine similarity with {@code query},
+     * excluding the words of {@code exclude}.
+     */
+    public List<Neighbor> nearest(float[] query, int k, Collection<? extends CharSequence> exclude) {
+        Preconditions.checkArgument(query.length >= dim, "Query smaller than the dimension");
+        Preconditions.checkArgument(k >= 0, "k must be >= 0, got %s", k);
+        float norm = (float) Math.sqrt(Kernels.dot(query, query, dim));
+        if (Math.abs(norm) < 1e-8f) {
+            norm = 1.0f;
+        }
+        // excluded words are filtered from a larger heap rather than checked on every row
+        final int[] excluded = new int[exclude.size()];
+        int nrExcluded = 0;
+        for (CharSequence word : exclude) {
+            final int id = model.getDictionary().getId(word);
+            if (id >= 0 && id < size) {
+                excluded[nrExcluded++] = id;
+            }
+        }
+        final int heapSize = (int) Math.min((long) k + nrExcluded, size);
+        if (k == 0 || heapSize == 0) {
+            return new ArrayList<>();
+        }
+        final TopK top = size <= PARTITION_SIZE
+                ? scan(query, 0, size, heapSize)
+                : pool.invoke(new ScanTask(query, 0, size, heapSize));
+
+        final int[] ids = new int[top.size()];
+        final float[] scores = new float[top.size()];
+        final int n = top.drain(ids, scores);
+        final List<Neighbor> neighbors = new ArrayList<>(Math.min(k, n));
+        for (int i = 0; i < n && neighbors.size() < k; i++) {
+            if (!contains(excluded, nrExcluded, ids[i])) {
+                neighbors.add(new Neighbor(model.getDictionary().getWord(ids[i]), ids[i], scores[i] / norm));
+            }
+        }
+        return neighbors;
+    }
+
+    private static boolean contains(int[] ids, int size, int id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private TopK scan(float[] query, int from, int to, int k) {
+        final TopK top = new TopK(k);
+        for (int id = from; id < to; id++) {
+            final float score = vectors.dotRow(query, id);
+            if (score > top.threshold()) {
+                top.offer(id, score);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * The normalized vectors, row {@code i} holding the vector of word {@code i}.
+     */
+    Matrix vectors() {
+        return vectors;
+    }
+
+    FastTextModel model() {
+        return model;
+    }
+
+    private final class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        BuildTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARTITION_SIZE) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new BuildTask(from, mid), new BuildTask(mid, to));
+                return;
+            }
+            final Scratch scratch = Scratch.get();
+            final float[] vector = new float[dim];
+            for (int id = from; id < to; id++) {
+                model.computeDictionaryWordVector(id, vector, scratch);
+                final float norm = (float) Math.sqrt(Kernels.dot(vector, vector, dim));
+                if (norm > 0) {
+                    Kernels.scale(1.0f / norm, vector, 0, dim);
+                }
+                vectors.setRow(id, vector);
+            }
+        }
+    }
+
+    private final class ScanTask extends RecursiveTask<TopK> {
+        private static final long serialVersionUID = 1L;
+
+        private final float[] query;
+        private final int from;
+        private final int to;
+        private final int k;
+
+        ScanTask(float[] query, int from, int to, int k) {
+            this.query = query;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= PARTITION_SIZE) {
+                return scan(query, from, to, k);
+            }
+            final int mid = (from + to) >>> 1;
+            final ScanTask right = new ScanTask(query, mid, to, k);
+            right.fork();
+            final TopK top = new ScanTask(query, from, mid, k).compute();
+            top.addAll(right.join());
+            return top;
+        }
+    }
+
+    /**
+     * A word and its cosine similarity with a query.
+     */
+    public static final class Neighbor {
+
+        private final String word;
+        private final int id;
+        private final float similarity;
+
+        Neighbor(String word, int id, float similarity) {
+            this.word = word;
+            this.id = id;
+            this.similarity = similarity;
+        }
+
+        public String getWord() {
+            return word;
+        }
+
+        /**
+         * Id of the word in the dictionary.
+         */
+        public int getId() {
+            return id;
+        }
+
+        public float getSimilarity() {
+            return similarity;
+        }
+
+        @Override
+        public String toString() {
+            return word + " " + similarity;
+        }
+    }
+}
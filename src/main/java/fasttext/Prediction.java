@@ -0,0 +1,40 @@
+package fasttext;
+
+/**
+ * A label predicted by a supervised model and its probability.
+ */
+public final class Prediction {
+
+    private final String label;
+    private final int id;
+    private final float probability;
+
+    Prediction(String label, int id, float probability) {
+        this.label = label;
+        this.id = id;
+        this.probability = probability;
+    }
+
+    /**
+     * The label, with its prefix, such as {@code __label__sports}.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Id of the label in the dictionary.
+     */
+    public int getId() {
+        return id;
+    }
+
+    public float getProbability() {
+        return probability;
+    }
+
+    @Override
+    public String toString() {
+        return label + " " + probability;
+    }
+}
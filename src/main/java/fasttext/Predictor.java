@@ -0,0 +1,208 @@
+package fasttext;
+
+import java.util.Arrays;
+
+/**
+ * Label prediction of supervised models, the equivalent of the fastText {@code predict}
+ * command.
+ *
+ * <p>The hidden vector of the text, computed by {@link SentenceEncoder}, is scored against the
+ * output matrix with a softmax, independent sigmoids (negative sampling and one-vs-all losses)
+ * or a depth first search of the Huffman tree of the labels (hierarchical softmax). All
+ * buffers are per thread, so predictions do not allocate.
+ */
+final class Predictor {
+
+    static final String LABEL_PREFIX = "__label__";
+
+    private final SentenceEncoder encoder;
+    private final Dictionary dict;
+    private final Matrix output;
+    private final Args.LossName loss;
+    private final int nlabels;
+    /* Huffman tree of the labels for the hierarchical softmax: leaves are labels, node
+     * 2 * nlabels - 2 is the root and internal node i is scored with output row i - nlabels */
+    private final int[] left;
+    private final int[] right;
+    private final ThreadLocal<State> states;
+
+    Predictor(FastTextModel model, Matrix output) {
+        this.encoder = model.sentences();
+        this.dict = model.getDictionary();
+        this.output = output;
+        this.loss = model.getArgs().getLoss();
+        this.nlabels = dict.nlabels();
+        final int dim = model.getDimension();
+        if (loss == Args.LossName.HS) {
+            this.left = new int[Math.max(0, 2 * nlabels - 1)];
+            this.right = new int[left.length];
+            buildTree();
+        } else {
+            this.left = null;
+            this.right = null;
+        }
+        this.states = ThreadLocal.withInitial(() -> new State(dim));
+    }
+
+    Matrix output() {
+        return output;
+    }
+
+    /**
+     * Builds the Huffman tree of the label counts, which the dictionary sorts by decreasing
+     * count, merging the two least frequent nodes until one is left.
+     */
+    private void buildTree() {
+        final int size = left.length;
+        final long[] counts = new long[size];
+        Arrays.fill(left, -1);
+        Arrays.fill(right, -1);
+        Arrays.fill(counts, (long) 1e15);
+        for (int i = 0; i < nlabels; i++) {
+            counts[i] = dict.getLabelCount(dict.nwords() + i);
+        }
+        int leaf = nlabels - 1;
+        int node = nlabels;
+        for (int i = nlabels; i < size; i++) {
+            final int[] mini = new int[2];
+            for (int j = 0; j < 2; j++) {
+                if (leaf >= 0 && counts[leaf] < counts[node]) {
+                    mini[j] = leaf--;
+                } else {
+                    mini[j] = node++;
+                }
+            }
+            left[i] = mini[0];
+            right[i] = mini[1];
+            counts[i] = counts[mini[0]] + counts[mini[1]];
+        }
+    }
+
+    /**
+     * Predicts at most {@code k} labels of {@code text} with a probability of at least
+     * {@code threshold}, writes their dictionary ids and probabilities, most probable first,
+     * and returns how many were written.
+     */
+    int predict(CharSequence text, int k, float threshold, int[] labels, float[] probabilities) {
+        final State state = states.get();
+        final float[] hidden = state.hidden;
+        if (encoder.encode(text, hidden) == 0 || k == 0 || nlabels == 0) {
+            return 0;
+        }
+
+        final TopK top = state.top(Math.min(k, nlabels));
+        if (loss == Args.LossName.HS) {
+            dfs(top, threshold, left.length - 1, 0.0f, hidden);
+        } else {
+            final float[] scores = state.output;
+            computeOutput(hidden, scores);
+            for (int i = 0; i < nlabels; i++) {
+                if (scores[i] < threshold) {
+                    continue;
+                }
+                final float score = log(scores[i]);
+                if (score > top.threshold()) {
+                    top.offer(i, score);
+                }
+            }
+        }
+        final int n = top.drain(labels, probabilities);
+        final int nwords = dict.nwords();
+        for (int i = 0; i < n; i++) {
+            labels[i] += nwords;
+            probabilities[i] = (float) Math.exp(probabilities[i]);
+        }
+        return n;
+    }
+
+    private void computeOutput(float[] hidden, float[] scores) {
+        for (int i = 0; i < nlabels; i++) {
+            scores[i] = output.dotRow(hidden, i);
+        }
+        if (loss == Args.LossName.SOFTMAX) {
+            float max = scores[0];
+            for (int i = 1; i < nlabels; i++) {
+                max = Math.max(max, scores[i]);
+            }
+            float z = 0.0f;
+            for (int i = 0; i < nlabels; i++) {
+                scores[i] = (float) Math.exp(scores[i] - max);
+                z += scores[i];
+            }
+            for (int i = 0; i < nlabels; i++) {
+                scores[i] /= z;
+            }
+        } else {
+            for (int i = 0; i < nlabels; i++) {
+                scores[i] = sigmoid(scores[i]);
+            }
+        }
+    }
+
+    /**
+     * Explores the subtree of {@code node}, whose path from the root has the log probability
+     * {@code score}, skipping the branches that cannot beat the kept labels.
+     */
+    private void dfs(TopK top, float threshold, int node, float score, float[] hidden) {
+        if (score < log(threshold) || score < top.threshold()) {
+            return;
+        }
+        if (left[node] == -1 && right[node] == -1) {
+            top.offer(node, score);
+            return;
+        }
+        final float f = sigmoid(output.dotRow(hidden, node - nlabels));
+        dfs(top, threshold, left[node], score + log(1.0f - f), hidden);
+        dfs(top, threshold, right[node], score + log(f), hidden);
+    }
+
+    private static float log(float x) {
+        return (float) Math.log(x + 1e-5);
+    }
+
+    private static float sigmoid(float x) {
+        return (float) (1.0 / (1.0 + Math.exp(-x)));
+    }
+
+    /**
+     * Separators of the native dictionary.
+     */
+    static boolean isWhitespace(char c) {
+        switch (c) {
+            case ' ':
+            case '\n':
+            case '\r':
+            case '\t':
+            case '\u000b':
+            case '\f':
+            case '\0':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Per thread buffers of a prediction.
+     */
+    private final class State {
+        final float[] hidden;
+        final float[] output = new float[nlabels];
+        TopK top;
+
+        State(int dim) {
+            this.hidden = new float[dim];
+        }
+
+        /**
+         * An empty heap of {@code k} labels, reused while {@code k} does not change.
+         */
+        TopK top(int k) {
+            if (top == null || top.capacity() != k) {
+                top = new TopK(k);
+            }
+            top.clear();
+            return top;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package fasttext;
+
+import com.google.common.base.Preconditions;
+import fasttext.store.FastTextInput;
+
+import java.io.IOException;
+
+/**
+ * Product quantizer of a quantized fastText model.
+ *
+ * <p>Vectors of {@code dim} floats are split in {@code nsubq} sub-vectors of {@code dsub}
+ * floats (the last one holding the {@code lastdsub} remaining floats), each encoded as the
+ * byte index of one of the {@link #KSUB} centroids of its sub-quantizer.
+ */
+public class ProductQuantizer {
+
+    static final int NBITS = 8;
+    static final int KSUB = 1 << NBITS;
+
+    private final int dim;
+    private final int nsubq;
+    private final int dsub;
+    private final int lastdsub;
+    private final float[] centroids;
+
+    ProductQuantizer(int dim, int nsubq, int dsub, int lastdsub, float[] centroids) {
+        Preconditions.checkArgument(centroids.length == dim * KSUB);
+        this.dim = dim;
+        this.nsubq = nsubq;
+        this.dsub = dsub;
+        this.lastdsub = lastdsub;
+        this.centroids = centroids;
+    }
+
+    public int getDimension() {
+        return this.dim;
+    }
+
+    public int getNumberOfSubQuantizers() {
+        return this.nsubq;
+    }
+
+    long ramBytesUsed() {
+        return (long) centroids.length * Float.BYTES;
+    }
+
+    /**
+     * Offset into the centroids of centroid {@code i} of sub-quantizer {@code m}.
+     */
+    private int centroidOffset(int m, int i) {
+        if (m == nsubq - 1) {
+            return m * KSUB * dsub + i * lastdsub;
+        }
+        return (m * KSUB + i) * dsub;
+    }
+
+    /**
+     * First float of centroid {@code i} of sub-quantizer {@code m}, used for the one
+     * dimensional norm quantizer.
+     */
+    float centroid(int m, int i) {
+        return centroids[centroidOffset(m, i)];
+    }
+
+    /**
+     * Adds {@code alpha} times the vector encoded by row {@code t} of {@code codes} to the
+     * floats of {@code x} starting at {@code off}.
+     */
+    void addCode(float[] x, int off, byte[] codes, int t, float alpha) {
+        final int code = nsubq * t;
+        int d = dsub;
+        for (int m = 0; m < nsubq; m++) {
+            final int c = centroidOffset(m, codes[code + m] & 0xFF);
+            if (m == nsubq - 1) {
+                d = lastdsub;
+            }
+            final int x0 = off + m * dsub;
+            for (int n = 0; n < d; n++) {
+                x[x0 + n] += alpha * centroids[c + n];
+            }
+        }
+    }
+
+    /**
+     * Dot product of {@code x} with the vector encoded by row {@code t} of {@code codes},
+     * multiplied by {@code alpha}.
+     */
+    float mulCode(float[] x, byte[] codes, int t, float alpha) {
+        final int code = nsubq * t;
+        float res = 0.0f;
+        int d = dsub;
+        for (int m = 0; m < nsubq; m++) {
+            final int c = centroidOffset(m, codes[code + m] & 0xFF);
+            if (m == nsubq - 1) {
+                d = lastdsub;
+            }
+            final int x0 = m * dsub;
+            for (int n = 0; n < d; n++) {
+                res += x[x0 + n] * centroids[c + n];
+            }
+        }
+        return res * alpha;
+    }
+
+    /**
+     * Value of column {@code j} of the vector encoded by row {@code t} of {@code codes}.
+     */
+    float decode(byte[] codes, int t, int j) {
+        final int m = Math.min(j / dsub, nsubq - 1);
+        final int c = centroidOffset(m, codes[nsubq * t + m] & 0xFF);
+        return centroids[c + j - m * dsub];
+    }
+
+    public static ProductQuantizer load(FastTextInput is) throws IOException {
+        final int dim = is.readInt();
+        final int nsubq = is.readInt();
+        final int dsub = is.readInt();
+        final int lastdsub = is.readInt();
+        final float[] centroids = new float[dim * KSUB];
+        is.readFloats(centroids, 0, centroids.length);
+        return new ProductQuantizer(dim, nsubq, dsub, lastdsub, centroids);
+    }
+}
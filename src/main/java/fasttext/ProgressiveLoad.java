@@ -0,0 +1,69 @@
+package fasttext;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Phases of a model loaded by {@link FastText#loadModelAsync(String, LoadOptions)}:
+ *
+ * <pre>
+ * ProgressiveLoad load = FastText.loadModelAsync("cc.en.300.bin", new LoadOptions());
+ * FastTextModel model = load.wordMatrix().join();   // in vocabulary words only
+ * load.ngramMatrix().thenRun(() -&gt; LOG.info("subwords loaded"));
+ * </pre>
+ *
+ * <p>Each future completes as soon as its phase is read. If the load fails, the phases not
+ * completed yet fail with the same exception. Quantized models read their word and ngram rows
+ * together, both phases then complete at once.
+ */
+public final class ProgressiveLoad {
+
+    private final CompletableFuture<Dictionary> dictionary = new CompletableFuture<>();
+    private final CompletableFuture<FastTextModel> wordMatrix = new CompletableFuture<>();
+    private final CompletableFuture<FastTextModel> ngramMatrix = new CompletableFuture<>();
+
+    ProgressiveLoad() {
+    }
+
+    /**
+     * Completes with the dictionary, once read.
+     */
+    public CompletableFuture<Dictionary> dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Completes with the model once its word matrix is read, in the degraded mode described by
+     * {@link FastTextModel#isFullyLoaded()} until the ngram matrix is read.
+     */
+    public CompletableFuture<FastTextModel> wordMatrix() {
+        return wordMatrix;
+    }
+
+    /**
+     * Completes with the same model once the ngram matrix, and the output matrix of supervised
+     * models, are read.
+     */
+    public CompletableFuture<FastTextModel> ngramMatrix() {
+        return ngramMatrix;
+    }
+
+    void onDictionary(Dictionary dict) {
+        dictionary.complete(dict);
+    }
+
+    void onWordMatrix(FastTextModel model) {
+        wordMatrix.complete(model);
+    }
+
+    void onLoaded(FastTextModel model) {
+        dictionary.complete(model.getDictionary());
+        wordMatrix.complete(model);
+        ngramMatrix.complete(model);
+    }
+
+    void onFailure(Throwable e) {
+        dictionary.completeExceptionally(e);
+        wordMatrix.completeExceptionally(e);
+        ngramMatrix.completeExceptionally(e);
+    }
+}
@@ -0,0 +1,72 @@
+package fasttext;
+
+import fasttext.store.FastTextInput;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Mapping from ngram buckets to the rows kept in the ngram matrix of a pruned
+ * (quantized with cutoff) model.
+ */
+final class PruneIndex {
+
+    /**
+     * Index of a model that was not pruned, every bucket maps to itself.
+     */
+    static final PruneIndex NONE = new PruneIndex(-1, new int[0], new int[0]);
+
+    /* -1 when the model is not pruned, otherwise the number of kept buckets */
+    private final long size;
+    /* sorted buckets and their rows */
+    private final int[] buckets;
+    private final int[] rows;
+
+    private PruneIndex(long size, int[] buckets, int[] rows) {
+        this.size = size;
+        this.buckets = buckets;
+        this.rows = rows;
+    }
+
+    boolean isPruned() {
+        return size >= 0;
+    }
+
+    /**
+     * Number of kept buckets, -1 when the model is not pruned.
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Returns the ngram matrix row of {@code bucket}, or -1 if the bucket was pruned.
+     */
+    int get(int bucket) {
+        if (size < 0) {
+            return bucket;
+        }
+        final int i = Arrays.binarySearch(buckets, bucket);
+        return i < 0 ? -1 : rows[i];
+    }
+
+    static PruneIndex load(FastTextInput is, long size) throws IOException {
+        if (size < 0) {
+            return NONE;
+        }
+        final long[] pairs = new long[(int) size];
+        for (int i = 0; i < size; i++) {
+            final int bucket = is.readInt();
+            final int row = is.readInt();
+            pairs[i] = ((long) bucket << 32) | (row & 0xffffffffL);
+        }
+        Arrays.sort(pairs);
+        final int[] buckets = new int[pairs.length];
+        final int[] rows = new int[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            buckets[i] = (int) (pairs[i] >>> 32);
+            rows[i] = (int) pairs[i];
+        }
+        return new PruneIndex(size, buckets, rows);
+    }
+}
@@ -0,0 +1,115 @@
+package fasttext;
+
+import com.google.common.base.Preconditions;
+import fasttext.store.FastTextInput;
+
+import java.io.IOException;
+
+/**
+ * {@link Matrix} of a quantized ({@code .ftz}) model.
+ *
+ * <p>Rows are stored as product quantizer codes, one byte per sub-vector, with an optional
+ * quantized norm. Rows are never expanded into a dense array: lookups accumulate the
+ * centroids of a row straight into the target vector.
+ */
+public class QMatrix extends Matrix {
+
+    private final ProductQuantizer pq;
+    private final byte[] codes;
+    private final ProductQuantizer npq;
+    private final byte[] normCodes;
+    /* first row of the codes seen by this matrix, views share the codes of the full matrix */
+    private final int rowOffset;
+
+    QMatrix(int m, int n, ProductQuantizer pq, byte[] codes, ProductQuantizer npq, byte[] normCodes) {
+        this(m, n, pq, codes, npq, normCodes, 0);
+    }
+
+    private QMatrix(int m, int n, ProductQuantizer pq, byte[] codes, ProductQuantizer npq, byte[] normCodes,
+                    int rowOffset) {
+        super(m, n);
+        this.pq = pq;
+        this.codes = codes;
+        this.npq = npq;
+        this.normCodes = normCodes;
+        this.rowOffset = rowOffset;
+    }
+
+    /**
+     * Returns a view of rows {@code [from, to)} of this matrix sharing its codes.
+     */
+    public QMatrix rows(int from, int to) {
+        Preconditions.checkPositionIndexes(from, to, m);
+        return new QMatrix(to - from, n, pq, codes, npq, normCodes, rowOffset + from);
+    }
+
+    /**
+     * Bytes of the codes of the rows of this matrix. The centroids are counted by the view
+     * starting at the first row, so that the views of a matrix add up to the full matrix.
+     */
+    @Override
+    public long ramBytesUsed() {
+        long bytes = (long) m * pq.getNumberOfSubQuantizers() + (normCodes == null ? 0 : m);
+        if (rowOffset == 0) {
+            bytes += pq.ramBytesUsed() + (npq == null ? 0 : npq.ramBytesUsed());
+        }
+        return bytes;
+    }
+
+    public boolean isQuantizedNorm() {
+        return this.npq != null;
+    }
+
+    private float norm(int t) {
+        if (npq == null) {
+            return 1.0f;
+        }
+        return npq.centroid(0, normCodes[t] & 0xFF);
+    }
+
+    @Override
+    public float at(int i, int j) {
+        final int t = rowOffset + i;
+        return norm(t) * pq.decode(codes, t, j);
+    }
+
+    @Override
+    public float[] atRow(int i) {
+        final float[] r = new float[n];
+        final int t = rowOffset + i;
+        pq.addCode(r, 0, codes, t, norm(t));
+        return r;
+    }
+
+    @Override
+    public float dotRow(final float[] x, int i) {
+        final int t = rowOffset + i;
+        return pq.mulCode(x, codes, t, norm(t));
+    }
+
+    @Override
+    public void addRowToArray(final float[] x, int off, int i, float a) {
+        final int t = rowOffset + i;
+        pq.addCode(x, off, codes, t, a * norm(t));
+    }
+
+    public static QMatrix load(FastTextInput is) throws IOException {
+        final boolean qnorm = is.readBoolean();
+        final int m = (int) is.readLong();
+        final int n = (int) is.readLong();
+        final int codeSize = is.readInt();
+        final byte[] codes = new byte[codeSize];
+        is.readBytes(codes, 0, codeSize);
+        final ProductQuantizer pq = ProductQuantizer.load(is);
+        Preconditions.checkArgument(pq.getDimension() == n, "Product quantizer dimension does not match matrix");
+        Preconditions.checkArgument(codeSize == m * pq.getNumberOfSubQuantizers(), "Unexpected code size");
+        ProductQuantizer npq = null;
+        byte[] normCodes = null;
+        if (qnorm) {
+            normCodes = new byte[m];
+            is.readBytes(normCodes, 0, m);
+            npq = ProductQuantizer.load(is);
+        }
+        return new QMatrix(m, n, pq, codes, npq, normCodes);
+    }
+}
@@ -0,0 +1,46 @@
+package fasttext;
+
+/**
+ * Plain Java kernels. Loops only index arrays, so the JIT hoists the bounds checks, and the
+ * dot product is unrolled on four accumulators to hide the latency of the additions.
+ */
+final class ScalarKernels extends FloatKernels {
+
+    @Override
+    float dot(float[] x, int xOff, float[] y, int yOff, int n) {
+        float s0 = 0.0f;
+        float s1 = 0.0f;
+        float s2 = 0.0f;
+        float s3 = 0.0f;
+        int j = 0;
+        for (; j + 3 < n; j += 4) {
+            s0 += x[xOff + j] * y[yOff + j];
+            s1 += x[xOff + j + 1] * y[yOff + j + 1];
+            s2 += x[xOff + j + 2] * y[yOff + j + 2];
+            s3 += x[xOff + j + 3] * y[yOff + j + 3];
+        }
+        for (; j < n; j++) {
+            s0 += x[xOff + j] * y[yOff + j];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    void axpy(float a, float[] x, int xOff, float[] y, int yOff, int n) {
+        for (int j = 0; j < n; j++) {
+            y[yOff + j] += a * x[xOff + j];
+        }
+    }
+
+    @Override
+    void scale(float a, float[] x, int off, int n) {
+        for (int j = 0; j < n; j++) {
+            x[off + j] *= a;
+        }
+    }
+
+    @Override
+    String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,46 @@
+package fasttext;
+
+/**
+ * Per-thread buffers reused by lookups, so that steady state lookups do not allocate.
+ */
+final class Scratch {
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    byte[] bytes = new byte[128];
+    /* number of bytes of the word last encoded in bytes */
+    int length;
+    int[] ngrams = new int[256];
+    /* UTF-8 bytes of cache keys, kept apart from bytes which lookups overwrite */
+    byte[] key = new byte[128];
+    /* number of ngrams of the word last looked up */
+    int count;
+
+    private Scratch() {
+    }
+
+    static Scratch get() {
+        return SCRATCH.get();
+    }
+
+    byte[] bytes(int size) {
+        if (bytes.length < size) {
+            bytes = new byte[Math.max(size, bytes.length * 2)];
+        }
+        return bytes;
+    }
+
+    byte[] key(int size) {
+        if (key.length < size) {
+            key = new byte[Math.max(size, key.length * 2)];
+        }
+        return key;
+    }
+
+    int[] ngrams(int size) {
+        if (ngrams.length < size) {
+            ngrams = new int[Math.max(size, ngrams.length * 2)];
+        }
+        return ngrams;
+    }
+}
@@ -0,0 +1,366 @@
+package fasttext;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Sentence vectors, the equivalent of the fastText {@code print-sentence-vectors} command, and
+ * the hidden vectors of predictions.
+ *
+ * <p>A sentence is a line of text, read in a single pass: tokens are looked up as soon as
+ * their separator is read and their rows are added to the output, so no list of tokens or rows
+ * is built. For supervised models the output is the average of the input rows of the words,
+ * their subwords, the end of sentence token and the word ngrams, as in predictions. For other
+ * models it is the average of the L2 normalized vectors of the words. All buffers are per
+ * thread, so encoding does not allocate.
+ */
+final class SentenceEncoder {
+
+    private static final byte[] LABEL_PREFIX_BYTES = Predictor.LABEL_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EOS_BYTES = FastTextModel.EOS.getBytes(StandardCharsets.US_ASCII);
+    private static final long WORD_NGRAM_MULTIPLIER = 116049371L;
+    private static final int CHUNK_CHARS = 8192;
+
+    private final FastTextModel model;
+    private final Dictionary dict;
+    private final boolean supervised;
+    private final int dim;
+    private final int wordNgrams;
+    private final long bucket;
+    private final boolean subwords;
+    private final ThreadLocal<State> states;
+
+    SentenceEncoder(FastTextModel model) {
+        this.model = model;
+        this.dict = model.getDictionary();
+        this.supervised = model.getArgs().getModel() == Args.ModelName.SUP;
+        this.dim = model.getDimension();
+        this.wordNgrams = model.getArgs().getWordNgrams();
+        this.bucket = model.getArgs().getBucketNumber();
+        this.subwords = model.getArgs().getMaxN() > 0;
+        this.states = ThreadLocal.withInitial(State::new);
+    }
+
+    /**
+     * Computes the vector of the first line of {@code text} into the first {@code dim} floats
+     * of {@code out}, and returns the number of rows or word vectors averaged.
+     */
+    int encode(CharSequence text, float[] out) {
+        final State state = states.get();
+        state.reset(out);
+        final char[] chunk = state.chunk;
+        final int length = text.length();
+        for (int pos = 0; pos < length; ) {
+            final int n = Math.min(chunk.length, length - pos);
+            for (int i = 0; i < n; i++) {
+                chunk[i] = text.charAt(pos + i);
+            }
+            if (consume(chunk, n, state) >= 0) {
+                return state.finish();
+            }
+            pos += n;
+        }
+        endLine(state);
+        return state.finish();
+    }
+
+    /**
+     * Reads a line of {@code in} and computes its vector into the first {@code dim} floats of
+     * {@code out}. Returns the number of rows or word vectors averaged, or -1 when {@code in}
+     * is at the end of the stream.
+     *
+     * <p>Readers supporting {@link Reader#mark(int)} are read by chunks and reset after the
+     * end of the line; other readers are read one character at a time.
+     */
+    int encode(Reader in, float[] out) throws IOException {
+        final State state = states.get();
+        state.reset(out);
+        final char[] chunk = state.chunk;
+        final boolean mark = in.markSupported();
+        boolean empty = true;
+        while (true) {
+            if (mark) {
+                in.mark(chunk.length);
+            }
+            final int n = in.read(chunk, 0, mark ? chunk.length : 1);
+            if (n < 0) {
+                break;
+            }
+            empty = false;
+            final int end = consume(chunk, n, state);
+            if (end >= 0) {
+                if (mark) {
+                    in.reset();
+                    skipFully(in, end);
+                }
+                return state.finish();
+            }
+        }
+        if (empty) {
+            return -1;
+        }
+        endLine(state);
+        return state.finish();
+    }
+
+    private static void skipFully(Reader in, long n) throws IOException {
+        while (n > 0) {
+            final long skipped = in.skip(n);
+            if (skipped <= 0) {
+                throw new IOException("Could not skip " + n + " characters after reset");
+            }
+            n -= skipped;
+        }
+    }
+
+    /**
+     * Tokenizes {@code chunk[0, n)}, continuing the token of the previous chunk, and returns
+     * the number of characters of the line when it ends in the chunk, or -1.
+     */
+    private int consume(char[] chunk, int n, State state) {
+        for (int i = 0; i < n; i++) {
+            final char c = chunk[i];
+            if (!isSeparator(c)) {
+                state.token.append(c);
+                continue;
+            }
+            if (state.token.length > 0 && endToken(state)) {
+                return i + 1;
+            }
+            if (c == '\n') {
+                endLine(state);
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Separators of the native dictionary for supervised models, and of the streams of the
+     * sentence vectors of other models, which keep {@code '\0'} in tokens.
+     */
+    private boolean isSeparator(char c) {
+        return Predictor.isWhitespace(c) && (supervised || c != '\0');
+    }
+
+    private void endLine(State state) {
+        if (state.token.length > 0 && endToken(state)) {
+            return;
+        }
+        if (supervised) {
+            // a line ends with the end of sentence token
+            addEos(state);
+        }
+    }
+
+    /**
+     * Adds the token of {@code state} and returns true if it is the end of sentence token of
+     * a supervised model, which ends the line.
+     */
+    private boolean endToken(State state) {
+        final Token token = state.token;
+        final boolean eos;
+        if (supervised) {
+            eos = addToken(token, state);
+        } else {
+            addWordVector(token, state);
+            eos = false;
+        }
+        token.length = 0;
+        return eos;
+    }
+
+    /**
+     * Adds the rows of a token of a supervised model, see {@link #endToken(State)}.
+     */
+    private boolean addToken(Token token, State state) {
+        final int end = token.length;
+        final byte[] bytes = state.bytes(3 * end + 2);
+        bytes[0] = '<';
+        final int last = SubwordHasher.encode(token, 0, end, bytes, 1);
+        bytes[last] = '>';
+        final int length = last - 1;
+        if (Arrays.equals(bytes, 1, last, EOS_BYTES, 0, EOS_BYTES.length)) {
+            addEos(state);
+            return true;
+        }
+        final int id = dict.getId(bytes, 1, length);
+        if (id >= 0 ? dict.isLabel(id) : isLabel(bytes, length)) {
+            return false;
+        }
+        if (id >= 0) {
+            addRow(id, state);
+        }
+        if ((id < 0 || subwords) && state.ngramMatrix != null) {
+            final SubwordHasher hasher = model.subwords();
+            final int[] ngrams = state.ngrams(hasher.maxNgrams(last + 1));
+            final int count = hasher.computeNgrams(bytes, last + 1, ngrams);
+            for (int i = 0; i < count; i++) {
+                addRow(dict.nwords() + ngrams[i], state);
+            }
+        }
+        addWordNgrams((int) SubwordHasher.hash(bytes, 1, length), state);
+        return false;
+    }
+
+    private void addEos(State state) {
+        final int id = dict.getId(EOS_BYTES, 0, EOS_BYTES.length);
+        if (id >= 0 && !dict.isLabel(id)) {
+            addRow(id, state);
+        }
+        addWordNgrams((int) SubwordHasher.hash(EOS_BYTES, 0, EOS_BYTES.length), state);
+    }
+
+    /**
+     * Adds the rows of the word ngrams ending with the word of hash {@code hash}. The hashes
+     * of the ngrams starting at the previous {@code wordNgrams - 1} words are kept, extended
+     * by each word, and dropped once they span {@code wordNgrams} words.
+     */
+    private void addWordNgrams(int hash, State state) {
+        if (wordNgrams <= 1 || bucket == 0 || state.ngramMatrix == null) {
+            return;
+        }
+        final long[] partial = state.partial;
+        final PruneIndex pruneIndex = dict.getPruneIndex();
+        for (int i = 0; i < state.nrPartial; i++) {
+            // hashes are sign extended to 64 bits, as native fastText stores them in int32_t
+            partial[i] = partial[i] * WORD_NGRAM_MULTIPLIER + hash;
+            final int row = pruneIndex.get((int) Long.remainderUnsigned(partial[i], bucket));
+            if (row >= 0) {
+                addRow(dict.nwords() + row, state);
+            }
+        }
+        if (state.nrPartial == partial.length) {
+            System.arraycopy(partial, 1, partial, 0, partial.length - 1);
+            state.nrPartial--;
+        }
+        partial[state.nrPartial++] = hash;
+    }
+
+    /**
+     * Adds input row {@code row}, numbered as in the native input matrix: word rows, then
+     * ngram rows.
+     */
+    private void addRow(int row, State state) {
+        final int nwords = dict.nwords();
+        if (row < nwords) {
+            model.wordMatrix().addRowToArray(state.out, row, 1.0f);
+        } else {
+            state.ngramMatrix.addRowToArray(state.out, row - nwords, 1.0f);
+        }
+        state.count++;
+    }
+
+    private void addWordVector(Token token, State state) {
+        final float[] vector = state.vector;
+        model.computeWordVector(token, vector, Scratch.get());
+        final float norm = (float) Math.sqrt(Kernels.dot(vector, vector, dim));
+        if (norm > 0) {
+            Kernels.axpy(1.0f / norm, vector, 0, state.out, 0, dim);
+            state.count++;
+        }
+    }
+
+    private static boolean isLabel(byte[] word, int length) {
+        if (length < LABEL_PREFIX_BYTES.length) {
+            return false;
+        }
+        for (int i = 0; i < LABEL_PREFIX_BYTES.length; i++) {
+            if (word[1 + i] != LABEL_PREFIX_BYTES[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Characters of the token being read, reused for every token.
+     */
+    private static final class Token implements CharSequence {
+        char[] chars = new char[64];
+        int length;
+
+        void append(char c) {
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, 2 * length);
+            }
+            chars[length++] = c;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+
+    /**
+     * Per thread buffers of a sentence being encoded.
+     */
+    private final class State {
+        final char[] chunk = new char[CHUNK_CHARS];
+        final Token token = new Token();
+        byte[] bytes = new byte[128];
+        int[] ngrams = new int[256];
+        /* hashes of the word ngrams being extended */
+        final long[] partial = new long[Math.max(0, wordNgrams - 1)];
+        int nrPartial;
+        /* word vectors of unsupervised models */
+        final float[] vector = new float[dim];
+        float[] out;
+        /* ngram rows of the sentence, null while the model is loading them */
+        Matrix ngramMatrix;
+        int count;
+
+        void reset(float[] out) {
+            Arrays.fill(out, 0, dim, 0.0f);
+            this.out = out;
+            this.ngramMatrix = model.ngramMatrix();
+            token.length = 0;
+            nrPartial = 0;
+            count = 0;
+        }
+
+        /**
+         * Averages the output and returns the number of averaged rows.
+         */
+        int finish() {
+            if (count > 1) {
+                Kernels.scale(1.0f / count, out, 0, dim);
+            }
+            out = null;
+            ngramMatrix = null;
+            return count;
+        }
+
+        byte[] bytes(int size) {
+            if (bytes.length < size) {
+                bytes = new byte[Math.max(size, bytes.length * 2)];
+            }
+            return bytes;
+        }
+
+        int[] ngrams(int size) {
+            if (ngrams.length < size) {
+                ngrams = new int[Math.max(size, ngrams.length * 2)];
+            }
+            return ngrams;
+        }
+    }
+}
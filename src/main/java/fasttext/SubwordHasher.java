@@ -0,0 +1,152 @@
+package fasttext;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Computes the character ngram buckets of words the way native fastText does.
+ *
+ * <p>Words are encoded to UTF-8 once, then every ngram starting at a character boundary is
+ * hashed incrementally: the FNV-1a state of an ngram is extended byte by byte to get the hash
+ * of the next longer ngram, so no ngram is re-encoded or hashed from scratch. Buckets are
+ * written straight into an {@code int[]}.
+ */
+public final class SubwordHasher {
+
+    private static final int FNV_OFFSET_BASIS = (int) 2166136261L;
+    private static final int FNV_PRIME = 16777619;
+
+    private final int minn;
+    private final int maxn;
+    private final long bucket;
+    private final PruneIndex pruneIndex;
+
+    public SubwordHasher(int minn, int maxn, int bucket) {
+        this(minn, maxn, bucket, PruneIndex.NONE);
+    }
+
+    SubwordHasher(int minn, int maxn, int bucket, PruneIndex pruneIndex) {
+        this.minn = minn;
+        this.maxn = maxn;
+        this.bucket = bucket;
+        this.pruneIndex = pruneIndex;
+    }
+
+    /**
+     * String FNV-1a 32 bits hash of the UTF-8 bytes {@code [off, off + len)}, as an unsigned
+     * value. Bytes are sign extended before being mixed in, as native fastText does.
+     */
+    public static long hash(byte[] bytes, int off, int len) {
+        int h = FNV_OFFSET_BASIS;
+        for (int i = off; i < off + len; i++) {
+            h = (h ^ bytes[i]) * FNV_PRIME;
+        }
+        return h & 0xffffffffL;
+    }
+
+    public static long hash(String str) {
+        final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        return hash(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Maximum number of UTF-8 bytes written by {@link #encodeWord(CharSequence, byte[])} for
+     * {@code word}.
+     */
+    public static int maxEncodedLength(CharSequence word) {
+        return 3 * word.length() + 2;
+    }
+
+    /**
+     * Encodes {@code word} wrapped in {@code <} and {@code >} to UTF-8 into {@code dst}, and
+     * returns the number of bytes written.
+     */
+    public static int encodeWord(CharSequence word, byte[] dst) {
+        dst[0] = '<';
+        final int p = encode(word, dst, 1);
+        dst[p] = '>';
+        return p + 1;
+    }
+
+    /**
+     * Encodes {@code str} to UTF-8 into {@code dst} starting at {@code off}, and returns the
+     * offset after the last byte written. {@code dst} must have room for {@code 3 * str.length()}
+     * bytes. Unpaired surrogates are encoded as {@code '?'}, like {@link String#getBytes} does.
+     */
+    public static int encode(CharSequence str, byte[] dst, int off) {
+        return encode(str, 0, str.length(), dst, off);
+    }
+
+    /**
+     * Encodes the chars {@code [start, end)} of {@code str} to UTF-8 into {@code dst} starting
+     * at {@code off}, and returns the offset after the last byte written.
+     */
+    public static int encode(CharSequence str, int start, int end, byte[] dst, int off) {
+        int p = off;
+        final int length = end;
+        for (int k = start; k < length; k++) {
+            final char c = str.charAt(k);
+            if (c < 0x80) {
+                dst[p++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[p++] = (byte) (0xC0 | (c >> 6));
+                dst[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && k + 1 < length && Character.isLowSurrogate(str.charAt(k + 1))) {
+                    final int cp = Character.toCodePoint(c, str.charAt(++k));
+                    dst[p++] = (byte) (0xF0 | (cp >> 18));
+                    dst[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    dst[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    dst[p++] = (byte) (0x80 | (cp & 0x3F));
+                } else {
+                    dst[p++] = '?';
+                }
+            } else {
+                dst[p++] = (byte) (0xE0 | (c >> 12));
+                dst[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Maximum number of ngrams of a word encoded in {@code length} bytes.
+     */
+    public int maxNgrams(int length) {
+        return length * Math.max(0, maxn - minn + 1);
+    }
+
+    /**
+     * Computes the ngram rows of the UTF-8 encoded word {@code [0, length)} of {@code word},
+     * boundary markers included, into {@code ngrams} and returns how many were written.
+     * {@code ngrams} must hold at least {@link #maxNgrams(int)} ids.
+     *
+     * <p>Ngrams are returned in native order: by start position, then by length. Buckets
+     * dropped by the prune index of a pruned model are skipped.
+     */
+    public int computeNgrams(byte[] word, int length, int[] ngrams) {
+        if (bucket == 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if ((word[i] & 0xC0) == 0x80) {
+                continue;
+            }
+            int h = FNV_OFFSET_BASIS;
+            for (int j = i, n = 1; j < length && n <= maxn; n++) {
+                h = (h ^ word[j++]) * FNV_PRIME;
+                while (j < length && (word[j] & 0xC0) == 0x80) {
+                    h = (h ^ word[j++]) * FNV_PRIME;
+                }
+                if (n >= minn && !(n == 1 && (i == 0 || j == length))) {
+                    final int row = pruneIndex.get((int) ((h & 0xffffffffL) % bucket));
+                    if (row >= 0) {
+                        ngrams[count++] = row;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
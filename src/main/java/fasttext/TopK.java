@@ -0,0 +1,106 @@
+package fasttext;
+
+/**
+ * Keeps the {@code k} best scored ids seen, in a binary min heap on primitive arrays.
+ */
+final class TopK {
+
+    private final int k;
+    private final float[] scores;
+    private final int[] ids;
+    private int size;
+
+    TopK(int k) {
+        this.k = k;
+        this.scores = new float[k];
+        this.ids = new int[k];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return k;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Smallest score an id must beat to enter, negative infinity until {@code k} ids are kept.
+     */
+    float threshold() {
+        return size < k ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    void offer(int id, float score) {
+        if (size < k) {
+            int i = size++;
+            // sift up
+            while (i > 0) {
+                final int parent = (i - 1) >>> 1;
+                if (!less(score, id, scores[parent], ids[parent])) {
+                    break;
+                }
+                scores[i] = scores[parent];
+                ids[i] = ids[parent];
+                i = parent;
+            }
+            scores[i] = score;
+            ids[i] = id;
+        } else if (k > 0 && less(scores[0], ids[0], score, id)) {
+            siftDown(id, score);
+        }
+    }
+
+    void addAll(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * Empties the heap into {@code ids} and {@code scores}, best first, and returns how many
+     * were written.
+     */
+    int drain(int[] ids, float[] scores) {
+        final int n = size;
+        for (int i = n - 1; i >= 0; i--) {
+            ids[i] = this.ids[0];
+            scores[i] = this.scores[0];
+            size--;
+            if (size > 0) {
+                siftDown(this.ids[size], this.scores[size]);
+            }
+        }
+        return n;
+    }
+
+    private void siftDown(int id, float score) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(scores[child + 1], ids[child + 1], scores[child], ids[child])) {
+                child++;
+            }
+            if (!less(scores[child], ids[child], score, id)) {
+                break;
+            }
+            scores[i] = scores[child];
+            ids[i] = ids[child];
+            i = child;
+        }
+        scores[i] = score;
+        ids[i] = id;
+    }
+
+    /* order of the heap: lower scores first, then higher ids, so ties keep the lowest ids */
+    private static boolean less(float score, int id, float otherScore, int otherId) {
+        return score < otherScore || (score == otherScore && id > otherId);
+    }
+}
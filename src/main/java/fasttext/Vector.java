@@ -23,62 +23,44 @@ public class Vector {
   }
 
   public float norm() {
-    float sum = 0.0f;
-    for (int i = 0; i < m; i++) {
-      sum += data[i] * data[i];
-    }
-    return (float) Math.sqrt(sum);
+    return (float) Math.sqrt(Kernels.dot(data, data, m));
   }
 
   public void mul(final float a) {
-    for (int i = 0; i < m; i++) {
-      data[i] *= a;
-    }
+    Kernels.scale(a, data, 0, m);
   }
 
   public float dot(final Vector vector) {
-    float dist = 0;
-    for (int i = 0; i < data.length; i++) {
-      dist += vector.at(i) * data[i];
-    }
-    return dist;
+    Preconditions.checkArgument(vector.size() == m);
+    return Kernels.dot(data, vector.data, m);
   }
 
   public void addVector(final Vector source) {
-    Preconditions.checkArgument(source.size() == m);
-    for (int i = 0; i < m; i++) {
-      data[i] += source.at(i);
-    }
+    addVector(source, 1.0f);
   }
 
   public void addVector(final Vector source, final float s) {
     Preconditions.checkArgument(source.size() == m);
-    for (int i = 0; i < m; i++) {
-      data[i] += s * source.at(i);
-    }
+    Kernels.axpy(s, source.data, 0, data, 0, m);
   }
 
   public void addRow(final Matrix matrix, final int i, final float a) {
-    Preconditions.checkPositionIndex(i, matrix.m());
-    Preconditions.checkArgument(m == matrix.n());
-    for (int j = 0; j < matrix.n(); j++) {
-      data[j] += a * matrix.at(i, j);
-    }
+    matrix.addRowToVector(this, i, a);
   }
 
   public void addRow(final Matrix matrix, final int i) {
-    Preconditions.checkPositionIndex(i, matrix.m());
-    Preconditions.checkArgument(m == matrix.n());
-    for (int j = 0; j < matrix.n(); j++) {
-      data[j] += matrix.at(i, j);
-    }
+    matrix.addRowToVector(this, i);
   }
 
   public void mul(final Matrix matrix, final Vector vector) {
     Preconditions.checkArgument(m == matrix.m());
     Preconditions.checkArgument(matrix.n() == vector.size());
     for (int i = 0; i < m; i++) {
-      data[i] = matrix.dotRow(vector, i);
+      final float d = matrix.dotRow(vector.data, i);
+      if (Float.isNaN(d)) {
+        throw new IllegalStateException("Encountered NaN.");
+      }
+      data[i] = d;
     }
   }
 
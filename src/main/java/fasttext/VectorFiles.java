@@ -0,0 +1,512 @@
+package fasttext;
+
+import com.google.common.base.Preconditions;
+import fasttext.store.ChannelFastTextOutput;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads and writes word vectors in the {@code .vec} text format of fastText, a {@code n dim}
+ * header line followed by one line per word: the word and its {@code dim} values, separated by
+ * spaces. Word vectors can also be written as a NumPy {@code .npy} array of little-endian
+ * floats:
+ *
+ * <pre>
+ * FastTextModel model = VectorFiles.loadVec(Paths.get("cc.en.300.vec"), new LoadOptions().threads(8));
+ * VectorFiles.writeNpy(model, Paths.get("cc.en.300.npy"));
+ * </pre>
+ *
+ * <p>The loader splits the file in byte ranges read by {@link LoadOptions#getThreads()}
+ * threads: a first pass counts the lines of each range, so that a second pass parses each range
+ * straight into its rows of the matrix, without allocating per line or per value.
+ */
+public final class VectorFiles {
+
+    private static final Logger LOG = Logger.getLogger(VectorFiles.class);
+
+    /* significant digits of the values, as native fastText prints them */
+    public static final int DEFAULT_DIGITS = 5;
+    private static final int BUFFER_BYTES = 1 << 20;
+    /* smallest range parsed by a task */
+    private static final long MIN_RANGE_BYTES = 1 << 20;
+    private static final int RANGES_PER_THREAD = 4;
+    private static final int NPY_ALIGNMENT = 64;
+
+    private VectorFiles() {
+    }
+
+    /**
+     * Loads the word vectors of a {@code .vec} file. The model has no ngram buckets: words
+     * which are not in the file get a zero vector. Only {@link LoadOptions.Precision#FLOAT} is
+     * supported, the vectors are parsed into the heap.
+     *
+     * @throws IllegalArgumentException if the file does not match its header
+     */
+    public static FastTextModel loadVec(Path path, LoadOptions options) throws IOException {
+        if (options.isMmap() || options.getPrecision() != LoadOptions.Precision.FLOAT) {
+            throw new IllegalArgumentException(".vec files are parsed into float matrices, got " + options);
+        }
+        final long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final Lines header = new Lines(channel, 0, size);
+            if (!header.next()) {
+                throw new IllegalArgumentException("Empty .vec file " + path);
+            }
+            final int space = header.indexOf((byte) ' ', header.start);
+            final int rows;
+            final int dim;
+            try {
+                rows = Integer.parseInt(header.text(header.start, space).trim());
+                dim = Integer.parseInt(header.text(space + 1, header.end).trim());
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid .vec header: " + header.text(header.start,
+                        Math.min(header.end, header.start + 64)));
+            }
+            if (rows < 0 || dim <= 0) {
+                throw new IllegalArgumentException("Invalid .vec header: " + rows + " " + dim);
+            }
+            final Target target = new Target(rows, dim);
+            final List<Range> ranges = split(header.nextOffset(), size, options.getThreads());
+            run(ranges, options.getThreads(), range -> range.count(channel));
+            int firstRow = 0;
+            for (Range range : ranges) {
+                range.firstRow = firstRow;
+                firstRow += range.rows;
+            }
+            if (firstRow != rows) {
+                throw new IllegalArgumentException("The header of " + path + " announces " + rows
+                        + " vectors, found " + firstRow);
+            }
+            run(ranges, options.getThreads(), range -> range.parse(channel, target));
+            final FastTextModel model = new FastTextModel(Args.ofVectors(dim), words(ranges), target.matrix,
+                    new DenseMatrix(0, dim), null, options);
+            LOG.info("Loaded " + rows + " vectors of dimension " + dim + " from " + path + " in "
+                    + (System.nanoTime() - start) / 1000000 + "ms");
+            return model;
+        }
+    }
+
+    /**
+     * Writes the vectors of the words of {@code model}, in dictionary order, as a {@code .vec}
+     * file with {@link #DEFAULT_DIGITS} significant digits.
+     */
+    public static void writeVec(FastTextModel model, Path path) throws IOException {
+        writeVec(model, path, DEFAULT_DIGITS);
+    }
+
+    /**
+     * Writes the vectors of the words of {@code model}, in dictionary order, as a {@code .vec}
+     * file with {@code digits} significant digits, 9 for the exact floats. The vectors are the
+     * ones of {@link FastTextModel#getWordVector(CharSequence, float[])}, averaged with the
+     * subwords like native fastText saves them, but are neither reported to the listener nor
+     * kept in the subword cache.
+     */
+    public static void writeVec(FastTextModel model, Path path, int digits) throws IOException {
+        Preconditions.checkArgument(digits >= 1 && digits <= 9, "digits must be in [1, 9], got %s", digits);
+        final Dictionary dict = model.getDictionary();
+        final int dim = model.getDimension();
+        final float[] vector = new float[dim];
+        final Scratch scratch = Scratch.get();
+        byte[] line = new byte[64 + dim * (digits + 17)];
+        try (ChannelFastTextOutput out = ChannelFastTextOutput.create(path)) {
+            final byte[] header = (dict.nwords() + " " + dim + "\n").getBytes(StandardCharsets.US_ASCII);
+            out.writeBytes(header, 0, header.length);
+            for (int i = 0; i < dict.nwords(); i++) {
+                if (line.length < dict.wordLength(i) + dim * (digits + 17) + 1) {
+                    line = new byte[2 * (dict.wordLength(i) + dim * (digits + 17) + 1)];
+                }
+                model.computeDictionaryWordVector(i, vector, scratch);
+                int pos = dict.copyWord(i, line, 0);
+                for (int j = 0; j < dim; j++) {
+                    line[pos++] = ' ';
+                    pos = FloatFormat.format(vector[j], digits, line, pos);
+                }
+                line[pos++] = '\n';
+                out.writeBytes(line, 0, pos);
+            }
+        }
+    }
+
+    /**
+     * Writes the vectors of the words of {@code model} as a NumPy {@code .npy} array of shape
+     * {@code (nwords, dim)} and type {@code <f4}: row {@code i} is the vector of the word of id
+     * {@code i} of {@link FastTextModel#getDictionary()}. The vectors are the ones of
+     * {@link #writeVec(FastTextModel, Path, int)}, without rounding.
+     */
+    public static void writeNpy(FastTextModel model, Path path) throws IOException {
+        final Dictionary dict = model.getDictionary();
+        final int dim = model.getDimension();
+        final float[] vector = new float[dim];
+        final Scratch scratch = Scratch.get();
+        try (ChannelFastTextOutput out = ChannelFastTextOutput.create(path)) {
+            final byte[] header = npyHeader(dict.nwords(), dim);
+            out.writeBytes(header, 0, header.length);
+            for (int i = 0; i < dict.nwords(); i++) {
+                model.computeDictionaryWordVector(i, vector, scratch);
+                out.writeFloats(vector, 0, dim);
+            }
+        }
+    }
+
+    /**
+     * Header of a version 1.0 {@code .npy} file of {@code rows x cols} little-endian floats, padded
+     * with spaces so that the data is aligned on 64 bytes.
+     */
+    static byte[] npyHeader(int rows, int cols) {
+        final String dict = "{'descr': '<f4', 'fortran_order': False, 'shape': (" + rows + ", " + cols + "), }";
+        // magic, version and header length take 10 bytes, the header ends with a newline
+        final int length = (10 + dict.length() + 1 + NPY_ALIGNMENT - 1) / NPY_ALIGNMENT * NPY_ALIGNMENT;
+        final byte[] header = new byte[length];
+        Arrays.fill(header, (byte) ' ');
+        header[0] = (byte) 0x93;
+        System.arraycopy("NUMPY".getBytes(StandardCharsets.US_ASCII), 0, header, 1, 5);
+        header[6] = 1;
+        header[7] = 0;
+        header[8] = (byte) (length - 10);
+        header[9] = (byte) ((length - 10) >>> 8);
+        System.arraycopy(dict.getBytes(StandardCharsets.US_ASCII), 0, header, 10, dict.length());
+        header[length - 1] = '\n';
+        return header;
+    }
+
+    /**
+     * Splits {@code [start, end)} in ranges of at least {@link #MIN_RANGE_BYTES} bytes.
+     */
+    private static List<Range> split(long start, long end, int threads) {
+        final long bytes = end - start;
+        final int count = (int) Math.max(1, Math.min((long) threads * RANGES_PER_THREAD, bytes / MIN_RANGE_BYTES));
+        final List<Range> ranges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ranges.add(new Range(start, start + bytes * i / count, start + bytes * (i + 1) / count));
+        }
+        return ranges;
+    }
+
+    /**
+     * Dictionary of the words of the ranges, in file order.
+     */
+    private static Dictionary words(List<Range> ranges) {
+        long bytes = 0;
+        int count = 0;
+        for (Range range : ranges) {
+            bytes += range.arenaSize;
+            count += range.rows;
+        }
+        if (bytes > FastTextModel.MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException("Words of " + bytes + " bytes do not fit in a dictionary");
+        }
+        final byte[] arena = new byte[(int) bytes];
+        final int[] offsets = new int[count + 1];
+        int pos = 0;
+        int id = 0;
+        for (Range range : ranges) {
+            System.arraycopy(range.arena, 0, arena, pos, range.arenaSize);
+            for (int i = 0; i < range.rows; i++) {
+                offsets[id++] = pos + range.offsets[i];
+            }
+            pos += range.arenaSize;
+            // the words are in the dictionary now
+            range.arena = null;
+            range.offsets = null;
+        }
+        offsets[count] = pos;
+        return Dictionary.ofWords(arena, offsets);
+    }
+
+    private interface RangeTask {
+        void run(Range range) throws IOException;
+    }
+
+    private static void run(List<Range> ranges, int threads, RangeTask task) throws IOException {
+        if (threads == 1 || ranges.size() == 1) {
+            for (Range range : ranges) {
+                task.run(range);
+            }
+            return;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, ranges.size()));
+        try {
+            final List<Future<Void>> tasks = new ArrayList<>(ranges.size());
+            for (Range range : ranges) {
+                tasks.add(executor.submit(() -> {
+                    task.run(range);
+                    return null;
+                }));
+            }
+            for (Future<Void> future : tasks) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading vectors", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Failed to load vectors", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The rows of the matrix being loaded, each row in a single array.
+     */
+    private static final class Target {
+        final Matrix matrix;
+        private final float[] data;
+        private final ChunkedMatrix chunked;
+
+        Target(int rows, int dim) {
+            if ((long) rows * dim > FastTextModel.MAX_ARRAY_LENGTH) {
+                // too large for a single array
+                chunked = new ChunkedMatrix(rows, dim);
+                data = null;
+                matrix = chunked;
+            } else {
+                chunked = null;
+                data = new float[rows * dim];
+                matrix = new DenseMatrix(rows, dim, data);
+            }
+        }
+
+        float[] array(int row) {
+            return data != null ? data : chunked.chunk(row);
+        }
+
+        int offset(int row) {
+            return data != null ? row * matrix.n() : chunked.offset(row);
+        }
+    }
+
+    /**
+     * The lines starting in {@code [start, end)}, parsed by a single thread. Empty lines are
+     * skipped.
+     */
+    private static final class Range {
+        private final long dataStart;
+        private final long start;
+        private final long end;
+        int rows;
+        int firstRow;
+        /* UTF-8 bytes of the words, word i at offsets[i] */
+        byte[] arena;
+        int arenaSize;
+        int[] offsets;
+
+        Range(long dataStart, long start, long end) {
+            this.dataStart = dataStart;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Lines of the file from the first one starting in the range.
+         */
+        private Lines lines(FileChannel channel) throws IOException {
+            if (start == dataStart) {
+                return new Lines(channel, start, channel.size());
+            }
+            // the line of the previous byte ends in the range, or right before it
+            final Lines lines = new Lines(channel, start - 1, channel.size());
+            lines.next();
+            return lines;
+        }
+
+        void count(FileChannel channel) throws IOException {
+            final Lines lines = lines(channel);
+            while (lines.next() && lines.offset < end) {
+                if (lines.end > lines.start) {
+                    rows++;
+                }
+            }
+        }
+
+        void parse(FileChannel channel, Target target) throws IOException {
+            final int dim = target.matrix.n();
+            offsets = new int[rows];
+            arena = new byte[(int) Math.min(FastTextModel.MAX_ARRAY_LENGTH, Math.max(16, rows * 8L))];
+            final Lines lines = lines(channel);
+            int row = 0;
+            while (row < rows && lines.next()) {
+                if (lines.end == lines.start) {
+                    continue;
+                }
+                final byte[] b = lines.buffer;
+                final int space = lines.indexOf((byte) ' ', lines.start);
+                if (space <= lines.start) {
+                    throw new IllegalArgumentException("Invalid line for vector " + (firstRow + row) + ": "
+                            + lines.text(lines.start, Math.min(lines.end, lines.start + 64)));
+                }
+                addWord(row, b, lines.start, space);
+                final float[] values = target.array(firstRow + row);
+                final int offset = target.offset(firstRow + row);
+                int pos = space;
+                for (int j = 0; j < dim; j++) {
+                    pos = skipSpaces(b, pos, lines.end);
+                    final int valueEnd = token(b, pos, lines.end);
+                    if (valueEnd == pos) {
+                        throw new IllegalArgumentException("Vector " + (firstRow + row) + " has " + j
+                                + " values instead of " + dim);
+                    }
+                    values[offset + j] = FloatFormat.parse(b, pos, valueEnd);
+                    pos = valueEnd;
+                }
+                if (skipSpaces(b, pos, lines.end) != lines.end) {
+                    throw new IllegalArgumentException("Vector " + (firstRow + row) + " has more than "
+                            + dim + " values");
+                }
+                row++;
+            }
+        }
+
+        private void addWord(int row, byte[] b, int from, int to) {
+            final int length = to - from;
+            if (arenaSize + length > arena.length) {
+                arena = Arrays.copyOf(arena, (int) Math.min(FastTextModel.MAX_ARRAY_LENGTH,
+                        Math.max(arenaSize + (long) length, 2L * arena.length)));
+            }
+            System.arraycopy(b, from, arena, arenaSize, length);
+            offsets[row] = arenaSize;
+            arenaSize += length;
+        }
+
+        private static int skipSpaces(byte[] b, int pos, int end) {
+            while (pos < end && (b[pos] == ' ' || b[pos] == '\t' || b[pos] == '\r')) {
+                pos++;
+            }
+            return pos;
+        }
+
+        private static int token(byte[] b, int pos, int end) {
+            while (pos < end && b[pos] != ' ' && b[pos] != '\t' && b[pos] != '\r') {
+                pos++;
+            }
+            return pos;
+        }
+    }
+
+    /**
+     * Reads the lines of a file from an offset with positional reads, so that several threads
+     * can read the same channel. A line is {@code buffer[start, end)}, without its newline.
+     */
+    private static final class Lines {
+        private final FileChannel channel;
+        private final long size;
+        byte[] buffer = new byte[BUFFER_BYTES];
+        /* file offset of buffer[0] */
+        private long bufferOffset;
+        /* bytes read in the buffer */
+        private int limit;
+        int start;
+        int end;
+        /* file offset of the current line */
+        long offset;
+        private int next;
+
+        Lines(FileChannel channel, long from, long size) {
+            this.channel = channel;
+            this.size = size;
+            this.bufferOffset = from;
+        }
+
+        /**
+         * Moves to the next line, returning false at the end of the file.
+         */
+        boolean next() throws IOException {
+            int pos = next;
+            if (pos == limit && !fill()) {
+                return false;
+            }
+            pos = next;
+            int scan = pos;
+            while (true) {
+                while (scan < limit && buffer[scan] != '\n') {
+                    scan++;
+                }
+                if (scan < limit) {
+                    start = pos;
+                    end = scan;
+                    next = scan + 1;
+                    break;
+                }
+                final int scanned = scan - pos;
+                if (!fill()) {
+                    // last line without a newline
+                    start = next;
+                    end = limit;
+                    next = limit;
+                    break;
+                }
+                pos = next;
+                scan = pos + scanned;
+            }
+            offset = bufferOffset + start;
+            return true;
+        }
+
+        /**
+         * Keeps the bytes from {@code next} and reads more after them, returning false at the
+         * end of the file.
+         */
+        private boolean fill() throws IOException {
+            final long fileOffset = bufferOffset + limit;
+            if (fileOffset >= size) {
+                return false;
+            }
+            final int kept = limit - next;
+            if (kept == buffer.length) {
+                buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+            }
+            System.arraycopy(buffer, next, buffer, 0, kept);
+            bufferOffset += next;
+            next = 0;
+            limit = kept;
+            final ByteBuffer target = ByteBuffer.wrap(buffer, kept, buffer.length - kept);
+            long position = fileOffset;
+            while (target.hasRemaining() && position < size) {
+                final int read = channel.read(target, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+            limit = target.position();
+            return limit > kept;
+        }
+
+        long nextOffset() {
+            return bufferOffset + next;
+        }
+
+        int indexOf(byte c, int from) {
+            for (int i = from; i < end; i++) {
+                if (buffer[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        String text(int from, int to) {
+            return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+        }
+    }
+}
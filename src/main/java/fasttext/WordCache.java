@@ -0,0 +1,214 @@
+package fasttext;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Concurrent cache of values computed for words, bounded by a total weight such as a number
+ * of entries or an approximate number of bytes.
+ *
+ * <p>Words are keyed by their UTF-8 bytes. Lookups go through a per-thread mutable key, so a
+ * hit allocates nothing; only misses copy the key. The cache is split in segments, each one
+ * a least recently used map guarded by its own lock, so concurrent readers rarely contend.
+ * With admission enabled, a segment also keeps a {@link FrequencySketch} of its lookups and
+ * a new word only evicts the least recently used one when it is looked up more often
+ * (TinyLFU), which keeps the hot words of skewed traffic cached through bursts of rare words.
+ */
+final class WordCache<V> {
+
+    /* estimated bytes used by a map node, a key and the headers of its arrays */
+    private static final int ENTRY_OVERHEAD = 96;
+    /* below this weight per segment, fewer segments are used */
+    private static final long MIN_SEGMENT_WEIGHT = 64;
+
+    private static final ThreadLocal<Key> LOOKUP_KEY = ThreadLocal.withInitial(Key::new);
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+    private final long maxSegmentWeight;
+    private final Weigher<V> weigher;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Weight of an entry of the cache.
+     */
+    interface Weigher<V> {
+        long weigh(int keyLength, V value);
+    }
+
+    /**
+     * Weighs entries by the approximate number of bytes they use, given the number of bytes
+     * used by their values.
+     */
+    static <V> Weigher<V> bytes(ToIntFunction<V> valueBytes) {
+        return (keyLength, value) -> ENTRY_OVERHEAD + keyLength + valueBytes.applyAsInt(value);
+    }
+
+    /**
+     * Weighs every entry 1, bounding the number of entries.
+     */
+    static <V> Weigher<V> entries() {
+        return (keyLength, value) -> 1;
+    }
+
+    /**
+     * @param maxWeight total weight of the cached entries
+     * @param weigher   weight of an entry
+     * @param admission whether new words must be more frequent than the words they evict
+     */
+    WordCache(long maxWeight, Weigher<V> weigher, boolean admission) {
+        final int cores = Runtime.getRuntime().availableProcessors();
+        int nrSegments = Math.min(64, Integer.highestOneBit(Math.max(1, cores * 4 - 1)) << 1);
+        while (nrSegments > 1 && maxWeight / nrSegments < MIN_SEGMENT_WEIGHT) {
+            nrSegments >>= 1;
+        }
+        // generic arrays cannot be created, the array only ever holds Segment<V>
+        @SuppressWarnings("unchecked")
+        final Segment<V>[] segments = (Segment<V>[]) new Segment<?>[nrSegments];
+        for (int i = 0; i < nrSegments; i++) {
+            segments[i] = new Segment<>(admission ? new FrequencySketch() : null);
+        }
+        this.segments = segments;
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(nrSegments);
+        this.maxSegmentWeight = maxWeight / nrSegments;
+        this.weigher = weigher;
+    }
+
+    private Segment<V> segment(int hash) {
+        // high bits pick the segment, the map itself uses the low bits
+        return segments.length == 1 ? segments[0] : segments[(hash * 0x9E3779B9) >>> segmentShift];
+    }
+
+    /**
+     * Returns the value cached for the word with the UTF-8 bytes {@code [off, off + len)}, or
+     * null. {@code hash} must be a hash of these bytes.
+     */
+    V get(byte[] word, int off, int len, int hash) {
+        final Key key = LOOKUP_KEY.get().reset(word, off, len, hash);
+        final Segment<V> segment = segment(hash);
+        final V value;
+        synchronized (segment) {
+            value = segment.map.get(key);
+            if (segment.sketch != null) {
+                segment.sketch.increment(hash);
+            }
+        }
+        key.bytes = null;
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Caches {@code value} for the word with the UTF-8 bytes {@code [off, off + len)}, evicting
+     * the least recently used words of its segment when over budget. With admission enabled,
+     * the word is not cached when it is less frequent than the first word it would evict.
+     */
+    void put(byte[] word, int off, int len, int hash, V value) {
+        final long weight = weigher.weigh(len, value);
+        if (weight > maxSegmentWeight) {
+            return;
+        }
+        final Key key = new Key().reset(Arrays.copyOfRange(word, off, off + len), 0, len, hash);
+        final Segment<V> segment = segment(hash);
+        synchronized (segment) {
+            final Iterator<Map.Entry<Key, V>> eldest = segment.map.entrySet().iterator();
+            if (segment.sketch != null && segment.weight + weight > maxSegmentWeight && eldest.hasNext()) {
+                final Key victim = eldest.next().getKey();
+                if (!victim.equals(key) && segment.sketch.frequency(hash) <= segment.sketch.frequency(victim.hash)) {
+                    return;
+                }
+            }
+            final V previous = segment.map.put(key, value);
+            if (previous != null) {
+                segment.weight -= weigher.weigh(len, previous);
+            }
+            segment.weight += weight;
+            final Iterator<Map.Entry<Key, V>> victims = segment.map.entrySet().iterator();
+            while (segment.weight > maxSegmentWeight && victims.hasNext()) {
+                final Map.Entry<Key, V> entry = victims.next();
+                segment.weight -= weigher.weigh(entry.getKey().len, entry.getValue());
+                victims.remove();
+                evictions.increment();
+            }
+            if (segment.sketch != null && segment.map.size() > segment.sketch.capacity()) {
+                segment.sketch.ensureCapacity(2 * segment.map.size());
+            }
+        }
+    }
+
+    void clear() {
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+                segment.weight = 0;
+            }
+        }
+    }
+
+    CacheStats stats() {
+        long size = 0;
+        long weight = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+                weight += segment.weight;
+            }
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size, weight);
+    }
+
+    private static final class Segment<V> {
+        final LinkedHashMap<Key, V> map = new LinkedHashMap<>(16, 0.75f, true);
+        final FrequencySketch sketch;
+        long weight;
+
+        Segment(FrequencySketch sketch) {
+            this.sketch = sketch;
+        }
+    }
+
+    /**
+     * UTF-8 bytes of a word. Stored keys own their bytes, lookup keys point into the caller's
+     * buffer for the duration of a lookup.
+     */
+    private static final class Key {
+        byte[] bytes;
+        int off;
+        int len;
+        int hash;
+
+        Key reset(byte[] bytes, int off, int len, int hash) {
+            this.bytes = bytes;
+            this.off = off;
+            this.len = len;
+            this.hash = hash;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hash == other.hash && len == other.len
+                    && Arrays.equals(bytes, off, off + len, other.bytes, other.off, other.off + len);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package fasttext;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the vectors of a batch of words.
+ *
+ * <p>Each distinct word is computed once, into the output row of its first occurrence, and
+ * copied to the rows of its other occurrences. The matrix rows needed by the distinct words
+ * are gathered in (row, word) pairs sorted by row, so the matrices are read in increasing row
+ * order and a row shared by several words, such as a common ngram, is read once.
+ */
+final class WordVectorBatch {
+
+    /* distinct words per task when the batch is split on a pool */
+    static final int TASK_SIZE = 1024;
+    /* bits of the row sorted by each radix pass, 3 passes cover 32 bits rows */
+    private static final int RADIX_BITS = 11;
+    /* below this number of pairs a comparison sort is cheaper than radix passes */
+    private static final int RADIX_THRESHOLD = 1024;
+
+    private final FastTextModel model;
+    private final List<? extends CharSequence> words;
+    private final float[] out;
+    private final int dim;
+    /* output row of the first occurrence of each distinct word */
+    private final int[] firstRows;
+    /* number of ngrams of each distinct word, complemented when out of the vocabulary */
+    private final int[] ngramCounts;
+
+    private WordVectorBatch(FastTextModel model, List<? extends CharSequence> words, float[] out, int[] firstRows,
+                            int nrDistinct) {
+        this.model = model;
+        this.words = words;
+        this.out = out;
+        this.dim = model.getDimension();
+        this.firstRows = firstRows;
+        this.ngramCounts = new int[nrDistinct];
+    }
+
+    /**
+     * Writes the vector of {@code words.get(i)} at {@code out[i * dim]}, splitting the distinct
+     * words in tasks run by {@code pool} when it is not null, and reports the batch to
+     * {@code listener} when it is not null.
+     */
+    static void compute(FastTextModel model, List<? extends CharSequence> words, float[] out, ForkJoinPool pool,
+                        FastTextListener listener) {
+        final long start = listener == null ? 0 : System.nanoTime();
+        final int dim = model.getDimension();
+        final int size = words.size();
+        Preconditions.checkArgument(out.length >= (long) size * dim, "Output buffer smaller than words x dimension");
+
+        final Map<String, Integer> distinct = new HashMap<>();
+        final int[] firstRows = new int[size];
+        final int[] index = new int[size];
+        int nrDistinct = 0;
+        for (int i = 0; i < size; i++) {
+            final Integer d = distinct.putIfAbsent(words.get(i).toString(), nrDistinct);
+            if (d == null) {
+                firstRows[nrDistinct] = i;
+                index[i] = nrDistinct++;
+            } else {
+                index[i] = d;
+            }
+        }
+
+        final WordVectorBatch batch = new WordVectorBatch(model, words, out, firstRows, nrDistinct);
+        if (pool == null || nrDistinct <= TASK_SIZE) {
+            batch.accumulate(0, nrDistinct);
+        } else {
+            pool.invoke(batch.new Task(0, nrDistinct));
+        }
+
+        for (int i = 0; i < size; i++) {
+            final int first = firstRows[index[i]];
+            if (first != i) {
+                System.arraycopy(out, first * dim, out, i * dim, dim);
+            }
+        }
+
+        if (listener != null) {
+            int oov = 0;
+            int ngrams = 0;
+            for (int i = 0; i < size; i++) {
+                final int count = batch.ngramCounts[index[i]];
+                if (count < 0) {
+                    oov++;
+                    ngrams += ~count;
+                } else {
+                    ngrams += count;
+                }
+            }
+            listener.onLookup(size, oov, ngrams, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Computes the distinct words {@code [from, to)}.
+     */
+    private void accumulate(int from, int to) {
+        final Scratch scratch = Scratch.get();
+        // null while the model is loading it, words then only have their word row
+        final Matrix ngramMatrix = model.ngramMatrix();
+        final float[] scales = new float[to - from];
+        long[] wordRows = new long[to - from];
+        int nrWordRows = 0;
+        long[] ngramRows = new long[16 * (to - from)];
+        int nrNgramRows = 0;
+        for (int t = from; t < to; t++) {
+            final CharSequence word = words.get(firstRows[t]);
+            Arrays.fill(out, firstRows[t] * dim, (firstRows[t] + 1) * dim, 0.0f);
+            final int id = model.encodeAndLookup(word, scratch);
+            if (id >= 0) {
+                wordRows[nrWordRows++] = pair(id, t);
+            }
+            final int[] ngrams = ngramMatrix != null ? model.ngrams(word, scratch) : null;
+            final int count = ngramMatrix != null ? scratch.count : 0;
+            if (nrNgramRows + count > ngramRows.length) {
+                ngramRows = Arrays.copyOf(ngramRows, Math.max(nrNgramRows + count, 2 * ngramRows.length));
+            }
+            for (int k = 0; k < count; k++) {
+                ngramRows[nrNgramRows++] = pair(ngrams[k], t);
+            }
+            // averaged over the word row, if any, and the ngram rows
+            final int nrRows = count + (id >= 0 ? 1 : 0);
+            scales[t - from] = nrRows > 1 ? 1.0f / nrRows : 1.0f;
+            ngramCounts[t] = id >= 0 ? count : ~count;
+        }
+
+        final float[] shared = new float[dim];
+        addRows(model.wordMatrix(), wordRows, nrWordRows, shared);
+        if (nrNgramRows > 0) {
+            addRows(ngramMatrix, ngramRows, nrNgramRows, shared);
+        }
+
+        for (int t = from; t < to; t++) {
+            final float scale = scales[t - from];
+            if (scale != 1.0f) {
+                Kernels.scale(scale, out, firstRows[t] * dim, dim);
+            }
+        }
+    }
+
+    /**
+     * Adds the matrix rows of the (row, word) pairs to the output rows of their words.
+     */
+    private void addRows(Matrix matrix, long[] pairs, int nrPairs, float[] shared) {
+        pairs = sortByRow(pairs, nrPairs);
+        int k = 0;
+        while (k < nrPairs) {
+            final int row = (int) (pairs[k] >>> 32);
+            int end = k + 1;
+            while (end < nrPairs && (int) (pairs[end] >>> 32) == row) {
+                end++;
+            }
+            if (end - k == 1) {
+                matrix.addRowToArray(out, firstRows[(int) pairs[k]] * dim, row, 1.0f);
+            } else {
+                // read the row once for all the words using it
+                Arrays.fill(shared, 0.0f);
+                matrix.addRowToArray(shared, 0, row, 1.0f);
+                for (; k < end; k++) {
+                    Kernels.axpy(1.0f, shared, 0, out, firstRows[(int) pairs[k]] * dim, dim);
+                }
+            }
+            k = end;
+        }
+    }
+
+    /**
+     * Sorts the first {@code size} pairs by row, returning the array holding the sorted pairs.
+     * Pairs are created in increasing word order, so a stable radix sort on the rows leaves
+     * them sorted by word within a row, like a full sort would.
+     */
+    static long[] sortByRow(long[] pairs, int size) {
+        if (size < RADIX_THRESHOLD) {
+            Arrays.sort(pairs, 0, size);
+            return pairs;
+        }
+        final int radix = 1 << RADIX_BITS;
+        final int mask = radix - 1;
+        final int[] counts = new int[radix];
+        long[] src = pairs;
+        long[] dst = new long[size];
+        for (int shift = 32; shift < 64; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (int k = 0; k < size; k++) {
+                counts[(int) (src[k] >>> shift) & mask]++;
+            }
+            if (counts[(int) (src[0] >>> shift) & mask] == size) {
+                // every row has the same digit
+                continue;
+            }
+            int offset = 0;
+            for (int d = 0; d < radix; d++) {
+                final int count = counts[d];
+                counts[d] = offset;
+                offset += count;
+            }
+            for (int k = 0; k < size; k++) {
+                final long pair = src[k];
+                dst[counts[(int) (pair >>> shift) & mask]++] = pair;
+            }
+            final long[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        return src;
+    }
+
+    private static long pair(int row, int word) {
+        return ((long) row << 32) | word;
+    }
+
+    private final class Task extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        Task(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_SIZE) {
+                accumulate(from, to);
+            } else {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new Task(from, mid), new Task(mid, to));
+            }
+        }
+    }
+}
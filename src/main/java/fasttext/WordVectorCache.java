@@ -0,0 +1,89 @@
+package fasttext;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * Cache of the word vectors computed by a {@link FastTextModel}.
+ *
+ * <p>Computing a vector sums the word row and all its ngram rows; a cached word costs a
+ * single array copy instead. Vectors are stored as float arrays in a concurrent cache
+ * bounded by a number of entries or of bytes, where a new word only evicts the least
+ * recently used one when it is looked up more often (TinyLFU admission). This suits the
+ * skewed traffic of word lookups, where a few thousand words make most requests.
+ */
+public final class WordVectorCache {
+
+    private final FastTextModel model;
+    private final WordCache<float[]> cache;
+
+    private WordVectorCache(FastTextModel model, WordCache<float[]> cache) {
+        this.model = model;
+        this.cache = cache;
+    }
+
+    /**
+     * Caches at most {@code maxEntries} vectors of {@code model}.
+     */
+    public static WordVectorCache maxEntries(FastTextModel model, long maxEntries) {
+        Preconditions.checkArgument(maxEntries > 0, "maxEntries must be > 0, got %s", maxEntries);
+        return new WordVectorCache(model, new WordCache<>(maxEntries, WordCache.entries(), true));
+    }
+
+    /**
+     * Caches vectors of {@code model} in about {@code maxBytes} bytes.
+     */
+    public static WordVectorCache maxBytes(FastTextModel model, long maxBytes) {
+        Preconditions.checkArgument(maxBytes > 0, "maxBytes must be > 0, got %s", maxBytes);
+        return new WordVectorCache(model,
+                new WordCache<>(maxBytes, WordCache.bytes(vector -> vector.length * Float.BYTES), true));
+    }
+
+    public FastTextModel getModel() {
+        return this.model;
+    }
+
+    /**
+     * Gets the vector for a word.
+     */
+    public Vector getWordVector(String word) {
+        final Vector vector = new Vector(model.getDimension());
+        getWordVector(word, vector.data);
+        return vector;
+    }
+
+    /**
+     * Copies the vector for a word into the first {@link FastTextModel#getDimension()} floats
+     * of {@code out}, computing and caching it on a miss. Hits do not allocate. Vectors of a
+     * model not fully loaded yet, see {@link FastTextModel#isFullyLoaded()}, are not cached.
+     */
+    public void getWordVector(CharSequence word, float[] out) {
+        final int dim = model.getDimension();
+        Preconditions.checkArgument(out.length >= dim, "Output buffer smaller than the dimension");
+        final Scratch scratch = Scratch.get();
+        final byte[] key = scratch.key(SubwordHasher.maxEncodedLength(word));
+        final int length = SubwordHasher.encode(word, key, 0);
+        final int hash = (int) SubwordHasher.hash(key, 0, length);
+        final float[] vector = cache.get(key, 0, length, hash);
+        if (vector != null) {
+            System.arraycopy(vector, 0, out, 0, dim);
+            return;
+        }
+        // read before the lookup: vectors computed in the degraded mode of a progressive load
+        // lack the ngram rows and must not outlive it
+        final boolean complete = model.isFullyLoaded();
+        model.getWordVector(word, out);
+        if (complete) {
+            cache.put(key, 0, length, hash, Arrays.copyOf(out, dim));
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+}
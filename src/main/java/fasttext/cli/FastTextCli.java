@@ -0,0 +1,404 @@
+package fasttext.cli;
+
+import fasttext.Dictionary;
+import fasttext.FastText;
+import fasttext.FastTextModel;
+import fasttext.HnswIndex;
+import fasttext.LoadOptions;
+import fasttext.NearestNeighbors;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Command line interface, the equivalent of the fastText commands which read a model:
+ *
+ * <pre>
+ * fasttext print-word-vectors model.bin &lt; words.txt
+ * fasttext print-sentence-vectors model.bin -i corpus.txt -o vectors.f32 -f binary
+ * fasttext nn model.bin 10 &lt; words.txt
+ * fasttext predict model.bin test.txt 3 0.1
+ * fasttext predict-prob model.bin test.txt 3
+ * </pre>
+ *
+ * <p>The input is read, processed on every core and written in order by a bounded
+ * {@link LinePipeline}. Text output is formatted like native fastText; binary output holds the
+ * vectors as consecutive little-endian floats, {@code dim} per word or per line.
+ */
+public final class FastTextCli {
+
+    private static final String INPUT = "input";
+    private static final String OUTPUT = "output";
+    private static final String FORMAT = "format";
+    private static final String THREADS = "threads";
+    private static final String BATCH = "batch";
+    private static final String K = "k";
+    private static final String THRESHOLD = "threshold";
+    private static final String MMAP = "mmap";
+    private static final String INDEX = "index";
+    private static final String EF = "ef";
+    private static final String VERBOSE = "verbose";
+
+    /* significant digits of vectors, and of similarities and probabilities */
+    private static final int VECTOR_DIGITS = 5;
+    private static final int SCORE_DIGITS = 6;
+    private static final int DEFAULT_BATCH_LINES = 256;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 20;
+
+    private enum Command {
+        PRINT_WORD_VECTORS("print-word-vectors", "print the vector of each word of the input"),
+        PRINT_SENTENCE_VECTORS("print-sentence-vectors", "print the vector of each line of the input"),
+        NN("nn", "print the nearest neighbors of each word of the input, [k] positional"),
+        PREDICT("predict", "print the most likely labels of each line, [input] [k] [threshold] positional"),
+        PREDICT_PROB("predict-prob", "same as predict, with the probability of each label");
+
+        final String name;
+        final String description;
+
+        Command(String name, String description) {
+            this.name = name;
+            this.description = description;
+        }
+
+        static Command of(String name) {
+            for (Command command : values()) {
+                if (command.name.equals(name)) {
+                    return command;
+                }
+            }
+            return null;
+        }
+    }
+
+    private enum Format {
+        TEXT, BINARY
+    }
+
+    private FastTextCli() {
+    }
+
+    public static void main(String[] args) {
+        final Logger root = Logger.getRootLogger();
+        if (!root.getAllAppenders().hasMoreElements()) {
+            // logs go to stderr, stdout holds the output
+            root.addAppender(new ConsoleAppender(new PatternLayout("%d %-5p %c{1} - %m%n"), ConsoleAppender.SYSTEM_ERR));
+            root.setLevel(Level.WARN);
+        }
+        final OutputStream out = new FileOutputStream(FileDescriptor.out);
+        System.exit(run(args, System.in, out, System.err));
+    }
+
+    /**
+     * Runs the command of {@code args}, reading {@code in} and writing {@code out} unless files
+     * are given, and returns the exit status.
+     */
+    static int run(String[] args, InputStream in, OutputStream out, PrintStream err) {
+        final Options options = options();
+        final CommandLine line;
+        try {
+            line = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            err.println(e.getMessage());
+            usage(options, err);
+            return 1;
+        }
+        final List<String> positional = line.getArgList();
+        final Command command = positional.isEmpty() ? null : Command.of(positional.get(0));
+        if (command == null || positional.size() < 2) {
+            usage(options, err);
+            return 1;
+        }
+        if (line.hasOption(VERBOSE)) {
+            Logger.getLogger("fasttext").setLevel(Level.INFO);
+        }
+        try {
+            execute(command, positional, line, in, out, err);
+            return 0;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            err.println(e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            err.println("I/O error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static void execute(Command command, List<String> positional, CommandLine line, InputStream in,
+                                OutputStream out, PrintStream err) throws IOException {
+        String input = line.getOptionValue(INPUT, "-");
+        int k = command == Command.NN ? 10 : 1;
+        float threshold = 0.0f;
+        if (command == Command.PREDICT || command == Command.PREDICT_PROB) {
+            input = positional.size() > 2 ? positional.get(2) : input;
+            k = positional.size() > 3 ? parseInt("k", positional.get(3)) : k;
+            threshold = positional.size() > 4 ? parseFloat(positional.get(4)) : threshold;
+        } else if (command == Command.NN && positional.size() > 2) {
+            k = parseInt("k", positional.get(2));
+        }
+        if (line.hasOption(K)) {
+            k = parseInt("k", line.getOptionValue(K));
+        }
+        if (line.hasOption(THRESHOLD)) {
+            threshold = parseFloat(line.getOptionValue(THRESHOLD));
+        }
+        final Format format;
+        try {
+            format = Format.valueOf(line.getOptionValue(FORMAT, "text").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid format: " + line.getOptionValue(FORMAT));
+        }
+        if (format == Format.BINARY && command != Command.PRINT_WORD_VECTORS
+                && command != Command.PRINT_SENTENCE_VECTORS) {
+            throw new IllegalArgumentException("Binary output is only supported for word and sentence vectors");
+        }
+        final int threads = line.hasOption(THREADS)
+                ? parseInt("threads", line.getOptionValue(THREADS))
+                : Runtime.getRuntime().availableProcessors();
+        final int batchLines = line.hasOption(BATCH)
+                ? parseInt("batch", line.getOptionValue(BATCH))
+                : DEFAULT_BATCH_LINES;
+        if (k < 0 || threads <= 0 || batchLines <= 0) {
+            throw new IllegalArgumentException("k must be >= 0, threads and batch > 0");
+        }
+
+        final long start = System.nanoTime();
+        final String modelFile = positional.get(1);
+        final FastTextModel model = line.hasOption(MMAP)
+                ? FastText.mmapModel(modelFile)
+                : FastText.loadModel(modelFile, new LoadOptions().threads(threads));
+        final Supplier<LinePipeline.LineProcessor> processors;
+        switch (command) {
+            case PRINT_WORD_VECTORS:
+                processors = () -> wordVectors(model, format);
+                break;
+            case PRINT_SENTENCE_VECTORS:
+                processors = () -> sentenceVectors(model, format);
+                break;
+            case NN:
+                processors = neighbors(model, line, k);
+                break;
+            default:
+                if (!model.isSupervised()) {
+                    throw new IllegalArgumentException("Model " + modelFile + " is not supervised");
+                }
+                final byte[][] labels = labels(model.getDictionary());
+                final int size = k;
+                final float minProbability = threshold;
+                final boolean probabilities = command == Command.PREDICT_PROB;
+                processors = () -> predictions(model, labels, size, minProbability, probabilities);
+        }
+        final long loaded = System.nanoTime();
+
+        final InputStream source = "-".equals(input) ? in : Files.newInputStream(Paths.get(input));
+        final String output = line.getOptionValue(OUTPUT, "-");
+        final OutputStream sink = "-".equals(output) ? out : Files.newOutputStream(Paths.get(output));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(source, StandardCharsets.UTF_8),
+                OUTPUT_BUFFER_SIZE);
+             OutputStream buffered = new BufferedOutputStream(sink, OUTPUT_BUFFER_SIZE)) {
+            final LinePipeline pipeline = new LinePipeline(threads, batchLines, 4 * threads);
+            final long lines = pipeline.run(reader, buffered, processors);
+            if (line.hasOption(VERBOSE)) {
+                final long end = System.nanoTime();
+                err.printf(Locale.ROOT, "Loaded the model in %.1fs, processed %d lines in %.1fs (%.0f lines/s)%n",
+                        (loaded - start) / 1e9, lines, (end - loaded) / 1e9, lines * 1e9 / Math.max(1, end - loaded));
+            }
+        }
+    }
+
+    private static LinePipeline.LineProcessor wordVectors(FastTextModel model, Format format) {
+        final int dim = model.getDimension();
+        final float[] vector = new float[dim];
+        return (text, out) -> forEachWord(text, word -> {
+            model.getWordVector(word, vector);
+            if (format == Format.TEXT) {
+                out.append(word).append(' ');
+            }
+            appendVector(vector, dim, format, out);
+        });
+    }
+
+    private static LinePipeline.LineProcessor sentenceVectors(FastTextModel model, Format format) {
+        final int dim = model.getDimension();
+        final float[] vector = new float[dim];
+        return (text, out) -> {
+            model.getSentenceVector(text, vector);
+            appendVector(vector, dim, format, out);
+        };
+    }
+
+    /**
+     * Appends a vector as native fastText prints it, each value followed by a space, or as
+     * little-endian floats.
+     */
+    private static void appendVector(float[] vector, int dim, Format format, OutputBuffer out) {
+        if (format == Format.BINARY) {
+            for (int j = 0; j < dim; j++) {
+                out.putFloat(vector[j]);
+            }
+            return;
+        }
+        for (int j = 0; j < dim; j++) {
+            out.appendFloat(vector[j], VECTOR_DIGITS).append(' ');
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Processors printing {@code k} neighbors per word, searched in the HNSW index given by
+     * {@code --index} or exactly.
+     */
+    private static Supplier<LinePipeline.LineProcessor> neighbors(FastTextModel model, CommandLine line, int k)
+            throws IOException {
+        final HnswIndex index = line.hasOption(INDEX)
+                ? HnswIndex.load(model, Paths.get(line.getOptionValue(INDEX)), true)
+                : null;
+        final int ef = line.hasOption(EF) ? parseInt("ef", line.getOptionValue(EF)) : HnswIndex.DEFAULT_EF;
+        final NearestNeighbors exact = index == null ? model.getNearestNeighbors() : null;
+        return () -> (text, out) -> forEachWord(text, word -> {
+            final List<NearestNeighbors.Neighbor> neighbors = index != null
+                    ? index.nearest(word, k, ef)
+                    : exact.nearest(word, k);
+            for (NearestNeighbors.Neighbor neighbor : neighbors) {
+                out.append(neighbor.getWord()).append(' ')
+                        .appendFloat(neighbor.getSimilarity(), SCORE_DIGITS).append('\n');
+            }
+        });
+    }
+
+    private static LinePipeline.LineProcessor predictions(FastTextModel model, byte[][] labels, int k,
+                                                          float threshold, boolean probabilities) {
+        final int nwords = model.getDictionary().nwords();
+        final int size = Math.min(k, labels.length);
+        final int[] ids = new int[size];
+        final float[] scores = new float[size];
+        return (text, out) -> {
+            final int n = model.predict(text, k, threshold, ids, scores);
+            for (int i = 0; i < n; i++) {
+                if (i > 0) {
+                    out.append(' ');
+                }
+                out.append(labels[ids[i] - nwords]);
+                if (probabilities) {
+                    out.append(' ').appendFloat(scores[i], SCORE_DIGITS);
+                }
+            }
+            out.append('\n');
+        };
+    }
+
+    /**
+     * UTF-8 bytes of the labels of {@code dict}, by label index.
+     */
+    private static byte[][] labels(Dictionary dict) {
+        final byte[][] labels = new byte[dict.nlabels()][];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = dict.getWord(dict.nwords() + i).getBytes(StandardCharsets.UTF_8);
+        }
+        return labels;
+    }
+
+    /**
+     * Calls {@code action} with each word of {@code text}.
+     */
+    private static void forEachWord(String text, Consumer<String> action) {
+        final int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            if (i < length && !isSpace(text.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                action.accept(text.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Separators of the words read by the native commands, the C {@code isspace} characters.
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000b' || c == '\f' || c == '\r';
+    }
+
+    private static int parseInt(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static float parseFloat(String value) {
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid threshold: " + value);
+        }
+    }
+
+    private static Options options() {
+        final Options options = new Options();
+        options.addOption(Option.builder("i").longOpt(INPUT).hasArg().argName("file")
+                .desc("input file, - for the standard input (default)").build());
+        options.addOption(Option.builder("o").longOpt(OUTPUT).hasArg().argName("file")
+                .desc("output file, - for the standard output (default)").build());
+        options.addOption(Option.builder("f").longOpt(FORMAT).hasArg().argName("text|binary")
+                .desc("output format of vectors, binary writes little-endian floats (default text)").build());
+        options.addOption(Option.builder("t").longOpt(THREADS).hasArg().argName("n")
+                .desc("worker threads (default the number of cores)").build());
+        options.addOption(Option.builder("b").longOpt(BATCH).hasArg().argName("lines")
+                .desc("lines per batch (default " + DEFAULT_BATCH_LINES + ")").build());
+        options.addOption(Option.builder("k").hasArg().argName("k")
+                .desc("number of neighbors or labels (default 10 for nn, 1 for predict)").build());
+        options.addOption(Option.builder().longOpt(THRESHOLD).hasArg().argName("p")
+                .desc("minimum probability of the predicted labels (default 0)").build());
+        options.addOption(Option.builder().longOpt(MMAP)
+                .desc("memory map the model instead of loading it on the heap").build());
+        options.addOption(Option.builder().longOpt(INDEX).hasArg().argName("file")
+                .desc("HNSW index of the model for nn, exact search otherwise").build());
+        options.addOption(Option.builder().longOpt(EF).hasArg().argName("n")
+                .desc("candidates explored by the HNSW search (default " + HnswIndex.DEFAULT_EF + ")").build());
+        options.addOption(Option.builder("v").longOpt(VERBOSE)
+                .desc("log the loading and the throughput to the standard error").build());
+        return options;
+    }
+
+    private static void usage(Options options, PrintStream err) {
+        final StringBuilder commands = new StringBuilder("\ncommands:\n");
+        for (Command command : Command.values()) {
+            commands.append(String.format(Locale.ROOT, "  %-24s%s%n", command.name, command.description));
+        }
+        commands.append("\noptions:");
+        final PrintWriter writer = new PrintWriter(err);
+        new HelpFormatter().printHelp(writer, 100, "fasttext <command> <model> [args] [options]",
+                commands.toString(), options, 2, 2, null, false);
+        writer.flush();
+    }
+}
@@ -0,0 +1,213 @@
+package fasttext.cli;
+
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, ordered and multithreaded processing of the lines of a text stream.
+ *
+ * <p>A reader thread groups the lines in batches, worker threads turn each batch into an
+ * {@link OutputBuffer} and the calling thread writes the buffers in the order of the input.
+ * Batches come from a fixed pool and go back to it once written, so the memory used does not
+ * depend on the size of the input: a slow writer stops the reader instead of queueing lines.
+ */
+final class LinePipeline {
+
+    /**
+     * Processes lines, appending their output to a buffer. Each worker thread has its own
+     * processor.
+     */
+    interface LineProcessor {
+        void process(String line, OutputBuffer out);
+    }
+
+    private static final AtomicInteger PIPELINES = new AtomicInteger();
+
+    private final int threads;
+    private final int batchLines;
+    private final int batches;
+
+    /**
+     * @param threads    number of worker threads
+     * @param batchLines number of lines per batch
+     * @param batches    number of batches in memory, at least {@code threads}
+     */
+    LinePipeline(int threads, int batchLines, int batches) {
+        Preconditions.checkArgument(threads > 0, "threads must be > 0, got %s", threads);
+        Preconditions.checkArgument(batchLines > 0, "batchLines must be > 0, got %s", batchLines);
+        Preconditions.checkArgument(batches >= threads, "batches must be >= threads, got %s", batches);
+        this.threads = threads;
+        this.batchLines = batchLines;
+        this.batches = batches;
+    }
+
+    /**
+     * Processes every line of {@code in} with processors created by {@code processors} and
+     * writes their output to {@code out}, in the order of the lines. Returns the number of lines.
+     */
+    long run(BufferedReader in, OutputStream out, Supplier<LineProcessor> processors) throws IOException {
+        final BlockingQueue<Batch> free = new ArrayBlockingQueue<>(batches);
+        for (int i = 0; i < batches; i++) {
+            free.add(new Batch(batchLines));
+        }
+        final BlockingQueue<Batch> work = new LinkedBlockingQueue<>();
+        final BlockingQueue<Batch> done = new LinkedBlockingQueue<>();
+        final int id = PIPELINES.incrementAndGet();
+        final AtomicInteger threadIds = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads + 1, r -> {
+            final Thread thread = new Thread(r, "fasttext-pipeline-" + id + "-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            executor.execute(() -> read(in, free, work, done));
+            for (int i = 0; i < threads; i++) {
+                final LineProcessor processor = processors.get();
+                executor.execute(() -> process(processor, work, done));
+            }
+            return write(out, free, done);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing lines", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the batches of lines, then queues the end of the input and a stop signal per
+     * worker.
+     */
+    private void read(BufferedReader in, BlockingQueue<Batch> free, BlockingQueue<Batch> work,
+                      BlockingQueue<Batch> done) {
+        long sequence = 0;
+        try {
+            try {
+                while (true) {
+                    final Batch batch = free.take();
+                    batch.sequence = sequence;
+                    batch.size = 0;
+                    String line;
+                    while (batch.size < batchLines && (line = in.readLine()) != null) {
+                        batch.lines[batch.size++] = line;
+                    }
+                    if (batch.size == 0) {
+                        break;
+                    }
+                    work.put(batch);
+                    sequence++;
+                    if (batch.size < batchLines) {
+                        break;
+                    }
+                }
+                done.put(Batch.end(sequence, null));
+            } catch (Throwable e) {
+                // errors included, the writer waits for the end of the input
+                done.put(Batch.end(sequence, e));
+            } finally {
+                for (int i = 0; i < threads; i++) {
+                    work.put(Batch.STOP);
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped by the writer
+        }
+    }
+
+    private static void process(LineProcessor processor, BlockingQueue<Batch> work, BlockingQueue<Batch> done) {
+        try {
+            Batch batch;
+            while ((batch = work.take()) != Batch.STOP) {
+                batch.out.clear();
+                try {
+                    for (int i = 0; i < batch.size; i++) {
+                        processor.process(batch.lines[i], batch.out);
+                    }
+                } catch (Throwable e) {
+                    // errors included, the writer waits for every batch
+                    batch.error = e;
+                }
+                done.put(batch);
+            }
+        } catch (InterruptedException e) {
+            // stopped by the writer
+        }
+    }
+
+    /**
+     * Writes the processed batches in order, reordering them in a ring of the size of the
+     * pool, and returns the number of lines once the end of the input is written.
+     */
+    private long write(OutputStream out, BlockingQueue<Batch> free, BlockingQueue<Batch> done)
+            throws IOException, InterruptedException {
+        final Batch[] pending = new Batch[batches];
+        long next = 0;
+        long end = -1;
+        long lines = 0;
+        while (end < 0 || next < end) {
+            Batch batch = done.take();
+            if (batch.error instanceof Error) {
+                throw (Error) batch.error;
+            } else if (batch.error instanceof IOException) {
+                throw new IOException("Failed to read the input: " + batch.error.getMessage(), batch.error);
+            } else if (batch.error != null) {
+                throw new IllegalStateException("Failed to process line batch " + batch.sequence + ": "
+                        + batch.error, batch.error);
+            }
+            if (batch.end) {
+                end = batch.sequence;
+                continue;
+            }
+            pending[(int) (batch.sequence % batches)] = batch;
+            while ((batch = pending[(int) (next % batches)]) != null && batch.sequence == next) {
+                pending[(int) (next % batches)] = null;
+                batch.out.writeTo(out);
+                lines += batch.size;
+                Arrays.fill(batch.lines, 0, batch.size, null);
+                free.put(batch);
+                next++;
+            }
+        }
+        out.flush();
+        return lines;
+    }
+
+    /**
+     * Lines of the input and their output.
+     */
+    private static final class Batch {
+        static final Batch STOP = new Batch(0);
+
+        final String[] lines;
+        final OutputBuffer out;
+        long sequence;
+        int size;
+        /* marks the end of the input, sequence is the number of batches */
+        boolean end;
+        Throwable error;
+
+        Batch(int lines) {
+            this.lines = new String[lines];
+            this.out = new OutputBuffer(lines == 0 ? 0 : 1 << 16);
+        }
+
+        static Batch end(long batches, Throwable error) {
+            final Batch batch = new Batch(0);
+            batch.sequence = batches;
+            batch.end = true;
+            batch.error = error;
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package fasttext.cli;
+
+import fasttext.FloatFormat;
+import fasttext.SubwordHasher;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer holding the output of a batch of lines, as UTF-8 text or little-endian
+ * floats. Floats are formatted without allocating, like the {@code %g} format of C which
+ * native fastText prints.
+ */
+final class OutputBuffer {
+
+    private byte[] bytes;
+    private int size;
+
+    OutputBuffer(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, size);
+    }
+
+    /**
+     * Appends an ASCII character.
+     */
+    OutputBuffer append(char c) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Appends {@code s} encoded as UTF-8.
+     */
+    OutputBuffer append(CharSequence s) {
+        return append(s, 0, s.length());
+    }
+
+    /**
+     * Appends {@code s[start, end)} encoded as UTF-8.
+     */
+    OutputBuffer append(CharSequence s, int start, int end) {
+        ensureCapacity(3 * (end - start));
+        size = SubwordHasher.encode(s, start, end, bytes, size);
+        return this;
+    }
+
+    OutputBuffer append(byte[] b) {
+        ensureCapacity(b.length);
+        System.arraycopy(b, 0, bytes, size, b.length);
+        size += b.length;
+        return this;
+    }
+
+    /**
+     * Appends {@code v} rounded to {@code digits} significant digits, between 1 and 9, see
+     * {@link FloatFormat#format(float, int, byte[], int)}.
+     */
+    OutputBuffer appendFloat(float v, int digits) {
+        ensureCapacity(digits + 16);
+        size = FloatFormat.format(v, digits, bytes, size);
+        return this;
+    }
+
+    /**
+     * Appends {@code v} as 4 little-endian bytes.
+     */
+    OutputBuffer putFloat(float v) {
+        ensureCapacity(Float.BYTES);
+        final int bits = Float.floatToRawIntBits(v);
+        bytes[size++] = (byte) bits;
+        bytes[size++] = (byte) (bits >>> 8);
+        bytes[size++] = (byte) (bits >>> 16);
+        bytes[size++] = (byte) (bits >>> 24);
+        return this;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(size + extra, 2 * bytes.length));
+        }
+    }
+}
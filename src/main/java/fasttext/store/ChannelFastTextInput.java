@@ -0,0 +1,253 @@
+package fasttext.store;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Implementation class for buffered {@link FastTextInput} that reads from a {@link FileChannel}
+ * with positional reads.
+ *
+ * <p>Positional reads do not touch the channel position, so clones share the channel and can
+ * read different regions of the file concurrently, one clone per thread.
+ *
+ * <p> Loosely based on Lucene NIOFSIndexInput.
+ */
+public class ChannelFastTextInput extends FastTextInput implements Closeable {
+
+  public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+  private final long length;
+  private final int bufferSize;
+  private final boolean isClone;
+
+  private ByteBuffer buffer;
+  private FloatBuffer bufferFloats;
+  private IntBuffer bufferInts;
+  /* file position of the first byte of buffer */
+  private long bufferStart;
+
+  public ChannelFastTextInput(final FileChannel channel, final int bufferSize) throws IOException {
+    this(channel, channel.size(), bufferSize, false);
+  }
+
+  public ChannelFastTextInput(final FileChannel channel) throws IOException {
+    this(channel, DEFAULT_BUFFER_SIZE);
+  }
+
+  private ChannelFastTextInput(final FileChannel channel, final long length, final int bufferSize,
+                               final boolean isClone) {
+    if (bufferSize < Long.BYTES || bufferSize % Long.BYTES != 0) {
+      throw new IllegalArgumentException("bufferSize must be a positive multiple of 8, got " + bufferSize);
+    }
+    this.channel = channel;
+    this.length = length;
+    this.bufferSize = bufferSize;
+    this.isClone = isClone;
+    newBuffer();
+  }
+
+  /**
+   * Opens the file at {@code path} for reading.
+   */
+  public static ChannelFastTextInput open(final Path path) throws IOException {
+    final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new ChannelFastTextInput(channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private void newBuffer() {
+    buffer = ByteBuffer.allocate(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+    bufferFloats = buffer.asFloatBuffer();
+    bufferInts = buffer.asIntBuffer();
+    // empty until the first refill
+    buffer.limit(0);
+  }
+
+  private void refill() throws IOException {
+    bufferStart += buffer.position();
+    if (bufferStart >= length) {
+      throw new EOFException("read past EOF: " + this);
+    }
+    buffer.clear();
+    final int len = (int) Math.min(bufferSize, length - bufferStart);
+    buffer.limit(len);
+    while (buffer.hasRemaining()) {
+      final int n = channel.read(buffer, bufferStart + buffer.position());
+      if (n < 0) {
+        throw new EOFException("read past EOF: " + this);
+      }
+    }
+    buffer.flip();
+  }
+
+  @Override
+  public byte readByte() throws IOException {
+    if (!buffer.hasRemaining()) {
+      refill();
+    }
+    return buffer.get();
+  }
+
+  @Override
+  public int readBytes(byte[] b, int offset, int len) throws IOException {
+    int read = 0;
+    while (len > 0) {
+      if (!buffer.hasRemaining()) {
+        refill();
+      }
+      final int step = Math.min(len, buffer.remaining());
+      buffer.get(b, offset, step);
+      offset += step;
+      len -= step;
+      read += step;
+    }
+    return read;
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    if (buffer.remaining() >= Integer.BYTES) {
+      return buffer.getInt();
+    }
+    return super.readInt();
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    if (buffer.remaining() >= Long.BYTES) {
+      return buffer.getLong();
+    }
+    return super.readLong();
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    if (buffer.remaining() >= Float.BYTES) {
+      return buffer.getFloat();
+    }
+    return super.readFloat();
+  }
+
+  @Override
+  public void readFloats(float[] dst, int offset, int len) throws IOException {
+    while (len > 0) {
+      if ((buffer.position() & (Float.BYTES - 1)) != 0) {
+        // realign the buffer on the file position so its float view can be used
+        seek(getFilePointer());
+      }
+      if (!buffer.hasRemaining()) {
+        refill();
+      }
+      final int step = Math.min(len, buffer.remaining() / Float.BYTES);
+      if (step == 0) {
+        dst[offset++] = readFloat();
+        len--;
+        continue;
+      }
+      final int pos = buffer.position();
+      bufferFloats.limit(buffer.limit() / Float.BYTES);
+      bufferFloats.position(pos / Float.BYTES);
+      bufferFloats.get(dst, offset, step);
+      buffer.position(pos + step * Float.BYTES);
+      offset += step;
+      len -= step;
+    }
+  }
+
+  @Override
+  public void readInts(int[] dst, int offset, int len) throws IOException {
+    while (len > 0) {
+      if ((buffer.position() & (Integer.BYTES - 1)) != 0) {
+        // realign the buffer on the file position so its int view can be used
+        seek(getFilePointer());
+      }
+      if (!buffer.hasRemaining()) {
+        refill();
+      }
+      final int step = Math.min(len, buffer.remaining() / Integer.BYTES);
+      if (step == 0) {
+        dst[offset++] = readInt();
+        len--;
+        continue;
+      }
+      final int pos = buffer.position();
+      bufferInts.limit(buffer.limit() / Integer.BYTES);
+      bufferInts.position(pos / Integer.BYTES);
+      bufferInts.get(dst, offset, step);
+      buffer.position(pos + step * Integer.BYTES);
+      offset += step;
+      len -= step;
+    }
+  }
+
+  /**
+   * Returns the current position in this file.
+   */
+  @Override
+  public long getFilePointer() {
+    return bufferStart + buffer.position();
+  }
+
+  /**
+   * Sets the current position in this file, where the next read will occur.
+   */
+  public void seek(long pos) throws IOException {
+    if (pos < 0 || pos > length) {
+      throw new EOFException("seek past EOF: pos=" + pos + " (length=" + length + ")");
+    }
+    bufferStart = pos;
+    buffer.limit(0);
+  }
+
+  @Override
+  public void skipBytes(final long numBytes) throws IOException {
+    if (numBytes < 0) {
+      throw new IllegalArgumentException("numBytes must be >= 0, got " + numBytes);
+    }
+    seek(getFilePointer() + numBytes);
+  }
+
+  /**
+   * The number of bytes in the file.
+   */
+  public long length() {
+    return length;
+  }
+
+  /**
+   * Returns a clone positioned at the same point in the file, with its own buffer.
+   * Clones never close the shared channel.
+   */
+  @Override
+  public ChannelFastTextInput clone() {
+    final ChannelFastTextInput clone = new ChannelFastTextInput(channel, length, bufferSize, true);
+    clone.bufferStart = getFilePointer();
+    return clone;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!isClone) {
+      channel.close();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ChannelFastTextInput(length=" + length + ", pos=" + getFilePointer() + ")";
+  }
+
+}
@@ -0,0 +1,135 @@
+package fasttext.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered little-endian writer to a {@link FileChannel}, the counterpart of
+ * {@link ChannelFastTextInput} for the files written by fastText4j.
+ */
+public class ChannelFastTextOutput implements Closeable {
+
+  public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  /* bytes flushed to the channel */
+  private long flushed;
+
+  public ChannelFastTextOutput(final FileChannel channel, final int bufferSize) {
+    if (bufferSize < Long.BYTES) {
+      throw new IllegalArgumentException("bufferSize must be >= " + Long.BYTES + ", got " + bufferSize);
+    }
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  public ChannelFastTextOutput(final FileChannel channel) {
+    this(channel, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates or truncates the file at {@code path}.
+   */
+  public static ChannelFastTextOutput create(final Path path) throws IOException {
+    return new ChannelFastTextOutput(FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+  }
+
+  public void writeByte(byte b) throws IOException {
+    ensureRemaining(1);
+    buffer.put(b);
+  }
+
+  public void writeBytes(byte[] b, int offset, int len) throws IOException {
+    while (len > 0) {
+      ensureRemaining(1);
+      final int step = Math.min(len, buffer.remaining());
+      buffer.put(b, offset, step);
+      offset += step;
+      len -= step;
+    }
+  }
+
+  public void writeInt(int v) throws IOException {
+    ensureRemaining(Integer.BYTES);
+    buffer.putInt(v);
+  }
+
+  public void writeLong(long v) throws IOException {
+    ensureRemaining(Long.BYTES);
+    buffer.putLong(v);
+  }
+
+  public void writeFloat(float v) throws IOException {
+    ensureRemaining(Float.BYTES);
+    buffer.putFloat(v);
+  }
+
+  public void writeDouble(double v) throws IOException {
+    ensureRemaining(Double.BYTES);
+    buffer.putDouble(v);
+  }
+
+  public void writeInts(int[] src, int offset, int len) throws IOException {
+    while (len > 0) {
+      ensureRemaining(Integer.BYTES);
+      final int step = Math.min(len, buffer.remaining() / Integer.BYTES);
+      final int pos = buffer.position();
+      buffer.asIntBuffer().put(src, offset, step);
+      buffer.position(pos + step * Integer.BYTES);
+      offset += step;
+      len -= step;
+    }
+  }
+
+  public void writeFloats(float[] src, int offset, int len) throws IOException {
+    while (len > 0) {
+      ensureRemaining(Float.BYTES);
+      final int step = Math.min(len, buffer.remaining() / Float.BYTES);
+      final int pos = buffer.position();
+      buffer.asFloatBuffer().put(src, offset, step);
+      buffer.position(pos + step * Float.BYTES);
+      offset += step;
+      len -= step;
+    }
+  }
+
+  /**
+   * Number of bytes written so far.
+   */
+  public long getFilePointer() {
+    return flushed + buffer.position();
+  }
+
+  private void ensureRemaining(int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush();
+    }
+  }
+
+  public void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      flushed += channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Flushes the buffered bytes and closes the underlying channel.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+}
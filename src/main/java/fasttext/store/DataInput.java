@@ -101,6 +101,38 @@ public abstract class DataInput implements Cloneable {
     return Double.longBitsToDouble(readLong());
   }
 
+  /**
+   * Reads {@code len} ints into an array at the specified offset.
+   *
+   * <p>Subclasses should override this when they can decode whole blocks at once,
+   * the default implementation calls {@link #readInt()} for every element.
+   *
+   * @param dst    the array to read ints into
+   * @param offset the offset in the array to start storing ints
+   * @param len    the number of ints to read
+   */
+  public void readInts(int[] dst, int offset, int len) throws IOException {
+    for (int i = 0; i < len; i++) {
+      dst[offset + i] = readInt();
+    }
+  }
+
+  /**
+   * Reads {@code len} floats into an array at the specified offset.
+   *
+   * <p>Subclasses should override this when they can decode whole blocks at once,
+   * the default implementation calls {@link #readFloat()} for every element.
+   *
+   * @param dst    the array to read floats into
+   * @param offset the offset in the array to start storing floats
+   * @param len    the number of floats to read
+   */
+  public void readFloats(float[] dst, int offset, int len) throws IOException {
+    for (int i = 0; i < len; i++) {
+      dst[offset + i] = readFloat();
+    }
+  }
+
   /**
    * Reads a byte and returns a boolean.
    */
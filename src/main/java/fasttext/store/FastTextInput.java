@@ -6,6 +6,11 @@ import java.nio.charset.StandardCharsets;
 /** Extension of {@link DataInput} following fastText models input reads. */
 public abstract class FastTextInput extends DataInput {
 
+  /**
+   * Returns the number of bytes read since the beginning of the model.
+   */
+  public abstract long getFilePointer();
+
   /**
    * Reads two bytes and returns a short.
    */
@@ -2,13 +2,29 @@ package fasttext.store;
 
 import java.io.BufferedInputStream;
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 
 /** Implementation class for buffered {@link FastTextInput} that writes to an {@link InputStream} */
 public class InputStreamFastTextInput extends FastTextInput implements Closeable {
 
+  /** Size in bytes of the block decoded at once by {@link #readFloats} and {@link #readInts}. */
+  private static final int BULK_BUFFER_SIZE = 1 << 15;
+
   private final BufferedInputStream is;
+  /* bytes read so far */
+  private long position;
+
+  /* Reused by the bulk reads: bytes are read into the backing array and decoded
+   * through the little-endian views, so no garbage is created per block. */
+  private ByteBuffer bulkBuffer;
+  private FloatBuffer bulkFloats;
+  private IntBuffer bulkInts;
 
   public InputStreamFastTextInput(final InputStream in, final int bufferSize) {
     this.is = new BufferedInputStream(in, bufferSize);
@@ -20,12 +36,63 @@ public class InputStreamFastTextInput extends FastTextInput implements Closeable
 
   @Override
   public byte readByte() throws IOException {
+    position++;
     return (byte) is.read();
   }
 
   @Override
   public int readBytes(byte[] b, int offset, int len) throws IOException {
-    return is.read(b, offset, len);
+    int read = 0;
+    while (read < len) {
+      final int n = is.read(b, offset + read, len - read);
+      if (n < 0) {
+        throw new EOFException("read past EOF: " + read + " of " + len + " bytes read");
+      }
+      read += n;
+    }
+    position += read;
+    return read;
+  }
+
+  @Override
+  public void readFloats(float[] dst, int offset, int len) throws IOException {
+    initBulkBuffer();
+    final int blockSize = BULK_BUFFER_SIZE / Float.BYTES;
+    while (len > 0) {
+      final int step = Math.min(len, blockSize);
+      readBytes(bulkBuffer.array(), 0, step * Float.BYTES);
+      bulkFloats.clear();
+      bulkFloats.get(dst, offset, step);
+      offset += step;
+      len -= step;
+    }
+  }
+
+  @Override
+  public void readInts(int[] dst, int offset, int len) throws IOException {
+    initBulkBuffer();
+    final int blockSize = BULK_BUFFER_SIZE / Integer.BYTES;
+    while (len > 0) {
+      final int step = Math.min(len, blockSize);
+      readBytes(bulkBuffer.array(), 0, step * Integer.BYTES);
+      bulkInts.clear();
+      bulkInts.get(dst, offset, step);
+      offset += step;
+      len -= step;
+    }
+  }
+
+  private void initBulkBuffer() {
+    if (bulkBuffer == null) {
+      bulkBuffer = ByteBuffer.allocate(BULK_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      bulkFloats = bulkBuffer.asFloatBuffer();
+      bulkInts = bulkBuffer.asIntBuffer();
+    }
+  }
+
+  @Override
+  public long getFilePointer() {
+    return position;
   }
 
   @Override
@@ -0,0 +1,366 @@
+package fasttext.store;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Implementation class for {@link FastTextInput} that reads from a memory mapped file.
+ *
+ * <p>The file is mapped in chunks of {@code 1 << chunkSizePower} bytes, so models bigger
+ * than 2GB can be read. Float regions such as the input matrices can be mapped as row
+ * aligned {@link FloatBuffer} views with {@link #mapFloats(long, int)}, so that rows can
+ * be served straight from the page cache without being copied onto the heap.
+ *
+ * <p> Loosely based on Lucene ByteBufferIndexInput.
+ */
+public class MMapFastTextInput extends FastTextInput implements Closeable {
+
+  public static final int DEFAULT_CHUNK_SIZE_POWER = 30;
+
+  /* sun.misc.Unsafe#invokeCleaner, looked up reflectively as Lucene does, null when unavailable */
+  private static final Object UNSAFE;
+  private static final Method CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method cleaner = null;
+    try {
+      final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      final Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      unsafe = field.get(null);
+      cleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      unsafe = null;
+      cleaner = null;
+    }
+    UNSAFE = unsafe;
+    CLEANER = cleaner;
+  }
+
+  private final FileChannel channel;
+  private final long length;
+  private final int chunkSizePower;
+  private final long chunkSizeMask;
+
+  private ByteBuffer[] buffers;
+  private int curBufIndex;
+  private ByteBuffer curBuf;
+
+  public MMapFastTextInput(final FileChannel channel, final int chunkSizePower) throws IOException {
+    if (chunkSizePower < 0 || chunkSizePower > 30) {
+      throw new IllegalArgumentException("chunkSizePower must be between 0 and 30, got " + chunkSizePower);
+    }
+    this.channel = channel;
+    this.length = channel.size();
+    this.chunkSizePower = chunkSizePower;
+    this.chunkSizeMask = (1L << chunkSizePower) - 1L;
+
+    final long chunkSize = 1L << chunkSizePower;
+    final int nrBuffers = (int) Math.max(1, (length + chunkSize - 1) >>> chunkSizePower);
+    this.buffers = new ByteBuffer[nrBuffers];
+    long offset = 0;
+    for (int i = 0; i < nrBuffers; i++) {
+      final long size = Math.min(chunkSize, length - offset);
+      buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, size).order(ByteOrder.LITTLE_ENDIAN);
+      offset += size;
+    }
+    this.curBufIndex = 0;
+    this.curBuf = buffers[0];
+  }
+
+  public MMapFastTextInput(final FileChannel channel) throws IOException {
+    this(channel, DEFAULT_CHUNK_SIZE_POWER);
+  }
+
+  /**
+   * Opens and maps the file at {@code path}.
+   */
+  public static MMapFastTextInput open(final Path path) throws IOException {
+    final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new MMapFastTextInput(channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public byte readByte() throws IOException {
+    if (!curBuf.hasRemaining()) {
+      nextBuffer();
+    }
+    return curBuf.get();
+  }
+
+  @Override
+  public int readBytes(byte[] b, int offset, int len) throws IOException {
+    int read = 0;
+    while (len > 0) {
+      if (!curBuf.hasRemaining()) {
+        nextBuffer();
+      }
+      final int step = Math.min(len, curBuf.remaining());
+      curBuf.get(b, offset, step);
+      offset += step;
+      len -= step;
+      read += step;
+    }
+    return read;
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    if (curBuf.remaining() >= Integer.BYTES) {
+      return curBuf.getInt();
+    }
+    return super.readInt();
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    if (curBuf.remaining() >= Long.BYTES) {
+      return curBuf.getLong();
+    }
+    return super.readLong();
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    if (curBuf.remaining() >= Float.BYTES) {
+      return curBuf.getFloat();
+    }
+    return super.readFloat();
+  }
+
+  @Override
+  public void readFloats(float[] dst, int offset, int len) throws IOException {
+    while (len > 0) {
+      final int step = Math.min(len, curBuf.remaining() / Float.BYTES);
+      if (step == 0) {
+        // the next value straddles two chunks
+        dst[offset++] = readFloat();
+        len--;
+        continue;
+      }
+      final int pos = curBuf.position();
+      curBuf.asFloatBuffer().get(dst, offset, step);
+      curBuf.position(pos + step * Float.BYTES);
+      offset += step;
+      len -= step;
+    }
+  }
+
+  @Override
+  public void readInts(int[] dst, int offset, int len) throws IOException {
+    while (len > 0) {
+      final int step = Math.min(len, curBuf.remaining() / Integer.BYTES);
+      if (step == 0) {
+        // the next value straddles two chunks
+        dst[offset++] = readInt();
+        len--;
+        continue;
+      }
+      final int pos = curBuf.position();
+      curBuf.asIntBuffer().get(dst, offset, step);
+      curBuf.position(pos + step * Integer.BYTES);
+      offset += step;
+      len -= step;
+    }
+  }
+
+  private void nextBuffer() throws IOException {
+    if (curBufIndex + 1 >= buffers.length) {
+      throw new EOFException("read past EOF: " + this);
+    }
+    curBufIndex++;
+    curBuf = buffers[curBufIndex];
+    curBuf.position(0);
+  }
+
+  /**
+   * Returns the current position in this file.
+   */
+  @Override
+  public long getFilePointer() {
+    return ((long) curBufIndex << chunkSizePower) + curBuf.position();
+  }
+
+  /**
+   * Sets the current position in this file, where the next read will occur.
+   */
+  public void seek(long pos) throws IOException {
+    if (pos < 0 || pos > length) {
+      throw new EOFException("seek past EOF: pos=" + pos + " (length=" + length + ")");
+    }
+    int bi = (int) (pos >>> chunkSizePower);
+    int bp = (int) (pos & chunkSizeMask);
+    if (bi == buffers.length) {
+      // positioned exactly at the end of the last chunk
+      bi--;
+      bp = buffers[bi].limit();
+    }
+    buffers[bi].position(bp);
+    curBufIndex = bi;
+    curBuf = buffers[bi];
+  }
+
+  @Override
+  public void skipBytes(final long numBytes) throws IOException {
+    if (numBytes < 0) {
+      throw new IllegalArgumentException("numBytes must be >= 0, got " + numBytes);
+    }
+    seek(getFilePointer() + numBytes);
+  }
+
+  /**
+   * The number of bytes in the file.
+   */
+  public long length() {
+    return length;
+  }
+
+  /**
+   * Number of rows of {@code cols} floats held by each buffer returned by {@link #mapFloats(long, int)}.
+   */
+  public static int rowsPerChunk(final int cols) {
+    if (cols == 0) {
+      return Integer.MAX_VALUE;
+    }
+    return Math.max(1, Integer.MAX_VALUE / (cols * Float.BYTES));
+  }
+
+  /**
+   * Maps {@code rows} rows of {@code cols} little-endian floats starting at the current
+   * position, and moves the file pointer past them.
+   *
+   * <p>Every returned buffer holds {@link #rowsPerChunk(int)} rows (the last one possibly
+   * fewer), so a row never crosses a buffer boundary.
+   */
+  public FloatBuffer[] mapFloats(final long rows, final int cols) throws IOException {
+    final ByteBuffer[] bytes = mapRows(rows, cols);
+    final FloatBuffer[] floats = new FloatBuffer[bytes.length];
+    for (int i = 0; i < bytes.length; i++) {
+      floats[i] = bytes[i].asFloatBuffer();
+    }
+    return floats;
+  }
+
+  /**
+   * Same as {@link #mapFloats(long, int)}, returning the mapped little-endian byte buffers
+   * themselves, which unlike their float views can be {@link #unmap(ByteBuffer) unmapped}.
+   */
+  public ByteBuffer[] mapRows(final long rows, final int cols) throws IOException {
+    return mapRows(rows, cols, rowsPerChunk(cols));
+  }
+
+  /**
+   * Same as {@link #mapRows(long, int)} with {@code rowsPerChunk} rows per buffer, so that
+   * tests can split small files.
+   */
+  ByteBuffer[] mapRows(final long rows, final int cols, final int rowsPerChunk) throws IOException {
+    final long start = getFilePointer();
+    final long rowBytes = (long) cols * Float.BYTES;
+    if (start + rows * rowBytes > length) {
+      throw new EOFException("mapping past EOF: " + rows + "x" + cols + " floats at " + start);
+    }
+    final int nrBuffers = rows == 0 ? 0 : (int) ((rows + rowsPerChunk - 1) / rowsPerChunk);
+    final ByteBuffer[] bytes = new ByteBuffer[nrBuffers];
+    for (int i = 0; i < nrBuffers; i++) {
+      final long firstRow = (long) i * rowsPerChunk;
+      final long size = Math.min(rowsPerChunk, rows - firstRow) * rowBytes;
+      bytes[i] = channel.map(FileChannel.MapMode.READ_ONLY, start + firstRow * rowBytes, size)
+              .order(ByteOrder.LITTLE_ENDIAN);
+    }
+    seek(start + rows * rowBytes);
+    return bytes;
+  }
+
+  /**
+   * Maps {@code count} little-endian ints starting at the current position as a single
+   * buffer, and moves the file pointer past them.
+   */
+  public IntBuffer mapInts(final long count) throws IOException {
+    final long start = getFilePointer();
+    final long size = count * Integer.BYTES;
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Cannot map more than 2GB of ints at once, got " + count + " ints");
+    }
+    if (start + size > length) {
+      throw new EOFException("mapping past EOF: " + count + " ints at " + start);
+    }
+    final IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, start, size)
+            .order(ByteOrder.LITTLE_ENDIAN)
+            .asIntBuffer();
+    seek(start + size);
+    return ints;
+  }
+
+  @Override
+  public MMapFastTextInput clone() {
+    final MMapFastTextInput clone = (MMapFastTextInput) super.clone();
+    clone.buffers = new ByteBuffer[buffers.length];
+    for (int i = 0; i < buffers.length; i++) {
+      clone.buffers[i] = buffers[i].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+    clone.curBuf = clone.buffers[curBufIndex];
+    return clone;
+  }
+
+  /**
+   * Unmaps a buffer returned by {@link #mapRows(long, int)} right away instead of when it is
+   * garbage collected, and returns false when the JVM does not allow it. Reading the buffer,
+   * or any view of it, afterwards crashes the JVM.
+   */
+  public static boolean unmap(final ByteBuffer buffer) {
+    if (CLEANER == null || !buffer.isDirect()) {
+      return false;
+    }
+    try {
+      CLEANER.invoke(UNSAFE, buffer);
+      return true;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Closes the underlying channel and unmaps the chunks of the file, after which neither this
+   * input nor its clones can be read. Buffers already returned by {@link #mapFloats(long, int)},
+   * {@link #mapRows(long, int)} or {@link #mapInts(long)} are mappings of their own, they stay
+   * valid until they are unmapped or garbage collected.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      channel.close();
+    } finally {
+      final ByteBuffer[] chunks = buffers;
+      if (chunks != null) {
+        // reading a closed input fails instead of touching unmapped memory
+        buffers = null;
+        curBuf = null;
+        for (ByteBuffer chunk : chunks) {
+          unmap(chunk);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "MMapFastTextInput(length=" + length + ")";
+  }
+
+}
@@ -0,0 +1,78 @@
+package fasttext;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels written with the incubating Vector API, compiled when building on JDK 16 or later
+ * and loaded reflectively by {@link Kernels}. The products of {@link #axpy} and
+ * {@link #scale} are rounded like the scalar loop. {@link #dot} fuses its multiplications and
+ * additions, without rounding the products, and sums in another order, so its results may
+ * differ from {@link ScalarKernels} in the last bits.
+ */
+final class VectorKernels extends FloatKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    VectorKernels() {
+        if (SPECIES.length() < 4) {
+            throw new UnsupportedOperationException("Vectors of " + SPECIES.length() + " floats");
+        }
+        // link every kernel now rather than on the first lookup
+        final float[] x = new float[2 * SPECIES.length() + 1];
+        axpy(1.0f, x, 0, x, 0, x.length);
+        scale(1.0f, x, 0, x.length);
+        dot(x, 0, x, 0, x.length);
+    }
+
+    @Override
+    float dot(float[] x, int xOff, float[] y, int yOff, int n) {
+        final int bound = SPECIES.loopBound(n);
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int j = 0;
+        for (; j < bound; j += SPECIES.length()) {
+            final FloatVector vx = FloatVector.fromArray(SPECIES, x, xOff + j);
+            final FloatVector vy = FloatVector.fromArray(SPECIES, y, yOff + j);
+            acc = vx.fma(vy, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; j < n; j++) {
+            sum += x[xOff + j] * y[yOff + j];
+        }
+        return sum;
+    }
+
+    @Override
+    void axpy(float a, float[] x, int xOff, float[] y, int yOff, int n) {
+        final int bound = SPECIES.loopBound(n);
+        final FloatVector va = FloatVector.broadcast(SPECIES, a);
+        int j = 0;
+        for (; j < bound; j += SPECIES.length()) {
+            final FloatVector vx = FloatVector.fromArray(SPECIES, x, xOff + j);
+            final FloatVector vy = FloatVector.fromArray(SPECIES, y, yOff + j);
+            vx.mul(va).add(vy).intoArray(y, yOff + j);
+        }
+        for (; j < n; j++) {
+            y[yOff + j] += a * x[xOff + j];
+        }
+    }
+
+    @Override
+    void scale(float a, float[] x, int off, int n) {
+        final int bound = SPECIES.loopBound(n);
+        final FloatVector va = FloatVector.broadcast(SPECIES, a);
+        int j = 0;
+        for (; j < bound; j += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, x, off + j).mul(va).intoArray(x, off + j);
+        }
+        for (; j < n; j++) {
+            x[off + j] *= a;
+        }
+    }
+
+    @Override
+    String name() {
+        return "Vector API (" + SPECIES.length() + " floats)";
+    }
+}
@@ -0,0 +1,6 @@
+#!/bin/sh
+# fastText4j ${project.version} command line interface:
+#   fasttext.sh <command> <model> [args] [options]
+# JVM options, like -Xmx16g or --add-modules jdk.incubator.vector, are read from JAVA_OPTS.
+DIR=$(cd "$(dirname "$0")" && pwd)
+exec java $JAVA_OPTS -cp "$DIR/lib/*" fasttext.cli.FastTextCli "$@"
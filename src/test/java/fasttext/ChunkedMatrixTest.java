@@ -0,0 +1,75 @@
+package fasttext;
+
+import fasttext.store.InputStreamFastTextInput;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+public class ChunkedMatrixTest extends TestCase {
+
+    private static final int M = 101;
+    private static final int N = 7;
+    /* chunks of 4 rows, so that reads and rows cross chunks */
+    private static final int CHUNK_ELEMENTS = 4 * N + 3;
+
+    private float[] data;
+    private byte[] bytes;
+
+    @Override
+    protected void setUp() {
+        final Random random = new Random(5L);
+        data = new float[M * N];
+        final ByteBuffer buffer = ByteBuffer.allocate(M * N * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextFloat() * 2 - 1;
+            buffer.putFloat(data[i]);
+        }
+        bytes = buffer.array();
+    }
+
+    public void testChunkedMatrixMatchesDenseMatrix() throws IOException {
+        final ChunkedMatrix matrix = new ChunkedMatrix(M, N, CHUNK_ELEMENTS);
+        // two ranges, as the parallel loader reads them
+        final InputStreamFastTextInput is = input();
+        matrix.readRows(is, 0, 37);
+        matrix.readRows(is, 37, M - 37);
+        assertMatches(new DenseMatrix(M, N, data), matrix, 0.0f);
+    }
+
+    public void testChunkedReducedPrecisionMatrices() throws IOException {
+        final HalfMatrix half = new HalfMatrix(M, N, CHUNK_ELEMENTS);
+        half.readRows(input(), 0, M);
+        assertMatches(new DenseMatrix(M, N, data), half, 1e-3f);
+        final Int8Matrix int8 = new Int8Matrix(M, N, CHUNK_ELEMENTS);
+        final InputStreamFastTextInput is = input();
+        int8.readRows(is, 0, 50);
+        int8.readRows(is, 50, M - 50);
+        assertMatches(new DenseMatrix(M, N, data), int8, 1e-2f);
+    }
+
+    private InputStreamFastTextInput input() {
+        return new InputStreamFastTextInput(new ByteArrayInputStream(bytes));
+    }
+
+    private static void assertMatches(Matrix expected, Matrix actual, float delta) {
+        final float[] x = new float[N];
+        for (int j = 0; j < N; j++) {
+            x[j] = j - 3;
+        }
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < N; j++) {
+                assertEquals(expected.at(i, j), actual.at(i, j), delta);
+            }
+            assertEquals(expected.dotRow(x, i), actual.dotRow(x, i), 20 * delta + 1e-5f);
+            final float[] sum = new float[N + 2];
+            actual.addRowToArray(sum, 2, i, 2.0f);
+            for (int j = 0; j < N; j++) {
+                assertEquals(2 * expected.at(i, j), sum[2 + j], 2 * delta + 1e-6f);
+            }
+        }
+    }
+}
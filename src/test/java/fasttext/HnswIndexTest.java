@@ -0,0 +1,115 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class HnswIndexTest extends TestCase {
+
+    private static final int DIM = 16;
+    private static final int NWORDS = 20000;
+    private static final int QUERIES = 200;
+
+    private File modelFile;
+    private FastTextModel model;
+
+    @Override
+    protected void setUp() throws Exception {
+        modelFile = File.createTempFile("fasttext", ".bin");
+        TestModels.writeModel(modelFile, NWORDS, DIM, 23L);
+        model = FastText.loadModel(modelFile.getPath());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Files.deleteIfExists(HnswIndex.indexPath(modelFile.getPath()));
+        modelFile.delete();
+    }
+
+    public void testRecallAgainstExactSearch() {
+        final HnswIndex index = HnswIndex.build(model, new HnswIndex.Options().threads(4));
+        assertEquals(NWORDS, index.size());
+        double previous = 0.0;
+        for (int ef : new int[]{10, 50, 200}) {
+            final double recall = recallAt10(index, ef);
+            System.out.println("HNSW recall@10 with ef=" + ef + ": " + recall);
+            assertTrue("ef=" + ef + " recall=" + recall, recall >= previous - 0.01);
+            previous = recall;
+        }
+        assertTrue("recall@10 " + previous, previous >= 0.95);
+    }
+
+    public void testSaveAndLoad() throws Exception {
+        final HnswIndex index = HnswIndex.build(model, new HnswIndex.Options().m(8).efConstruction(64).threads(2));
+        final Path path = HnswIndex.indexPath(modelFile.getPath());
+        assertTrue(path.toString().endsWith(".hnsw"));
+        index.save(path);
+        for (boolean mmap : new boolean[]{false, true}) {
+            final HnswIndex loaded = HnswIndex.load(model, path, mmap);
+            assertEquals(index.size(), loaded.size());
+            assertEquals(8, loaded.getM());
+            for (int i = 0; i < NWORDS; i += 997) {
+                final String word = "w" + i;
+                final List<NearestNeighbors.Neighbor> expected = index.nearest(word, 10, 40);
+                final List<NearestNeighbors.Neighbor> actual = loaded.nearest(word, 10, 40);
+                assertEquals(word, expected.size(), actual.size());
+                for (int j = 0; j < expected.size(); j++) {
+                    assertEquals(word, expected.get(j).getId(), actual.get(j).getId());
+                    assertEquals(expected.get(j).getSimilarity(), actual.get(j).getSimilarity(), 1e-6f);
+                }
+            }
+        }
+    }
+
+    public void testLoadRejectsOtherModel() throws Exception {
+        final Path path = HnswIndex.indexPath(modelFile.getPath());
+        HnswIndex.build(model, new HnswIndex.Options().efConstruction(64).threads(1)).save(path);
+        final File other = File.createTempFile("fasttext", ".bin");
+        try {
+            TestModels.writeModel(other, 100, DIM, 1L);
+            HnswIndex.load(FastText.loadModel(other.getPath()), path, false);
+            fail("loaded the index of another model");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("does not match"));
+        } finally {
+            other.delete();
+        }
+    }
+
+    public void testExclusions() {
+        final HnswIndex index = HnswIndex.build(model, new HnswIndex.Options().efConstruction(64).threads(1));
+        final float[] query = model.getWordVector("w3").toArray();
+        final List<NearestNeighbors.Neighbor> all = index.nearest(query, 3, 100, Collections.<String>emptyList());
+        assertEquals("w3", all.get(0).getWord());
+        assertEquals(1.0f, all.get(0).getSimilarity(), 1e-5f);
+        final List<NearestNeighbors.Neighbor> filtered = index.nearest("w3", 2, 100);
+        assertEquals(all.get(1).getWord(), filtered.get(0).getWord());
+        assertEquals(all.get(2).getWord(), filtered.get(1).getWord());
+        assertTrue(index.nearest("w3", 0).isEmpty());
+    }
+
+    private double recallAt10(HnswIndex index, int ef) {
+        final NearestNeighbors exact = model.getNearestNeighbors();
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            final String word = "w" + (q * 97 % NWORDS);
+            final Set<Integer> expected = new HashSet<>();
+            for (NearestNeighbors.Neighbor neighbor : exact.nearest(word, 10)) {
+                expected.add(neighbor.getId());
+            }
+            for (NearestNeighbors.Neighbor neighbor : index.nearest(word, 10, ef)) {
+                if (expected.contains(neighbor.getId())) {
+                    found++;
+                }
+            }
+        }
+        return found / (double) (QUERIES * 10);
+    }
+}
@@ -0,0 +1,98 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class KernelsTest extends TestCase {
+
+    private static final int[] SIZES = {0, 1, 3, 4, 7, 8, 15, 16, 17, 31, 64, 100, 300, 1023};
+
+    private final Random random = new Random(13L);
+
+    public void testVectorApiKernelsAreUsedWhenAvailable() {
+        final boolean module = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        boolean compiled;
+        try {
+            Class.forName("fasttext.VectorKernels", false, Kernels.class.getClassLoader());
+            compiled = true;
+        } catch (ClassNotFoundException e) {
+            compiled = false;
+        }
+        if (module && compiled && !"scalar".equals(System.getProperty(Kernels.PROPERTY))) {
+            assertTrue(Kernels.name(), Kernels.name().startsWith("Vector API"));
+        }
+    }
+
+    public void testKernelsAgreeWithReference() {
+        final FloatKernels scalar = new ScalarKernels();
+        for (int n : SIZES) {
+            final float[] x = random(n + 5);
+            final float[] y = random(n + 3);
+            double expected = 0.0;
+            double magnitude = 0.0;
+            for (int j = 0; j < n; j++) {
+                expected += (double) x[5 + j] * y[3 + j];
+                magnitude += Math.abs((double) x[5 + j] * y[3 + j]);
+            }
+            final double tolerance = 1e-6 * magnitude + 1e-7;
+            assertEquals(Kernels.name() + " n=" + n, expected, Kernels.dot(x, 5, y, 3, n), tolerance);
+            assertEquals("scalar n=" + n, expected, scalar.dot(x, 5, y, 3, n), tolerance);
+
+            // products are rounded like the scalar loop, results are identical
+            final float[] actual = y.clone();
+            final float[] reference = y.clone();
+            Kernels.axpy(0.3f, x, 5, actual, 3, n);
+            scalar.axpy(0.3f, x, 5, reference, 3, n);
+            assertTrue("axpy n=" + n, Arrays.equals(reference, actual));
+            Kernels.scale(-1.7f, actual, 3, n);
+            scalar.scale(-1.7f, reference, 3, n);
+            assertTrue("scale n=" + n, Arrays.equals(reference, actual));
+        }
+    }
+
+    public void testVectorAndMatrixAgreeWithReference() {
+        final int n = 301;
+        final int m = 20;
+        final float[] data = random(m * n);
+        final DenseMatrix matrix = new DenseMatrix(m, n, data);
+        final Vector x = new Vector(n);
+        System.arraycopy(random(n), 0, x.data, 0, n);
+
+        double squares = 0.0;
+        for (int j = 0; j < n; j++) {
+            squares += (double) x.data[j] * x.data[j];
+        }
+        assertEquals(Math.sqrt(squares), x.norm(), 1e-5);
+        assertEquals(squares, x.dot(x), 1e-5 * squares);
+
+        final Vector product = new Vector(m);
+        product.mul(matrix, x);
+        for (int i = 0; i < m; i++) {
+            double expected = 0.0;
+            double magnitude = 0.0;
+            for (int j = 0; j < n; j++) {
+                expected += (double) data[i * n + j] * x.data[j];
+                magnitude += Math.abs((double) data[i * n + j] * x.data[j]);
+            }
+            assertEquals(expected, product.at(i), 1e-6 * magnitude);
+            assertEquals(expected, matrix.dotRow(x, i), 1e-6 * magnitude);
+        }
+
+        final Vector sum = new Vector(n);
+        sum.addRow(matrix, 3, 2.0f);
+        sum.addVector(x);
+        for (int j = 0; j < n; j++) {
+            assertEquals(2.0f * data[3 * n + j] + x.data[j], sum.at(j));
+        }
+    }
+
+    private float[] random(int size) {
+        final float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = (float) random.nextGaussian();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,181 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+public class LoadModelTest extends TestCase {
+
+    private static final String[] OOV_WORDS = {"hello", "w12x", "unknown", "é"};
+
+    private File modelFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        modelFile = File.createTempFile("fasttext", ".bin");
+        // odd dimension so rows are not aligned on the read buffers
+        TestModels.writeModel(modelFile, 3000, 17, 42L);
+    }
+
+    @Override
+    protected void tearDown() {
+        modelFile.delete();
+    }
+
+    public void testParallelLoadMatchesSequentialLoad() throws Exception {
+        final FastTextModel sequential = FastText.loadModel(modelFile.getPath());
+        for (int threads : new int[]{2, 3, 8}) {
+            final FastTextModel parallel = FastText.loadModel(modelFile.getPath(), new LoadOptions().threads(threads));
+            assertSameVectors(sequential, parallel);
+        }
+    }
+
+    public void testMmapLoadMatchesSequentialLoad() throws Exception {
+        final FastTextModel sequential = FastText.loadModel(modelFile.getPath());
+        assertSameVectors(sequential, FastText.mmapModel(modelFile.getPath()));
+    }
+
+    public void testQuantizedModelMatchesDequantizedModel() throws Exception {
+        final String[] words = new String[500];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = "w" + i;
+        }
+        final File quantFile = File.createTempFile("fasttext", ".ftz");
+        final File denseFile = File.createTempFile("fasttext", ".bin");
+        try {
+            for (boolean qnorm : new boolean[]{false, true}) {
+                // 17 is not a multiple of 2, so the last sub-quantizer is smaller
+                TestModels.writeQuantizedModel(quantFile, denseFile, words, 17, 2, qnorm, 7L);
+                final FastTextModel quantized = FastText.loadModel(quantFile.getPath());
+                final FastTextModel dense = FastText.loadModel(denseFile.getPath());
+                for (String word : words) {
+                    assertClose(word, dense.getWordVector(word), quantized.getWordVector(word));
+                }
+                for (String word : OOV_WORDS) {
+                    assertClose(word, dense.getWordVector(word), quantized.getWordVector(word));
+                }
+            }
+        } finally {
+            quantFile.delete();
+            denseFile.delete();
+        }
+    }
+
+    public void testDictionaryLookup() throws Exception {
+        final String[] words = {"hello", "straße", "東京", "😀", "a", "hello2"};
+        final File file = File.createTempFile("fasttext", ".bin");
+        try {
+            TestModels.writeModel(file, words, 4, 1L);
+            final Dictionary dict = FastText.loadModel(file.getPath()).getDictionary();
+            assertEquals(words.length, dict.size());
+            for (int i = 0; i < words.length; i++) {
+                assertEquals(i, dict.getId(words[i]));
+                assertEquals(i, dict.getId(new StringBuilder(words[i])));
+                assertEquals(words[i], dict.getWord(i));
+            }
+            assertEquals(-1, dict.getId("hell"));
+            assertEquals(-1, dict.getId(""));
+            assertEquals(-1, dict.getId("東"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testHeaderFields() throws Exception {
+        final FastTextModel model = FastText.loadModel(modelFile.getPath());
+        final Args args = model.getArgs();
+        assertEquals(17, args.getDimension());
+        assertEquals(5, args.getWs());
+        assertEquals(5, args.getEpoch());
+        assertEquals(1, args.getMinCount());
+        assertEquals(5, args.getNeg());
+        assertEquals(1, args.getWordNgrams());
+        assertEquals(Args.LossName.NS, args.getLoss());
+        assertEquals(Args.ModelName.SG, args.getModel());
+        assertEquals(3000, args.getBucketNumber());
+        assertEquals(100, args.getLrUpdateRate());
+        assertEquals(1e-4, args.getT(), 0.0);
+        final Dictionary dict = model.getDictionary();
+        assertEquals(3000, dict.nwords());
+        assertEquals(0, dict.nlabels());
+        assertEquals(3000L * 1000, dict.ntokens());
+        assertEquals(1000L, dict.getCount(42));
+    }
+
+    public void testBucketNumberDifferentFromVocabulary() throws Exception {
+        final File file = File.createTempFile("fasttext", ".bin");
+        try {
+            for (int[] shape : new int[][]{{50, 700}, {700, 50}}) {
+                final String[] words = new String[shape[0]];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = "w" + i;
+                }
+                final int bucket = shape[1];
+                final int dim = 5;
+                TestModels.writeModel(file, words, bucket, dim, 11L);
+                final FastTextModel model = FastText.loadModel(file.getPath());
+                assertEquals(bucket, model.getArgs().getBucketNumber());
+                // the input matrix ends before the output matrix, which is the last block
+                final ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+                final int outputBytes = 1 + 16 + words.length * dim * Float.BYTES;
+                final int inputStart = bytes.limit() - outputBytes - (words.length + bucket) * dim * Float.BYTES;
+                for (String word : new String[]{"w0", "w3", "w49", "unknown"}) {
+                    final int id = model.getDictionary().getId(word);
+                    final List<Integer> ngrams = model.getNgrams(word);
+                    final float[] expected = new float[dim];
+                    final int rows = ngrams.size() + (id >= 0 ? 1 : 0);
+                    for (int j = 0; j < dim; j++) {
+                        float sum = id >= 0 ? bytes.getFloat(inputStart + (id * dim + j) * Float.BYTES) : 0.0f;
+                        for (int ngram : ngrams) {
+                            sum += bytes.getFloat(inputStart + ((words.length + ngram) * dim + j) * Float.BYTES);
+                        }
+                        expected[j] = sum / rows;
+                    }
+                    final float[] actual = model.getWordVector(word).toArray();
+                    for (int j = 0; j < dim; j++) {
+                        assertEquals(word, expected[j], actual[j], 1e-6f);
+                    }
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testHeaderNotMatchingTheMatrix() throws Exception {
+        // bucket number of the args, after the magic, version and 8 other ints
+        try (RandomAccessFile raf = new RandomAccessFile(modelFile, "rw")) {
+            raf.seek(40);
+            raf.write(new byte[]{(byte) 0xb9, 0x0b, 0, 0});
+        }
+        try {
+            FastText.loadModel(modelFile.getPath());
+            fail("loaded a model with a wrong bucket number");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("3001 ngram buckets"));
+        }
+    }
+
+    private static void assertClose(String word, Vector expected, Vector actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(word, expected.at(i), actual.at(i), 1e-5f);
+        }
+    }
+
+    private static void assertSameVectors(FastTextModel expected, FastTextModel actual) {
+        for (int i = 0; i < 3000; i++) {
+            final String word = "w" + i;
+            assertTrue(word, Arrays.equals(expected.getWordVector(word).toArray(), actual.getWordVector(word).toArray()));
+        }
+        for (String word : OOV_WORDS) {
+            assertTrue(word, Arrays.equals(expected.getWordVector(word).toArray(), actual.getWordVector(word).toArray()));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package fasttext;
+
+import fasttext.FastTextListener.LoadPhase;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Arrays;
+
+public class MetricsTest extends TestCase {
+
+    private static final int NWORDS = 500;
+    private static final int DIM = 8;
+
+    public void testLoadPhasesAndLookups() throws Exception {
+        final File modelFile = File.createTempFile("fasttext", ".bin");
+        try {
+            TestModels.writeModel(modelFile, NWORDS, DIM, 1L);
+            for (LoadOptions options : new LoadOptions[]{
+                    new LoadOptions(), new LoadOptions().threads(2), new LoadOptions().mmap(true)}) {
+                final FastTextMetrics metrics = new FastTextMetrics();
+                final FastTextModel model = FastText.loadModel(modelFile.getPath(), options.listener(metrics));
+
+                // magic, version, 12 int args and a double
+                assertEquals(options.toString(), 64, metrics.getLoadBytes(LoadPhase.HEADER));
+                assertTrue(metrics.getLoadBytes(LoadPhase.DICTIONARY) > 0);
+                // quant flag, dimensions and rows
+                assertEquals(1 + 16 + NWORDS * DIM * 4, metrics.getLoadBytes(LoadPhase.WORD_MATRIX));
+                assertEquals(NWORDS * DIM * 4, metrics.getLoadBytes(LoadPhase.NGRAM_MATRIX));
+                assertTrue(metrics.getLoadNanos(LoadPhase.WORD_MATRIX) > 0);
+
+                final float[] out = new float[DIM];
+                model.getWordVector("w1", out);
+                model.getWordVector("w2", out);
+                model.getWordVector("unknown", out);
+                model.getWordVectors(Arrays.asList("w1", "oov", "oov"), new float[3 * DIM]);
+                assertEquals(4, metrics.getLookupLatency().count());
+                assertEquals(6, metrics.getWordCount());
+                assertEquals(3, metrics.getOovCount());
+                assertEquals(0.5, metrics.getOovRatio());
+                assertTrue(metrics.getNgramsPerWord() > 0);
+                // the batch computes its repeated word once
+                final CacheStats subwords = metrics.getCacheStats().get("subwords");
+                assertEquals(5, subwords.hits() + subwords.misses());
+            }
+        } finally {
+            modelFile.delete();
+        }
+    }
+
+    public void testLatencyHistogramPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.5));
+        for (long nanos = 1; nanos <= 1000; nanos++) {
+            histogram.record(nanos * 1000);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(500500.0, histogram.mean());
+        final long p50 = histogram.percentile(0.5);
+        assertTrue(String.valueOf(p50), p50 >= 500000 && p50 <= 500000 * 1.25);
+        final long p99 = histogram.percentile(0.99);
+        assertTrue(String.valueOf(p99), p99 >= 990000 && p99 <= 990000 * 1.25);
+        for (long value = 0; value < 100000; value += 7) {
+            final int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value + " " + bucket, value <= LatencyHistogram.upperBound(bucket));
+            assertTrue(value + " " + bucket, bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ModelHandleTest extends TestCase {
+
+    private static final int NWORDS = 500;
+    private static final int DIM = 16;
+
+    private File first;
+    private File second;
+
+    @Override
+    protected void setUp() throws Exception {
+        first = TestModels.writeModel(File.createTempFile("fasttext", ".bin"), NWORDS, DIM, 1L);
+        second = TestModels.writeModel(File.createTempFile("fasttext", ".bin"), NWORDS, DIM, 2L);
+    }
+
+    @Override
+    protected void tearDown() {
+        first.delete();
+        second.delete();
+    }
+
+    public void testSwapsUnderConcurrentLookups() throws Exception {
+        // odd versions are the first model, even versions the second one
+        final float[][][] expected = {vectors(second), vectors(first)};
+        final ModelHandle handle = ModelHandle.open(first.getPath(), new LoadOptions().mmap(true));
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final AtomicLong lookups = new AtomicLong();
+        final List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final Thread reader = new Thread(() -> {
+                final float[] vector = new float[DIM];
+                int i = 0;
+                try {
+                    while (!stop.get()) {
+                        try (ModelHandle.Lease lease = handle.acquire()) {
+                            i = (i + 7) % NWORDS;
+                            lease.model().getWordVector("w" + i, vector);
+                            if (!Arrays.equals(expected[(int) (lease.version() % 2)][i], vector)) {
+                                throw new AssertionError("w" + i + " of version " + lease.version());
+                            }
+                        }
+                        lookups.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        for (int i = 0; i < 10; i++) {
+            final long before = lookups.get();
+            handle.reload((i % 2 == 0 ? second : first).getPath()).get();
+            while (lookups.get() < before + 100 && error.get() == null) {
+                Thread.yield();
+            }
+        }
+        stop.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+        assertEquals(11, handle.getVersion());
+        handle.close();
+        try {
+            handle.acquire();
+            fail();
+        } catch (IllegalStateException e) {
+            // closed
+        }
+    }
+
+    public void testOldModelReleasedWithItsLastLease() throws Exception {
+        final ModelHandle handle = ModelHandle.open(first.getPath(), new LoadOptions().mmap(true));
+        final ModelHandle.Lease lease = handle.acquire();
+        final float[] before = lease.model().getWordVector("w3").toArray();
+        assertSame(handle.reload(second.getPath()).get(), handle.apply(model -> model));
+        assertEquals(2, handle.getVersion());
+        assertFalse(lease.isReleased());
+        assertTrue(Arrays.equals(before, lease.model().getWordVector("w3").toArray()));
+        lease.close();
+        assertTrue(lease.isReleased());
+
+        final ModelHandle.Lease last = handle.acquire();
+        handle.close();
+        assertFalse(last.isReleased());
+        last.close();
+        assertTrue(last.isReleased());
+    }
+
+    public void testRejectsIncompatibleModels() throws Exception {
+        final FastTextModel model = FastText.loadModel(first.getPath());
+        final ModelHandle handle = ModelHandle.of(model);
+        final File other = TestModels.writeModel(File.createTempFile("fasttext", ".bin"), NWORDS, DIM + 1, 3L);
+        final File garbage = File.createTempFile("fasttext", ".bin");
+        try {
+            Files.write(garbage.toPath(), new byte[64]);
+            for (File file : new File[]{other, garbage}) {
+                try {
+                    handle.reload(file.getPath()).get();
+                    fail(file.getPath());
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof IllegalArgumentException);
+                }
+            }
+            try {
+                handle.swap(FastText.loadModel(other.getPath()));
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("dimension 17"));
+            }
+            assertEquals(1, handle.getVersion());
+            assertSame(model, handle.apply(m -> m));
+        } finally {
+            handle.close();
+            other.delete();
+            garbage.delete();
+        }
+    }
+
+    private static float[][] vectors(File file) throws Exception {
+        final FastTextModel model = FastText.loadModel(file.getPath());
+        final float[][] vectors = new float[NWORDS][];
+        for (int i = 0; i < NWORDS; i++) {
+            vectors[i] = model.getWordVector("w" + i).toArray();
+        }
+        return vectors;
+    }
+}
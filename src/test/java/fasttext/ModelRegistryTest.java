@@ -0,0 +1,169 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ModelRegistryTest extends TestCase {
+
+    private static final int NWORDS = 300;
+    private static final int DIM = 8;
+
+    private Path directory;
+    private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("fasttext");
+        for (String id : new String[]{"en", "de", "fr"}) {
+            TestModels.writeModel(directory.resolve(id + ".bin").toFile(), NWORDS, DIM, id.hashCode());
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (File file : directory.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(directory);
+    }
+
+    private ModelRegistry.Loader countingLoader() {
+        final ModelRegistry.Loader files = ModelRegistry.directory(directory, new LoadOptions().mmap(true));
+        return id -> {
+            loads.computeIfAbsent(id, key -> new AtomicInteger()).incrementAndGet();
+            return files.load(id);
+        };
+    }
+
+    public void testConcurrentFirstUsesLoadOnce() throws Exception {
+        final ModelRegistry registry = new ModelRegistry(1L << 30, countingLoader());
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final List<Future<FastTextModel>> models = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                models.add(executor.submit(() -> {
+                    start.await();
+                    try (ModelHandle.Lease lease = registry.acquire("en")) {
+                        return lease.model();
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<FastTextModel> model : models) {
+                assertSame(models.get(0).get(), model.get());
+            }
+            assertEquals(1, loads.get("en").get());
+            assertEquals(1, registry.getLoads());
+            assertEquals(models.get(0).get().ramBytesUsed(), registry.getResidentBytes());
+        } finally {
+            executor.shutdownNow();
+            registry.close();
+        }
+    }
+
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        final long bytes;
+        try (ModelRegistry probe = new ModelRegistry(1L << 30, countingLoader())) {
+            bytes = probe.acquire("en").model().ramBytesUsed();
+        }
+        assertEquals(4L * (2 * NWORDS) * DIM + FastText.loadModel(directory.resolve("en.bin").toString())
+                .getDictionary().ramBytesUsed(), bytes);
+        loads.clear();
+
+        final ModelRegistry registry = new ModelRegistry(bytes * 5 / 2, countingLoader());
+        registry.acquire("en").close();
+        Thread.sleep(2);
+        final ModelHandle.Lease de = registry.acquire("de");
+        final float[] vector = de.model().getWordVector("w5").toArray();
+        Thread.sleep(2);
+        registry.acquire("en").close();
+        Thread.sleep(2);
+        registry.acquire("fr").close();
+
+        // de was the least recently used, its lease keeps it usable
+        assertEquals(Arrays.asList("en", "fr"), new ArrayList<>(registry.getModelBytes().keySet()));
+        assertEquals(1, registry.getEvictions());
+        assertEquals(2 * bytes, registry.getResidentBytes());
+        assertFalse(de.isReleased());
+        assertTrue(Arrays.equals(vector, de.model().getWordVector("w5").toArray()));
+        de.close();
+        assertTrue(de.isReleased());
+
+        // loaded again on next use, evicting en
+        registry.acquire("de").close();
+        assertEquals(2, loads.get("de").get());
+        assertEquals(Arrays.asList("de", "fr"), new ArrayList<>(registry.getModelBytes().keySet()));
+        assertTrue(registry.evict("fr"));
+        assertFalse(registry.evict("fr"));
+        assertEquals(bytes, registry.getResidentBytes());
+        registry.close();
+        try {
+            registry.acquire("en");
+            fail();
+        } catch (IllegalStateException e) {
+            // closed
+        }
+    }
+
+    public void testNearestNeighborsCountAgainstTheBudget() throws Exception {
+        final ModelRegistry registry = new ModelRegistry(1L << 30, countingLoader());
+        final long bytes;
+        try (ModelHandle.Lease en = registry.acquire("en")) {
+            bytes = registry.getResidentBytes();
+            en.model().getNearestNeighbors();
+        }
+        final long neighbors = 4L * NWORDS * DIM;
+        assertEquals(bytes + neighbors, registry.getResidentBytes());
+        assertEquals(bytes + neighbors, (long) registry.getModelBytes().get("en"));
+        registry.close();
+
+        // en and de fit, not once en built its neighbors
+        final ModelRegistry small = new ModelRegistry(2 * bytes + neighbors / 2, countingLoader());
+        try (ModelHandle.Lease en = small.acquire("en")) {
+            en.model().getNearestNeighbors();
+        }
+        small.acquire("de").close();
+        assertEquals(1, small.getEvictions());
+        assertEquals(Arrays.asList("de"), new ArrayList<>(small.getModelBytes().keySet()));
+        small.close();
+    }
+
+    public void testFailedLoadsAreRetried() throws Exception {
+        final ModelRegistry registry = new ModelRegistry(1L << 30, countingLoader());
+        try {
+            registry.acquire("es");
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("es"));
+        } catch (IllegalArgumentException e) {
+            // the file cannot be read
+        }
+        try {
+            registry.acquire("../en");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Invalid model id"));
+        }
+        assertEquals(2, registry.getLoadFailures());
+        Files.copy(directory.resolve("en.bin"), directory.resolve("es.bin"));
+        registry.acquire("es").close();
+        assertEquals(2, loads.get("es").get());
+        assertEquals(1, registry.getLoads());
+        registry.close();
+    }
+}
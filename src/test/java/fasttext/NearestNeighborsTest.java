@@ -0,0 +1,115 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class NearestNeighborsTest extends TestCase {
+
+    private static final int DIM = 8;
+
+    private File modelFile;
+    private FastTextModel model;
+
+    @Override
+    protected void setUp() throws Exception {
+        modelFile = File.createTempFile("fasttext", ".bin");
+        // more words than a partition, so queries are scanned in parallel
+        TestModels.writeModel(modelFile, NearestNeighbors.PARTITION_SIZE + 5000, DIM, 17L);
+        model = FastText.loadModel(modelFile.getPath());
+    }
+
+    @Override
+    protected void tearDown() {
+        modelFile.delete();
+    }
+
+    public void testBuildIsNotALookup() throws Exception {
+        final FastTextMetrics metrics = new FastTextMetrics();
+        final FastTextModel observed = FastText.loadModel(modelFile.getPath(), new LoadOptions().listener(metrics));
+        final NearestNeighbors nn = observed.getNearestNeighbors();
+        assertEquals(0, metrics.getLookupLatency().count());
+        assertEquals(0, metrics.getWordCount());
+        final CacheStats subwords = observed.getSubwordCacheStats();
+        assertEquals(subwords.toString(), 0, subwords.hits() + subwords.misses() + subwords.size());
+        final List<NearestNeighbors.Neighbor> expected = model.getNearestNeighbors().nearest("w7", 5);
+        final List<NearestNeighbors.Neighbor> actual = nn.nearest("w7", 5);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getSimilarity(), actual.get(i).getSimilarity());
+        }
+    }
+
+    public void testMatchesBruteForce() {
+        final NearestNeighbors nn = model.getNearestNeighbors();
+        assertSame(nn, model.getNearestNeighbors());
+        assertEquals(model.getDictionary().nwords(), nn.size());
+        for (String query : new String[]{"w0", "w12345", "oov"}) {
+            final List<NearestNeighbors.Neighbor> expected = bruteForce(query, 10, query);
+            final List<NearestNeighbors.Neighbor> actual = nn.nearest(query, 10);
+            assertEquals(query, 10, actual.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(query + " " + i, expected.get(i).getWord(), actual.get(i).getWord());
+                assertEquals(expected.get(i).getSimilarity(), actual.get(i).getSimilarity(), 1e-5f);
+            }
+        }
+    }
+
+    public void testExclusions() {
+        final NearestNeighbors nn = model.getNearestNeighbors();
+        final List<NearestNeighbors.Neighbor> all = nn.nearest("w7", 5);
+        final List<String> exclude = Arrays.asList(all.get(0).getWord(), all.get(2).getWord(), "not a word");
+        final List<NearestNeighbors.Neighbor> filtered = nn.nearest("w7", 3, exclude);
+        assertEquals(all.get(1).getWord(), filtered.get(0).getWord());
+        assertEquals(all.get(3).getWord(), filtered.get(1).getWord());
+        assertEquals(all.get(4).getWord(), filtered.get(2).getWord());
+        assertTrue(nn.nearest("w7", 0).isEmpty());
+    }
+
+    public void testQueryVector() {
+        final NearestNeighbors nn = model.getNearestNeighbors();
+        final float[] query = new float[DIM];
+        model.getWordVector("w42", query);
+        final NearestNeighbors.Neighbor best = nn.nearest(query, 1, Collections.<String>emptyList()).get(0);
+        assertEquals("w42", best.getWord());
+        assertEquals(1.0f, best.getSimilarity(), 1e-5f);
+    }
+
+    private List<NearestNeighbors.Neighbor> bruteForce(String query, int k, String excluded) {
+        final double[] q = toDouble(model.getWordVector(query));
+        final double qNorm = Math.sqrt(dot(q, q));
+        final List<NearestNeighbors.Neighbor> neighbors = new ArrayList<>();
+        final Dictionary dict = model.getDictionary();
+        for (int id = 0; id < dict.nwords(); id++) {
+            if (dict.getWord(id).equals(excluded)) {
+                continue;
+            }
+            final double[] v = toDouble(model.getWordVector(dict.getWord(id)));
+            final double norm = Math.sqrt(dot(v, v));
+            neighbors.add(new NearestNeighbors.Neighbor(dict.getWord(id), id, (float) (dot(q, v) / norm / qNorm)));
+        }
+        neighbors.sort(Comparator.comparingDouble(n -> -n.getSimilarity()));
+        return neighbors.subList(0, k);
+    }
+
+    private static double[] toDouble(Vector vector) {
+        final double[] values = new double[vector.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = vector.at(i);
+        }
+        return values;
+    }
+
+    private static double dot(double[] x, double[] y) {
+        double d = 0.0;
+        for (int i = 0; i < x.length; i++) {
+            d += x[i] * y[i];
+        }
+        return d;
+    }
+}
@@ -0,0 +1,240 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PredictTest extends TestCase {
+
+    private static final int DIM = 10;
+    private static final int BUCKET = 997;
+    private static final String[] WORDS = {"</s>", "the", "match", "ended", "in", "a", "draw", "stocks", "fell"};
+    private static final String[] LABELS = {"__label__sports", "__label__finance", "__label__politics",
+            "__label__science", "__label__arts"};
+    private static final long[] LABEL_COUNTS = {500, 300, 120, 60, 20};
+    private static final String[] TEXTS = {"the match ended in a draw", "stocks fell", "unknown words only",
+            "", "the\tmatch\u000bended\fin\ra\0draw", "stocks fell\nthe match"};
+
+    private File modelFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        modelFile = File.createTempFile("fasttext", ".bin");
+    }
+
+    @Override
+    protected void tearDown() {
+        modelFile.delete();
+    }
+
+    private FastTextModel writeModel(Args.LossName loss, int wordNgrams) throws Exception {
+        TestModels.writeSupervisedModel(modelFile, WORDS, LABELS, LABEL_COUNTS, loss, wordNgrams, BUCKET, DIM, 3L);
+        final FastTextModel model = FastText.loadModel(modelFile.getPath());
+        assertTrue(model.isSupervised());
+        assertEquals(loss, model.getArgs().getLoss());
+        assertEquals(wordNgrams, model.getArgs().getWordNgrams());
+        return model;
+    }
+
+    public void testSoftmaxMatchesReference() throws Exception {
+        final FastTextModel model = writeModel(Args.LossName.SOFTMAX, 2);
+        for (String text : TEXTS) {
+            final float[] expected = softmax(output(hidden(model, text, 2)));
+            final List<Prediction> predictions = model.predict(text, LABELS.length, 0.0f);
+            assertEquals(text, LABELS.length, predictions.size());
+            float sum = 0.0f;
+            for (int i = 0; i < predictions.size(); i++) {
+                final Prediction prediction = predictions.get(i);
+                final int label = prediction.getId() - WORDS.length;
+                assertEquals(LABELS[label], prediction.getLabel());
+                // probabilities go through log(p + 1e-5) like native fastText
+                assertEquals(text, expected[label], prediction.getProbability(), 2e-5f);
+                if (i > 0) {
+                    assertTrue(predictions.get(i - 1).getProbability() >= prediction.getProbability());
+                }
+                sum += prediction.getProbability();
+            }
+            assertEquals(1.0f, sum, 1e-4f);
+        }
+    }
+
+    public void testHierarchicalSoftmaxSumsToOne() throws Exception {
+        final FastTextModel model = writeModel(Args.LossName.HS, 3);
+        for (String text : TEXTS) {
+            final List<Prediction> all = model.predict(text, LABELS.length, 0.0f);
+            assertEquals(text, LABELS.length, all.size());
+            float sum = 0.0f;
+            for (Prediction prediction : all) {
+                sum += prediction.getProbability();
+            }
+            assertEquals(text, 1.0f, sum, 1e-3f);
+            // pruned searches keep the best labels
+            final List<Prediction> top2 = model.predict(text, 2, 0.0f);
+            assertEquals(all.get(0).getLabel(), top2.get(0).getLabel());
+            assertEquals(all.get(1).getLabel(), top2.get(1).getLabel());
+            assertEquals(all.get(0).getProbability(), top2.get(0).getProbability(), 1e-6f);
+        }
+    }
+
+    public void testThreshold() throws Exception {
+        final FastTextModel model = writeModel(Args.LossName.NS, 2);
+        final List<Prediction> all = model.predict("stocks fell", LABELS.length, 0.0f);
+        final float threshold = (all.get(2).getProbability() + all.get(3).getProbability()) / 2;
+        final List<Prediction> above = model.predict("stocks fell", LABELS.length, threshold);
+        assertEquals(3, above.size());
+        for (int i = 0; i < above.size(); i++) {
+            assertEquals(all.get(i).getLabel(), above.get(i).getLabel());
+            assertTrue(above.get(i).getProbability() >= threshold);
+        }
+        assertTrue(model.predict("stocks fell", LABELS.length, 1.1f).isEmpty());
+        assertTrue(model.predict("stocks fell", 0, 0.0f).isEmpty());
+    }
+
+    public void testLabelsAndLinesInText() throws Exception {
+        final FastTextModel model = writeModel(Args.LossName.SOFTMAX, 2);
+        assertSamePredictions(model.predict("stocks fell", 5, 0.0f),
+                model.predict("__label__finance stocks __label__new fell", 5, 0.0f));
+        assertSamePredictions(model.predict("stocks fell", 5, 0.0f),
+                model.predict("  stocks   fell \n the match", 5, 0.0f));
+        assertSamePredictions(model.predict("stocks fell", 5, 0.0f),
+                model.predict("stocks fell </s> the match", 5, 0.0f));
+    }
+
+    public void testSentenceVectorIsHiddenVector() throws Exception {
+        final FastTextModel model = writeModel(Args.LossName.SOFTMAX, 3);
+        for (String text : TEXTS) {
+            final float[] expected = hidden(model, text, 3);
+            final float[] actual = model.getSentenceVector(text).toArray();
+            for (int j = 0; j < DIM; j++) {
+                assertEquals(text, expected[j], actual[j], 1e-6f);
+            }
+        }
+    }
+
+    public void testUnsupervisedModelCannotPredict() throws Exception {
+        TestModels.writeModel(modelFile, 10, 4, 1L);
+        final FastTextModel model = FastText.loadModel(modelFile.getPath());
+        assertFalse(model.isSupervised());
+        try {
+            model.predict("w1");
+            fail("predicted with an unsupervised model");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    public void testPredictionsDoNotAllocate() throws Exception {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        final FastTextModel model = writeModel(Args.LossName.HS, 2);
+        final int[] labels = new int[2];
+        final float[] probabilities = new float[2];
+        final StringBuilder text = new StringBuilder("the match ended in a draw");
+        final long tid = Thread.currentThread().getId();
+        // rounds until the JIT compiler has optimized the lookups
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < 50 && allocated > 0; round++) {
+            final long before = threads.getThreadAllocatedBytes(tid);
+            for (int i = 0; i < 10000; i++) {
+                model.predict(text, 2, 0.0f, labels, probabilities);
+            }
+            allocated = threads.getThreadAllocatedBytes(tid) - before;
+        }
+        assertEquals("allocated " + allocated + " bytes", 0, allocated);
+    }
+
+    private static void assertSamePredictions(List<Prediction> expected, List<Prediction> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getLabel(), actual.get(i).getLabel());
+            assertEquals(expected.get(i).getProbability(), actual.get(i).getProbability(), 1e-6f);
+        }
+    }
+
+    /**
+     * Average of the input rows of {@code text}, computed as documented by native fastText:
+     * word ids, then the word ngrams hashed with 64 bits unsigned arithmetic.
+     */
+    private static float[] hidden(FastTextModel model, String text, int wordNgrams) {
+        final Dictionary dict = model.getDictionary();
+        final List<Integer> rows = new ArrayList<>();
+        final List<Integer> hashes = new ArrayList<>();
+        final List<String> tokens = new ArrayList<>();
+        final String line = text.indexOf('\n') >= 0 ? text.substring(0, text.indexOf('\n')) : text;
+        for (String token : line.split("[ \t\u000b\f\r\0]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        tokens.add("</s>");
+        for (String token : tokens) {
+            final int id = dict.getId(token);
+            if (id >= 0) {
+                rows.add(id);
+            }
+            hashes.add((int) SubwordHasher.hash(token));
+        }
+        final BigInteger modulus = BigInteger.ONE.shiftLeft(64);
+        for (int i = 0; i < hashes.size(); i++) {
+            BigInteger h = BigInteger.valueOf(hashes.get(i)).mod(modulus);
+            for (int j = i + 1; j < hashes.size() && j < i + wordNgrams; j++) {
+                h = h.multiply(BigInteger.valueOf(116049371L)).add(BigInteger.valueOf(hashes.get(j))).mod(modulus);
+                rows.add(dict.nwords() + h.mod(BigInteger.valueOf(BUCKET)).intValue());
+            }
+        }
+        final float[] hidden = new float[DIM];
+        for (int row : rows) {
+            for (int j = 0; j < DIM; j++) {
+                hidden[j] += row < dict.nwords()
+                        ? model.wordMatrix().at(row, j)
+                        : model.ngramMatrix().at(row - dict.nwords(), j);
+            }
+        }
+        for (int j = 0; j < DIM; j++) {
+            hidden[j] /= rows.size();
+        }
+        return hidden;
+    }
+
+    /**
+     * Scores of the labels, read from the output matrix which is the last block of the file.
+     */
+    private float[] output(float[] hidden) throws Exception {
+        final float[] scores = new float[LABELS.length];
+        final ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(modelFile.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        final int start = bytes.limit() - LABELS.length * DIM * Float.BYTES;
+        for (int i = 0; i < LABELS.length; i++) {
+            for (int j = 0; j < DIM; j++) {
+                scores[i] += bytes.getFloat(start + (i * DIM + j) * Float.BYTES) * hidden[j];
+            }
+        }
+        return scores;
+    }
+
+    private static float[] softmax(float[] scores) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (float score : scores) {
+            max = Math.max(max, score);
+        }
+        double z = 0.0;
+        final float[] probabilities = new float[scores.length];
+        for (int i = 0; i < scores.length; i++) {
+            z += Math.exp(scores[i] - max);
+        }
+        for (int i = 0; i < scores.length; i++) {
+            probabilities[i] = (float) (Math.exp(scores[i] - max) / z);
+        }
+        return probabilities;
+    }
+}
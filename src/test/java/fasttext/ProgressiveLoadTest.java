@@ -0,0 +1,166 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ProgressiveLoadTest extends TestCase {
+
+    private static final int DIM = 8;
+
+    private File modelFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        modelFile = File.createTempFile("fasttext", ".bin");
+    }
+
+    @Override
+    protected void tearDown() {
+        modelFile.delete();
+    }
+
+    public void testDegradedModeUntilNgramMatrix() throws Exception {
+        TestModels.writeModel(modelFile, 100, DIM, 21L);
+        final FastTextModel full = FastText.loadModel(modelFile.getPath());
+        final CountDownLatch start = new CountDownLatch(1);
+        final ProgressiveLoad load = FastText.loadModelAsync(modelFile.getPath(), new LoadOptions(), delayed(start));
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        // runs on the loading thread, before the ngram matrix is read
+        load.wordMatrix().thenAccept(model -> {
+            try {
+                assertFalse(model.isFullyLoaded());
+                assertTrue(load.dictionary().isDone());
+                assertFalse(load.ngramMatrix().isDone());
+                assertTrue(Arrays.equals(full.wordMatrix().atRow(3), model.getWordVector("w3").toArray()));
+                assertTrue(Arrays.equals(new float[DIM], model.getWordVector("unknown").toArray()));
+                final float[] batch = new float[2 * DIM];
+                model.getWordVectors(Arrays.asList("w3", "unknown"), batch);
+                assertTrue(Arrays.equals(full.wordMatrix().atRow(3), Arrays.copyOf(batch, DIM)));
+                assertTrue(Arrays.equals(new float[DIM], Arrays.copyOfRange(batch, DIM, 2 * DIM)));
+                final float[] sentence = model.getSentenceVector("w3 unknown").toArray();
+                final float[] expected = full.wordMatrix().atRow(3);
+                Kernels.scale(1.0f / (float) Math.sqrt(Kernels.dot(expected, expected, DIM)), expected, 0, DIM);
+                assertTrue(Arrays.equals(expected, sentence));
+                try {
+                    model.getNearestNeighbors();
+                    fail();
+                } catch (IllegalStateException e) {
+                    // needs the complete vectors
+                }
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        start.countDown();
+        final FastTextModel model = load.ngramMatrix().get();
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+        assertSame(load.wordMatrix().get(), model);
+        assertSame(model.getDictionary(), load.dictionary().get());
+        assertTrue(model.isFullyLoaded());
+        for (String word : new String[]{"w3", "w77", "unknown"}) {
+            assertTrue(word, Arrays.equals(full.getWordVector(word).toArray(), model.getWordVector(word).toArray()));
+        }
+        assertEquals(full.ramBytesUsed(), model.ramBytesUsed());
+    }
+
+    public void testWordVectorCacheKeepsCompleteVectorsOnly() throws Exception {
+        TestModels.writeModel(modelFile, 100, DIM, 23L);
+        final FastTextModel full = FastText.loadModel(modelFile.getPath());
+        final CountDownLatch start = new CountDownLatch(1);
+        final ProgressiveLoad load = FastText.loadModelAsync(modelFile.getPath(), new LoadOptions(), delayed(start));
+        final AtomicReference<WordVectorCache> cache = new AtomicReference<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        load.wordMatrix().thenAccept(model -> {
+            try {
+                final WordVectorCache degraded = WordVectorCache.maxEntries(model, 100);
+                final float[] vector = new float[DIM];
+                for (int i = 0; i < 2; i++) {
+                    degraded.getWordVector("w3", vector);
+                    assertTrue(Arrays.equals(full.wordMatrix().atRow(3), vector));
+                }
+                assertEquals(0, degraded.stats().size());
+                cache.set(degraded);
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        start.countDown();
+        load.ngramMatrix().get();
+        if (error.get() != null) {
+            throw new AssertionError(error.get());
+        }
+        final float[] vector = new float[DIM];
+        for (int i = 0; i < 2; i++) {
+            cache.get().getWordVector("w3", vector);
+            assertTrue(Arrays.equals(full.getWordVector("w3").toArray(), vector));
+        }
+        assertEquals(1, cache.get().stats().size());
+        assertEquals(1, cache.get().stats().hits());
+    }
+
+    public void testSupervisedModelPredictsOnceLoaded() throws Exception {
+        final String[] words = {"</s>", "the", "match", "stocks"};
+        final String[] labels = {"__label__sports", "__label__finance"};
+        TestModels.writeSupervisedModel(modelFile, words, labels, new long[]{3, 2}, Args.LossName.SOFTMAX,
+                2, 50, DIM, 22L);
+        final FastTextModel full = FastText.loadModel(modelFile.getPath());
+        final CountDownLatch start = new CountDownLatch(1);
+        final ProgressiveLoad load = FastText.loadModelAsync(modelFile.getPath(), new LoadOptions(), delayed(start));
+        final AtomicReference<String> degraded = new AtomicReference<>();
+        load.wordMatrix().thenAccept(model -> {
+            try {
+                model.predict("the match");
+                degraded.set("predicted");
+            } catch (IllegalStateException e) {
+                degraded.set(model.isSupervised() ? e.getMessage() : "not supervised");
+            }
+        });
+        start.countDown();
+        final FastTextModel model = load.ngramMatrix().get();
+        assertEquals("The output matrix is not loaded yet", degraded.get());
+        final List<Prediction> expected = full.predict("the match stocks", 2, 0.0f);
+        final List<Prediction> actual = model.predict("the match stocks", 2, 0.0f);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getLabel(), actual.get(i).getLabel());
+            assertEquals(expected.get(i).getProbability(), actual.get(i).getProbability(), 0.0f);
+        }
+    }
+
+    public void testFailureCompletesEveryPhase() throws Exception {
+        Files.write(modelFile.toPath(), new byte[64]);
+        final ProgressiveLoad load = FastText.loadModelAsync(modelFile.getPath(), new LoadOptions());
+        try {
+            load.ngramMatrix().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertTrue(load.dictionary().isCompletedExceptionally());
+        assertTrue(load.wordMatrix().isCompletedExceptionally());
+    }
+
+    /**
+     * Executor running its task on a new thread once {@code start} is released.
+     */
+    private static Executor delayed(CountDownLatch start) {
+        return task -> new Thread(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            task.run();
+        }).start();
+    }
+}
@@ -0,0 +1,100 @@
+package fasttext;
+
+import fasttext.store.InputStreamFastTextInput;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+public class ReducedPrecisionTest extends TestCase {
+
+    private static final int ROWS = 2000;
+    private static final int DIM = 100;
+
+    public void testHalfConversion() {
+        assertEquals((short) 0x3c00, HalfMatrix.floatToHalf(1.0f));
+        assertEquals((short) 0xc000, HalfMatrix.floatToHalf(-2.0f));
+        assertEquals((short) 0x2e66, HalfMatrix.floatToHalf(0.1f));
+        assertEquals((short) 0x7bff, HalfMatrix.floatToHalf(65504.0f));
+        assertEquals((short) 0x7c00, HalfMatrix.floatToHalf(65520.0f));
+        assertEquals((short) 0x0001, HalfMatrix.floatToHalf(0x1p-24f));
+        assertEquals((short) 0x0000, HalfMatrix.floatToHalf(0x1p-25f));
+        for (int i = 0; i < (1 << 16); i++) {
+            final short half = (short) i;
+            final float f = HalfMatrix.halfToFloat(half);
+            if (!Float.isNaN(f)) {
+                assertEquals(Integer.toHexString(i), half, HalfMatrix.floatToHalf(f));
+            }
+        }
+    }
+
+    public void testRowCosineWithinReportedBound() throws Exception {
+        final float[] data = new float[ROWS * DIM];
+        final Random random = new Random(3L);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (float) random.nextGaussian();
+        }
+        final DenseMatrix dense = new DenseMatrix(ROWS, DIM, data);
+        final HalfMatrix half = new HalfMatrix(ROWS, DIM);
+        half.readRows(input(data), 0, ROWS);
+        final Int8Matrix int8 = new Int8Matrix(ROWS, DIM);
+        int8.readRows(input(data), 0, ROWS);
+
+        assertCosineWithinBound(dense, half, half.maxRowError());
+        assertCosineWithinBound(dense, int8, int8.maxRowError());
+        assertTrue(half.maxRowError() <= 0x1p-11f);
+    }
+
+    public void testWordVectorCosine() throws Exception {
+        final File modelFile = File.createTempFile("fasttext", ".bin");
+        try {
+            TestModels.writeModel(modelFile, ROWS, DIM, 11L);
+            final FastTextModel model = FastText.loadModel(modelFile.getPath());
+            for (LoadOptions options : new LoadOptions[]{
+                    new LoadOptions().precision(LoadOptions.Precision.HALF),
+                    new LoadOptions().precision(LoadOptions.Precision.INT8),
+                    new LoadOptions().precision(LoadOptions.Precision.INT8).threads(4)}) {
+                final FastTextModel reduced = FastText.loadModel(modelFile.getPath(), options);
+                float maxError = 0.0f;
+                for (int i = 0; i + 1 < ROWS; i += 2) {
+                    final float expected = cosine(model.getWordVector("w" + i), model.getWordVector("w" + (i + 1)));
+                    final float actual = cosine(reduced.getWordVector("w" + i), reduced.getWordVector("w" + (i + 1)));
+                    maxError = Math.max(maxError, Math.abs(expected - actual));
+                }
+                System.out.println(options.getPrecision() + " max word vector cosine error: " + maxError);
+                assertTrue(options + " " + maxError,
+                        maxError < (options.getPrecision() == LoadOptions.Precision.HALF ? 1e-3f : 1e-2f));
+            }
+        } finally {
+            modelFile.delete();
+        }
+    }
+
+    private static void assertCosineWithinBound(Matrix expected, Matrix actual, float maxRowError) {
+        final double bound = 2 * Math.asin(maxRowError);
+        for (int i = 0; i + 1 < ROWS; i++) {
+            final float e = cosine(row(expected, i), row(expected, i + 1));
+            final float a = cosine(row(actual, i), row(actual, i + 1));
+            assertTrue(i + ": " + Math.abs(e - a) + " > " + bound, Math.abs(e - a) <= bound + 1e-6);
+        }
+    }
+
+    private static Vector row(Matrix matrix, int i) {
+        final Vector vector = new Vector(matrix.n());
+        vector.addRow(matrix, i);
+        return vector;
+    }
+
+    private static float cosine(Vector v1, Vector v2) {
+        return v1.dot(v2) / (v1.norm() * v2.norm());
+    }
+
+    private static InputStreamFastTextInput input(float[] data) {
+        final ByteBuffer bytes = ByteBuffer.allocate(data.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asFloatBuffer().put(data);
+        return new InputStreamFastTextInput(new ByteArrayInputStream(bytes.array()));
+    }
+}
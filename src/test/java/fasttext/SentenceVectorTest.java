@@ -0,0 +1,116 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SentenceVectorTest extends TestCase {
+
+    private static final int DIM = 10;
+
+    private File modelFile;
+    private FastTextModel model;
+
+    @Override
+    protected void setUp() throws Exception {
+        modelFile = File.createTempFile("fasttext", ".bin");
+        TestModels.writeModel(modelFile, 500, DIM, 13L);
+        model = FastText.loadModel(modelFile.getPath());
+    }
+
+    @Override
+    protected void tearDown() {
+        modelFile.delete();
+    }
+
+    public void testAverageOfNormalizedWordVectors() {
+        for (String text : new String[]{"w1 w2 w3", "  w1\tw2\u000bunknown\f\rw1 ", "w7\0w8 w9", "w1 w2\nw3 w4"}) {
+            final String line = text.indexOf('\n') >= 0 ? text.substring(0, text.indexOf('\n')) : text;
+            final float[] expected = new float[DIM];
+            int count = 0;
+            for (String word : line.split("[ \t\u000b\f\r]+")) {
+                if (word.isEmpty()) {
+                    continue;
+                }
+                final float[] vector = model.getWordVector(word).toArray();
+                final float norm = (float) Math.sqrt(Kernels.dot(vector, vector, DIM));
+                for (int j = 0; j < DIM; j++) {
+                    expected[j] += vector[j] / norm;
+                }
+                count++;
+            }
+            final float[] actual = model.getSentenceVector(text).toArray();
+            for (int j = 0; j < DIM; j++) {
+                assertEquals(text, expected[j] / count, actual[j], 1e-6f);
+            }
+        }
+        final float[] out = new float[DIM];
+        out[0] = 1.0f;
+        model.getSentenceVector(" \t ", out);
+        assertEquals(Arrays.toString(new float[DIM]), Arrays.toString(out));
+    }
+
+    public void testReadersMatchText() throws Exception {
+        final StringBuilder document = new StringBuilder();
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final StringBuilder line = new StringBuilder();
+            // long lines cross the chunks of the reader
+            final int words = i == 2 ? 5000 : i;
+            for (int j = 0; j < words; j++) {
+                line.append('w').append((i * 31 + j * 7) % 600).append(j % 3 == 0 ? "  " : " ");
+            }
+            lines.add(line.toString());
+            document.append(line).append('\n');
+        }
+        lines.add("w5 w6");
+        document.append("w5 w6");
+        final String text = document.toString();
+        final Reader[] readers = {new BufferedReader(new StringReader(text), 16), new StringReader(text),
+                new InputStreamReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+                        StandardCharsets.UTF_8)};
+        for (Reader reader : readers) {
+            final float[] out = new float[DIM];
+            for (String line : lines) {
+                assertTrue(model.getSentenceVector(reader, out));
+                assertEquals(Arrays.toString(model.getSentenceVector(line).toArray()), Arrays.toString(out));
+            }
+            assertFalse(model.getSentenceVector(reader, out));
+        }
+    }
+
+    public void testSentenceVectorsDoNotAllocate() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.append('w').append(i % 700).append(' ');
+        }
+        final float[] out = new float[DIM];
+        final long tid = Thread.currentThread().getId();
+        // rounds until the JIT compiler has optimized the lookups
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < 50 && allocated > 0; round++) {
+            final long before = threads.getThreadAllocatedBytes(tid);
+            for (int i = 0; i < 5; i++) {
+                model.getSentenceVector(text, out);
+            }
+            allocated = threads.getThreadAllocatedBytes(tid) - before;
+        }
+        assertEquals("allocated " + allocated + " bytes", 0, allocated);
+    }
+}
@@ -0,0 +1,155 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SubwordCacheTest extends TestCase {
+
+    public void testEvictsLeastRecentlyUsedWordsOverBudget() {
+        final WordCache<int[]> cache = new WordCache<>(64 * 1024, WordCache.bytes(ids -> ids.length * Integer.BYTES), false);
+        final int[] ids = new int[16];
+        for (int i = 0; i < 10000; i++) {
+            final byte[] word = ("word" + i).getBytes(StandardCharsets.UTF_8);
+            cache.put(word, 0, word.length, (int) SubwordHasher.hash(word, 0, word.length), ids);
+        }
+        final CacheStats stats = cache.stats();
+        assertTrue(stats.toString(), stats.weight() <= 64 * 1024);
+        assertTrue(stats.toString(), stats.evictions() > 0);
+        assertEquals(10000, stats.size() + stats.evictions());
+
+        final byte[] last = "word9999".getBytes(StandardCharsets.UTF_8);
+        assertSame(ids, cache.get(last, 0, last.length, (int) SubwordHasher.hash(last, 0, last.length)));
+        final byte[] first = "word0".getBytes(StandardCharsets.UTF_8);
+        assertNull(cache.get(first, 0, first.length, (int) SubwordHasher.hash(first, 0, first.length)));
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    public void testLongWordsMatchUncachedModel() throws Exception {
+        final File modelFile = File.createTempFile("fasttext", ".bin");
+        try {
+            TestModels.writeModel(modelFile, 200, 8, 4L);
+            final FastTextModel uncached = FastText.loadModel(modelFile.getPath(),
+                    new LoadOptions().subwordCacheBytes(0));
+            final FastTextModel cached = FastText.loadModel(modelFile.getPath(), new LoadOptions());
+            // on a new thread, whose scratch arrays have their initial size, cached lookups first
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                executor.submit(() -> {
+                    final StringBuilder word = new StringBuilder();
+                    // more ngrams than the initial scratch array holds, ASCII and multi-byte characters
+                    for (int i = 0; i < 120; i++) {
+                        word.append(i % 3 == 0 ? 'ж' : (char) ('a' + i % 26));
+                        if (word.length() > 64) {
+                            final String w = word.toString();
+                            for (int round = 0; round < 2; round++) {
+                                final List<Integer> ngrams = cached.getNgrams(w);
+                                final float[] vector = cached.getWordVector(w).toArray();
+                                assertEquals(w, uncached.getNgrams(w), ngrams);
+                                assertTrue(w, Arrays.equals(uncached.getWordVector(w).toArray(), vector));
+                            }
+                        }
+                    }
+                    return null;
+                }).get();
+            } finally {
+                executor.shutdown();
+            }
+            assertTrue(cached.getSubwordCacheStats().hits() > 0);
+        } finally {
+            modelFile.delete();
+        }
+    }
+
+    public void testLookupsAllocateNothing() throws Exception {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        final File modelFile = File.createTempFile("fasttext", ".bin");
+        try {
+            TestModels.writeModel(modelFile, 200, 8, 5L);
+            // dictionary words, out of vocabulary words, multi-byte characters and a StringBuilder
+            final CharSequence[] words = {"w3", "w150", "hello", "é", "жизнь", new StringBuilder("w1x")};
+            final float[] out = new float[8];
+            for (long cacheBytes : new long[]{0, 1 << 20}) {
+                final FastTextModel model = FastText.loadModel(modelFile.getPath(),
+                        new LoadOptions().subwordCacheBytes(cacheBytes));
+                final long thread = Thread.currentThread().getId();
+                long bytes = Long.MAX_VALUE;
+                // the first rounds warm up the scratch buffers, the cache and the JIT, which on a
+                // busy machine may take many rounds to compile the lookups with escape analysis
+                for (int round = 0; round < 200 && bytes >= 20000; round++) {
+                    final long start = allocations.getThreadAllocatedBytes(thread);
+                    for (int i = 0; i < 20000; i++) {
+                        model.getWordVector(words[i % words.length], out);
+                    }
+                    bytes = Math.min(bytes, allocations.getThreadAllocatedBytes(thread) - start);
+                }
+                assertTrue("cache " + cacheBytes + ": " + bytes + " bytes", bytes < 20000);
+            }
+        } finally {
+            modelFile.delete();
+        }
+    }
+
+    public void testLookupsMatchUncachedModel() throws Exception {
+        final File modelFile = File.createTempFile("fasttext", ".bin");
+        try {
+            TestModels.writeModel(modelFile, 2000, 8, 3L);
+            final FastTextModel uncached = FastText.loadModel(modelFile.getPath(),
+                    new LoadOptions().subwordCacheBytes(0));
+            assertNull(uncached.getSubwordCacheStats());
+            // small enough to evict while the threads run
+            final FastTextModel cached = FastText.loadModel(modelFile.getPath(),
+                    new LoadOptions().subwordCacheBytes(32 * 1024));
+
+            final List<String> words = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                // dictionary words w0..w1999 and out of vocabulary words
+                words.add(i % 2 == 0 ? "w" + i : "oov" + i);
+            }
+            final ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                final List<Future<Void>> tasks = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    tasks.add(executor.submit(() -> {
+                        final float[] expected = new float[8];
+                        final float[] actual = new float[8];
+                        for (int round = 0; round < 3; round++) {
+                            for (String word : words) {
+                                uncached.getWordVector(word, expected);
+                                cached.getWordVector(word, actual);
+                                assertTrue(word, Arrays.equals(expected, actual));
+                                assertEquals(word, uncached.getNgrams(word), cached.getNgrams(word));
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<Void> task : tasks) {
+                    task.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            final CacheStats stats = cached.getSubwordCacheStats();
+            assertTrue(stats.toString(), stats.hits() > 0);
+            assertTrue(stats.toString(), stats.evictions() > 0);
+            assertTrue(stats.toString(), stats.weight() <= 32 * 1024);
+        } finally {
+            modelFile.delete();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class SubwordHasherTest extends TestCase {
+
+    private static final String GOLDEN = "/fasttext/subwords-native.tsv";
+
+    public void testMatchesNativeFastText() throws Exception {
+        final SubwordHasher hasher = new SubwordHasher(3, 6, 2000000);
+        int words = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                getClass().getResourceAsStream(GOLDEN), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+                final String[] fields = line.split("\t", -1);
+                final String word = fields[0];
+                assertEquals(word, Long.parseLong(fields[1]), SubwordHasher.hash(word));
+
+                final byte[] bytes = new byte[SubwordHasher.maxEncodedLength(word)];
+                final int length = SubwordHasher.encodeWord(word, bytes);
+                final int[] ngrams = new int[hasher.maxNgrams(length)];
+                final int count = hasher.computeNgrams(bytes, length, ngrams);
+                final int[] expected = Arrays.stream(fields[2].split(" ")).mapToInt(Integer::parseInt).toArray();
+                assertEquals(word, Arrays.toString(expected), Arrays.toString(Arrays.copyOf(ngrams, count)));
+                words++;
+            }
+        }
+        assertTrue(words > 30);
+    }
+
+    public void testEncodeWordMatchesStringEncoding() {
+        for (String word : new String[]{"", "hello", "straße", "東京", "😀", "a\uD800b", "\uDC00"}) {
+            final byte[] bytes = new byte[SubwordHasher.maxEncodedLength(word)];
+            final int length = SubwordHasher.encodeWord(word, bytes);
+            assertEquals(word, Arrays.toString(("<" + word + ">").getBytes(StandardCharsets.UTF_8)),
+                    Arrays.toString(Arrays.copyOf(bytes, length)));
+        }
+    }
+}
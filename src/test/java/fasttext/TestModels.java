@@ -0,0 +1,255 @@
+package fasttext;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Writes small deterministic fastText models in the binary format for tests.
+ */
+public final class TestModels {
+
+    private static final int MAGIC = 793712314;
+    private static final int VERSION = 12;
+
+    private TestModels() {
+    }
+
+    /**
+     * Writes an unsupervised skipgram model with {@code nwords} words named {@code w0, w1...},
+     * as many ngram buckets as words and uniformly random weights.
+     */
+    public static File writeModel(File file, int nwords, int dim, long seed) throws IOException {
+        final String[] words = new String[nwords];
+        for (int i = 0; i < nwords; i++) {
+            words[i] = "w" + i;
+        }
+        return writeModel(file, words, dim, seed);
+    }
+
+    /**
+     * Writes an unsupervised skipgram model with the given words, as many ngram buckets as
+     * words and uniformly random weights.
+     */
+    public static File writeModel(File file, String[] words, int dim, long seed) throws IOException {
+        return writeModel(file, words, words.length, dim, seed);
+    }
+
+    /**
+     * Writes an unsupervised skipgram model with the given words and number of ngram buckets,
+     * and uniformly random weights.
+     */
+    public static File writeModel(File file, String[] words, int bucket, int dim, long seed) throws IOException {
+        final Random random = new Random(seed);
+        try (final LittleEndianOutput out = new LittleEndianOutput(file)) {
+            writeHeader(out, words, dim, bucket, -1L);
+            // input matrix
+            out.writeByte(0);
+            out.writeLong(words.length + bucket);
+            out.writeLong(dim);
+            for (long i = 0; i < (long) (words.length + bucket) * dim; i++) {
+                out.writeFloat(random.nextFloat() * 2 - 1);
+            }
+            writeOutputMatrix(out, words.length, dim, random);
+        }
+        return file;
+    }
+
+    /**
+     * Writes a supervised model with the given words and labels, labels being sorted by
+     * decreasing {@code labelCounts} as fastText does, and uniformly random weights. Words have
+     * no subwords, as usual for classification models.
+     */
+    public static File writeSupervisedModel(File file, String[] words, String[] labels, long[] labelCounts,
+                                            Args.LossName loss, int wordNgrams, int bucket, int dim, long seed)
+            throws IOException {
+        final Random random = new Random(seed);
+        try (final LittleEndianOutput out = new LittleEndianOutput(file)) {
+            writeArgs(out, dim, wordNgrams, loss, Args.ModelName.SUP, bucket, 0, 0);
+            writeDictionary(out, words, labels, labelCounts, -1L);
+            out.writeByte(0);
+            out.writeLong(words.length + bucket);
+            out.writeLong(dim);
+            for (long i = 0; i < (long) (words.length + bucket) * dim; i++) {
+                out.writeFloat(random.nextFloat() * 2 - 1);
+            }
+            writeOutputMatrix(out, labels.length, dim, random);
+        }
+        return file;
+    }
+
+    /**
+     * Writes a quantized model to {@code quantFile} and the equivalent dequantized model to
+     * {@code denseFile}. The quantized model uses sub-vectors of {@code dsub} floats, a quantized
+     * norm when {@code qnorm} is set, and is not pruned.
+     */
+    public static void writeQuantizedModel(File quantFile, File denseFile, String[] words, int dim, int dsub,
+                                           boolean qnorm, long seed) throws IOException {
+        final Random random = new Random(seed);
+        final int bucket = words.length;
+        final int m = words.length + bucket;
+        final int nsubq = (dim + dsub - 1) / dsub;
+        final int lastdsub = dim % dsub == 0 ? dsub : dim % dsub;
+        final float[] centroids = randomFloats(random, dim * ProductQuantizer.KSUB);
+        final byte[] codes = new byte[m * nsubq];
+        random.nextBytes(codes);
+        final float[] normCentroids = randomFloats(random, ProductQuantizer.KSUB);
+        final byte[] normCodes = new byte[m];
+        random.nextBytes(normCodes);
+
+        try (final LittleEndianOutput out = new LittleEndianOutput(quantFile)) {
+            writeHeader(out, words, dim, bucket, -1L);
+            out.writeByte(1);
+            out.writeByte(qnorm ? 1 : 0);
+            out.writeLong(m);
+            out.writeLong(dim);
+            out.writeInt(codes.length);
+            out.writeBytes(codes);
+            writeProductQuantizer(out, dim, nsubq, dsub, lastdsub, centroids);
+            if (qnorm) {
+                out.writeBytes(normCodes);
+                writeProductQuantizer(out, 1, 1, 1, 1, normCentroids);
+            }
+            writeOutputMatrix(out, words.length, dim, random);
+        }
+
+        final ProductQuantizer pq = new ProductQuantizer(dim, nsubq, dsub, lastdsub, centroids);
+        try (final LittleEndianOutput out = new LittleEndianOutput(denseFile)) {
+            writeHeader(out, words, dim, bucket, -1L);
+            out.writeByte(0);
+            out.writeLong(m);
+            out.writeLong(dim);
+            for (int i = 0; i < m; i++) {
+                final float[] row = new float[dim];
+                pq.addCode(row, 0, codes, i, qnorm ? normCentroids[normCodes[i] & 0xFF] : 1.0f);
+                for (float v : row) {
+                    out.writeFloat(v);
+                }
+            }
+            writeOutputMatrix(out, words.length, dim, random);
+        }
+    }
+
+    private static void writeHeader(LittleEndianOutput out, String[] words, int dim, int bucket, long pruneIdxSize)
+            throws IOException {
+        writeArgs(out, dim, 1, Args.LossName.NS, Args.ModelName.SG, bucket, 3, 6);
+        writeDictionary(out, words, new String[0], new long[0], pruneIdxSize);
+    }
+
+    private static void writeArgs(LittleEndianOutput out, int dim, int wordNgrams, Args.LossName loss,
+                                  Args.ModelName model, int bucket, int minn, int maxn) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        // args: dim, ws, epoch, minCount, neg, wordNgrams, loss, model, bucket, minn, maxn, lrUpdateRate, t
+        out.writeInt(dim);
+        out.writeInt(5);
+        out.writeInt(5);
+        out.writeInt(1);
+        out.writeInt(5);
+        out.writeInt(wordNgrams);
+        out.writeInt(loss.getValue());
+        out.writeInt(model.getValue());
+        out.writeInt(bucket);
+        out.writeInt(minn);
+        out.writeInt(maxn);
+        out.writeInt(100);
+        out.writeDouble(1e-4);
+    }
+
+    private static void writeDictionary(LittleEndianOutput out, String[] words, String[] labels, long[] labelCounts,
+                                        long pruneIdxSize) throws IOException {
+        // dictionary: size, nwords, nlabels, ntokens, pruneidx_size
+        out.writeInt(words.length + labels.length);
+        out.writeInt(words.length);
+        out.writeInt(labels.length);
+        out.writeLong(1000L * words.length);
+        out.writeLong(pruneIdxSize);
+        for (String word : words) {
+            out.writeBytes(word.getBytes(StandardCharsets.UTF_8));
+            out.writeByte(0);
+            out.writeLong(1000L);
+            out.writeByte(0);
+        }
+        for (int i = 0; i < labels.length; i++) {
+            out.writeBytes(labels[i].getBytes(StandardCharsets.UTF_8));
+            out.writeByte(0);
+            out.writeLong(labelCounts[i]);
+            out.writeByte(1);
+        }
+    }
+
+    private static void writeProductQuantizer(LittleEndianOutput out, int dim, int nsubq, int dsub, int lastdsub,
+                                              float[] centroids) throws IOException {
+        out.writeInt(dim);
+        out.writeInt(nsubq);
+        out.writeInt(dsub);
+        out.writeInt(lastdsub);
+        for (float c : centroids) {
+            out.writeFloat(c);
+        }
+    }
+
+    private static void writeOutputMatrix(LittleEndianOutput out, int m, int dim, Random random) throws IOException {
+        out.writeByte(0);
+        out.writeLong(m);
+        out.writeLong(dim);
+        for (long i = 0; i < (long) m * dim; i++) {
+            out.writeFloat(random.nextFloat() * 2 - 1);
+        }
+    }
+
+    private static float[] randomFloats(Random random, int size) {
+        final float[] values = new float[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = random.nextFloat() * 2 - 1;
+        }
+        return values;
+    }
+
+    static final class LittleEndianOutput implements AutoCloseable {
+
+        private final OutputStream out;
+        private final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        LittleEndianOutput(File file) throws IOException {
+            this.out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+        }
+
+        void writeByte(int b) throws IOException {
+            out.write(b);
+        }
+
+        void writeBytes(byte[] b) throws IOException {
+            out.write(b);
+        }
+
+        void writeInt(int v) throws IOException {
+            buffer.clear();
+            out.write(buffer.putInt(v).array(), 0, Integer.BYTES);
+        }
+
+        void writeLong(long v) throws IOException {
+            buffer.clear();
+            out.write(buffer.putLong(v).array(), 0, Long.BYTES);
+        }
+
+        void writeFloat(float v) throws IOException {
+            writeInt(Float.floatToRawIntBits(v));
+        }
+
+        void writeDouble(double v) throws IOException {
+            writeLong(Double.doubleToRawLongBits(v));
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
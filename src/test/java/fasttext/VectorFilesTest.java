@@ -0,0 +1,167 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+public class VectorFilesTest extends TestCase {
+
+    private static final int DIM = 8;
+
+    private File modelFile;
+    private File vectorFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        modelFile = File.createTempFile("fasttext", ".bin");
+        vectorFile = File.createTempFile("fasttext", ".vec");
+    }
+
+    @Override
+    protected void tearDown() {
+        modelFile.delete();
+        vectorFile.delete();
+    }
+
+    public void testParseFloatMatchesJdk() {
+        final String[] cases = {"0", "-0", "+1.5", "1e-05", "-0.00012345", "3.4028235e38", "3.5e38", "1.4e-45",
+                "1e-46", "0.1", "16777217", "1.0000000596046448", "123456789012345678901234", "0.000000000000000000001",
+                "7.038531e-26", "1E10", ".5", "5.", "00000000000000000000001.25"};
+        for (String s : cases) {
+            assertParsed(s);
+        }
+        final Random random = new Random(7L);
+        final byte[] buffer = new byte[32];
+        for (int i = 0; i < 200000; i++) {
+            final float v = i % 2 == 0 ? Float.intBitsToFloat(random.nextInt()) : (float) random.nextGaussian();
+            if (Float.isNaN(v) || Float.isInfinite(v)) {
+                continue;
+            }
+            // C formatted values, as .vec files hold, and the shortest representations
+            final int length = FloatFormat.format(v, 1 + random.nextInt(9), buffer, 0);
+            assertParsed(new String(buffer, 0, length, StandardCharsets.US_ASCII));
+            assertParsed(Float.toString(v));
+            assertParsed(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(80) - 40)));
+        }
+        assertTrue(Float.isNaN(parse("nan")));
+        assertEquals(Float.NEGATIVE_INFINITY, parse("-inf"));
+        assertEquals(Float.POSITIVE_INFINITY, parse("Infinity"));
+        for (String s : new String[]{"", "-", ".", "1e", "1e+", "1.2.3", "0x10", "12a", "in"}) {
+            try {
+                parse(s);
+                fail(s);
+            } catch (NumberFormatException e) {
+                // invalid
+            }
+        }
+    }
+
+    private static void assertParsed(String s) {
+        assertEquals(s, Float.floatToIntBits(Float.parseFloat(s)), Float.floatToIntBits(parse(s)));
+    }
+
+    private static float parse(String s) {
+        final byte[] b = ("  " + s + " ").getBytes(StandardCharsets.US_ASCII);
+        return FloatFormat.parse(b, 2, b.length - 1);
+    }
+
+    public void testRoundTrip() throws Exception {
+        TestModels.writeModel(modelFile, 300, DIM, 31L);
+        final FastTextModel model = FastText.loadModel(modelFile.getPath());
+        VectorFiles.writeVec(model, vectorFile.toPath(), 9);
+        final FastTextModel vectors = VectorFiles.loadVec(vectorFile.toPath(), new LoadOptions());
+        assertEquals(300, vectors.getDictionary().nwords());
+        assertEquals(DIM, vectors.getDimension());
+        assertTrue(vectors.isFullyLoaded());
+        for (String word : new String[]{"w0", "w42", "w299"}) {
+            assertTrue(word, Arrays.equals(model.getWordVector(word).toArray(), vectors.getWordVector(word).toArray()));
+        }
+        assertTrue(Arrays.equals(new float[DIM], vectors.getWordVector("unknown").toArray()));
+        assertEquals("w1", vectors.getNearestNeighbors().nearest(model.getWordVector("w1").toArray(), 1,
+                Collections.<String>emptyList()).get(0).getWord());
+
+        VectorFiles.writeVec(model, vectorFile.toPath());
+        final FastTextModel rounded = VectorFiles.loadVec(vectorFile.toPath(), new LoadOptions());
+        final float[] expected = model.getWordVector("w7").toArray();
+        final float[] actual = rounded.getWordVector("w7").toArray();
+        for (int j = 0; j < DIM; j++) {
+            assertEquals(expected[j], actual[j], Math.abs(expected[j]) * 1e-4f);
+        }
+    }
+
+    public void testParallelLoad() throws Exception {
+        // about 5MB, split in several ranges, with the irregularities found in the wild
+        final int rows = 20000;
+        final int dim = 24;
+        final float[][] values = new float[rows][dim];
+        final Random random = new Random(11L);
+        try (BufferedWriter out = Files.newBufferedWriter(vectorFile.toPath(), StandardCharsets.UTF_8)) {
+            out.write(rows + " " + dim + "\n");
+            for (int i = 0; i < rows; i++) {
+                out.write(i == 0 ? "</s>" : "мир" + i);
+                for (int j = 0; j < dim; j++) {
+                    values[i][j] = (float) (random.nextGaussian() * Math.pow(10, random.nextInt(6) - 4));
+                    out.write(' ');
+                    out.write(Float.toString(values[i][j]));
+                }
+                out.write(i % 100 == 1 ? " \r\n\n" : i < rows - 1 ? " \n" : "");
+            }
+        }
+        final FastTextModel serial = VectorFiles.loadVec(vectorFile.toPath(), new LoadOptions());
+        final FastTextModel parallel = VectorFiles.loadVec(vectorFile.toPath(), new LoadOptions().threads(4));
+        final Dictionary dict = parallel.getDictionary();
+        assertEquals(rows, dict.nwords());
+        for (int i = 0; i < rows; i++) {
+            final String word = i == 0 ? "</s>" : "мир" + i;
+            assertEquals(i, dict.getId(word));
+            assertTrue(word, Arrays.equals(values[i], parallel.getWordVector(word).toArray()));
+            assertTrue(word, Arrays.equals(values[i], serial.getWordVector(word).toArray()));
+        }
+    }
+
+    public void testInvalidFiles() throws Exception {
+        final String[] files = {"", "2\n", "2 3\nw1 1 2 3\n", "1 3\nw1 1 2\n", "1 3\nw1 1 2 3 4\n",
+                "1 3\nw1 1 x 3\n", "1 3\n 1 2 3\n"};
+        for (String content : files) {
+            Files.write(vectorFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            try {
+                VectorFiles.loadVec(vectorFile.toPath(), new LoadOptions());
+                fail(content);
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException included
+            }
+        }
+    }
+
+    public void testWriteNpy() throws Exception {
+        TestModels.writeModel(modelFile, 50, DIM, 32L);
+        final FastTextMetrics metrics = new FastTextMetrics();
+        final FastTextModel model = FastText.loadModel(modelFile.getPath(), new LoadOptions().listener(metrics));
+        VectorFiles.writeNpy(model, vectorFile.toPath());
+        // exports are not lookups
+        assertEquals(0, metrics.getWordCount());
+        assertEquals(0, model.getSubwordCacheStats().size());
+        final ByteBuffer npy = ByteBuffer.wrap(Files.readAllBytes(vectorFile.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals((byte) 0x93, npy.get(0));
+        assertEquals("NUMPY", new String(npy.array(), 1, 5, StandardCharsets.US_ASCII));
+        assertEquals(1, npy.get(6));
+        final int dataStart = 10 + npy.getShort(8);
+        assertEquals(0, dataStart % 64);
+        final String header = new String(npy.array(), 10, dataStart - 10, StandardCharsets.US_ASCII);
+        assertEquals("{'descr': '<f4', 'fortran_order': False, 'shape': (50, 8), }", header.trim());
+        assertTrue(header.endsWith("\n"));
+        assertEquals(dataStart + 50 * DIM * Float.BYTES, npy.capacity());
+        final float[] row = new float[DIM];
+        npy.position(dataStart + 17 * DIM * Float.BYTES);
+        npy.asFloatBuffer().get(row);
+        assertTrue(Arrays.equals(model.getWordVector("w17").toArray(), row));
+    }
+}
@@ -0,0 +1,95 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class WordVectorBatchTest extends TestCase {
+
+    private static final int DIM = 10;
+
+    private File modelFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        modelFile = File.createTempFile("fasttext", ".bin");
+        TestModels.writeModel(modelFile, 2000, DIM, 11L);
+    }
+
+    @Override
+    protected void tearDown() {
+        modelFile.delete();
+    }
+
+    public void testBatchMatchesSingleLookups() throws Exception {
+        // without the subword cache ngrams come from the scratch buffers
+        for (long cacheBytes : new long[]{0, LoadOptions.DEFAULT_SUBWORD_CACHE_BYTES}) {
+            final FastTextModel model = FastText.loadModel(modelFile.getPath(),
+                    new LoadOptions().subwordCacheBytes(cacheBytes));
+            final List<CharSequence> words = words(5000, 3L);
+            final float[] out = new float[words.size() * DIM];
+            model.getWordVectors(words, out);
+            assertMatches(model, words, out);
+
+            final ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+                final float[] parallel = new float[words.size() * DIM];
+                model.getWordVectors(words, parallel, pool);
+                assertMatches(model, words, parallel);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    public void testRadixSortMatchesSort() {
+        final Random random = new Random(1L);
+        for (int size : new int[]{10, 5000}) {
+            final long[] pairs = new long[size];
+            for (int k = 0; k < size; k++) {
+                // random rows exercise every radix digit
+                pairs[k] = ((long) random.nextInt(Integer.MAX_VALUE) << 32) | k;
+            }
+            final long[] expected = pairs.clone();
+            Arrays.sort(expected);
+            assertTrue(Arrays.equals(expected, WordVectorBatch.sortByRow(pairs, size)));
+        }
+    }
+
+    public void testEmptyBatch() throws Exception {
+        final FastTextModel model = FastText.loadModel(modelFile.getPath());
+        model.getWordVectors(new ArrayList<String>(), new float[0]);
+    }
+
+    /* words drawn from a skewed distribution, in and out of the vocabulary */
+    private static List<CharSequence> words(int size, long seed) {
+        final Random random = new Random(seed);
+        final List<CharSequence> words = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final int rank = (int) Math.exp(random.nextDouble() * Math.log(4000));
+            if (rank % 7 == 0) {
+                words.add(new StringBuilder("oov").append(rank));
+            } else if (rank % 11 == 0) {
+                words.add(FastTextModel.EOS);
+            } else {
+                words.add("w" + rank);
+            }
+        }
+        return words;
+    }
+
+    private static void assertMatches(FastTextModel model, List<CharSequence> words, float[] out) {
+        final float[] expected = new float[DIM];
+        for (int i = 0; i < words.size(); i++) {
+            model.getWordVector(words.get(i), expected);
+            for (int j = 0; j < DIM; j++) {
+                assertEquals(words.get(i).toString(), expected[j], out[i * DIM + j], 1e-6f);
+            }
+        }
+    }
+}
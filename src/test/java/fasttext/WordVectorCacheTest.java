@@ -0,0 +1,60 @@
+package fasttext;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Arrays;
+
+public class WordVectorCacheTest extends TestCase {
+
+    private File modelFile;
+    private FastTextModel model;
+
+    @Override
+    protected void setUp() throws Exception {
+        modelFile = File.createTempFile("fasttext", ".bin");
+        TestModels.writeModel(modelFile, 1000, 12, 5L);
+        model = FastText.loadModel(modelFile.getPath());
+    }
+
+    @Override
+    protected void tearDown() {
+        modelFile.delete();
+    }
+
+    public void testCachedVectorsMatchModel() {
+        final WordVectorCache cache = WordVectorCache.maxBytes(model, 1 << 20);
+        final float[] expected = new float[12];
+        final float[] actual = new float[12];
+        for (int round = 0; round < 2; round++) {
+            for (String word : new String[]{"w1", "w999", "oov", "é", "</s>"}) {
+                model.getWordVector(word, expected);
+                cache.getWordVector(word, actual);
+                assertTrue(word, Arrays.equals(expected, actual));
+            }
+        }
+        final CacheStats stats = cache.stats();
+        assertEquals(5, stats.hits());
+        assertEquals(5, stats.misses());
+        assertEquals(0.5, stats.hitRate());
+    }
+
+    public void testFrequentWordsSurviveScans() {
+        final WordVectorCache cache = WordVectorCache.maxEntries(model, 100);
+        final float[] out = new float[12];
+        // hot words interleaved with twice as many words seen once: a plain LRU cache of 100
+        // entries would evict each hot word before it is looked up again
+        long hotHits = 0;
+        for (int i = 0; i < 20000; i++) {
+            final long hits = cache.stats().hits();
+            cache.getWordVector("w" + (i % 50), out);
+            if (i >= 10000) {
+                hotHits += cache.stats().hits() - hits;
+            }
+            cache.getWordVector("rare" + (2 * i), out);
+            cache.getWordVector("rare" + (2 * i + 1), out);
+        }
+        assertTrue(cache.stats().toString(), hotHits >= 9000);
+        assertTrue(cache.stats().toString(), cache.stats().size() <= 100);
+    }
+}
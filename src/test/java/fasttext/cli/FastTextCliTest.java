@@ -0,0 +1,238 @@
+package fasttext.cli;
+
+import fasttext.Args;
+import fasttext.FastText;
+import fasttext.FastTextModel;
+import fasttext.NearestNeighbors;
+import fasttext.Prediction;
+import fasttext.TestModels;
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class FastTextCliTest extends TestCase {
+
+    private static final int DIM = 8;
+
+    private File modelFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        modelFile = File.createTempFile("fasttext", ".bin");
+    }
+
+    @Override
+    protected void tearDown() {
+        modelFile.delete();
+    }
+
+    public void testFloatFormat() {
+        final String[][] cases = {{"0.1", "0.1"}, {"1234.5678", "1234.6"}, {"1e-05", "1e-05"},
+                {"123456", "1.2346e+05"}, {"-0.0", "-0"}, {"1.03125", "1.0312"}, {"100000", "1e+05"},
+                {"0.0001", "0.0001"}, {"99999.5", "1e+05"}, {"12000", "12000"}, {"-0.00012345", "-0.00012345"},
+                {"3.4028235e38", "3.4028e+38"}, {"1.4e-45", "1.4013e-45"}, {"NaN", "nan"}, {"-Infinity", "-inf"}};
+        final OutputBuffer out = new OutputBuffer(16);
+        for (String[] c : cases) {
+            out.clear();
+            out.appendFloat(Float.parseFloat(c[0]), 5);
+            assertEquals(c[0], c[1], toString(out));
+        }
+        final Random random = new Random(3L);
+        for (int i = 0; i < 100000; i++) {
+            final float v = Float.intBitsToFloat(random.nextInt());
+            if (Float.isNaN(v) || Float.isInfinite(v) || v == 0.0f) {
+                continue;
+            }
+            final int digits = 1 + random.nextInt(9);
+            out.clear();
+            out.appendFloat(v, digits);
+            final String s = toString(out);
+            final BigDecimal expected = new BigDecimal(v).round(new MathContext(digits, RoundingMode.HALF_EVEN));
+            assertEquals(v + " " + s, 0, expected.compareTo(new BigDecimal(s)));
+            final int exponent = expected.precision() - expected.scale() - 1;
+            assertEquals(v + " " + s, exponent < -4 || exponent >= digits, s.contains("e"));
+        }
+    }
+
+    public void testPrintWordVectors() throws Exception {
+        TestModels.writeModel(modelFile, 300, DIM, 5L);
+        final FastTextModel model = FastText.loadModel(modelFile.getPath());
+        final StringBuilder input = new StringBuilder();
+        final List<String> words = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            final String word = i % 7 == 0 ? "oov" + i : "w" + (i * 13 % 300);
+            words.add(word);
+            input.append(word).append(i % 5 == 0 ? '\n' : i % 5 == 1 ? '\t' : ' ');
+        }
+
+        final String text = run(input.toString(), "print-word-vectors", modelFile.getPath(), "-t", "4", "-b", "3");
+        final String[] lines = text.split("\n");
+        assertEquals(words.size(), lines.length);
+        for (int i = 0; i < words.size(); i++) {
+            final String[] fields = lines[i].split(" ");
+            assertEquals(words.get(i), fields[0]);
+            assertEquals(DIM + 1, fields.length);
+            final float[] vector = model.getWordVector(words.get(i)).toArray();
+            for (int j = 0; j < DIM; j++) {
+                assertEquals(vector[j], Float.parseFloat(fields[j + 1]), 1e-4f * Math.abs(vector[j]));
+            }
+        }
+
+        final ByteBuffer binary = ByteBuffer.wrap(runBytes(input.toString(), "print-word-vectors",
+                modelFile.getPath(), "-t", "3", "-b", "2", "--format", "binary")).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(words.size() * DIM * Float.BYTES, binary.limit());
+        for (String word : words) {
+            final float[] vector = model.getWordVector(word).toArray();
+            for (int j = 0; j < DIM; j++) {
+                assertEquals(vector[j], binary.getFloat(), 0.0f);
+            }
+        }
+    }
+
+    public void testPrintSentenceVectors() throws Exception {
+        TestModels.writeModel(modelFile, 300, DIM, 6L);
+        final FastTextModel model = FastText.loadModel(modelFile.getPath());
+        final String[] sentences = {"w1 w2 w3", "", "w4 unknown", "w5"};
+        final String input = String.join("\n", sentences) + "\n";
+        final ByteBuffer binary = ByteBuffer.wrap(runBytes(input, "print-sentence-vectors", modelFile.getPath(),
+                "-f", "binary", "-t", "2", "-b", "1")).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(sentences.length * DIM * Float.BYTES, binary.limit());
+        for (String sentence : sentences) {
+            final float[] vector = model.getSentenceVector(sentence).toArray();
+            for (int j = 0; j < DIM; j++) {
+                assertEquals(vector[j], binary.getFloat(), 0.0f);
+            }
+        }
+        final String[] lines = run(input, "print-sentence-vectors", modelFile.getPath()).split("\n");
+        assertEquals(sentences.length, lines.length);
+        assertEquals(DIM, lines[0].split(" ").length);
+        assertTrue(lines[0].endsWith(" "));
+    }
+
+    public void testNearestNeighbors() throws Exception {
+        TestModels.writeModel(modelFile, 300, DIM, 7L);
+        final FastTextModel model = FastText.loadModel(modelFile.getPath());
+        final String[] lines = run("w1 w2\n", "nn", modelFile.getPath(), "3").split("\n");
+        assertEquals(6, lines.length);
+        final List<NearestNeighbors.Neighbor> expected = new ArrayList<>(model.getNearestNeighbors().nearest("w1", 3));
+        expected.addAll(model.getNearestNeighbors().nearest("w2", 3));
+        for (int i = 0; i < lines.length; i++) {
+            final String[] fields = lines[i].split(" ");
+            assertEquals(expected.get(i).getWord(), fields[0]);
+            assertEquals(expected.get(i).getSimilarity(), Float.parseFloat(fields[1]), 1e-5f);
+        }
+    }
+
+    public void testPredict() throws Exception {
+        final String[] words = {"</s>", "the", "match", "stocks", "fell"};
+        final String[] labels = {"__label__sports", "__label__finance", "__label__arts"};
+        TestModels.writeSupervisedModel(modelFile, words, labels, new long[]{30, 20, 10}, Args.LossName.SOFTMAX,
+                2, 101, DIM, 8L);
+        final FastTextModel model = FastText.loadModel(modelFile.getPath());
+        final File input = File.createTempFile("fasttext", ".txt");
+        try {
+            Files.write(input.toPath(), "the match\nstocks fell\n\nfell\n".getBytes(StandardCharsets.UTF_8));
+            final String[] lines = run("", "predict-prob", modelFile.getPath(), input.getPath(), "2").split("\n");
+            final String[] texts = {"the match", "stocks fell", "", "fell"};
+            assertEquals(texts.length, lines.length);
+            for (int i = 0; i < texts.length; i++) {
+                final List<Prediction> predictions = model.predict(texts[i], 2, 0.0f);
+                final String[] fields = lines[i].split(" ");
+                assertEquals(2 * predictions.size(), fields.length);
+                for (int j = 0; j < predictions.size(); j++) {
+                    assertEquals(predictions.get(j).getLabel(), fields[2 * j]);
+                    assertEquals(predictions.get(j).getProbability(), Float.parseFloat(fields[2 * j + 1]), 1e-5f);
+                }
+            }
+            final String best = run("", "predict", modelFile.getPath(), input.getPath());
+            assertEquals(model.predict("the match").get(0).getLabel(), best.split("\n")[0]);
+        } finally {
+            input.delete();
+        }
+    }
+
+    public void testPipelineFailsOnProcessorError() throws Exception {
+        final StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            input.append("line").append(i).append('\n');
+        }
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Long> run = executor.submit(() -> new LinePipeline(2, 10, 4).run(
+                    new BufferedReader(new StringReader(input.toString())), new ByteArrayOutputStream(),
+                    () -> (line, out) -> {
+                        if (line.equals("line555")) {
+                            throw new StackOverflowError();
+                        }
+                        out.append(line).append('\n');
+                    }));
+            try {
+                run.get(30, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof StackOverflowError);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testUsageErrors() throws Exception {
+        TestModels.writeModel(modelFile, 10, DIM, 9L);
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final PrintStream errors = new PrintStream(err, true, "UTF-8");
+        final ByteArrayInputStream in = new ByteArrayInputStream(new byte[0]);
+        assertEquals(1, FastTextCli.run(new String[]{"unknown", modelFile.getPath()}, in, new ByteArrayOutputStream(),
+                errors));
+        assertTrue(err.toString("UTF-8").contains("print-sentence-vectors"));
+        assertEquals(1, FastTextCli.run(new String[]{"predict", modelFile.getPath()}, in, new ByteArrayOutputStream(),
+                errors));
+        assertTrue(err.toString("UTF-8").contains("not supervised"));
+        assertEquals(1, FastTextCli.run(new String[]{"nn", modelFile.getPath(), "-f", "binary"}, in,
+                new ByteArrayOutputStream(), errors));
+    }
+
+    private static String run(String input, String... args) throws Exception {
+        return new String(runBytes(input, args), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] runBytes(String input, String... args) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final int status = FastTextCli.run(args, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                out, new PrintStream(err, true, "UTF-8"));
+        assertEquals(err.toString("UTF-8"), 0, status);
+        return out.toByteArray();
+    }
+
+    private static String toString(OutputBuffer buffer) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            buffer.writeTo(out);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,144 @@
+package fasttext.store;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+public class InputStreamFastTextInputTest extends TestCase {
+
+    /* values decoded per block by the bulk reads */
+    private static final int BLOCK = (1 << 15) / Float.BYTES;
+    private static final int[] LENGTHS = {0, 1, 7, BLOCK - 1, BLOCK, BLOCK + 1, 3 * BLOCK + 5};
+
+    public void testReadFloats() throws Exception {
+        final Random random = new Random(5L);
+        for (int length : LENGTHS) {
+            final float[] values = new float[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = (float) random.nextGaussian();
+            }
+            for (int offset : new int[]{0, 3}) {
+                final byte[] bytes = bytes(values, null);
+                final InputStreamFastTextInput in = new InputStreamFastTextInput(new ByteArrayInputStream(bytes));
+                assertFloats(in, values, offset);
+                assertFloats(new ByteInput(bytes), values, offset);
+            }
+        }
+    }
+
+    public void testReadInts() throws Exception {
+        final Random random = new Random(6L);
+        for (int length : LENGTHS) {
+            final int[] values = new int[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = random.nextInt();
+            }
+            for (int offset : new int[]{0, 3}) {
+                final byte[] bytes = bytes(null, values);
+                final InputStreamFastTextInput in = new InputStreamFastTextInput(new ByteArrayInputStream(bytes));
+                assertInts(in, values, offset);
+                assertInts(new ByteInput(bytes), values, offset);
+            }
+        }
+    }
+
+    public void testEofInsideBlock() throws Exception {
+        // the last block is incomplete
+        final byte[] bytes = bytes(new float[BLOCK + 10], null);
+        final InputStreamFastTextInput floats = new InputStreamFastTextInput(new ByteArrayInputStream(bytes));
+        try {
+            floats.readFloats(new float[2 * BLOCK], 0, 2 * BLOCK);
+            fail();
+        } catch (EOFException e) {
+            // expected
+        }
+        final InputStreamFastTextInput ints = new InputStreamFastTextInput(new ByteArrayInputStream(bytes, 0, 10));
+        ints.readByte();
+        try {
+            ints.readInts(new int[3], 0, 3);
+            fail();
+        } catch (EOFException e) {
+            // 9 bytes left of 12
+        }
+    }
+
+    /**
+     * A byte and the values, little-endian, so that they are not aligned in the stream.
+     */
+    private static byte[] bytes(float[] floats, int[] ints) {
+        final int length = floats != null ? floats.length : ints.length;
+        final ByteBuffer buffer = ByteBuffer.allocate(1 + length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 42);
+        for (int i = 0; i < length; i++) {
+            if (floats != null) {
+                buffer.putFloat(floats[i]);
+            } else {
+                buffer.putInt(ints[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static void assertFloats(FastTextInput in, float[] values, int offset) throws IOException {
+        assertEquals(42, in.readByte());
+        final float[] dst = new float[offset + values.length + 2];
+        Arrays.fill(dst, -1.0f);
+        in.readFloats(dst, offset, values.length);
+        for (int i = 0; i < dst.length; i++) {
+            final boolean read = i >= offset && i < offset + values.length;
+            assertEquals(read ? values[i - offset] : -1.0f, dst[i]);
+        }
+        assertEquals(1 + values.length * Float.BYTES, in.getFilePointer());
+    }
+
+    private static void assertInts(FastTextInput in, int[] values, int offset) throws IOException {
+        assertEquals(42, in.readByte());
+        final int[] dst = new int[offset + values.length + 2];
+        Arrays.fill(dst, -1);
+        in.readInts(dst, offset, values.length);
+        for (int i = 0; i < dst.length; i++) {
+            final boolean read = i >= offset && i < offset + values.length;
+            assertEquals(read ? values[i - offset] : -1, dst[i]);
+        }
+        assertEquals(1 + values.length * Integer.BYTES, in.getFilePointer());
+    }
+
+    /**
+     * Input with the element by element bulk reads of {@link DataInput}.
+     */
+    private static final class ByteInput extends FastTextInput {
+        private final byte[] bytes;
+        private int position;
+
+        ByteInput(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            if (position == bytes.length) {
+                throw new EOFException();
+            }
+            return bytes[position++];
+        }
+
+        @Override
+        public int readBytes(byte[] b, int offset, int len) throws IOException {
+            for (int i = 0; i < len; i++) {
+                b[offset + i] = readByte();
+            }
+            return len;
+        }
+
+        @Override
+        public long getFilePointer() {
+            return position;
+        }
+    }
+}
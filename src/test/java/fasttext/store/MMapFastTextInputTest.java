@@ -0,0 +1,137 @@
+package fasttext.store;
+
+import junit.framework.TestCase;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+public class MMapFastTextInputTest extends TestCase {
+
+    private static final int ROWS = 37;
+    private static final int COLS = 5;
+
+    private File file;
+    private float[] floats;
+    private int[] ints;
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("fasttext", ".bin");
+        final Random random = new Random(3L);
+        floats = new float[ROWS * COLS];
+        ints = new int[1001];
+        for (int i = 0; i < floats.length; i++) {
+            floats[i] = (float) random.nextGaussian();
+        }
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = random.nextInt();
+        }
+        // an odd header, so that values straddle the chunks
+        try (ChannelFastTextOutput out = ChannelFastTextOutput.create(file.toPath())) {
+            out.writeByte((byte) 7);
+            out.writeInt(-42);
+            out.writeLong(Long.MIN_VALUE + 3);
+            out.writeDouble(Math.PI);
+            out.writeFloats(floats, 0, floats.length);
+            out.writeInts(ints, 0, ints.length);
+            out.writeFloat(2.5f);
+        }
+    }
+
+    @Override
+    protected void tearDown() {
+        file.delete();
+    }
+
+    public void testSmallChunksReadAsStream() throws Exception {
+        for (int chunkSizePower = 0; chunkSizePower <= 6; chunkSizePower++) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                 MMapFastTextInput mmap = new MMapFastTextInput(channel, chunkSizePower);
+                 InputStreamFastTextInput stream = new InputStreamFastTextInput(Files.newInputStream(file.toPath()))) {
+                assertEquals(stream.readByte(), mmap.readByte());
+                assertEquals(stream.readInt(), mmap.readInt());
+                assertEquals(stream.readLong(), mmap.readLong());
+                assertEquals(stream.readDouble(), mmap.readDouble());
+                final float[] expectedFloats = new float[floats.length + 3];
+                final float[] actualFloats = new float[floats.length + 3];
+                stream.readFloats(expectedFloats, 3, floats.length);
+                mmap.readFloats(actualFloats, 3, floats.length);
+                assertTrue(Arrays.equals(expectedFloats, actualFloats));
+                assertTrue(Arrays.equals(floats, Arrays.copyOfRange(actualFloats, 3, actualFloats.length)));
+                final int[] expectedInts = new int[ints.length];
+                final int[] actualInts = new int[ints.length];
+                stream.readInts(expectedInts, 0, ints.length);
+                mmap.readInts(actualInts, 0, ints.length);
+                assertTrue(Arrays.equals(expectedInts, actualInts));
+                assertTrue(Arrays.equals(ints, actualInts));
+                assertEquals(stream.getFilePointer(), mmap.getFilePointer());
+                assertEquals(2.5f, mmap.readFloat());
+                assertEquals(mmap.length(), mmap.getFilePointer());
+                try {
+                    mmap.readByte();
+                    fail();
+                } catch (EOFException e) {
+                    // past the last chunk
+                }
+
+                mmap.seek(21 + (4L * COLS + 1) * Float.BYTES);
+                assertEquals(floats[4 * COLS + 1], mmap.readFloat());
+            }
+        }
+    }
+
+    public void testMapRowsOverSeveralBuffers() throws Exception {
+        for (int rowsPerChunk : new int[]{1, 4, ROWS - 1, ROWS, Integer.MAX_VALUE}) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                 MMapFastTextInput mmap = new MMapFastTextInput(channel, 4);
+                 InputStream in = Files.newInputStream(file.toPath())) {
+                final InputStreamFastTextInput stream = new InputStreamFastTextInput(in);
+                mmap.seek(21);
+                stream.skipBytes(21);
+                final ByteBuffer[] buffers = mmap.mapRows(ROWS, COLS, rowsPerChunk);
+                assertEquals((ROWS + Math.min(rowsPerChunk, ROWS) - 1) / Math.min(rowsPerChunk, ROWS), buffers.length);
+                assertEquals(21 + ROWS * COLS * Float.BYTES, mmap.getFilePointer());
+                assertEquals(ints[0], mmap.readInt());
+                final float[] expected = new float[COLS];
+                final float[] actual = new float[COLS];
+                for (int i = 0; i < ROWS; i++) {
+                    stream.readFloats(expected, 0, COLS);
+                    final ByteBuffer buffer = buffers[i / rowsPerChunk].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                    buffer.position((i % rowsPerChunk) * COLS * Float.BYTES);
+                    buffer.asFloatBuffer().get(actual);
+                    assertTrue("row " + i, Arrays.equals(expected, actual));
+                }
+            }
+        }
+    }
+
+    public void testCloseUnmapsChunks() throws Exception {
+        final BufferPoolMXBean mapped = mappedPool();
+        final long before = mapped.getCount();
+        final MMapFastTextInput mmap = new MMapFastTextInput(
+                FileChannel.open(file.toPath(), StandardOpenOption.READ), 6);
+        final long chunks = (mmap.length() + 63) / 64;
+        assertEquals(before + chunks, mapped.getCount());
+        mmap.close();
+        assertEquals(before, mapped.getCount());
+    }
+
+    private static BufferPoolMXBean mappedPool() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("mapped")) {
+                return pool;
+            }
+        }
+        throw new AssertionError("No mapped buffer pool");
+    }
+}